@@ -0,0 +1,219 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import wordsearch.WordSearch;
+import wordsearch.file.AsciiFileProcessor;
+import wordsearch.file.CorpusGenerator;
+import wordsearch.file.FileHeader;
+import wordsearch.file.MemoryPageStore;
+import wordsearch.metrics.LatencyHistogram;
+import wordsearch.metrics.Metrics;
+import wordsearch.structures.btree.BTree;
+import wordsearch.structures.btree.TreePage;
+import wordsearch.structures.btree.TreeRecord;
+import wordsearch.structures.index.Index;
+import wordsearch.structures.index.IndexPage;
+import wordsearch.structures.index.IndexRecord;
+
+/**
+ * Micro-benchmarks for the build and query paths of the package. Every benchmark runs a fixed number of warm-up
+ * iterations, which are not measured, followed by a fixed number of measured iterations, and it reports the mean,
+ * median and 99th percentile of the time per operation. All inputs are generated from fixed seeds, so two runs
+ * on the same machine execute exactly the same operations and their results can be compared to detect regressions.
+ *
+ * Usage: {@code java -cp classes Benchmarks [inputDirectory] [benchmarkName ...]}
+ */
+public class Benchmarks {
+
+	public static final int SIZEOF_KEY = 12;
+	public static final int SIZEOF_FILENAME = 20;
+	public static final long SEED = 42;
+
+	public static final String INPUT_DIRECTORY = "input/";
+	public static final String[] INPUT_FILES = {"Kennedy.txt", "MartinLutherKing.txt", "Obama.txt"};
+	public static final String WORK_DIRECTORY = "bench-data/";
+
+	public static volatile long sink;  //consumes the results of the benchmarks, so that they are not optimized away
+
+	private interface Operation {
+		void run(int iteration) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		String inputDirectory = (args.length>0) ? args[0] : INPUT_DIRECTORY;
+		ArrayList<String> selected = new ArrayList<String>();
+		for(int i=1;i<args.length;i++)
+			selected.add(args[i]);
+
+		new File(WORK_DIRECTORY).mkdirs();
+		System.out.println("java " + System.getProperty("java.version") + ", " + System.getProperty("os.name") + ", seed " + SEED);
+		System.out.println(String.format("%-32s %10s %14s %14s %14s", "benchmark", "ops", "mean (ns/op)", "p50 (ns/op)", "p99 (ns/op)"));
+
+		if(selected.isEmpty() || selected.contains("tokenize"))
+			tokenize(inputDirectory);
+		if(selected.isEmpty() || selected.contains("pages"))
+			pages();
+		if(selected.isEmpty() || selected.contains("searchTree"))
+			searchTree();
+		if(selected.isEmpty() || selected.contains("findData"))
+			findData();
+		if(selected.isEmpty() || selected.contains("build"))
+			build();
+
+		deleteDirectory(new File(WORK_DIRECTORY));
+	}
+
+	/**
+	 * Measures the throughput of {@link AsciiFileProcessor}, by reading all the words of the input files.
+	 */
+	public static void tokenize(String inputDirectory) throws IOException {
+		long bytes = 0;
+		for(String f : INPUT_FILES)
+			bytes += new File(inputDirectory + f).length();
+
+		LatencyHistogram h = measure("tokenize (all input files)", 20, 200, iteration -> {
+			for(String f : INPUT_FILES) {
+				AsciiFileProcessor reader = new AsciiFileProcessor(inputDirectory + f);
+				for(String word=reader.readNext(); word!=null; word=reader.readNext())
+					sink += word.length();
+				reader.close();
+			}
+		});
+		System.out.println(String.format("%-32s %10.2f MB/s", "  tokenize throughput", bytes/h.getMean()*1e9/(1<<20)));
+	}
+
+	/**
+	 * Measures the conversion of full {@link TreePage} and {@link IndexPage} objects into byte arrays and back.
+	 */
+	public static void pages() throws IOException {
+		Random random = new Random(SEED);
+		int[] pageSizes = {128, 4096};
+
+		for(int pageSize : pageSizes) {
+			TreePage treePage = new TreePage(SIZEOF_KEY, pageSize);
+			for(int i=0;i<treePage.RECORDS_PER_PAGE-1;i++)  //one record less than the capacity, as in every page written by the BTree
+				treePage.addRecord(new TreeRecord(randomWord(random), i, SIZEOF_KEY));
+			byte[] treeBytes = treePage.toByteArray();
+
+			IndexPage indexPage = new IndexPage(SIZEOF_FILENAME, pageSize);
+			for(int i=0;i<indexPage.RECORDS_PER_PAGE;i++)
+				indexPage.addRecord(new IndexRecord(INPUT_FILES[i%INPUT_FILES.length], random.nextInt(1<<20), SIZEOF_FILENAME));
+			byte[] indexBytes = indexPage.toByteArray();
+
+			measure("TreePage encode (" + pageSize + " B)", 2000, 20000, iteration -> sink += treePage.toByteArray().length);
+			measure("TreePage decode (" + pageSize + " B)", 2000, 20000, iteration -> sink += new TreePage(SIZEOF_KEY, pageSize, treeBytes).getSize());
+			measure("IndexPage encode (" + pageSize + " B)", 2000, 20000, iteration -> sink += indexPage.toByteArray().length);
+			measure("IndexPage decode (" + pageSize + " B)", 2000, 20000, iteration -> sink += new IndexPage(SIZEOF_FILENAME, pageSize, indexBytes).getNextPage());
+		}
+	}
+
+	/**
+	 * Measures {@link BTree#searchTree(String)} for existing keys, on trees of the same vocabulary with different page sizes (and thus different depths).
+	 * Every tree is measured both in a binary file and in a {@link MemoryPageStore}, so that the cost of the search itself is separated from the cost of the I/O.
+	 */
+	public static void searchTree() throws IOException {
+		int[] pageSizes = {128, 256, 512, 1024};
+		String[] keys = randomVocabulary(20000);
+
+		for(int pageSize : pageSizes) {
+			for(boolean inMemory : new boolean[] {false, true}) {
+				BTree tree = inMemory ? new BTree(SIZEOF_KEY, new MemoryPageStore(pageSize, FileHeader.getNumOfHeaderPages(pageSize), false))
+						: new BTree(pageSize, SIZEOF_KEY, WORK_DIRECTORY + "btree-" + pageSize + ".dat");
+				tree.clearDataOfTreeFile();
+				for(int i=0;i<keys.length;i++)
+					tree.insert(new TreeRecord(keys[i], i, SIZEOF_KEY));
+
+				Metrics metrics = new Metrics();
+				tree.setMetrics(metrics);
+				measure("searchTree (" + pageSize + " B" + (inMemory ? ", memory)" : ")"), 20000, 100000, iteration -> sink += tree.searchTree(keys[(int)((iteration*7919L)%keys.length)]));
+				System.out.println(String.format("%-32s %10.2f pages/search", "  tree depth", metrics.getTreeDepth().getMean()));
+				tree.close();
+			}
+		}
+	}
+
+	/**
+	 * Measures {@link Index#findData(int, String[])} on a chain of a single page and on a chain of many pages.
+	 */
+	public static void findData() throws IOException {
+		Random random = new Random(SEED);
+		int[] chainLengths = {1, 100};
+		String[] fileNames = new String[INPUT_FILES.length];
+		for(int f=0;f<INPUT_FILES.length;f++)
+			fileNames[f] = INPUT_DIRECTORY + INPUT_FILES[f];
+
+		for(int chainLength : chainLengths) {
+			Index index = new Index(SIZEOF_FILENAME, 128, WORK_DIRECTORY + "index-" + chainLength + ".dat");
+			index.clearDataOfIndexFile();
+			int head = index.addRecord(-1, new IndexRecord(fileNames[0], 0, SIZEOF_FILENAME));
+			for(int i=1;i<chainLength*index.RECORDS_PER_INDEX_PAGE;i++)
+				index.addRecord(head, new IndexRecord(fileNames[i%fileNames.length], random.nextInt(1<<20), SIZEOF_FILENAME));
+
+			measure("findData (" + chainLength + " page chain)", 1000, (chainLength==1) ? 100000 : 5000, iteration -> sink += index.findData(head, fileNames).size());
+			index.close();
+		}
+	}
+
+	/**
+	 * Measures {@link WordSearch#buildDataFiles()} on a corpus generated by {@link CorpusGenerator}.
+	 * The data files are built in a temporary directory, which is deleted afterwards, so that the data files of the current directory are not replaced.
+	 */
+	public static void build() throws IOException {
+		String[] fileNames = new CorpusGenerator(SEED, 2000, 1.0).generate(WORK_DIRECTORY, 4, 12000);
+		File dataDirectory = Files.createTempDirectory("wordsearch-bench").toFile();
+		WordSearch system = new WordSearch(SIZEOF_KEY, SIZEOF_FILENAME, 128, fileNames, dataDirectory.getPath());
+
+		try {
+			measure("buildDataFiles (4 x 12 KB)", 1, 5, iteration -> sink += system.buildDataFiles());
+		}finally {
+			system.close();
+			deleteDirectory(dataDirectory);
+		}
+	}
+
+	/**
+	 * Runs an operation repeatedly and prints the statistics of its measured iterations.
+	 * @return A {@link LatencyHistogram} with the time (in nanoseconds) of every measured iteration.
+	 */
+	private static LatencyHistogram measure(String name, int warmupIterations, int measuredIterations, Operation operation) throws IOException {
+		LatencyHistogram h = new LatencyHistogram();
+		long start;
+
+		for(int i=0;i<warmupIterations;i++)
+			operation.run(i);
+		for(int i=0;i<measuredIterations;i++) {
+			start = System.nanoTime();
+			operation.run(i);
+			h.record(System.nanoTime()-start);
+		}
+		System.out.println(String.format("%-32s %10d %14.1f %14d %14d", name, h.getCount(), h.getMean(), h.getValueAtPercentile(50), h.getValueAtPercentile(99)));
+		return h;
+	}
+
+	private static String[] randomVocabulary(int size) {
+		Random random = new Random(SEED);
+		String[] vocabulary = new String[size];
+		for(int i=0;i<size;i++)
+			vocabulary[i] = randomWord(random) + i;  //the suffix guarantees that all words are unique
+		return vocabulary;
+	}
+
+	private static String randomWord(Random random) {
+		String word = "";
+		int length = 2 + random.nextInt(7);
+		for(int i=0;i<length;i++)
+			word += (char)('a' + random.nextInt(26));
+		return word;
+	}
+
+	private static void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if(files!=null)
+			for(File f : files)
+				f.delete();
+		directory.delete();
+	}
+}
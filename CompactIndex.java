@@ -0,0 +1,35 @@
+import wordsearch.WordSearch;
+
+/**
+ * Compacts the data files of the package in the current directory offline, and reports the fragmentation of the index before and after.
+ * The sizes must be the same as those used when the data files were built. The names of the input files are read from the table of files.
+ *
+ * Usage: {@code java -cp classes CompactIndex [sizeofKey sizeofFilename sizeofPage]}
+ */
+public class CompactIndex {
+
+	public static final int SIZEOF_KEY = 12;
+	public static final int SIZEOF_FILENAME = 8;
+	public static final int SIZEOF_PAGE = 128;
+
+	public static void main(String[] args) throws Exception {
+		if(args.length!=0 && args.length!=3) {  //the sizes must be given together, so that none of them is silently taken from the defaults
+			System.err.println("Usage: java -cp classes CompactIndex [sizeofKey sizeofFilename sizeofPage]");
+			System.exit(-1);
+		}
+		int sizeofKey = (args.length>0) ? Integer.parseInt(args[0]) : SIZEOF_KEY;
+		int sizeofFilename = (args.length>1) ? Integer.parseInt(args[1]) : SIZEOF_FILENAME;
+		int sizeofPage = (args.length>2) ? Integer.parseInt(args[2]) : SIZEOF_PAGE;
+
+		WordSearch system = new WordSearch(sizeofKey, sizeofFilename, sizeofPage, new String[0]);
+		long start = System.nanoTime();
+		double[] fragmentation = system.compactIndex();
+		if(fragmentation==null)
+			System.exit(-1);
+
+		System.out.println(String.format("fragmentation before: %.4f", fragmentation[0]));
+		System.out.println(String.format("fragmentation after:  %.4f", fragmentation[1]));
+		System.out.println(String.format("time: %.2f s", (System.nanoTime()-start)/1e9));
+		system.close();
+	}
+}
@@ -0,0 +1,104 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import wordsearch.WordSearch;
+
+/**
+ * Checks that the words which end with a control character are found in the same way by every kind of question. The lines of a file with CRLF
+ * line endings end with a {@code '\r'}, which is part of the last word of every line (e.g. "beta\r"), and whose key is less than the key of
+ * the word without it ("beta"). The suggestions and the compact dictionary must be built without errors, and every word which is provided by
+ * the fuzzy, substring and regular expression searches must have the same number of occurrences as the exact lookup of that word.
+ * The input files are written into a work directory, and the program exits with status 1 if any check fails.
+ *
+ * Usage: {@code java -cp classes ControlCharTest [workDirectory]}
+ */
+public class ControlCharTest {
+
+	public static final int SIZEOF_PAGE = 128;
+	public static final int SIZEOF_KEY = 12;
+	public static final int SIZEOF_FILENAME = 40;
+	public static final int NUM_OF_FILLER_WORDS = 300;  //so that the BTree has more than two levels, and the searches skip some subtrees
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws IOException {
+		String workDirectory = (args.length>0) ? args[0] : "controlchar-data/";
+		String[] fileNames = {workDirectory + "crlf.txt", workDirectory + "lf.txt"};
+
+		new File(workDirectory).mkdirs();
+		StringBuilder crlf = new StringBuilder("alpha beta\r\nbeta gamma\r\n\r\nbetas\r\n");
+		for(int i=0;i<NUM_OF_FILLER_WORDS;i++)
+			crlf.append("w").append(i).append((i%10==9) ? "\r\n" : " ");
+		write(fileNames[0], crlf.toString());
+		write(fileNames[1], "beta alpha\nbeta\n");
+
+		for(boolean trigrams : new boolean[] {false, true}) {
+			WordSearch system = new WordSearch(SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_PAGE, fileNames, workDirectory);
+			system.setTrigramIndexEnabled(trigrams);
+			String label = trigrams ? " (trigrams)" : "";
+			check("build" + label, system.buildDataFiles()>0);
+			check("occurrences of 'beta'" + label, system.count("beta")[0]==3);
+			check("occurrences of 'beta\\r'" + label, system.count("beta\r")[0]==1);
+
+			ArrayList<String[]> suggestions = system.suggest("bet", 10);
+			check("suggestions of 'bet'" + label, contains(suggestions, "beta") && contains(suggestions, "beta\r") && contains(suggestions, "betas\r"));
+
+			ArrayList<String[]> similar = system.findSimilarWords("beta", 1);
+			check("similar words of 'beta'" + label, contains(similar, "beta") && contains(similar, "beta\r"));
+			boolean consistent = true;
+			for(String[] s : similar)
+				consistent &= system.count(s[0])[0]==Integer.parseInt(s[2]);
+			check("similar words match their lookups" + label, consistent);
+
+			ArrayList<String> containing = system.findWordsContaining("eta");
+			check("words containing 'eta'" + label, containing.contains("beta") && containing.contains("beta\r") && containing.contains("betas\r"));
+			check("words containing 'eta' match their lookups" + label, allFound(system, containing));
+
+			ArrayList<String> matching = system.findWordsMatching("beta.", 100);
+			check("words matching 'beta.'" + label, matching.size()==1 && matching.contains("beta\r"));
+			matching = system.findWordsMatching(".*\r", 1000);
+			check("words matching '.*\\r'" + label, matching.contains("\r") && matching.contains("gamma\r") && matching.contains("w9\r"));
+			check("words matching '.*\\r' match their lookups" + label, allFound(system, matching));
+			check("words matching '.*'" + label, system.findWordsMatching(".*", 1000).size()==6+NUM_OF_FILLER_WORDS);
+
+			check("build of the compact dictionary" + label, system.buildCompactDictionary()>0);
+			check("use of the compact dictionary" + label, system.useCompactDictionary(true));
+			check("compact lookup of 'beta'" + label, system.count("beta")[0]==3);
+			check("compact lookup of 'beta\\r'" + label, system.count("beta\r")[0]==1);
+			check("compact lookup of '\\r'" + label, system.count("\r")[0]==1);
+			system.close();
+		}
+
+		System.out.println((failures==0) ? "All checks passed." : failures + " checks failed.");
+		if(failures>0)
+			System.exit(1);
+	}
+
+	private static void write(String fileName, String contents) throws IOException {
+		FileWriter writer = new FileWriter(fileName);
+		writer.write(contents);
+		writer.close();
+	}
+
+	private static boolean contains(ArrayList<String[]> results, String word) {
+		for(String[] r : results)
+			if(r[0].equals(word))
+				return true;
+		return false;
+	}
+
+	private static boolean allFound(WordSearch system, ArrayList<String> words) {
+		for(String word : words)
+			if(system.count(word)[0]==0)
+				return false;
+		return true;
+	}
+
+	private static void check(String name, boolean passed) {
+		System.out.println(String.format("%-50s %s", name, passed ? "ok" : "FAILED"));
+		if(!passed)
+			failures++;
+	}
+}
@@ -0,0 +1,66 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+import wordsearch.WordSearch;
+import wordsearch.file.AsciiFileProcessor;
+import wordsearch.metrics.MetricsSnapshot;
+import wordsearch.structures.btree.BTree;
+import wordsearch.structures.index.Index;
+
+/**
+ * Builds the data files of the package from the same input files with every page size from 128 bytes to 64 KB, and reports the figures
+ * which help to choose the best page size for a corpus: the height of the BTree, the fill factors of the BTree and the index, the sizes of
+ * their binary files, and the pages and bytes read (as well as the time) per question, for questions about every word of the input files.
+ * The data files of every page size are written in a separate directory under the work directory.
+ *
+ * Usage: {@code java -cp classes PageSizeReport [workDirectory] [inputFile ...]}
+ */
+public class PageSizeReport {
+
+	public static final int SIZEOF_KEY = 12;
+	public static final int SIZEOF_FILENAME = 20;
+	public static final String[] INPUT_FILES = {"input/Kennedy.txt", "input/MartinLutherKing.txt", "input/Obama.txt"};
+
+	public static void main(String[] args) throws Exception {
+		String workDirectory = (args.length>0) ? args[0] : "pagesize-data/";
+		String[] fileNames = (args.length>1) ? new String[args.length-1] : INPUT_FILES;
+		for(int i=1;i<args.length;i++)
+			fileNames[i-1] = args[i];
+
+		TreeSet<String> vocabulary = new TreeSet<String>();
+		for(String f : fileNames) {
+			AsciiFileProcessor reader = new AsciiFileProcessor(f);
+			for(String word=reader.readNext(); word!=null; word=reader.readNext())
+				vocabulary.add(word.toLowerCase());
+			reader.close();
+		}
+		String[] questions = vocabulary.toArray(new String[vocabulary.size()]);
+
+		System.out.println(String.format("%8s %7s %10s %10s %12s %12s %12s %14s %12s",
+				"page (B)", "height", "btree fill", "index fill", "btree (KB)", "index (KB)", "pages/query", "bytes/query", "us/query"));
+		for(int pageSize=128;pageSize<=WordSearch.MAX_DISK_PAGE;pageSize*=2) {
+			String directory = workDirectory + pageSize + "/";
+			WordSearch system = new WordSearch(SIZEOF_KEY, SIZEOF_FILENAME, pageSize, fileNames, directory);
+			system.buildDataFiles();
+
+			system.resetNumOfDiskAccesses();
+			long start = System.nanoTime();
+			ArrayList<ArrayList<String[]>> results = system.answerQuestions(questions);
+			double microsPerQuestion = (System.nanoTime()-start)/1e3/results.size();
+			MetricsSnapshot snapshot = system.getMetricsSnapshot();
+			int height = system.getTreeHeight();
+			system.close();
+
+			BTree tree = new BTree(pageSize, SIZEOF_KEY, system.BTREE_FILENAME);
+			Index index = new Index(SIZEOF_FILENAME, pageSize, system.INDEX_FILENAME);
+			System.out.println(String.format("%8d %7d %10.3f %10.3f %12.1f %12.1f %12.2f %14.0f %12.1f",
+					pageSize, height, tree.getFillFactor(), index.getFillFactor(),
+					new File(system.BTREE_FILENAME).length()/1024.0, new File(system.INDEX_FILENAME).length()/1024.0,
+					(double)(snapshot.getTreePageReads()+snapshot.getIndexPageReads())/questions.length,
+					(double)(snapshot.getTreeBytesRead()+snapshot.getIndexBytesRead())/questions.length, microsPerQuestion));
+			tree.close();
+			index.close();
+		}
+	}
+}
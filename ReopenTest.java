@@ -0,0 +1,76 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import wordsearch.WordSearch;
+
+/**
+ * Checks that the data files which are opened with {@link WordSearch#open(String)} can be updated and rebuilt incrementally:
+ * the input files of the opened system are the ones which were indexed, so an update keeps their occurrences, indexes again only
+ * a file which has changed, and a rebuild indexes the same files again. The input files are copied into a work directory,
+ * so that one of them can be modified, and the program exits with status 1 if any check fails.
+ *
+ * Usage: {@code java -cp classes ReopenTest [inputDirectory] [workDirectory]}
+ */
+public class ReopenTest {
+
+	public static final int SIZEOF_PAGE = 128;
+	public static final int SIZEOF_KEY = 12;
+	public static final int SIZEOF_FILENAME = 40;
+	public static final String[] INPUT_FILES = {"Kennedy.txt", "MartinLutherKing.txt", "Obama.txt"};
+	public static final String WORD = "president";
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws IOException {
+		String inputDirectory = (args.length>0) ? args[0] : "input/";
+		String workDirectory = (args.length>1) ? args[1] : "reopen-data/";
+		String[] fileNames = new String[INPUT_FILES.length];
+
+		new File(workDirectory).mkdirs();
+		for(int i=0;i<INPUT_FILES.length;i++) {
+			fileNames[i] = workDirectory + INPUT_FILES[i];
+			Files.copy(new File(inputDirectory + INPUT_FILES[i]).toPath(), new File(fileNames[i]).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		WordSearch system = new WordSearch(SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_PAGE, fileNames, workDirectory);
+		check("build", system.buildDataFiles()>0);
+		int occurrences = countOccurrences(system);
+		check("occurrences of '" + WORD + "' after the build", occurrences>0);
+		system.close();
+
+		system = WordSearch.open(workDirectory);
+		check("open", system!=null);
+		check("query after open", countOccurrences(system)==occurrences);
+		check("update of unchanged files", system.updateDataFiles()==0);
+		check("query after update", countOccurrences(system)==occurrences);
+
+		FileWriter writer = new FileWriter(fileNames[0], true);  //one more occurrence, at the end of the first file
+		writer.write("\n" + WORD + "\n");
+		writer.close();
+		check("update of a changed file", system.updateDataFiles()==1);
+		check("query after a changed file", countOccurrences(system)==occurrences+1);
+		system.close();
+
+		system = WordSearch.open(workDirectory);
+		check("rebuild after open", system.buildDataFiles()>0);
+		check("query after rebuild", countOccurrences(system)==occurrences+1);
+		system.close();
+
+		System.out.println((failures==0) ? "All checks passed." : failures + " checks failed.");
+		if(failures>0)
+			System.exit(1);
+	}
+
+	private static int countOccurrences(WordSearch system) {
+		return system.answerQuestions(new String[] {WORD}).get(0).size();
+	}
+
+	private static void check(String name, boolean passed) {
+		System.out.println(String.format("%-40s %s", name, passed ? "ok" : "FAILED"));
+		if(!passed)
+			failures++;
+	}
+}
@@ -0,0 +1,81 @@
+import java.io.File;
+import java.util.Random;
+
+import wordsearch.WordSearch;
+import wordsearch.file.CorpusGenerator;
+import wordsearch.metrics.LatencyHistogram;
+
+/**
+ * Builds the data files of the package from generated corpora of increasing size, and reports the build time,
+ * the sizes of the binary files, the height of the BTree and the latency percentiles of the questions.
+ * The corpora are generated by {@link CorpusGenerator} from a fixed seed, so every run processes exactly the same input.
+ * The data files are written in a scratch directory next to the corpus of every size (e.g. {@code scale-data/10MB/data/}),
+ * so the data files of the current directory are never replaced.
+ *
+ * Usage: {@code java -cp classes ScaleTest [workDirectory] [size ...]}, where every size is given as e.g. {@code 10MB}, {@code 1GB} or {@code 10GB}.
+ */
+public class ScaleTest {
+
+	public static final int SIZEOF_KEY = 16;
+	public static final int SIZEOF_PAGE = 128;
+	public static final long SEED = 42;
+	public static final long MAX_BYTES_PER_FILE = 64L<<20;
+	public static final int NUM_OF_QUESTIONS = 10000;
+
+	public static void main(String[] args) throws Exception {
+		String workDirectory = (args.length>0) ? args[0] : "scale-data/";
+		String[] sizes = (args.length>1) ? new String[args.length-1] : new String[] {"10MB", "1GB", "10GB"};
+		for(int i=1;i<args.length;i++)
+			sizes[i-1] = args[i];
+
+		System.out.println(String.format("%-6s %6s %10s %10s %12s %12s %7s %10s %10s %10s %10s",
+				"size", "files", "words", "build (s)", "btree (MB)", "index (MB)", "height", "p50 (us)", "p90 (us)", "p99 (us)", "p99.9 (us)"));
+		for(String size : sizes)
+			run(workDirectory + size + "/", parseSize(size), size);
+	}
+
+	/**
+	 * Generates a corpus of the given size, builds the data files from it and answers some questions.
+	 */
+	private static void run(String directory, long totalBytes, String label) throws Exception {
+		long bytesPerFile = Math.min(totalBytes, MAX_BYTES_PER_FILE);
+		int numOfFiles = (int)((totalBytes + bytesPerFile - 1) / bytesPerFile);
+		int vocabularySize = (int)Math.min(1000000, Math.max(10000, 40*Math.sqrt(totalBytes/6.0)));  //Heaps' law, with words of ~6 bytes
+
+		CorpusGenerator generator = new CorpusGenerator(SEED, vocabularySize, 1.0);
+		String[] fileNames = generator.generate(directory, numOfFiles, bytesPerFile);
+		int sizeofFilename = fileNames[fileNames.length-1].length();  //all names have the same length, so no two of them are truncated to the same prefix
+
+		WordSearch system = new WordSearch(SIZEOF_KEY, sizeofFilename, SIZEOF_PAGE, fileNames, directory + "data/");
+		long start = System.nanoTime();
+		int words = system.buildDataFiles();
+		double buildSeconds = (System.nanoTime()-start)/1e9;
+
+		String[] questions = new String[NUM_OF_QUESTIONS];
+		Random random = new Random(SEED);
+		for(int i=0;i<questions.length;i++)  //one out of ten questions asks for a word that does not exist
+			questions[i] = (i%10==9) ? generator.nextWord(random) + "zq" : generator.nextWord(random);
+		system.resetMetrics();
+		system.answerQuestions(questions);
+		LatencyHistogram latency = system.getMetricsSnapshot().getHistograms().getLookupLatency();
+
+		System.out.println(String.format("%-6s %6d %10d %10.1f %12.1f %12.1f %7d %10.1f %10.1f %10.1f %10.1f",
+				label, numOfFiles, words, buildSeconds,
+				new File(system.BTREE_FILENAME).length()/1048576.0, new File(system.INDEX_FILENAME).length()/1048576.0,
+				system.getTreeHeight(),
+				latency.getValueAtPercentile(50)/1e3, latency.getValueAtPercentile(90)/1e3,
+				latency.getValueAtPercentile(99)/1e3, latency.getValueAtPercentile(99.9)/1e3));
+		system.close();
+	}
+
+	private static long parseSize(String size) {
+		String s = size.toUpperCase();
+		if(s.endsWith("GB"))
+			return Long.parseLong(s.substring(0, s.length()-2)) << 30;
+		if(s.endsWith("MB"))
+			return Long.parseLong(s.substring(0, s.length()-2)) << 20;
+		if(s.endsWith("KB"))
+			return Long.parseLong(s.substring(0, s.length()-2)) << 10;
+		return Long.parseLong(s);
+	}
+}
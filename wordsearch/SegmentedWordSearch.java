@@ -0,0 +1,414 @@
+package wordsearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import wordsearch.file.AsciiFileProcessor;
+import wordsearch.segment.Segment;
+import wordsearch.segment.TieredMergePolicy;
+import wordsearch.structures.btree.TreeRecord;
+import wordsearch.structures.index.IndexRecord;
+
+/**
+ * This class implements a variant of {@link WordSearch} whose data files consist of immutable segments, in the manner of a log-structured merge tree.
+ * Every call of {@link #addFiles(String[])} reads the new files into memory and writes them as a new {@link Segment}, with sequential writes only,
+ * instead of inserting every occurrence into a single BTree and index with random writes. A background thread merges consecutive segments of similar
+ * size, following a {@link TieredMergePolicy}, so that the number of segments stays small. Questions search every segment, from the oldest to the
+ * newest, and concatenate their occurrences, so the results are the same as those of a {@link WordSearch} built from the same files in the same order.
+ * <p>
+ * The list of segments is replaced (and never modified) when a segment is added or merged, so questions read it without any locking, and they may
+ * be asked by many threads at the same time, even while a merge is in progress. The list of segments and the names of the files are saved in a
+ * manifest, which is replaced atomically, so the data files can be reopened by a later execution.
+ * @author Georgios Apostolakis
+ */
+public class SegmentedWordSearch {
+	private volatile Segment[] segments;
+	private volatile String[] fileNames;
+	private int nextSegmentId;
+	private TieredMergePolicy mergePolicy;
+	private ExecutorService merger;
+	private final Object writeLock = new Object();
+
+	/**
+	 * The exact size of every word, as stored in the dictionaries of the segments.
+	 */
+	public final int SIZEOF_KEY;
+
+	/**
+	 * The exact size of every filename, as stored in the indices of the segments.
+	 */
+	public final int SIZEOF_FILENAME;
+
+	/**
+	 * The exact size of every disk page of the segments.
+	 */
+	public final int SIZEOF_DISK_PAGE;
+
+	/**
+	 * The directory where the segments and the manifest are stored.
+	 */
+	public final String DIRECTORY;
+
+	/**
+	 * The name of the binary file (in {@link #DIRECTORY}) where the list of segments and the names of the files are stored.
+	 */
+	public final String MANIFEST_FILENAME = "segments.dat";
+
+	/**
+	 * The default number of segments of the same tier which are merged together.
+	 */
+	public static final int DEFAULT_MERGE_FACTOR = 4;
+
+	/**
+	 * The default maximum size (in pages of the index) of the segments of the first tier.
+	 */
+	public static final int DEFAULT_MIN_SEGMENT_PAGES = 64;
+
+	/**
+	 * Constructs a new instance of this class with the default {@link TieredMergePolicy}. If the directory contains a manifest, then its segments are opened.
+	 * @param SIZEOF_KEY The value for the {@link #SIZEOF_KEY} constant of this class.
+	 * @param SIZEOF_FILENAME The value for the {@link #SIZEOF_FILENAME} constant of this class.
+	 * @param SIZEOF_DISK_PAGE The value for the {@link #SIZEOF_DISK_PAGE} constant of this class.
+	 * @param directory The value for the {@link #DIRECTORY} constant of this class. It is created if it does not exist.
+	 */
+	public SegmentedWordSearch(int SIZEOF_KEY, int SIZEOF_FILENAME, int SIZEOF_DISK_PAGE, String directory) {
+		this(SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_DISK_PAGE, directory, new TieredMergePolicy(DEFAULT_MERGE_FACTOR, DEFAULT_MIN_SEGMENT_PAGES));
+	}
+
+	/**
+	 * Constructs a new instance of this class. If the directory contains a manifest, then its segments are opened.
+	 * @param SIZEOF_KEY The value for the {@link #SIZEOF_KEY} constant of this class.
+	 * @param SIZEOF_FILENAME The value for the {@link #SIZEOF_FILENAME} constant of this class.
+	 * @param SIZEOF_DISK_PAGE The value for the {@link #SIZEOF_DISK_PAGE} constant of this class.
+	 * @param directory The value for the {@link #DIRECTORY} constant of this class. It is created if it does not exist.
+	 * @param mergePolicy The {@link TieredMergePolicy} which decides which segments are merged.
+	 * @throws IllegalArgumentException If the size of the disk pages is not valid (see {@link WordSearch#isValidPageSize(int, int, int)}).
+	 */
+	public SegmentedWordSearch(int SIZEOF_KEY, int SIZEOF_FILENAME, int SIZEOF_DISK_PAGE, String directory, TieredMergePolicy mergePolicy) {
+		if(!WordSearch.isValidPageSize(SIZEOF_DISK_PAGE, SIZEOF_KEY, SIZEOF_FILENAME))
+			throw new IllegalArgumentException("Invalid size of disk pages: " + SIZEOF_DISK_PAGE + ".");
+		this.SIZEOF_KEY = SIZEOF_KEY;
+		this.SIZEOF_FILENAME = SIZEOF_FILENAME;
+		this.SIZEOF_DISK_PAGE = SIZEOF_DISK_PAGE;
+		this.DIRECTORY = (directory.isEmpty() || directory.endsWith("/")) ? directory : directory + "/";
+		this.mergePolicy = mergePolicy;
+		this.segments = new Segment[0];
+		this.fileNames = new String[0];
+		this.nextSegmentId = 0;
+		this.merger = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "wordsearch-merger");
+			t.setDaemon(true);
+			return t;
+		});
+
+		new File(DIRECTORY.isEmpty() ? "." : DIRECTORY).mkdirs();
+		try {
+			readManifest();
+		} catch(IOException e) {
+			System.err.println("Error. The manifest " + DIRECTORY + MANIFEST_FILENAME + " is not accessible.");
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Reads some new ASCII files and stores their words into a new segment. The files must not have been added before.
+	 * If there are enough segments of the same size afterwards, a merge is started in the background.
+	 * @param newFileNames A {@link java.lang.String String[]} array with the names of the new files.
+	 * @return An integer with the total number of words (not essentially unique) that were read from the files, or -1 in case of an error.
+	 */
+	public int addFiles(String[] newFileNames) {
+		TreeMap<String, ArrayList<IndexRecord>> occurrences = new TreeMap<String, ArrayList<IndexRecord>>();
+		ArrayList<IndexRecord> chain;
+		int wordCounter = 0;
+		String key;
+
+		if(newFileNames.length==0)
+			return 0;
+		try {
+			for(String f : newFileNames) {
+				AsciiFileProcessor reader = new AsciiFileProcessor(f);
+				int pos = (int)reader.getFilePosition();
+				for(key=reader.readNext(); key!=null; key=reader.readNext()) {
+					wordCounter++;
+					key = new TreeRecord(key, 0, SIZEOF_KEY).getKey();  //the constructor formats the key
+					chain = occurrences.get(key);
+					if(chain==null) {
+						chain = new ArrayList<IndexRecord>();
+						occurrences.put(key, chain);
+					}
+					chain.add(new IndexRecord(f, pos, SIZEOF_FILENAME));
+					pos = (int)reader.getFilePosition();
+				}
+				reader.close();
+			}
+
+			synchronized(writeLock) {
+				Segment s = Segment.create(DIRECTORY, nextSegmentId++, SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_DISK_PAGE, occurrences);
+				Segment[] newSegments = new Segment[segments.length+1];
+				System.arraycopy(segments, 0, newSegments, 0, segments.length);
+				newSegments[segments.length] = s;
+				String[] newNames = new String[fileNames.length+newFileNames.length];
+				System.arraycopy(fileNames, 0, newNames, 0, fileNames.length);
+				System.arraycopy(newFileNames, 0, newNames, fileNames.length, newFileNames.length);
+
+				fileNames = newNames;  //the names must be known before the segment is searched
+				segments = newSegments;
+				writeManifest();
+			}
+		} catch(IOException e) {
+			System.err.println("Error. Unable to add the files to the segments at " + DIRECTORY + ".");
+			return -1;
+		}
+
+		merger.submit(this::mergeSegments);
+		return wordCounter;
+	}
+
+	/**
+	 * It provides the occurrences of the given words into all the files which have been added. The method may be called by many threads at the same time.
+	 * @param questions A {@link java.lang.String String[]} array. Each entry is a word to be searched for into the files.
+	 * @return An {@link java.util.ArrayList} object, each entry of which contains the list of occurrences for the respective question,
+	 * in the same format as {@link WordSearch#answerQuestions(String[])}.
+	 */
+	public ArrayList<ArrayList<String[]>> answerQuestions(String[] questions) {
+		ArrayList<ArrayList<String[]>> results = new ArrayList<ArrayList<String[]>>();
+		Segment[] snapshot = acquireSegments();
+		String[] names = fileNames;
+
+		try {
+			for(int i=0;i<questions.length;i++) {
+				String key = new TreeRecord(questions[i], 0, SIZEOF_KEY).getKey();
+				ArrayList<String[]> occurrences = new ArrayList<String[]>();
+				try {
+					for(Segment s : snapshot)
+						for(IndexRecord r : s.lookup(key))
+							occurrences.add(new String[] {resolveFilename(names, r.getFilename()), r.getOffset()+""});
+				} catch(IOException e) {
+					System.err.println("Error. The segments at " + DIRECTORY + " are not accessible.");
+				}
+				results.add(occurrences);
+			}
+		} finally {
+			releaseSegments(snapshot);
+		}
+		return results;
+	}
+
+	/**
+	 * Provides the number of occurrences of a word and the number of files which contain it, from the BTrees of the segments alone.
+	 * Every file is added to a single segment, so the statistics of the segments are added. The method may be called by many threads at the same time.
+	 * @param word A {@link java.lang.String} with the word.
+	 * @return An integer array with the number of occurrences and the number of files, or {@code null} in case of an error while reading the segments.
+	 */
+	public int[] count(String word) {
+		int[] total = new int[2];
+		Segment[] snapshot = acquireSegments();
+		String key = new TreeRecord(word, 0, SIZEOF_KEY).getKey();
+
+		try {
+			for(Segment s : snapshot) {
+				int[] stats = s.count(key);
+				if(stats!=null) {
+					total[0] += stats[0];
+					total[1] += stats[1];
+				}
+			}
+		} catch(IOException e) {
+			System.err.println("Error. The segments at " + DIRECTORY + " are not accessible.");
+			return null;
+		} finally {
+			releaseSegments(snapshot);
+		}
+		return total;
+	}
+
+	/**
+	 * Waits until all the pending merges have finished, and then releases the files of all segments.
+	 * @throws IOException In case of an error while closing the files.
+	 */
+	public void close() throws IOException {
+		merger.shutdown();
+		try {
+			merger.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized(writeLock) {
+			for(Segment s : segments)
+				s.close();
+			segments = new Segment[0];
+		}
+	}
+
+	/**
+	 * Provides the names of all the files which have been added, in the order they were added.
+	 * @return A {@link java.lang.String String[]} array with the names of the files.
+	 */
+	public String[] getFileNames() {
+		return fileNames.clone();
+	}
+
+	/**
+	 * Provides the current number of segments.
+	 * @return An integer with the number of segments.
+	 */
+	public int getNumOfSegments() {
+		return segments.length;
+	}
+
+	/**
+	 * Blocks until all the merges which have been started (and any merges they lead to) have finished.
+	 */
+	public void waitForMerges() {
+		try {
+			merger.submit(() -> {}).get();  //the merges run in a single thread, in the order they were started
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(ExecutionException e) {
+			System.err.println("Error. " + e.getCause());
+		}
+	}
+
+	/**
+	 * Obtains a reference to every segment of the current list. If a segment is retired in the meantime, the list is read again.
+	 */
+	private Segment[] acquireSegments() {
+		while(true) {
+			Segment[] snapshot = segments;
+			int acquired = 0;
+			while(acquired<snapshot.length && snapshot[acquired].acquire())
+				acquired++;
+			if(acquired==snapshot.length)
+				return snapshot;
+			for(int i=0;i<acquired;i++)  //a merge replaced some of the segments
+				releaseQuietly(snapshot[i]);
+		}
+	}
+
+	/**
+	 * Merges segments in the background, as long as the {@link TieredMergePolicy} finds segments to be merged.
+	 * The new segment replaces the merged ones at the same position of the list, so the order of the occurrences is preserved.
+	 */
+	private void mergeSegments() {
+		while(true) {
+			Segment[] toMerge;
+			int[] run;
+			int id;
+
+			try {
+				synchronized(writeLock) {
+					int[] sizes = new int[segments.length];
+					for(int i=0;i<segments.length;i++)
+						sizes[i] = segments[i].getSizeInPages();
+					run = mergePolicy.findMerge(sizes);
+					if(run==null)
+						return;
+					toMerge = new Segment[run[1]-run[0]];
+					System.arraycopy(segments, run[0], toMerge, 0, toMerge.length);
+					id = nextSegmentId++;
+				}
+
+				Segment merged = Segment.merge(DIRECTORY, id, toMerge);  //the segments are only read, so questions are not blocked
+
+				synchronized(writeLock) {  //only this thread replaces segments, and new segments are appended, so the merged ones are still at the same position
+					Segment[] newSegments = new Segment[segments.length-toMerge.length+1];
+					System.arraycopy(segments, 0, newSegments, 0, run[0]);
+					newSegments[run[0]] = merged;
+					System.arraycopy(segments, run[1], newSegments, run[0]+1, segments.length-run[1]);
+					segments = newSegments;
+					writeManifest();
+				}
+				for(Segment s : toMerge)
+					s.retire();
+			} catch(IOException e) {
+				System.err.println("Error. Unable to merge the segments at " + DIRECTORY + ".");
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads the list of segments and the names of the files from the manifest, if it exists, and opens the segments.
+	 */
+	private void readManifest() throws IOException {
+		File manifest = new File(DIRECTORY + MANIFEST_FILENAME);
+		if(!manifest.exists())
+			return;
+
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)));
+		try {
+			nextSegmentId = dis.readInt();
+			Segment[] loaded = new Segment[dis.readInt()];
+			for(int i=0;i<loaded.length;i++)
+				loaded[i] = new Segment(DIRECTORY, dis.readInt(), SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_DISK_PAGE);
+			String[] names = new String[dis.readInt()];
+			for(int i=0;i<names.length;i++)
+				names[i] = dis.readUTF();
+			fileNames = names;
+			segments = loaded;
+		} finally {
+			dis.close();
+		}
+	}
+
+	/**
+	 * Releases the references obtained by {@link #acquireSegments()}.
+	 */
+	private void releaseSegments(Segment[] snapshot) {
+		for(Segment s : snapshot)
+			releaseQuietly(s);
+	}
+
+	private void releaseQuietly(Segment s) {
+		try {
+			s.release();
+		} catch(IOException e) {
+			System.err.println("Error. Unable to delete the files of segment " + s.ID + ".");
+		}
+	}
+
+	/**
+	 * Finds the whole name of a file from its (possibly truncated) name, as stored in an {@link wordsearch.structures.index.IndexRecord}.
+	 */
+	private String resolveFilename(String[] names, String stored) {
+		for(String name : names)
+			if(name.regionMatches(0, stored, 0, Math.min(name.length(), stored.length())))
+				return name;
+		return stored.trim();
+	}
+
+	/**
+	 * Writes the list of segments and the names of the files into a temporary file, which then replaces the manifest.
+	 * It must be called while holding the write lock.
+	 */
+	private void writeManifest() throws IOException {
+		File tmp = new File(DIRECTORY + MANIFEST_FILENAME + ".tmp");
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			dos.writeInt(nextSegmentId);
+			dos.writeInt(segments.length);
+			for(Segment s : segments)
+				dos.writeInt(s.ID);
+			dos.writeInt(fileNames.length);
+			for(String name : fileNames)
+				dos.writeUTF(name);
+		} finally {
+			dos.close();
+		}
+		Files.move(tmp.toPath(), new File(DIRECTORY + MANIFEST_FILENAME).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,184 @@
+package wordsearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class partitions the input ASCII files among some shards, each one of which is a {@link WordSearch} instance with its data files in its own directory.
+ * The directories may be placed on different disks, so the shards are built in parallel and their questions are answered in parallel, without
+ * competing for the same disk or the same files. Every question is sent to all the shards at the same time, and their occurrences are merged in the
+ * order of the input files, so the results are the same as those of a single {@link WordSearch} with the same input files.
+ * <p>
+ * The files are assigned to the shards before the data files are built: every file (in the given order) is assigned to the shard with the fewest bytes
+ * so far, so the shards receive roughly equal amounts of input. The questions of an instance must be asked by one thread at a time.
+ * @author Georgios Apostolakis
+ */
+public class ShardedWordSearch {
+	private WordSearch[] shards;
+	private HashMap<String, Integer> fileOrder;  //the position of every input file in the given order
+	private ExecutorService workers;
+
+	/**
+	 * Constructs a new instance of this class, with one shard for every given directory.
+	 * If the data files of a shard have already been built, they are opened as described at {@link WordSearch#WordSearch(int, int, int, String[], String)}.
+	 * @param SIZEOF_KEY The exact size of every word, as stored in the dictionaries of the shards.
+	 * @param SIZEOF_FILENAME The exact size of every filename, as stored in the indices of the shards.
+	 * @param SIZEOF_DISK_PAGE The exact size of every disk page of the shards.
+	 * @param fileNames A {@link java.lang.String String[]} array with the names of the input ASCII files.
+	 * No two of them should have the same first {@link WordSearch#SIZEOF_FILENAME} characters.
+	 * @param shardDirectories A {@link java.lang.String String[]} array with a different directory for the data files of every shard.
+	 */
+	public ShardedWordSearch(int SIZEOF_KEY, int SIZEOF_FILENAME, int SIZEOF_DISK_PAGE, String[] fileNames, String[] shardDirectories) {
+		ArrayList<ArrayList<String>> partition = new ArrayList<ArrayList<String>>();
+		long[] bytes = new long[shardDirectories.length];
+		int smallest;
+
+		if(shardDirectories.length==0)
+			throw new IllegalArgumentException("At least one shard directory is required.");
+
+		for(int s=0;s<shardDirectories.length;s++)
+			partition.add(new ArrayList<String>());
+		this.fileOrder = new HashMap<String, Integer>();
+		for(int f=0;f<fileNames.length;f++) {
+			smallest = 0;
+			for(int s=1;s<shardDirectories.length;s++)
+				if(bytes[s]<bytes[smallest])
+					smallest = s;
+			partition.get(smallest).add(fileNames[f]);
+			bytes[smallest] += new File(fileNames[f]).length();
+			fileOrder.put(fileNames[f], f);
+		}
+
+		this.shards = new WordSearch[shardDirectories.length];
+		for(int s=0;s<shards.length;s++)
+			shards[s] = new WordSearch(SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_DISK_PAGE,
+					partition.get(s).toArray(new String[partition.get(s).size()]), shardDirectories[s]);
+
+		this.workers = Executors.newFixedThreadPool(shards.length, r -> {
+			Thread t = new Thread(r, "wordsearch-shard");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * It provides the occurrences of the given words into all the input ASCII files. The questions are answered by all the shards in parallel.
+	 * @param questions A {@link java.lang.String String[]} array. Each entry is a word to be searched for into the input ASCII files.
+	 * @return An {@link java.util.ArrayList} object, each entry of which contains the list of occurrences for the respective question,
+	 * in the same format as {@link WordSearch#answerQuestions(String[])}.
+	 */
+	public ArrayList<ArrayList<String[]>> answerQuestions(String[] questions) {
+		ArrayList<ArrayList<ArrayList<String[]>>> shardResults = runOnAllShards(shard -> shard.answerQuestions(questions));
+		ArrayList<ArrayList<String[]>> results = new ArrayList<ArrayList<String[]>>();
+
+		for(int q=0;q<questions.length;q++) {
+			ArrayList<String[]> occurrences = new ArrayList<String[]>();
+			for(ArrayList<ArrayList<String[]>> r : shardResults)
+				if(r!=null && q<r.size())
+					occurrences.addAll(r.get(q));
+			Collections.sort(occurrences, (a, b) -> Integer.compare(order(a[0]), order(b[0])));  //stable, so the occurrences of every file remain in their order
+			results.add(occurrences);
+		}
+		return results;
+	}
+
+	/**
+	 * Provides the number of occurrences of a word and the number of files which contain it, as {@link WordSearch#count(String)}.
+	 * Every file belongs to a single shard, so the statistics of the shards are added.
+	 * @param word A {@link java.lang.String} with the word.
+	 * @return An integer array with the number of occurrences and the number of files, or {@code null} in case of an error in some shard.
+	 */
+	public int[] count(String word) {
+		int[] total = new int[2];
+		for(WordSearch shard : shards) {
+			int[] stats = shard.count(word);
+			if(stats==null)
+				return null;
+			total[0] += stats[0];
+			total[1] += stats[1];
+		}
+		return total;
+	}
+
+	/**
+	 * Builds the data files of all the shards in parallel.
+	 * @return An integer with the total number of words (not essentially unique) that were read from the input files.
+	 */
+	public int buildDataFiles() {
+		int wordCounter = 0;
+		for(Integer words : runOnAllShards(shard -> shard.buildDataFiles()))
+			wordCounter += (words==null) ? 0 : words;
+		return wordCounter;
+	}
+
+	/**
+	 * Closes the data files of all the shards, without terminating the program. The instance must not be used afterwards.
+	 * @throws IOException In case of an error while closing the data files.
+	 */
+	public void close() throws IOException {
+		workers.shutdown();
+		for(WordSearch shard : shards)
+			shard.close();
+	}
+
+	/**
+	 * Provides the number of shards.
+	 * @return An integer with the number of shards.
+	 */
+	public int getNumOfShards() {
+		return shards.length;
+	}
+
+	/**
+	 * Provides a shard, e.g. in order to read its metrics.
+	 * @param i The number of the shard, from 0 to {@link #getNumOfShards()}-1.
+	 * @return The {@link WordSearch} object of the shard.
+	 */
+	public WordSearch getShard(int i) {
+		return shards[i];
+	}
+
+	/**
+	 * The position of a file in the order of the input files. Files which were not given to the constructor (but were loaded from the data files of a shard) follow all the others.
+	 */
+	private int order(String fileName) {
+		Integer f = fileOrder.get(fileName);
+		return (f==null) ? Integer.MAX_VALUE : f;
+	}
+
+	/**
+	 * Runs a task on every shard in parallel, and waits for all of them.
+	 * @return An {@link java.util.ArrayList} with the result of every shard, which is {@code null} for the shards whose task failed.
+	 */
+	private <T> ArrayList<T> runOnAllShards(ShardTask<T> task) {
+		ArrayList<Future<T>> futures = new ArrayList<Future<T>>();
+		ArrayList<T> results = new ArrayList<T>();
+
+		for(WordSearch shard : shards)
+			futures.add(workers.submit((Callable<T>)() -> task.run(shard)));
+		for(int s=0;s<futures.size();s++) {
+			try {
+				results.add(futures.get(s).get());
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				results.add(null);
+			} catch(ExecutionException e) {
+				System.err.println("Error. The shard at " + shards[s].DATA_DIRECTORY + " failed: " + e.getCause());
+				results.add(null);
+			}
+		}
+		return results;
+	}
+
+	private interface ShardTask<T> {
+		T run(WordSearch shard);
+	}
+}
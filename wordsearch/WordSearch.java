@@ -1,14 +1,45 @@
 package wordsearch;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Predicate;
 
 import wordsearch.file.AsciiFileProcessor;
+import wordsearch.file.BinFileProcessor;
+import wordsearch.file.FileHeader;
+import wordsearch.file.FileTable;
+import wordsearch.file.MappedPageStore;
+import wordsearch.file.MemoryPageStore;
+import wordsearch.file.PageStore;
+import wordsearch.metrics.Metrics;
+import wordsearch.metrics.MetricsSnapshot;
+import wordsearch.ranking.Bm25Ranker;
+import wordsearch.structures.Dictionary;
+import wordsearch.structures.bitmap.FileSetIndex;
+import wordsearch.structures.bitmap.RoaringBitmap;
+import wordsearch.structures.bloom.BloomFilter;
 import wordsearch.structures.btree.BTree;
+import wordsearch.structures.btree.BTreeCursor;
+import wordsearch.structures.btree.LevenshteinAutomaton;
+import wordsearch.structures.btree.RegexAutomaton;
+import wordsearch.structures.btree.TreePage;
 import wordsearch.structures.btree.TreeRecord;
+import wordsearch.structures.cache.QueryCache;
+import wordsearch.structures.fst.FstBuilder;
+import wordsearch.structures.fst.FstDictionary;
+import wordsearch.structures.index.ChainCursor;
 import wordsearch.structures.index.Index;
 import wordsearch.structures.index.IndexRecord;
+import wordsearch.structures.index.SkipTable;
+import wordsearch.structures.trie.SuggestionTrie;
+import wordsearch.structures.trigram.TrigramIndex;
 
 /**
  * This class implements a system that searches for one or more words into some ASCII files.
@@ -22,6 +53,26 @@ public class WordSearch {
 	private BTree dictionary;
 	private Index index;
 	private String[] fileNames;
+	private String[] inputFileNames;
+	private FileTable fileTable;
+	private boolean fileTableLoaded;
+	private boolean dataFilesValid;
+	private int vocabularySize;
+	private int generation;
+	private QueryCache cache;
+	private BloomFilter bloomFilter;
+	private double bloomFalsePositiveRate;
+	private SuggestionTrie suggestions;
+	private FstDictionary compactDictionary;
+	private TrigramIndex trigramIndex;
+	private boolean trigramIndexEnabled;
+	private long trigramIndexBuildTime;
+	private FileSetIndex fileSetIndex;
+	private boolean fileSetIndexEnabled;
+	private Metrics metrics;
+	private int pinnedLevels;
+	private long maxPinnedBytes;
+	private int indexReadAhead;
 	
 	/**
 	 * The exact size of every word, as stored in the dictionary of the system.
@@ -41,36 +92,315 @@ public class WordSearch {
 	 * The exact size of every disk page.
 	 * Both the BTree and the index are implemented on the disk, thus all their data are saved
 	 * in pages of a size defined by this constant.
+	 * It must be a power of two (see {@link #isValidPageSize(int, int, int)}), so that every page is aligned to the blocks of the storage device.
 	 */
 	public final int SIZEOF_DISK_PAGE;
 	
+	/**
+	 * The default number of files provided by {@link #answerRankedQuestion(String[], int)}.
+	 */
+	public static final int DEFAULT_TOP_K = 20;
+	
+	/**
+	 * The default maximum number of words whose occurrences are provided for a regular expression (see {@link #answerRegexQuestion(String, int)}).
+	 */
+	public static final int DEFAULT_MAX_EXPANSIONS = 1024;
+	
+	/**
+	 * The largest supported size of a disk page (64 KB).
+	 */
+	public static final int MAX_DISK_PAGE = 1<<16;
+	
+	/**
+	 * The storage of the pages of the BTree and the index in binary files, which are read and written with system calls.
+	 */
+	public static final int FILE_STORAGE = 0;
+	
+	/**
+	 * The storage of the pages of the BTree and the index in binary files, which are mapped into memory.
+	 */
+	public static final int MAPPED_STORAGE = 1;
+	
+	/**
+	 * The storage of the pages of the BTree and the index in the memory of the JVM (on its heap). The data files are lost when the system is closed.
+	 */
+	public static final int HEAP_STORAGE = 2;
+	
+	/**
+	 * The storage of the pages of the BTree and the index in memory off the heap of the JVM. The data files are lost when the system is closed.
+	 */
+	public static final int OFF_HEAP_STORAGE = 3;
+	
+	/**
+	 * The storage of the pages of the BTree and the index: one of {@link #FILE_STORAGE}, {@link #MAPPED_STORAGE}, {@link #HEAP_STORAGE} or {@link #OFF_HEAP_STORAGE}.
+	 * With the last two, nothing is read from, written into or deleted from the {@link #DATA_DIRECTORY}, so an instance in memory never affects
+	 * the data files of another instance on the disk, and the compact dictionary (see {@link #buildCompactDictionary()}) is not available.
+	 */
+	public final int STORAGE;
+	
+	/**
+	 * The directory where the data files are stored. It is empty for the current directory, and otherwise it ends with a slash.
+	 */
+	public final String DATA_DIRECTORY;
+	
 	/**
 	 * The name of the binary file where the BTree will be saved.
+	 * It starts with a {@link wordsearch.file.FileHeader}, as does the binary file of the index.
 	 */
-	public final String BTREE_FILENAME = "wordsearch-btree.dat";
+	public final String BTREE_FILENAME;
 	
 	/**
 	 * The name of the binary file where the index will be saved.
 	 */
-	public final String INDEX_FILENAME = "wordsearch-index.dat";
+	public final String INDEX_FILENAME;
+	
+	/**
+	 * The name of the binary file where the Bloom filter over the keys of the dictionary will be saved.
+	 */
+	public final String BLOOM_FILENAME;
+	
+	/**
+	 * The name of the binary file where the table with the indexed input files will be saved.
+	 */
+	public final String FILES_FILENAME;
+	
+	/**
+	 * The name of the binary file where the compact, read-only dictionary will be saved (see {@link #buildCompactDictionary()}).
+	 */
+	public final String FST_FILENAME;
+	
+	/**
+	 * The name of the binary file where the index of the trigrams of the words will be saved (see {@link #setTrigramIndexEnabled(boolean)}).
+	 */
+	public final String TRIGRAMS_FILENAME;
+	
+	/**
+	 * The name of the binary file where the sets of the files which contain every word will be saved (see {@link #setFileSetIndexEnabled(boolean)}).
+	 */
+	public final String FILESETS_FILENAME;
+	
+	/**
+	 * The name of the binary file where the skip pointers of the chains of the index will be saved (see {@link wordsearch.structures.index.SkipTable}).
+	 */
+	public final String SKIPS_FILENAME;
+	
+	private static final String BTREE_BASENAME = "wordsearch-btree.dat";
 	
 	/**
 	 * Constructs a new instance of this class.
+	 * If the data files have already been built, the table of the indexed files is loaded, and its files (instead of the given ones)
+	 * are the ones whose occurrences are returned, until the data files are built or updated again.
 	 * @param SIZEOF_KEY The integer value for the {@link #SIZEOF_KEY} constant of this class.
 	 * @param SIZEOF_FILENAME The integer value for the {@link #SIZEOF_FILENAME} constant of this class.
 	 * @param SIZEOF_DISK_PAGE The integer value for the {@link #SIZEOF_DISK_PAGE} constant of this class.
 	 * @param fileNames A {@link java.lang.String String[]} array with the name of the input ASCII files.
+	 * No two of them should have the same first {@link #SIZEOF_FILENAME} characters.
 	 */
 	public WordSearch(int SIZEOF_KEY, int SIZEOF_FILENAME, int SIZEOF_DISK_PAGE, String[] fileNames){
+		this(SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_DISK_PAGE, fileNames, "");
+	}
+	
+	/**
+	 * Constructs a new instance of this class, whose data files are stored in a given directory instead of the current one.
+	 * Thus, multiple instances may be used at the same time, e.g. with their data files on different disks.
+	 * @param SIZEOF_KEY The integer value for the {@link #SIZEOF_KEY} constant of this class.
+	 * @param SIZEOF_FILENAME The integer value for the {@link #SIZEOF_FILENAME} constant of this class.
+	 * @param SIZEOF_DISK_PAGE The integer value for the {@link #SIZEOF_DISK_PAGE} constant of this class.
+	 * @param fileNames A {@link java.lang.String String[]} array with the name of the input ASCII files.
+	 * No two of them should have the same first {@link #SIZEOF_FILENAME} characters.
+	 * @param dataDirectory The directory for the {@link #DATA_DIRECTORY} constant of this class. It is created if it does not exist.
+	 * @throws IllegalArgumentException If the size of the disk pages is not valid (see {@link #isValidPageSize(int, int, int)}).
+	 */
+	public WordSearch(int SIZEOF_KEY, int SIZEOF_FILENAME, int SIZEOF_DISK_PAGE, String[] fileNames, String dataDirectory){
+		this(SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_DISK_PAGE, fileNames, dataDirectory, FILE_STORAGE);
+	}
+	
+	/**
+	 * Constructs a new instance of this class, whose BTree and index are stored in a given kind of storage.
+	 * With {@link #HEAP_STORAGE} or {@link #OFF_HEAP_STORAGE} the data files are built in memory, so the questions about a small corpus
+	 * are answered without any access to the disk, but the data files have to be built again by every new instance.
+	 * @param SIZEOF_KEY The integer value for the {@link #SIZEOF_KEY} constant of this class.
+	 * @param SIZEOF_FILENAME The integer value for the {@link #SIZEOF_FILENAME} constant of this class.
+	 * @param SIZEOF_DISK_PAGE The integer value for the {@link #SIZEOF_DISK_PAGE} constant of this class.
+	 * @param fileNames A {@link java.lang.String String[]} array with the name of the input ASCII files.
+	 * No two of them should have the same first {@link #SIZEOF_FILENAME} characters.
+	 * @param dataDirectory The directory for the {@link #DATA_DIRECTORY} constant of this class. It is created if it does not exist.
+	 * @param STORAGE The integer value for the {@link #STORAGE} constant of this class.
+	 * @throws IllegalArgumentException If the size of the disk pages is not valid (see {@link #isValidPageSize(int, int, int)}), or the storage is unknown.
+	 */
+	public WordSearch(int SIZEOF_KEY, int SIZEOF_FILENAME, int SIZEOF_DISK_PAGE, String[] fileNames, String dataDirectory, int STORAGE){
+		if(STORAGE<FILE_STORAGE || STORAGE>OFF_HEAP_STORAGE)
+			throw new IllegalArgumentException("Unknown storage " + STORAGE + ".");
+		if(!isValidPageSize(SIZEOF_DISK_PAGE, SIZEOF_KEY, SIZEOF_FILENAME))
+			throw new IllegalArgumentException("The size of the disk pages must be a power of two, not greater than " + MAX_DISK_PAGE
+					+ " bytes, and large enough for 2 keys per page of the BTree and 1 filename per page of the index.");
 		this.SIZEOF_KEY = SIZEOF_KEY;
 		this.SIZEOF_FILENAME = SIZEOF_FILENAME;
 		this.SIZEOF_DISK_PAGE = SIZEOF_DISK_PAGE;
+		this.STORAGE = STORAGE;
+		this.DATA_DIRECTORY = (dataDirectory.isEmpty() || dataDirectory.endsWith("/")) ? dataDirectory : dataDirectory + "/";
+		this.BTREE_FILENAME = DATA_DIRECTORY + BTREE_BASENAME;
+		this.INDEX_FILENAME = DATA_DIRECTORY + "wordsearch-index.dat";
+		this.BLOOM_FILENAME = DATA_DIRECTORY + "wordsearch-bloom.dat";
+		this.FILES_FILENAME = DATA_DIRECTORY + "wordsearch-files.dat";
+		this.FST_FILENAME = DATA_DIRECTORY + "wordsearch-fst.dat";
+		this.TRIGRAMS_FILENAME = DATA_DIRECTORY + "wordsearch-trigrams.dat";
+		this.FILESETS_FILENAME = DATA_DIRECTORY + "wordsearch-filesets.dat";
+		this.SKIPS_FILENAME = DATA_DIRECTORY + "wordsearch-skips.dat";
+		if(!DATA_DIRECTORY.isEmpty() && !isInMemory())
+			new File(DATA_DIRECTORY).mkdirs();
+		if(!isInMemory())
+			recoverCompaction();
+		
+		dictionary = new BTree(SIZEOF_KEY, createStore(BTREE_FILENAME));
+		index = new Index(SIZEOF_FILENAME, createStore(INDEX_FILENAME));
+		this.indexReadAhead = (STORAGE==FILE_STORAGE) ? Index.DEFAULT_READ_AHEAD : 1;  //the other storages have no latency to hide
+		index.setMaxReadAhead(indexReadAhead);
+		this.inputFileNames = fileNames.clone();
+		this.cache = null;
+		this.metrics = new Metrics();
+		dictionary.setMetrics(metrics);
+		index.setMetrics(metrics);
+		this.bloomFalsePositiveRate = 0.01;
+		
+		try {
+			this.bloomFilter = isInMemory() ? null : BloomFilter.readFromFile(BLOOM_FILENAME);  //null if the data files have not been built yet
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + BLOOM_FILENAME + " is malformed and it will be ignored.");
+			this.bloomFilter = null;
+		}
+		
+		try {
+			this.trigramIndex = isInMemory() ? null : TrigramIndex.readFromFile(TRIGRAMS_FILENAME);  //null if it has not been enabled
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + TRIGRAMS_FILENAME + " is malformed and it will be ignored.");
+			this.trigramIndex = null;
+		}
+		this.trigramIndexEnabled = (trigramIndex!=null);
+		this.trigramIndexBuildTime = 0;
+		
+		try {
+			this.fileSetIndex = isInMemory() ? null : FileSetIndex.readFromFile(FILESETS_FILENAME);  //null if it has not been enabled
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + FILESETS_FILENAME + " is malformed and it will be ignored.");
+			this.fileSetIndex = null;
+		}
+		this.fileSetIndexEnabled = (fileSetIndex!=null);
+		
+		try {
+			SkipTable skips = isInMemory() ? null : SkipTable.readFromFile(SKIPS_FILENAME);  //null if the data files have not been built yet
+			if(skips!=null)
+				index.setSkipTable(skips);
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + SKIPS_FILENAME + " is malformed and it will be ignored.");
+		}
 		
-		dictionary = new BTree(SIZEOF_DISK_PAGE, SIZEOF_KEY, BTREE_FILENAME);
-		index = new Index(SIZEOF_FILENAME, SIZEOF_DISK_PAGE, INDEX_FILENAME);
-		this.fileNames = fileNames;
+		try {
+			this.fileTable = isInMemory() ? null : FileTable.readFromFile(FILES_FILENAME);  //null if the data files have not been built yet
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + FILES_FILENAME + " is malformed and it will be ignored.");
+			this.fileTable = null;
+		}
+		this.fileTableLoaded = (fileTable!=null);
+		if(fileTable==null) {
+			fileTable = new FileTable();
+			for(int f=0;f<fileNames.length;f++)
+				fileTable.add(fileNames[f]);
+		}
+		this.fileNames = fileTable.getNames();
+		this.vocabularySize = (bloomFilter==null) ? 0 : (int)bloomFilter.getNumOfKeys();
+		this.dataFilesValid = checkHeaders();
 	}	
 	
+	/**
+	 * Checks whether a size of disk pages is supported. It must be a power of two, so that the pages (which follow a header of one page) are aligned
+	 * to the blocks of the storage device and of the operating system, it must not exceed {@link #MAX_DISK_PAGE}, and it must be large enough for
+	 * at least 2 records in every page of the BTree and 1 record in every page of the index.
+	 * @param SIZEOF_DISK_PAGE The size (in bytes) of every disk page.
+	 * @param SIZEOF_KEY The exact size of every key.
+	 * @param SIZEOF_FILENAME The exact size of every filename.
+	 * @return True if the size is supported, or false otherwise.
+	 */
+	public static boolean isValidPageSize(int SIZEOF_DISK_PAGE, int SIZEOF_KEY, int SIZEOF_FILENAME) {
+		int sizeofInt = Integer.SIZE/8;
+		
+		if(SIZEOF_DISK_PAGE<=0 || SIZEOF_DISK_PAGE>MAX_DISK_PAGE || Integer.bitCount(SIZEOF_DISK_PAGE)!=1)
+			return false;
+		return TreePage.childrenPerPage(SIZEOF_KEY, SIZEOF_DISK_PAGE) >= 3  //children per page of the BTree
+				&& (SIZEOF_DISK_PAGE-sizeofInt)/(SIZEOF_FILENAME+sizeofInt) >= 1;  //records per page of the index
+	}
+	
+	/**
+	 * Opens the data files which have been built in a directory, with the parameters recorded in their {@link wordsearch.file.FileHeader}.
+	 * The input ASCII files are the active ones of the table of files, so no parameters have to be repeated and nothing is rebuilt:
+	 * {@link #updateDataFiles()} indexes again only the files which have changed since, and {@link #buildDataFiles()} rebuilds the data files from the same files.
+	 * @param dataDirectory The directory of the data files, or an empty {@link java.lang.String} for the current directory.
+	 * @return A new {@link WordSearch} object, or {@code null} if the directory does not contain data files with a valid header.
+	 */
+	public static WordSearch open(String dataDirectory) {
+		String directory = (dataDirectory.isEmpty() || dataDirectory.endsWith("/")) ? dataDirectory : dataDirectory + "/";
+		FileHeader header;
+		
+		try {
+			header = FileHeader.readFromFile(directory + BTREE_BASENAME);
+		}catch(IOException e) {
+			header = null;
+		}
+		if(header==null || header.getVersion()!=FileHeader.VERSION) {
+			System.err.println("Error. There are no data files of version " + FileHeader.VERSION + " at " + (directory.isEmpty() ? "the current directory" : directory) + ".");
+			return null;
+		}
+		WordSearch system = new WordSearch(header.getKeySize(), header.getFilenameSize(), header.getPageSize(), new String[0], directory);
+		ArrayList<String> activeFiles = new ArrayList<String>();
+		for(int f=0;f<system.fileTable.size();f++)  //the input files are the ones which are still indexed, so that an update keeps them
+			if(system.fileTable.getState(f)==FileTable.ACTIVE)
+				activeFiles.add(system.fileTable.getName(f));
+		system.inputFileNames = activeFiles.toArray(new String[activeFiles.size()]);
+		return system;
+	}
+	
+	/**
+	 * Adds a new input ASCII file to the BTree and the index, without rebuilding them.
+	 * If the file has already been added, its occurrences are replaced by its current contents (see {@link #reindexFile(String)}).
+	 * @param fileName A {@link java.lang.String} with the name of the file.
+	 * @return True if the file was added successfully, or false in case of an error while accessing the file or the data files.
+	 */
+	public boolean addFile(String fileName) {
+		int id = fileTable.find(fileName);
+		
+		if(!dataFilesValid) {
+			System.err.println("Error. The data files have to be rebuilt first.");
+			return false;
+		}
+		
+		if(id>=0 && fileTable.getState(id)==FileTable.ACTIVE)
+			return reindexFile(fileName);
+		
+		if(cache!=null)
+			cache.clear();
+		try {
+			if(id<0) {
+				id = fileTable.add(fileName);
+				fileNames = fileTable.getNames();
+			}
+			else if(fileTable.getState(id)==FileTable.REMOVED) {  //the occurrences from its previous contents are still in the index
+				index.removeRecords(new String[] {fileName});
+				recountStats();
+				if(fileSetIndex!=null)
+					fileSetIndex.removeFile(id);
+			}
+			fileTable.setState(id, FileTable.ACTIVE);
+			
+			indexFile(id);
+			saveFileTable();
+		}catch(IOException e) {
+			System.err.println("Error. The file " + fileName + " or the data files are inaccessible.");
+			return false;
+		}
+		return true;
+	}
+	
+	
 	/**
 	 * It provides a basic user interface through console, in which the user can type words
 	 * and the system to return their occurrences into all the input ASCII files.
@@ -84,23 +414,20 @@ public class WordSearch {
 		question = sc.next();
 
 		while(!question.equals("Q") && !question.equals("q")) {
-			formattedQuestion = question.toLowerCase();
-			for(int i=question.length();i<SIZEOF_KEY;i++) //pad with spaces to contain SIZEOF_KEY characters
-				formattedQuestion += ' ';
-			if(formattedQuestion.length()>SIZEOF_KEY)  //delete the last characters in order to contain exactly SIZEOF_KEY of them.
-				formattedQuestion = formattedQuestion.substring(0, SIZEOF_KEY);
+			formattedQuestion = formatKey(question);
 			try {
-				int foundPos = dictionary.searchTree(formattedQuestion);
-				if(foundPos<0)
+				results = isRegexQuestion(question) ? answerRegexQuestion(question.substring(1, question.length()-1), DEFAULT_MAX_EXPANSIONS)
+						: lookup(formattedQuestion, null);
+				if(results!=null && results.size()==0)  //a null list means that an error has been reported
 					System.out.println("Word '" + question + "' was not found. :(");
-				else {
-					int info = dictionary.getPage(foundPos).findRecord(formattedQuestion).getInfo();
-					results = index.findData(info, this.fileNames);
+				else if(results!=null) {
 					for(int i=0; i<results.size(); i++)
 						System.out.println("Word '" + question + "' was found in file " + results.get(i)[0] + " after " + results.get(i)[1] + " characters from the start.");
 				}
 			}catch(IOException e) {
 				System.err.println("Error. The binary files " + BTREE_FILENAME + ", " + INDEX_FILENAME + " are not accessible.");
+			}catch(IllegalArgumentException e) {
+				System.err.println("Error. " + e.getMessage());
 			}
 			
 			System.out.print("Enter a word to be found (Q to quit): ");
@@ -111,7 +438,9 @@ public class WordSearch {
 	
 	/**
 	 * It provides the occurrences of the given words into all the input ASCII files.
-	 * @param questions A {@link java.lang.String String[]} array. Each entry is a word to be searched for into the input ASCII files.
+	 * @param questions A {@link java.lang.String String[]} array. Each entry is a word to be searched for into the input ASCII files,
+	 * or a regular expression between slashes (e.g. {@code /colou?r/}), which is answered by {@link #answerRegexQuestion(String, int)}
+	 * with at most {@link #DEFAULT_MAX_EXPANSIONS} words.
 	 * @return An {@link java.util.ArrayList} object, each entry of which contains the list
 	 * of occurrences for the respective question provided as an argument. That list is 
 	 * also an {@link java.util.ArrayList} object, which contains {@link java.lang.String String[]}
@@ -120,29 +449,337 @@ public class WordSearch {
 	 * location (number of bytes from the start of the file) where the occurrence takes place.
 	 */
 	public ArrayList<ArrayList<String[]>> answerQuestions(String[] questions) {
+		return answerQuestions(questions, null);
+	}
+	
+	/**
+	 * It provides the occurrences of the given words into some of the input ASCII files, e.g. the log files of a range of dates.
+	 * The filter is applied while the chain of every word is read from the index, so the occurrences of the other files are never decoded,
+	 * and of every run of linked pages which contain only such occurrences, only the first page is read (see {@link wordsearch.structures.index.Index#findData(int, String[], boolean[])}).
+	 * The results of the cache (if enabled) are filtered too, but the filtered results are not cached.
+	 * @param questions A {@link java.lang.String String[]} array with the questions, as in {@link #answerQuestions(String[])}.
+	 * @param fileFilter A {@link java.util.function.Predicate} which accepts the names of the files whose occurrences are needed, or {@code null} for all the files.
+	 * @return An {@link java.util.ArrayList} with the list of occurrences for every question, as in {@link #answerQuestions(String[])}.
+	 * The list of a question is empty if it could not be answered (e.g. an invalid regular expression or an error while reading the binary files),
+	 * so the i-th list always belongs to the i-th question.
+	 */
+	public ArrayList<ArrayList<String[]>> answerQuestions(String[] questions, Predicate<String> fileFilter) {
 		String formattedQuestion;
 		ArrayList<ArrayList<String[]>> results = new ArrayList<ArrayList<String[]>>();
+		boolean[] included = null;
+		
+		if(fileFilter!=null && dataFilesValid) {
+			included = new boolean[fileNames.length];
+			for(int f=0;f<fileNames.length;f++)
+				included[f] = (fileTable.getState(f)==FileTable.ACTIVE && fileFilter.test(fileNames[f]));
+		}
 
 		for(int i=0;i<questions.length;i++) {
-			formattedQuestion = questions[i].toLowerCase();
-			for(int j=questions[i].length();j<SIZEOF_KEY;j++) //pad with spaces to contain SIZEOF_KEY characters
-				formattedQuestion += ' ';
-			if(formattedQuestion.length()>SIZEOF_KEY)  //delete the last characters in order to contain exactly SIZEOF_KEY of them.
-				formattedQuestion = formattedQuestion.substring(0, SIZEOF_KEY);
+			formattedQuestion = formatKey(questions[i]);
 			
 			try {
-				int foundPos = dictionary.searchTree(formattedQuestion);
-				
-				if(foundPos<0)
-					results.add(new ArrayList<String[]>());
-				else {
-					int info = dictionary.getPage(foundPos).findRecord(formattedQuestion).getInfo();
-					results.add(index.findData(info, this.fileNames));
+				if(isRegexQuestion(questions[i])) {
+					ArrayList<String> words = findWordsMatching(questions[i].substring(1, questions[i].length()-1), DEFAULT_MAX_EXPANSIONS);
+					results.add((words==null) ? new ArrayList<String[]>() : findOccurrences(words, included));
 				}
+				else
+					results.add(lookup(formattedQuestion, included));
 			}catch(IOException e) {
 				System.err.println("Error. The binary files " + BTREE_FILENAME + ", " + INDEX_FILENAME + " are not accessible.");
+				results.add(new ArrayList<String[]>());  //one list for every question, even after an error
+			}catch(IllegalArgumentException e) {
+				System.err.println("Error. " + e.getMessage());
+				results.add(new ArrayList<String[]>());
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Provides the number of occurrences of a word and the number of files which contain it, from its record in the BTree alone, without reading the index.
+	 * So, it reads only the pages of a search in the BTree (or no pages at all, if the Bloom filter rejects the word), e.g. in order to order the words
+	 * of a question by their selectivity. The occurrences of the files which have been removed with {@link #removeFile(String)} are still counted
+	 * until {@link #purgeRemovedFiles()} is called.
+	 * @param word A {@link java.lang.String} with the word.
+	 * @return An integer array with the number of occurrences and the number of files, which are both 0 if the word does not exist,
+	 * or {@code null} in case of an error while reading the BTree.
+	 */
+	public int[] count(String word) {
+		String formattedKey = formatKey(word);
+		TreeRecord r;
+		
+		if(!dataFilesValid || (bloomFilter!=null && !bloomFilter.mightContain(formattedKey)))
+			return new int[2];
+		try {
+			r = lookupDictionary().findRecord(formattedKey);
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + BTREE_FILENAME + " is not accessible.");
+			return null;
+		}
+		return (r==null) ? new int[2] : new int[] {r.getCount(), r.getNumOfFiles()};
+	}
+	
+	/**
+	 * Ranks the input ASCII files by their relevance to some words, and provides only the best of them. Every file which contains at least one
+	 * of the words is scored with BM25, from the number of occurrences of every word in the file, the number of files which contain it and the length of the file.
+	 * The occurrences are read with the MaxScore algorithm (see {@link wordsearch.ranking.Bm25Ranker}), so the chains of the most frequent words
+	 * are usually read only in part, and the results are the same as if every occurrence had been read. The files which have been removed are ignored.
+	 * @param words A {@link java.lang.String String[]} array with the words of the question. Repeated words are considered once.
+	 * @param k The maximum number of files to be provided, e.g. {@link #DEFAULT_TOP_K}.
+	 * @return An {@link java.util.ArrayList} with up to k {@link java.lang.String String[]} arrays, each one containing a filename and its score,
+	 * in decreasing order of score, or {@code null} in case of an error while reading the binary files.
+	 */
+	public ArrayList<String[]> answerRankedQuestion(String[] words, int k) {
+		HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		long[] sequences = new long[fileTable.size()];
+		int[] lengths = new int[fileTable.size()];
+		ArrayList<ChainCursor> cursors = new ArrayList<ChainCursor>();
+		ArrayList<int[]> stats = new ArrayList<int[]>();
+		HashSet<String> keys = new HashSet<String>();
+		ArrayList<String[]> results = new ArrayList<String[]>();
+		TreeRecord r;
+		
+		if(!dataFilesValid)
+			return results;
+		
+		for(int f=0;f<fileTable.size();f++) {
+			sequences[f] = fileTable.getSequence(f);
+			lengths[f] = fileTable.getNumOfWords(f);
+			if(fileTable.getState(f)==FileTable.ACTIVE)  //the filenames as they are stored in the index
+				ids.put(new IndexRecord(fileTable.getName(f), 0, SIZEOF_FILENAME).getFilename(), f);
+		}
+		
+		try {
+			for(int i=0;i<words.length;i++) {
+				String formattedKey = formatKey(words[i]);
+				if(!keys.add(formattedKey) || (bloomFilter!=null && !bloomFilter.mightContain(formattedKey)))
+					continue;
+				r = lookupDictionary().findRecord(formattedKey);
+				if(r!=null) {
+					cursors.add(new ChainCursor(index, r.getInfo()));
+					stats.add(new int[] {r.getCount(), r.getNumOfFiles()});
+				}
+			}
+			
+			Bm25Ranker ranker = new Bm25Ranker(Bm25Ranker.DEFAULT_K1, Bm25Ranker.DEFAULT_B, ids, sequences, lengths);
+			for(double[] result : ranker.rank(cursors.toArray(new ChainCursor[cursors.size()]), stats.toArray(new int[stats.size()][]), k))
+				results.add(new String[] {fileNames[(int)result[0]], result[1]+""});
+		}catch(IOException e) {
+			System.err.println("Error. The binary files " + BTREE_FILENAME + ", " + INDEX_FILENAME + " are not accessible.");
+			return null;
+		}
+		return results;
+	}
+	
+	/**
+	 * Finds the words of the dictionary which are similar to a given word, e.g. in order to correct a typo in a question which was not found.
+	 * A word is similar if it can be turned into the given one with at most {@code maxDistance} insertions, deletions or substitutions of characters.
+	 * Only the parts of the BTree which may contain similar words are read (see {@link wordsearch.structures.btree.BTree#fuzzySearch(LevenshteinAutomaton)}),
+	 * and the number of pages read by every fuzzy search is reported by {@link #getMetricsSnapshot()}. The index is not read.
+	 * As in {@link #suggest(String, int)}, the words whose number of occurrences is 0 are not provided, so a typo is never corrected into a word
+	 * which no indexed file contains anymore (except for the words of removed files, whose occurrences are counted until they are purged).
+	 * @param word A {@link java.lang.String} with the word.
+	 * @param maxDistance The maximum edit distance, usually 1 or 2.
+	 * @return An {@link java.util.ArrayList} with {@link java.lang.String String[]} arrays, each one containing a similar word (as stored in the dictionary,
+	 * i.e. in lowercase and with at most {@link #SIZEOF_KEY} characters), its edit distance and its number of occurrences, in increasing order of distance
+	 * and then in alphabetical order, or {@code null} in case of an error while reading the BTree.
+	 * @throws IllegalArgumentException If the maximum distance is negative.
+	 */
+	public ArrayList<String[]> findSimilarWords(String word, int maxDistance) {
+		LevenshteinAutomaton automaton = new LevenshteinAutomaton(TreeRecord.stripPadding(formatKey(word)), maxDistance);
+		ArrayList<String[]> results = new ArrayList<String[]>();
+		ArrayList<TreeRecord> records;
+		
+		if(!dataFilesValid)
+			return results;
+		try {
+			records = dictionary.fuzzySearch(automaton);
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + BTREE_FILENAME + " is not accessible.");
+			return null;
+		}
+		for(int d=0;d<=maxDistance;d++)  //the records are in alphabetical order
+			for(TreeRecord r : records)
+				if(automaton.distance(TreeRecord.stripPadding(r.getKey()))==d)
+					results.add(new String[] {TreeRecord.stripPadding(r.getKey()), d+"", r.getCount()+""});
+		return results;
+	}
+	
+	/**
+	 * Finds the most frequent words of the input files which start with a given prefix, e.g. in order to complete a word while it is typed.
+	 * The words are found in a {@link wordsearch.structures.trie.SuggestionTrie}, which keeps in memory every word with its number of occurrences.
+	 * It is built from the BTree by the first call after the data files are built or updated, so that every following call takes only
+	 * a few microseconds, without any disk accesses. As in {@link #count(String)}, the occurrences of removed files are counted until they are purged.
+	 * @param prefix A {@link java.lang.String} with the prefix, whose characters after the first {@link #SIZEOF_KEY} ones are ignored.
+	 * @param k The maximum number of words to be provided.
+	 * @return An {@link java.util.ArrayList} with up to k {@link java.lang.String String[]} arrays, each one containing a word and its number of occurrences,
+	 * in decreasing order of occurrences (and in alphabetical order among words with the same occurrences), or {@code null} in case of an error while reading the BTree.
+	 * The list is empty if the data files are not valid.
+	 */
+	public ArrayList<String[]> suggest(String prefix, int k) {
+		if(!dataFilesValid)
+			return new ArrayList<String[]>();
+		try {
+			if(suggestions==null)
+				buildSuggestionTrie();
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + BTREE_FILENAME + " is not accessible.");
+			return null;
+		}
+		return suggestions.suggest(TreeRecord.stripPadding(formatKey(prefix)), k);
+	}
+	
+	/**
+	 * Finds the words of the input files which contain a given substring (e.g. "ington" in "washington").
+	 * If the index of trigrams exists (see {@link #setTrigramIndexEnabled(boolean)}), the candidate words are the ones which contain all the trigrams
+	 * of the substring, so only those are checked (with a search in the BTree for every one of them). Otherwise, every key of the BTree is read.
+	 * As in {@link #suggest(String, int)}, only the words whose number of occurrences is not 0 are provided, so the keys whose occurrences have all been deleted
+	 * (e.g. by {@link #reindexFile(String)}) are skipped. The occurrences of the files which have been removed are counted until {@link #purgeRemovedFiles()}
+	 * is called, so the words which only those files contain are still provided until then, although their questions find no occurrences.
+	 * @param substring A {@link java.lang.String} with the substring. The words are compared in lower case, and only their first {@link #SIZEOF_KEY} characters are stored.
+	 * @return An {@link java.util.ArrayList} with the words, in alphabetical order, or {@code null} in case of an error while reading the BTree.
+	 * The list is empty if the data files are not valid.
+	 */
+	public ArrayList<String> findWordsContaining(String substring) {
+		ArrayList<String> words = new ArrayList<String>();
+		String lowerCase = substring.toLowerCase();
+		
+		if(!dataFilesValid)
+			return words;
+		try {
+			if(trigramIndex!=null) {
+				for(String word : trigramIndex.findWordsContaining(lowerCase)) {
+					TreeRecord r = lookupDictionary().findRecord(formatKey(word));
+					if(r!=null && r.getCount()>0)
+						words.add(word);
+				}
+				words.sort((x, y) -> formatKey(x).compareTo(formatKey(y)));  //in the order of the keys, as below, since the words which were added by the updates follow the others
+				return words;
+			}
+			BTreeCursor cursor = new BTreeCursor(dictionary);
+			for(TreeRecord r=cursor.next(); r!=null; r=cursor.next())
+				if(r.getCount()>0 && TreeRecord.stripPadding(r.getKey()).contains(lowerCase))
+					words.add(TreeRecord.stripPadding(r.getKey()));
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + BTREE_FILENAME + " is not accessible.");
+			return null;
+		}
+		return words;
+	}
+	
+	/**
+	 * Finds all the occurrences of the words which contain a given substring (see {@link #findWordsContaining(String)}).
+	 * @param substring A {@link java.lang.String} with the substring.
+	 * @return An {@link java.util.ArrayList} with {@link java.lang.String String[]} arrays, each one containing a filename and a location,
+	 * in the order of the files and then of the locations, or {@code null} in case of an error while reading the binary files.
+	 */
+	public ArrayList<String[]> answerSubstringQuestion(String substring) {
+		ArrayList<String> words = findWordsContaining(substring);
+		
+		if(words==null)
+			return null;
+		try {
+			return findOccurrences(words, null);
+		}catch(IOException e) {
+			System.err.println("Error. The binary files " + BTREE_FILENAME + ", " + INDEX_FILENAME + " are not accessible.");
+			return null;
+		}
+	}
+	
+	/**
+	 * Finds the words of the dictionary which match a regular expression as a whole (see {@link wordsearch.structures.btree.RegexAutomaton} for its syntax).
+	 * The BTree is traversed in alphabetical order, and only the subtrees whose range of keys may contain a matching word are read.
+	 * Thus, if the expression starts with some literal characters (e.g. {@code wash.*n}), only the keys which start with them are read.
+	 * The number of pages read by every search is reported by {@link #getMetricsSnapshot()}.
+	 * @param regex A {@link java.lang.String} with the regular expression, which is compared with the words in lower case.
+	 * @param maxWords The maximum number of words to be provided. If more words match, only the first ones (in alphabetical order) are provided,
+	 * so that the latency of an expression which matches most of the dictionary (e.g. {@code .*}) remains bounded. The keys whose occurrences have all been deleted
+	 * (e.g. by {@link #reindexFile(String)}) are skipped and they are not counted, while the words which only removed files contain are provided until
+	 * {@link #purgeRemovedFiles()} is called (as in {@link #findWordsContaining(String)}).
+	 * @return An {@link java.util.ArrayList} with the matching words, in alphabetical order, or {@code null} in case of an error while reading the BTree.
+	 * The list is empty if the data files are not valid.
+	 * @throws IllegalArgumentException If the regular expression is not valid.
+	 */
+	public ArrayList<String> findWordsMatching(String regex, int maxWords) {
+		RegexAutomaton automaton = new RegexAutomaton(regex.toLowerCase());
+		ArrayList<String> words = new ArrayList<String>();
+		ArrayList<TreeRecord> records;
+		
+		if(!dataFilesValid)
+			return words;
+		try {
+			records = dictionary.regexSearch(automaton, maxWords+1);  //one more, to know whether some words were left out
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + BTREE_FILENAME + " is not accessible.");
+			return null;
+		}
+		if(records.size()>maxWords)
+			System.err.println("Warning. More than " + maxWords + " words match the regular expression " + regex + ", only the first ones are considered.");
+		for(int i=0;i<Math.min(maxWords, records.size());i++)
+			words.add(TreeRecord.stripPadding(records.get(i).getKey()));
+		return words;
+	}
+	
+	/**
+	 * Finds all the occurrences of the words which match a regular expression (see {@link #findWordsMatching(String, int)}).
+	 * @param regex A {@link java.lang.String} with the regular expression.
+	 * @param maxWords The maximum number of matching words whose occurrences are provided, e.g. {@link #DEFAULT_MAX_EXPANSIONS}.
+	 * @return An {@link java.util.ArrayList} with {@link java.lang.String String[]} arrays, each one containing a filename and a location,
+	 * in the order of the files and then of the locations, or {@code null} in case of an error while reading the binary files.
+	 * @throws IllegalArgumentException If the regular expression is not valid.
+	 */
+	public ArrayList<String[]> answerRegexQuestion(String regex, int maxWords) {
+		ArrayList<String> words = findWordsMatching(regex, maxWords);
+		
+		if(words==null)
+			return null;
+		try {
+			return findOccurrences(words, null);
+		}catch(IOException e) {
+			System.err.println("Error. The binary files " + BTREE_FILENAME + ", " + INDEX_FILENAME + " are not accessible.");
+			return null;
+		}
+	}
+	
+	/**
+	 * Finds the input files which contain some words, without their occurrences: the files which contain all the required words, at least one of
+	 * the optional words (if any are given) and none of the excluded words. If the sets of files are kept (see {@link #setFileSetIndexEnabled(boolean)}),
+	 * they are combined without reading the index at all. Otherwise, the files of every word are collected from its occurrences.
+	 * The files which have been removed are ignored.
+	 * @param required A {@link java.lang.String String[]} array with the words which must all be contained (AND), or {@code null}.
+	 * @param optional A {@link java.lang.String String[]} array with the words of which at least one must be contained (OR), or {@code null}.
+	 * @param excluded A {@link java.lang.String String[]} array with the words which must not be contained (NOT), or {@code null}.
+	 * @return An {@link java.util.ArrayList} with the names of the files, in the order of the table of files,
+	 * or {@code null} in case of an error while reading the binary files. The list is empty if the data files are not valid.
+	 */
+	public ArrayList<String> findFiles(String[] required, String[] optional, String[] excluded) {
+		ArrayList<String> results = new ArrayList<String>();
+		RoaringBitmap files = new RoaringBitmap(), any;
+		
+		if(!dataFilesValid)
+			return results;
+		for(int f=0;f<fileTable.size();f++)
+			if(fileTable.getState(f)==FileTable.ACTIVE)
+				files.add(f);
+		try {
+			if(required!=null)
+				for(String word : required)
+					files = files.and(findFileSet(word));
+			if(optional!=null && optional.length>0) {
+				any = new RoaringBitmap();
+				for(String word : optional)
+					any = any.or(findFileSet(word));
+				files = files.and(any);
 			}
+			if(excluded!=null)
+				for(String word : excluded)
+					files = files.andNot(findFileSet(word));
+		}catch(IOException e) {
+			System.err.println("Error. The binary files " + BTREE_FILENAME + ", " + INDEX_FILENAME + " are not accessible.");
+			return null;
 		}
+		for(int f : files.toArray())
+			results.add(fileNames[f]);
 		return results;
 	}
 	
@@ -153,43 +790,38 @@ public class WordSearch {
 	 * @return An integer with the total number of words (not essentially unique) that were read from the input files.
 	 */
 	public int buildDataFiles(){
-		String key;
-		int currInputFilePos, foundPos, info=0, wordCounter=0;
-		AsciiFileProcessor reader;
+		int wordCounter=0;
+		
+		if(cache!=null)  //the cached results refer to the old contents of the data files
+			cache.clear();
+		bloomFilter = null;
+		trigramIndex = null;
+		fileSetIndex = fileSetIndexEnabled ? new FileSetIndex() : null;  //it is filled while the files are indexed
+		vocabularySize = 0;
+		
+		fileTable = new FileTable();
+		for(int f=0;f<inputFileNames.length;f++)
+			fileTable.add(inputFileNames[f]);
+		fileNames = fileTable.getNames();
 		
 		try {
+			if(!isInMemory())
+				new File(SKIPS_FILENAME).delete();  //the pointers of the old chains must never be applied to the new ones
 			dictionary.clearDataOfTreeFile();
 			index.clearDataOfIndexFile();
 
-			for(int f=0;f<this.fileNames.length;f++) {
-				reader = new AsciiFileProcessor(this.fileNames[f]);
-				
-				currInputFilePos = (int)reader.getFilePosition();
-				key = reader.readNext();
-				
-				while(key != null){   //while EOF hasn't been found
-					wordCounter++;
-					key = key.toLowerCase();
-					for(int i=key.length();i<SIZEOF_KEY;i++)  //pad with spaces to contain SIZEOF_KEY characters
-						key += ' ';
-					if(key.length()>SIZEOF_KEY)  //delete the last characters in order to contain exactly SIZEOF_KEY of them.
-						key = key.substring(0, SIZEOF_KEY);
-
-					foundPos = dictionary.searchTree(key);
-					if(foundPos>=0){  //if the key already exists in the dictionary
-						info = dictionary.getPage(foundPos).findRecord(key).getInfo();
-						index.addRecord(info, new IndexRecord(fileNames[f], currInputFilePos, SIZEOF_FILENAME));  //auto format to the fileName by the constructor IndexRecord()
-					}
-					else {  //enter the new record first in a new page in the index and then in the tree using the appropriate info
-						info = index.addRecord(-1, new IndexRecord(fileNames[f], currInputFilePos, SIZEOF_FILENAME)); 
-						dictionary.insert(new TreeRecord(key,info, SIZEOF_KEY));
-					}
-					
-					currInputFilePos = (int)reader.getFilePosition();
-					key = reader.readNext();
-				} 
-				reader.close();
-		    }
+			for(int f=0;f<this.fileNames.length;f++)
+				wordCounter += indexFile(f);
+			buildBloomFilter(vocabularySize);
+			if(trigramIndexEnabled)
+				buildTrigramIndex();
+			else if(!isInMemory())
+				new File(TRIGRAMS_FILENAME).delete();
+			if(!fileSetIndexEnabled && !isInMemory())
+				new File(FILESETS_FILENAME).delete();
+			dataFilesValid = true;
+			saveFileTable();
+			fileTableLoaded = true;  //so that the next update of this instance is incremental
 		}catch(IOException e) {
 			System.err.println("Error. Some input or data files are inaccessible.");
 			System.exit(-1);
@@ -199,27 +831,1030 @@ public class WordSearch {
 	}
 	
 	/**
-	 * Provides the number of disk accesses (since last reset) into the index binary file.
-	 * @return An integer with the number of disk accesses.
+	 * Rewrites the index so that the chain of every word occupies consecutive pages, and the chains are stored in the order of the keys of the BTree.
+	 * As the index grows, {@link #buildDataFiles()} appends a new page at the end of the binary file whenever a chain is full, so the chains of
+	 * frequent words end up scattered across the whole file, and reading them requires a random access per page. After the compaction, every chain
+	 * is read sequentially, words with neighbouring keys have neighbouring chains, and the empty pages left by {@link #purgeRemovedFiles()} are reclaimed.
+	 * <p>
+	 * The new index and the BTree with the updated links are first written into temporary files, which then replace the data files.
+	 * Both of them get the next generation in their headers, so a crash after only the index has been replaced is detected when the data files are opened,
+	 * and the compaction is completed with the new BTree (see {@link #recoverCompaction()}). In case of an error, the data files are opened again as they were left.
+	 * If the data files are stored in memory, the new index replaces the old one, and the links of the BTree are updated in place.
+	 * The results of the questions do not change, so the cache (if enabled) remains valid.
+	 * @return A double array with the fragmentation of the index (as measured by {@link #getIndexFragmentation()}) before and after the compaction,
+	 * or {@code null} in case of an error while accessing the data files.
 	 */
-	public int getNumOfBtreeDiskAccesses() {
-		return dictionary.getNumOfDiskAccesses();
+	public double[] compactIndex() {
+		String tmpIndexFilename = INDEX_FILENAME + ".tmp", tmpTreeFilename = BTREE_FILENAME + ".tmp";
+		HashMap<Integer, Integer> newHeads = new HashMap<Integer, Integer>();
+		double[] fragmentation = new double[2];
+		SkipTable oldSkips = index.getSkipTable();
+		Index compacted = null;
+		int newGeneration = generation+1;
+		boolean closed = false;  //true once the old data files have been closed, so they have to be opened again after an error
+		
+		if(!dataFilesValid) {
+			System.err.println("Error. The data files have to be rebuilt first.");
+			return null;
+		}
+		try {
+			fragmentation[0] = index.getFragmentation();
+			
+			compacted = new Index(SIZEOF_FILENAME, createStore(tmpIndexFilename));
+			compacted.clearDataOfIndexFile();
+			BTreeCursor cursor = new BTreeCursor(dictionary);
+			for(TreeRecord r=cursor.next(); r!=null; r=cursor.next())  //in the order of the keys
+				newHeads.put(r.getInfo(), compacted.appendChain(index.readChain(r.getInfo())));
+			
+			if(isInMemory()) {  //nothing survives a failure, so the data files are replaced in place
+				dictionary.remapInfo(newHeads);
+				index.close();
+				index = compacted;
+			}
+			else {
+				FileHeader header = createHeader(newGeneration);
+				compacted.writeHeader(header);
+				compacted.sync();
+				compacted.close();
+				
+				closed = true;
+				dictionary.close();
+				index.close();
+				Files.copy(new File(BTREE_FILENAME).toPath(), new File(tmpTreeFilename).toPath(), StandardCopyOption.REPLACE_EXISTING);
+				BTree remapped = new BTree(SIZEOF_KEY, createStore(tmpTreeFilename));
+				remapped.remapInfo(newHeads);
+				remapped.writeHeader(header);
+				remapped.sync();
+				remapped.close();
+				
+				new File(SKIPS_FILENAME).delete();
+				Files.move(new File(tmpIndexFilename).toPath(), new File(INDEX_FILENAME).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				Files.move(new File(tmpTreeFilename).toPath(), new File(BTREE_FILENAME).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				
+				dictionary = new BTree(SIZEOF_KEY, createStore(BTREE_FILENAME));
+				index = new Index(SIZEOF_FILENAME, createStore(INDEX_FILENAME));
+				closed = false;
+				index.setSkipTable(compacted.getSkipTable());
+			}
+			generation = newGeneration;
+			configureStores();
+			discardCompactDictionary();  //the chains have moved
+			writeHeaders();
+			saveSkipTable();
+			fragmentation[1] = index.getFragmentation();
+		}catch(IOException e) {
+			System.err.println("Error. Unable to compact the binary file " + INDEX_FILENAME + ".");
+			if(closed)
+				reopenDataFiles((compacted!=null) ? compacted.getSkipTable() : null, oldSkips, newGeneration);
+			return null;
+		}
+		return fragmentation;
 	}
 	
 	/**
-	 * Provides the number of disk accesses (since last reset) into the BTree binary file.
-	 * @return An integer with the number of disk accesses.
+	 * Opens the data files again after an error of {@link #compactIndex()}, which closed them. The data files are either the old ones, or the new ones
+	 * if both of them have replaced the old ones (even if only the new index had replaced the old one, see {@link #recoverCompaction()}).
+	 * In any other case, the headers of the data files do not match and they are ignored until they are rebuilt (see {@link #checkHeaders()}).
+	 * @param newSkips The skip pointers of the new index.
+	 * @param oldSkips The skip pointers of the old index.
+	 * @param newGeneration The generation of the new data files.
 	 */
-	public int getNumOfIndexDiskAccesses() {
-		return index.getNumOfDiskAccesses();
+	private void reopenDataFiles(SkipTable newSkips, SkipTable oldSkips, int newGeneration) {
+		int oldGeneration = generation;
+		
+		recoverCompaction();
+		dictionary = new BTree(SIZEOF_KEY, createStore(BTREE_FILENAME));
+		index = new Index(SIZEOF_FILENAME, createStore(INDEX_FILENAME));
+		dataFilesValid = checkHeaders();
+		if(generation==newGeneration && newSkips!=null)
+			index.setSkipTable(newSkips);
+		else if(generation==oldGeneration && oldSkips!=null)
+			index.setSkipTable(oldSkips);
+		try {
+			configureStores();
+			if(!dataFilesValid || generation!=oldGeneration)
+				discardCompactDictionary();  //the chains have moved
+		}catch(IOException e) {
+			System.err.println("Error. The binary files " + BTREE_FILENAME + ", " + FST_FILENAME + " are not accessible.");
+		}
 	}
 	
 	/**
-	 * Resets the counter of disk accesses for both the BTree's and the index's binary file.
+	 * Completes a compaction of the index (see {@link #compactIndex()}) which was interrupted after the new index replaced the old one, but before
+	 * the new BTree replaced the old BTree. The new BTree is recognized by its temporary file, whose header has the generation of the index.
+	 * Any other temporary file of a compaction is deleted, since the data files which it would replace are still the old ones.
 	 */
-	public void resetNumOfDiskAccesses() {
-		dictionary.resetNumOfDiskAccesses();
-		index.resetNumOfDiskAccesses();
+	private void recoverCompaction() {
+		File tmpIndex = new File(INDEX_FILENAME + ".tmp"), tmpTree = new File(BTREE_FILENAME + ".tmp");
+		FileHeader treeHeader, indexHeader, tmpTreeHeader;
+		
+		try {
+			treeHeader = FileHeader.readFromFile(BTREE_FILENAME);
+			indexHeader = FileHeader.readFromFile(INDEX_FILENAME);
+			tmpTreeHeader = tmpTree.isFile() ? FileHeader.readFromFile(tmpTree.getPath()) : null;
+			if(treeHeader!=null && indexHeader!=null && tmpTreeHeader!=null
+					&& treeHeader.getGeneration()!=indexHeader.getGeneration() && tmpTreeHeader.getGeneration()==indexHeader.getGeneration())
+				Files.move(tmpTree.toPath(), new File(BTREE_FILENAME).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch(IOException e) {
+			System.err.println("Error. Unable to complete the compaction of the binary file " + INDEX_FILENAME + ".");
+		}
+		tmpIndex.delete();
+		tmpTree.delete();
+	}
+	
+	/**
+	 * Applies the settings of this instance (the pinned levels of the BTree, the read-ahead of the index and the metrics) to newly opened data files.
+	 * @throws IOException In case of an error while reading the pinned levels of the BTree.
+	 */
+	private void configureStores() throws IOException {
+		dictionary.pinLevels(pinnedLevels, maxPinnedBytes);
+		dictionary.setMetrics(metrics);
+		index.setMaxReadAhead(indexReadAhead);
+		index.setMetrics(metrics);
+	}
+	
+	/**
+	 * Deletes from the index all the occurrences of the files which have been removed with {@link #removeFile(String)}.
+	 * Until then, those occurrences are just ignored by the questions. This operation reads and writes the whole index once.
+	 * @return An integer with the number of occurrences which were deleted, or -1 in case of an error while accessing the data files.
+	 */
+	public int purgeRemovedFiles() {
+		ArrayList<String> removed = new ArrayList<String>();
+		int numOfRecords;
+		
+		if(!dataFilesValid) {
+			System.err.println("Error. The data files have to be rebuilt first.");
+			return -1;
+		}
+		
+		for(int f=0;f<fileTable.size();f++)
+			if(fileTable.getState(f)==FileTable.REMOVED)
+				removed.add(fileTable.getName(f));
+		if(removed.isEmpty())
+			return 0;
+		
+		try {
+			numOfRecords = index.removeRecords(removed.toArray(new String[removed.size()]));
+			recountStats();
+			for(int f=0;f<fileTable.size();f++)
+				if(fileTable.getState(f)==FileTable.REMOVED) {
+					fileTable.setState(f, FileTable.PURGED);
+					if(fileSetIndex!=null)
+						fileSetIndex.removeFile(f);
+				}
+			saveFileTable();
+		}catch(IOException e) {
+			System.err.println("Error. The binary files " + INDEX_FILENAME + ", " + FILES_FILENAME + " are not accessible.");
+			return -1;
+		}
+		return numOfRecords;
+	}
+	
+	/**
+	 * Replaces the occurrences of an input ASCII file which has already been added to the BTree and the index, with the ones of its current contents.
+	 * Its previous occurrences are deleted from the index first, which requires reading the whole index once.
+	 * @param fileName A {@link java.lang.String} with the name of the file.
+	 * @return True if the file was indexed again successfully, or false if it has not been added (or it has been removed),
+	 * or in case of an error while accessing the file or the data files.
+	 */
+	public boolean reindexFile(String fileName) {
+		int id = fileTable.find(fileName);
+		
+		if(!dataFilesValid) {
+			System.err.println("Error. The data files have to be rebuilt first.");
+			return false;
+		}
+		
+		if(id<0 || fileTable.getState(id)!=FileTable.ACTIVE)
+			return false;
+		
+		if(cache!=null)
+			cache.clear();
+		try {
+			index.removeRecords(new String[] {fileName});
+			recountStats();
+			if(fileSetIndex!=null)
+				fileSetIndex.removeFile(id);
+			indexFile(id);
+			saveFileTable();
+		}catch(IOException e) {
+			System.err.println("Error. The file " + fileName + " or the data files are inaccessible.");
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Removes an input ASCII file from the system. Its occurrences are not deleted from the index immediately; instead,
+	 * the file is marked with a tombstone and its occurrences are ignored by the questions until {@link #purgeRemovedFiles()} is called.
+	 * @param fileName A {@link java.lang.String} with the name of the file.
+	 * @return True if the file was removed, or false if it has not been added (or it has already been removed), or in case of an error while saving the table of files.
+	 */
+	public boolean removeFile(String fileName) {
+		int id = fileTable.find(fileName);
+		
+		if(!dataFilesValid) {
+			System.err.println("Error. The data files have to be rebuilt first.");
+			return false;
+		}
+		
+		if(id<0 || fileTable.getState(id)!=FileTable.ACTIVE)
+			return false;
+		
+		if(cache!=null)
+			cache.clear();
+		fileTable.setState(id, FileTable.REMOVED);
+		try {
+			saveFileTable();
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + FILES_FILENAME + " is not accessible.");
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Brings the BTree and the index up to date with the input ASCII files given to the constructor, without rebuilding them.
+	 * Files which were not indexed are added, files which are not given anymore are removed (see {@link #removeFile(String)}),
+	 * and files whose contents have changed are indexed again. A file is considered unchanged, and it is skipped, when its modification time
+	 * and size are the same as when it was indexed, or when its checksum is the same.
+	 * If the data files have never been built (or they were built with different parameters or by an older version), they are built from scratch.
+	 * @return An integer with the number of files which were added or indexed again, or -1 in case of an error.
+	 */
+	public int updateDataFiles() {
+		HashSet<String> inputs = new HashSet<String>();
+		int id, numOfFiles=0;
+		
+		if(!fileTableLoaded || !dataFilesValid) {
+			buildDataFiles();
+			return inputFileNames.length;
+		}
+		
+		try {
+			for(int f=0;f<inputFileNames.length;f++) {
+				inputs.add(inputFileNames[f]);
+				id = fileTable.find(inputFileNames[f]);
+				if(id<0 || fileTable.getState(id)!=FileTable.ACTIVE || fileTable.isChanged(id)) {
+					if(!addFile(inputFileNames[f]))
+						return -1;
+					numOfFiles++;
+				}
+			}
+			for(int f=0;f<fileTable.size();f++)
+				if(fileTable.getState(f)==FileTable.ACTIVE && !inputs.contains(fileTable.getName(f)))
+					removeFile(fileTable.getName(f));
+			saveFileTable();  //some modification times may have been updated
+		}catch(IOException e) {
+			System.err.println("Error. Some input or data files are inaccessible.");
+			return -1;
+		}
+		return numOfFiles;
+	}
+	
+	/**
+	 * Stops caching the results of the questions and releases the memory occupied by the cache.
+	 */
+	public void disableQueryCache() {
+		this.cache = null;
+	}
+	
+	/**
+	 * Enables a cache which keeps the results of the most popular questions in memory, so that they can be answered without any disk accesses.
+	 * The cache is emptied automatically every time the data files are rebuilt. Any previously enabled cache is discarded.
+	 * @param maxBytes The maximum number of bytes that the cache may occupy in memory.
+	 */
+	public void enableQueryCache(long maxBytes) {
+		this.cache = new QueryCache(maxBytes);
+	}
+	
+	/**
+	 * Provides the probability that a word which does not exist in the input files is not rejected by the Bloom filter,
+	 * and thus the BTree has to be searched for it.
+	 * @return A double number between 0 and 1, or 1 if the Bloom filter has not been built.
+	 */
+	public double getBloomFilterFalsePositiveRate() {
+		if(bloomFilter==null)
+			return 1;
+		return bloomFilter.getFalsePositiveRate();
+	}
+	
+	/**
+	 * Provides the number of bytes occupied in memory by the results kept in the cache.
+	 * @return A long number with the bytes used by the cache, or 0 if the cache is disabled.
+	 */
+	public long getQueryCacheBytesUsed() {
+		if(cache==null)
+			return 0;
+		return cache.getBytesUsed();
+	}
+	
+	/**
+	 * Provides the fraction of questions which were answered by the cache, since it was enabled.
+	 * @return A double number between 0 and 1, or 0 if the cache is disabled.
+	 */
+	public double getQueryCacheHitRatio() {
+		if(cache==null)
+			return 0;
+		return cache.getHitRatio();
+	}
+	
+	/**
+	 * Measures how scattered the chains of the index are, as the fraction of links between consecutive pages of a chain which are not
+	 * adjacent in the binary file. A high value means that reading the occurrences of frequent words requires many random accesses,
+	 * and that the index may benefit from {@link #compactIndex()}.
+	 * @return A double number from 0 (every chain is contiguous) to 1, or -1 in case of an error while reading the index.
+	 */
+	public double getIndexFragmentation() {
+		try {
+			return index.getFragmentation();
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + INDEX_FILENAME + " is not accessible.");
+			return -1;
+		}
+	}
+	
+	/**
+	 * Provides a snapshot of the metrics of the system: the page reads and writes, as well as the bytes transferred, for both the BTree's and the index's
+	 * binary file (since the last reset of the disk accesses), and histograms with the latencies of lookups, index searches, insertions and splits,
+	 * the depth of every search in the BTree and the length of every chain read from the index (since the last reset of the metrics).
+	 * @return A {@link wordsearch.metrics.MetricsSnapshot} object, which is not affected by any subsequent operations of the system.
+	 */
+	public MetricsSnapshot getMetricsSnapshot() {
+		return new MetricsSnapshot(metrics, dictionary.getIOCounters(), index.getIOCounters());
+	}
+	
+	/**
+	 * Provides the number of disk accesses (since last reset) into the index binary file.
+	 * @return An integer with the number of disk accesses.
+	 */
+	public int getNumOfBtreeDiskAccesses() {
+		return dictionary.getNumOfDiskAccesses();
+	}
+	
+	/**
+	 * Provides the number of disk accesses (since last reset) into the BTree binary file.
+	 * @return An integer with the number of disk accesses.
+	 */
+	public int getNumOfIndexDiskAccesses() {
+		return index.getNumOfDiskAccesses();
+	}
+	
+	/**
+	 * Resets the counter of disk accesses for both the BTree's and the index's binary file.
+	 */
+	public void resetNumOfDiskAccesses() {
+		dictionary.resetNumOfDiskAccesses();
+		index.resetNumOfDiskAccesses();
+	}
+	
+	/**
+	 * Reads all the words of an input ASCII file and adds their occurrences to the BTree and the index.
+	 * New words are also added to the Bloom filter and the index of trigrams (if they exist), the statistics of every word of the file are added to its record in the BTree
+	 * (and the file is added to its set of files, if the sets are kept),
+	 * and the statistics of the file are recorded in the table of files.
+	 * @param id The id of the file in the table of files.
+	 * @return An integer with the number of words (not essentially unique) that were read from the file.
+	 * @throws IOException In case of an error while accessing the file or the data files.
+	 */
+	private int indexFile(int id) throws IOException {
+		String key;
+		int currInputFilePos, foundPos, info=0, wordCounter=0;
+		AsciiFileProcessor reader = new AsciiFileProcessor(this.fileNames[id]);
+		HashMap<String, Integer> counts = new HashMap<String, Integer>();  //the occurrences of every word in this file
+		
+		currInputFilePos = (int)reader.getFilePosition();
+		key = reader.readNext();
+		
+		while(key != null){   //while EOF hasn't been found
+			wordCounter++;
+			key = formatKey(key);
+			counts.merge(key, 1, Integer::sum);
+
+			foundPos = dictionary.searchTree(key);
+			if(foundPos>=0){  //if the key already exists in the dictionary
+				info = dictionary.getPage(foundPos).findRecord(key).getInfo();
+				index.addRecord(info, new IndexRecord(fileNames[id], currInputFilePos, SIZEOF_FILENAME));  //auto format to the fileName by the constructor IndexRecord()
+			}
+			else {  //enter the new record first in a new page in the index and then in the tree using the appropriate info
+				info = index.addRecord(-1, new IndexRecord(fileNames[id], currInputFilePos, SIZEOF_FILENAME)); 
+				dictionary.insert(new TreeRecord(key,info, SIZEOF_KEY));
+				vocabularySize++;
+				if(bloomFilter!=null)
+					bloomFilter.add(key);
+				if(trigramIndex!=null)
+					trigramIndex.add(TreeRecord.stripPadding(key));
+			}
+			
+			currInputFilePos = (int)reader.getFilePosition();
+			key = reader.readNext();
+		} 
+		reader.close();
+		for(Map.Entry<String, Integer> e : counts.entrySet()) {  //every word of the file occurs in one more file
+			dictionary.addStats(e.getKey(), e.getValue(), 1);
+			if(fileSetIndex!=null)
+				fileSetIndex.add(TreeRecord.stripPadding(e.getKey()), id);
+		}
+		suggestions = null;  //it is built again with the new statistics when it is needed
+		discardCompactDictionary();
+		
+		fileTable.setIndexed(id, wordCounter);
+		return wordCounter;
+	}
+	
+	/**
+	 * Computes again the statistics of every word of the BTree from its chain in the index, after some occurrences have been removed from the index.
+	 * The whole index is read once, as it is by {@link wordsearch.structures.index.Index#removeRecords(String[])}.
+	 * @throws IOException In case of an error while reading or writing the data files.
+	 */
+	private void recountStats() throws IOException {
+		HashMap<Integer, int[]> stats = new HashMap<Integer, int[]>();
+		ArrayList<IndexRecord> chain;
+		BTreeCursor cursor = new BTreeCursor(dictionary);
+		
+		for(TreeRecord r=cursor.next(); r!=null; r=cursor.next()) {
+			chain = index.readChain(r.getInfo());
+			stats.put(r.getInfo(), new int[] {chain.size(), Index.countFiles(chain)});
+		}
+		dictionary.setStats(stats);
+		suggestions = null;
+		discardCompactDictionary();
+	}
+	
+	/**
+	 * Saves the table of the indexed files, as well as the Bloom filter, the index of trigrams and the sets of files (if they exist), into their binary files,
+	 * and updates the headers of the data files. The skip pointers of the index are saved last (see {@link #saveSkipTable()}).
+	 * Nothing is saved if the data files are stored in memory, since the files of the {@link #DATA_DIRECTORY} may belong to other data files on the disk.
+	 * @throws IOException In case of an error while writing the files.
+	 */
+	private void saveFileTable() throws IOException {
+		if(!isInMemory()) {
+			fileTable.writeToFile(FILES_FILENAME);
+			if(bloomFilter!=null)
+				bloomFilter.writeToFile(BLOOM_FILENAME);
+			if(trigramIndex!=null)
+				trigramIndex.writeToFile(TRIGRAMS_FILENAME);
+			if(fileSetIndex!=null)
+				fileSetIndex.writeToFile(FILESETS_FILENAME);
+		}
+		writeHeaders();
+		saveSkipTable();
+	}
+	
+	/**
+	 * Saves the skip pointers of the index into their binary file, after the pages of the index have been flushed. So, a crash leaves either
+	 * the pointers of the current pages, or older ones, which remain valid since the pages of a run are never modified except for deletions.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	private void saveSkipTable() throws IOException {
+		if(!isInMemory())
+			index.getSkipTable().writeToFile(SKIPS_FILENAME);
+	}
+	
+	/**
+	 * Creates the {@link wordsearch.file.PageStore} of a data file in the {@link #STORAGE} of this instance, with the first pages reserved for a {@link wordsearch.file.FileHeader}.
+	 * @param filename The name of the binary file, which is ignored if the storage is in memory.
+	 * @return A new {@link wordsearch.file.PageStore} object.
+	 */
+	private PageStore createStore(String filename) {
+		int headerPages = FileHeader.getNumOfHeaderPages(SIZEOF_DISK_PAGE);
+		
+		try {
+			switch(STORAGE) {
+			case MAPPED_STORAGE:
+				return new MappedPageStore(SIZEOF_DISK_PAGE, filename, headerPages);
+			case HEAP_STORAGE:
+			case OFF_HEAP_STORAGE:
+				return new MemoryPageStore(SIZEOF_DISK_PAGE, headerPages, STORAGE==OFF_HEAP_STORAGE);
+			default:
+				return new BinFileProcessor(SIZEOF_DISK_PAGE, filename, headerPages);
+			}
+		}catch(IOException e) {
+			System.err.println("Error. Unable to create the binary file " + filename + ".");
+			System.exit(-1);
+			return null;
+		}
+	}
+	
+	/**
+	 * Checks whether the BTree and the index are stored in memory, so that they do not outlive this instance.
+	 * @return True for {@link #HEAP_STORAGE} and {@link #OFF_HEAP_STORAGE}, or false otherwise.
+	 */
+	private boolean isInMemory() {
+		return STORAGE==HEAP_STORAGE || STORAGE==OFF_HEAP_STORAGE;
+	}
+	
+	/**
+	 * Checks the headers of the data files against the parameters of this instance. If the data files have been built with different parameters,
+	 * by an older version, or their build did not complete, an error is reported and they are ignored (no occurrences are found) until they are rebuilt.
+	 * Only the headers are read, so the check takes constant time.
+	 * @return True if the data files can be used (or they have not been built yet), or false otherwise.
+	 */
+	private boolean checkHeaders() {
+		FileHeader treeHeader, indexHeader;
+		
+		try {
+			treeHeader = dictionary.readHeader();
+			indexHeader = index.readHeader();
+			if(treeHeader==null && dictionary.getSize()==0 && index.getSize()==0)  //the data files have not been built
+				return true;
+		}catch(IOException e) {
+			treeHeader = null;
+			indexHeader = null;
+		}
+		
+		if(treeHeader==null || indexHeader==null) {
+			System.err.println("Error. The data files " + BTREE_FILENAME + ", " + INDEX_FILENAME + " have no valid header and they will be ignored until they are rebuilt.");
+			return false;
+		}
+		if(!treeHeader.matches(SIZEOF_DISK_PAGE, SIZEOF_KEY, SIZEOF_FILENAME) || !indexHeader.matches(SIZEOF_DISK_PAGE, SIZEOF_KEY, SIZEOF_FILENAME)) {
+			System.err.println("Error. The data files were built with " + treeHeader + " instead of version " + FileHeader.VERSION + ", page size " + SIZEOF_DISK_PAGE
+					+ ", key size " + SIZEOF_KEY + ", filename size " + SIZEOF_FILENAME + ", so they will be ignored until they are rebuilt.");
+			return false;
+		}
+		if(treeHeader.getGeneration()!=indexHeader.getGeneration()) {
+			System.err.println("Error. The data files " + BTREE_FILENAME + ", " + INDEX_FILENAME + " were not written by the same compaction, so they will be ignored until they are rebuilt.");
+			return false;
+		}
+		if(fileTableLoaded && fileTable.size()!=treeHeader.getNumOfFiles()) {
+			System.err.println("Error. The binary file " + FILES_FILENAME + " does not belong to the data files, so they will be ignored until they are rebuilt.");
+			return false;
+		}
+		vocabularySize = treeHeader.getVocabularySize();
+		generation = treeHeader.getGeneration();
+		return true;
+	}
+	
+	/**
+	 * Flushes the buffered pages of both data files, and then writes the current parameters and statistics of the data files into their headers,
+	 * so that every completed operation is visible to other readers of the data files. The headers are written last, so they never describe
+	 * pages (e.g. a new root of the BTree) which have not been written yet.
+	 * @throws IOException In case of an error while writing the files.
+	 */
+	private void writeHeaders() throws IOException {
+		FileHeader header = createHeader(generation);
+		dictionary.flush();
+		index.flush();
+		dictionary.writeHeader(header);
+		index.writeHeader(header);
+	}
+	
+	/**
+	 * Creates a header with the current parameters and statistics of the data files.
+	 * @param generation The generation of the data files.
+	 * @return A new {@link wordsearch.file.FileHeader} object.
+	 * @throws IOException In case of an error while reading the height of the BTree.
+	 */
+	private FileHeader createHeader(int generation) throws IOException {
+		return new FileHeader(SIZEOF_DISK_PAGE, SIZEOF_KEY, SIZEOF_FILENAME, vocabularySize, dictionary.getHeight(), fileTable.size(), generation);
+	}
+	
+	/**
+	 * Formats a word in the way that keys are stored in the dictionary of the system. It turns all characters into lowercase letters
+	 * and makes its length exactly {@link #SIZEOF_KEY} characters, by either padding with spaces at the ending, or by deleting its last characters.
+	 * @param word A {@link java.lang.String} with the word to be formatted.
+	 * @return A {@link java.lang.String} with the formatted key.
+	 */
+	private String formatKey(String word) {
+		String key = word.toLowerCase();
+		for(int i=key.length();i<SIZEOF_KEY;i++)  //pad with spaces to contain SIZEOF_KEY characters
+			key += ' ';
+		if(key.length()>SIZEOF_KEY)  //delete the last characters in order to contain exactly SIZEOF_KEY of them.
+			key = key.substring(0, SIZEOF_KEY);
+		return key;
+	}
+	
+	/**
+	 * Finds all the occurrences of a formatted key, either from the cache (if enabled) or by searching the BTree and the index.
+	 * @param formattedKey A {@link java.lang.String} with a key, as formatted by {@link #formatKey(String)}.
+	 * @param included A boolean array with an entry for every input file, which is true if its occurrences are needed, or {@code null} for all the active files.
+	 * @return An {@link java.util.ArrayList} with {@link java.lang.String String[]} arrays, each one containing a filename and a location.
+	 * The list is empty if the key does not exist in the dictionary.
+	 * @throws IOException In case of an error while reading the binary files.
+	 */
+	private ArrayList<String[]> lookup(String formattedKey, boolean[] included) throws IOException {
+		long startTime = System.nanoTime();
+		ArrayList<String[]> results = findOccurrences(formattedKey, included);
+		metrics.getLookupLatency().record(System.nanoTime()-startTime);
+		return results;
+	}
+	
+	/**
+	 * Implements {@link #lookup(String, boolean[])} for all the active files, without recording its latency.
+	 * @param formattedKey A {@link java.lang.String} with a key, as formatted by {@link #formatKey(String)}.
+	 * @return An {@link java.util.ArrayList} with {@link java.lang.String String[]} arrays, each one containing a filename and a location.
+	 * @throws IOException In case of an error while reading the binary files.
+	 */
+	private ArrayList<String[]> findOccurrences(String formattedKey) throws IOException {
+		return findOccurrences(formattedKey, null);
+	}
+	
+	/**
+	 * Implements {@link #lookup(String, boolean[])}, without recording its latency. Only the unfiltered results are cached.
+	 */
+	private ArrayList<String[]> findOccurrences(String formattedKey, boolean[] included) throws IOException {
+		ArrayList<String[]> results;
+		int[] postings;
+		
+		if(!dataFilesValid)
+			return new ArrayList<String[]>();
+		if(bloomFilter!=null && !bloomFilter.mightContain(formattedKey))  //the key certainly does not exist, so no disk accesses are needed
+			return new ArrayList<String[]>();
+		
+		if(cache!=null) {
+			postings = cache.get(formattedKey);
+			if(postings!=null) {  //decode the compact postings of the cache
+				results = new ArrayList<String[]>(postings.length/2);
+				for(int i=0;i<postings.length;i+=2)
+					if(included==null || (postings[i]>=0 && included[postings[i]]))
+						results.add(new String[] {(postings[i]<0) ? "" : fileNames[postings[i]], postings[i+1]+""});
+				return results;
+			}
+		}
+		
+		TreeRecord record = lookupDictionary().findRecord(formattedKey);
+		if(record==null)
+			results = new ArrayList<String[]>();
+		else {
+			results = index.findData(record.getInfo(), this.fileNames, included);
+			for(int i=results.size()-1;i>=0 && included==null;i--) {  //ignore the occurrences of the removed files (which are never included)
+				int id = fileTable.find(results.get(i)[0]);
+				if(id>=0 && fileTable.getState(id)!=FileTable.ACTIVE)
+					results.remove(i);
+			}
+		}
+		
+		if(cache!=null && included==null) {  //encode the results as pairs of (file id, offset) values
+			postings = new int[2*results.size()];
+			for(int i=0;i<results.size();i++) {
+				postings[2*i] = fileId(results.get(i)[0]);
+				postings[2*i+1] = Integer.parseInt(results.get(i)[1]);
+			}
+			cache.put(formattedKey, postings);
+		}
+		return results;
+	}
+	
+	/**
+	 * Finds all the occurrences of some words, and merges them in the order of the files (as in the table of files) and then of the locations.
+	 * @param words An {@link java.util.ArrayList} with the words.
+	 * @param included A boolean array with an entry for every input file, which is true if its occurrences are needed, or {@code null} for all the active files.
+	 * @return An {@link java.util.ArrayList} with {@link java.lang.String String[]} arrays, each one containing a filename and a location.
+	 * @throws IOException In case of an error while reading the binary files.
+	 */
+	private ArrayList<String[]> findOccurrences(ArrayList<String> words, boolean[] included) throws IOException {
+		ArrayList<String[]> results = new ArrayList<String[]>();
+		
+		for(String word : words)
+			results.addAll(findOccurrences(formatKey(word), included));
+		results.sort((x, y) -> (fileId(x[0])!=fileId(y[0])) ? Integer.compare(fileId(x[0]), fileId(y[0]))
+				: Integer.compare(Integer.parseInt(x[1]), Integer.parseInt(y[1])));
+		return results;
+	}
+	
+	/**
+	 * Provides the ids of the files which contain a word, from its set of files if the sets are kept, or else from its occurrences in the index.
+	 * @param word A {@link java.lang.String} with the word.
+	 * @return A {@link wordsearch.structures.bitmap.RoaringBitmap} with the ids of the files, which must not be modified.
+	 * @throws IOException In case of an error while reading the binary files.
+	 */
+	private RoaringBitmap findFileSet(String word) throws IOException {
+		String formattedKey = formatKey(word);
+		RoaringBitmap files;
+		
+		if(fileSetIndex!=null)
+			return fileSetIndex.getFiles(TreeRecord.stripPadding(formattedKey));
+		files = new RoaringBitmap();
+		for(String[] occurrence : findOccurrences(formattedKey))
+			files.add(fileId(occurrence[0]));
+		return files;
+	}
+	
+	/**
+	 * Checks whether a question is a regular expression, i.e. it is enclosed in slashes.
+	 */
+	private static boolean isRegexQuestion(String question) {
+		return question.length()>=2 && question.startsWith("/") && question.endsWith("/");
+	}
+	
+	/**
+	 * Provides the position of a filename into the array of the input ASCII files.
+	 * @param fileName A {@link java.lang.String} with the name of an input file.
+	 * @return The position of the file into the array of the input files, or -1 if it does not exist.
+	 */
+	private int fileId(String fileName) {
+		return fileTable.find(fileName);
+	}
+	
+	/**
+	 * Provides the memory occupied by the pinned levels of the BTree (see {@link #pinTreeLevels(int, long)}).
+	 * @return A long number with the bytes of the pinned pages, which is 0 if no levels are pinned.
+	 */
+	public long getPinnedTreeBytes() {
+		return dictionary.getPinnedBytes();
+	}
+	
+	/**
+	 * Provides the height of the BTree, which is the number of pages read from the BTree's binary file by a search that reaches a leaf.
+	 * @return An integer with the height of the BTree, or 0 if the data files have not been built.
+	 */
+	public int getTreeHeight() {
+		try {
+			return dictionary.getHeight();
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + BTREE_FILENAME + " is not accessible.");
+			return 0;
+		}
+	}
+	
+	/**
+	 * Keeps the pages of the top levels of the BTree in memory, so that every question reads from the disk only the pages of the lower levels.
+	 * The root and the level below it are read by every question, so pinning them saves as many disk accesses per question, for a few pages of memory.
+	 * The pinned pages are kept up to date while the data files are built or updated.
+	 * @param levels The number of levels to be pinned (e.g. 2 or 3), or 0 to release the pinned pages.
+	 * @param maxBytes The maximum memory (in bytes) occupied by the pinned pages. Levels which do not fit are not pinned.
+	 * @return An integer with the number of levels which were actually pinned, or -1 in case of an error while reading the BTree.
+	 */
+	public int pinTreeLevels(int levels, long maxBytes) {
+		this.pinnedLevels = levels;
+		this.maxPinnedBytes = maxBytes;
+		try {
+			return dictionary.pinLevels(levels, maxBytes);
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + BTREE_FILENAME + " is not accessible.");
+			return -1;
+		}
+	}
+	
+	/**
+	 * Selects the maximum number of pages of the index which are read with a single access while the occurrences of a word are read.
+	 * The pages are read ahead only while the chain of the word is stored in consecutive pages, which is always the case after {@link #compactIndex()},
+	 * and the window grows with the observed length of the chains (see {@link wordsearch.structures.index.Index#setMaxReadAhead(int)}).
+	 * The number of accesses for every chain is reported by {@link #getMetricsSnapshot()}, next to the number of pages of the chain.
+	 * By default, the pages are read ahead only with the {@link #FILE_STORAGE}, since the pages of the other storages are not read with system calls.
+	 * @param maxPages The maximum number of pages, e.g. {@link wordsearch.structures.index.Index#DEFAULT_READ_AHEAD}, or 1 in order to read every page separately.
+	 * @throws IllegalArgumentException If the number of pages is less than 1.
+	 */
+	public void setIndexReadAhead(int maxPages) {
+		index.setMaxReadAhead(maxPages);
+		this.indexReadAhead = maxPages;
+	}
+	
+	/**
+	 * Removes all values from the histograms of the metrics of the system.
+	 */
+	public void resetMetrics() {
+		metrics.reset();
+	}
+	
+	/**
+	 * Sets the desired false positive rate of the Bloom filter, which rejects the words that do not exist in the input files
+	 * without any disk accesses. Lower rates require more memory. The new rate takes effect the next time that the data files are built.
+	 * @param falsePositiveRate A double number greater than 0 and less than 1. The default value is 0.01.
+	 */
+	public void setBloomFilterFalsePositiveRate(double falsePositiveRate) {
+		if(falsePositiveRate<=0 || falsePositiveRate>=1)
+			throw new IllegalArgumentException("The false positive rate must be greater than 0 and less than 1.");
+		this.bloomFalsePositiveRate = falsePositiveRate;
+	}
+	
+	/**
+	 * Selects whether an index of the trigrams of the words is built with the data files, so that {@link #findWordsContaining(String)} and
+	 * {@link #answerSubstringQuestion(String)} do not have to read the whole dictionary. It is kept in memory and saved into its binary file, and the new words
+	 * are added to it whenever the data files are updated. Its cost is reported by {@link #getTrigramIndexBuildTime()} and {@link #getTrigramIndexSize()}.
+	 * The selection takes effect the next time that the data files are built. It is enabled by default only if its binary file exists.
+	 * @param enabled True in order to build the index of trigrams, or false otherwise.
+	 */
+	public void setTrigramIndexEnabled(boolean enabled) {
+		this.trigramIndexEnabled = enabled;
+	}
+	
+	/**
+	 * Provides the time which was spent to build the index of trigrams by the last call of {@link #buildDataFiles()}.
+	 * @return A long number with the time in nanoseconds, which is 0 if the index has not been built by this instance.
+	 */
+	public long getTrigramIndexBuildTime() {
+		return trigramIndexBuildTime;
+	}
+	
+	/**
+	 * Provides the size of the index of trigrams, as it is saved in its binary file.
+	 * @return A long number with the size in bytes, which is 0 if the index does not exist.
+	 */
+	public long getTrigramIndexSize() {
+		return (trigramIndex==null) ? 0 : trigramIndex.getSizeInBytes();
+	}
+	
+	/**
+	 * Selects whether the set of the files which contain every word is kept with the data files, as a compressed bitmap of the ids of the files
+	 * (see {@link wordsearch.structures.bitmap.RoaringBitmap}), so that {@link #findFiles(String[], String[], String[])} does not have to read the occurrences
+	 * of the words from the index. The sets are kept in memory and saved into their binary file, and they are updated whenever the data files are updated.
+	 * The selection takes effect the next time that the data files are built. It is enabled by default only if its binary file exists.
+	 * @param enabled True in order to keep the sets of files, or false otherwise.
+	 */
+	public void setFileSetIndexEnabled(boolean enabled) {
+		this.fileSetIndexEnabled = enabled;
+	}
+	
+	/**
+	 * Provides the size of the sets of files of the words, as they are saved in their binary file.
+	 * @return A long number with the size in bytes, which is 0 if the sets are not kept.
+	 */
+	public long getFileSetIndexSize() {
+		return (fileSetIndex==null) ? 0 : fileSetIndex.getSizeInBytes();
+	}
+	
+	/**
+	 * Builds a Bloom filter with all the keys of the dictionary (by reading every page of the BTree) and saves it into its binary file,
+	 * unless the data files are stored in memory.
+	 * @param numOfKeys The number of keys that exist in the dictionary.
+	 * @throws IOException In case of an error while reading the BTree or writing the Bloom filter.
+	 */
+	private void buildBloomFilter(int numOfKeys) throws IOException {
+		BloomFilter filter = new BloomFilter(numOfKeys, bloomFalsePositiveRate);
+		TreePage page;
+		
+		for(int p=0;p<dictionary.getSize();p++) {
+			page = dictionary.getPage(p);
+			for(int i=0;i<page.getSize();i++)
+				filter.add(((TreeRecord)page.getRecord(i)).getKey());
+		}
+		if(!isInMemory())
+			filter.writeToFile(BLOOM_FILENAME);
+		this.bloomFilter = filter;
+	}
+	
+	/**
+	 * Builds the {@link wordsearch.structures.trie.SuggestionTrie} with all the words of the dictionary and their occurrences, in the order of the words
+	 * (see {@link #readRecordsByWord()}).
+	 * @throws IOException In case of an error while reading the BTree.
+	 */
+	private void buildSuggestionTrie() throws IOException {
+		SuggestionTrie trie = new SuggestionTrie();
+		
+		for(TreeRecord r : readRecordsByWord())
+			if(r.getCount()>0)
+				trie.add(TreeRecord.stripPadding(r.getKey()), r.getCount());
+		this.suggestions = trie;
+	}
+	
+	/**
+	 * Reads all the records of the BTree, in the alphabetical order of their words (see {@link wordsearch.structures.btree.TreeRecord#stripPadding(String)}),
+	 * as the {@link wordsearch.structures.trie.SuggestionTrie} and the {@link wordsearch.structures.fst.FstBuilder} require. The BTree is read once, in the order
+	 * of its keys, and the records are sorted again only if the two orders differ, i.e. if some words contain characters less than a space (e.g. {@code '\r'}).
+	 * @return An {@link java.util.ArrayList} with all the records of the BTree.
+	 * @throws IOException In case of an error while reading the BTree.
+	 */
+	private ArrayList<TreeRecord> readRecordsByWord() throws IOException {
+		ArrayList<TreeRecord> records = new ArrayList<TreeRecord>();
+		BTreeCursor cursor = new BTreeCursor(dictionary);
+		String word, lastWord = "";
+		boolean inOrder = true;
+		
+		for(TreeRecord r=cursor.next(); r!=null; r=cursor.next()) {
+			word = TreeRecord.stripPadding(r.getKey());
+			inOrder = inOrder && word.compareTo(lastWord)>0;
+			lastWord = word;
+			records.add(r);
+		}
+		if(!inOrder)
+			records.sort((x, y) -> TreeRecord.stripPadding(x.getKey()).compareTo(TreeRecord.stripPadding(y.getKey())));
+		return records;
+	}
+	
+	/**
+	 * Builds the index of trigrams with all the words of the dictionary, by reading the BTree in the order of its keys, and records the time which was spent.
+	 * It is saved into its binary file with the table of files.
+	 * @throws IOException In case of an error while reading the BTree.
+	 */
+	private void buildTrigramIndex() throws IOException {
+		long startTime = System.nanoTime();
+		TrigramIndex trigrams = new TrigramIndex();
+		BTreeCursor cursor = new BTreeCursor(dictionary);
+		
+		for(TreeRecord r=cursor.next(); r!=null; r=cursor.next())
+			trigrams.add(TreeRecord.stripPadding(r.getKey()));
+		this.trigramIndex = trigrams;
+		this.trigramIndexBuildTime = System.nanoTime() - startTime;
+	}
+	
+	/**
+	 * Builds a compact, read-only copy of the dictionary into its binary file, as a minimal acyclic finite state transducer (see {@link wordsearch.structures.fst.FstDictionary}),
+	 * which maps every word to the first page of its chain in the index and to its statistics. The BTree is read once (see {@link #readRecordsByWord()}).
+	 * The copy is used instead of the BTree only after {@link #useCompactDictionary(boolean)}, and it is deleted as soon as the data files are built
+	 * or updated, or the index is compacted, since its records would no longer be valid. It is not available if the data files are stored in memory.
+	 * @return A long number with the size of the binary file in bytes, or -1 in case of an error while accessing the data files.
+	 */
+	public long buildCompactDictionary() {
+		FstBuilder builder = new FstBuilder();
+		
+		if(isInMemory()) {
+			System.err.println("Error. The compact dictionary is only available for data files on the disk.");
+			return -1;
+		}
+		if(!dataFilesValid) {
+			System.err.println("Error. The data files have to be rebuilt first.");
+			return -1;
+		}
+		try {
+			for(TreeRecord r : readRecordsByWord())
+				builder.add(TreeRecord.stripPadding(r.getKey()), new int[] {r.getInfo(), r.getCount(), r.getNumOfFiles()});
+			if(compactDictionary!=null) {  //its file is about to be replaced
+				compactDictionary.close();
+				compactDictionary = null;
+			}
+			return builder.writeToFile(FST_FILENAME);
+		}catch(IOException e) {
+			System.err.println("Error. Unable to build the binary file " + FST_FILENAME + ".");
+			return -1;
+		}
+	}
+	
+	/**
+	 * Selects whether the words of the questions are searched in the compact dictionary which was built by {@link #buildCompactDictionary()}, instead of the BTree.
+	 * Its binary file is mapped into memory, so it takes a small fraction of the size of the BTree, and its searches do not access the disk once it has been loaded.
+	 * It is meant for read-only deployments: building or updating the data files deletes it, and the BTree is used again.
+	 * The fuzzy searches and the suggestions still read the BTree.
+	 * @param enabled True in order to use the compact dictionary, or false in order to use the BTree.
+	 * @return True if the selected dictionary is used, or false if the compact dictionary has not been built, or it is malformed or out of date,
+	 * or the data files are stored in memory.
+	 */
+	public boolean useCompactDictionary(boolean enabled) {
+		try {
+			if(compactDictionary!=null) {
+				compactDictionary.close();
+				compactDictionary = null;
+			}
+			if(!enabled)
+				return true;
+			if(isInMemory()) {
+				System.err.println("Error. The compact dictionary is only available for data files on the disk.");
+				return false;
+			}
+			
+			FstDictionary fst = FstDictionary.open(FST_FILENAME, SIZEOF_KEY);
+			if(fst==null || !dataFilesValid || fst.getNumOfWords()!=vocabularySize) {
+				System.err.println("Error. The compact dictionary has to be built first.");
+				if(fst!=null)
+					fst.close();
+				return false;
+			}
+			compactDictionary = fst;
+		}catch(IOException e) {
+			System.err.println("Error. The binary file " + FST_FILENAME + " is malformed and it will be ignored.");
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Provides the size of the compact dictionary which is used instead of the BTree.
+	 * @return A long number with the size of its binary file in bytes, or 0 if it is not used.
+	 */
+	public long getCompactDictionarySize() {
+		return (compactDictionary==null) ? 0 : compactDictionary.getSizeInBytes();
+	}
+	
+	/**
+	 * Provides the dictionary where the words of the questions are searched: the compact one if it is used, or the BTree otherwise.
+	 * @return The {@link wordsearch.structures.Dictionary} to be searched.
+	 */
+	private Dictionary lookupDictionary() {
+		return (compactDictionary!=null) ? compactDictionary : dictionary;
+	}
+	
+	/**
+	 * Stops using the compact dictionary (if it is used) and deletes its binary file, after the records of the BTree have changed.
+	 * @throws IOException In case of an error while closing its binary file.
+	 */
+	private void discardCompactDictionary() throws IOException {
+		if(compactDictionary!=null) {
+			compactDictionary.close();
+			compactDictionary = null;
+		}
+		if(!isInMemory())
+			new File(FST_FILENAME).delete();
+	}
+	
+	/**
+	 * Closes any open file streams of the system, without terminating the program. The instance must not be used afterwards.
+	 * @throws IOException In case of an error while closing the data files.
+	 */
+	public void close() throws IOException {
+		dictionary.close();
+		index.close();
+		if(compactDictionary!=null)
+			compactDictionary.close();
+	}
+	
+	/**
+	 * Forces the data files to the storage device, so that the last completed build or update survives a crash of the system.
+	 * The pages of the BTree and the index are buffered and written in batches, and they are only guaranteed to be durable after this method
+	 * (or {@link #close()}, which writes them without forcing them to the device). It does nothing if the data files are stored in memory.
+	 * @throws IOException In case of an error while writing the data files.
+	 */
+	public void sync() throws IOException {
+		index.sync();
+		dictionary.sync();
 	}
 	
 	/**
@@ -227,8 +1862,7 @@ public class WordSearch {
 	 */
 	public void terminate() {
 		try {
-			dictionary.close();
-			index.close();
+			close();
 			System.exit(0);
 		}catch(IOException e) {
 			System.err.println("Error. Some data files are inaccessible.");
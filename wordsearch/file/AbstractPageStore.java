@@ -0,0 +1,128 @@
+package wordsearch.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The common part of the implementations of {@link PageStore}: the size of the pages and of the header, and the counters of page reads and writes,
+ * as well as of the bytes transferred. The counters are atomic, so they remain accurate when pages are read concurrently.
+ * @author Georgios Apostolakis
+ */
+public abstract class AbstractPageStore implements PageStore {
+	private final AtomicLong pageReads;
+	private final AtomicLong pageWrites;
+	private final AtomicLong bytesRead;
+	private final AtomicLong bytesWritten;
+	
+	/**
+	 * The size (in bytes) of every {@link wordsearch.structures.Page} object in the store.
+	 */
+	public final int SIZEOF_PAGE;
+	
+	/**
+	 * The number of pages reserved for a header at the start of the store, which are not counted by {@link #fileSize()}.
+	 */
+	public final int HEADER_PAGES;
+	
+	/**
+	 * Initializes the sizes and the counters of a store.
+	 * @param SIZEOF_PAGE The value for the {@link #SIZEOF_PAGE} constant of this class.
+	 * @param HEADER_PAGES The value for the {@link #HEADER_PAGES} constant of this class.
+	 */
+	protected AbstractPageStore(int SIZEOF_PAGE, int HEADER_PAGES) {
+		this.SIZEOF_PAGE = SIZEOF_PAGE;
+		this.HEADER_PAGES = HEADER_PAGES;
+		this.pageReads = new AtomicLong();
+		this.pageWrites = new AtomicLong();
+		this.bytesRead = new AtomicLong();
+		this.bytesWritten = new AtomicLong();
+	}
+	
+	/**
+	 * Adds some page reads to the counters.
+	 * @param pages The number of pages read.
+	 * @param bytes The number of bytes read.
+	 */
+	protected void countReads(int pages, long bytes) {
+		this.pageReads.addAndGet(pages);
+		this.bytesRead.addAndGet(bytes);
+	}
+	
+	/**
+	 * Adds some page writes to the counters.
+	 * @param pages The number of pages written.
+	 * @param bytes The number of bytes written.
+	 */
+	protected void countWrites(int pages, long bytes) {
+		this.pageWrites.addAndGet(pages);
+		this.bytesWritten.addAndGet(bytes);
+	}
+	
+	@Override
+	public long getBytesRead() {
+		return this.bytesRead.get();
+	}
+	
+	@Override
+	public long getBytesWritten() {
+		return this.bytesWritten.get();
+	}
+	
+	@Override
+	public int getNumOfAccesses() {
+		return (int)(this.pageReads.get() + this.pageWrites.get());
+	}
+	
+	@Override
+	public int getNumOfHeaderPages() {
+		return HEADER_PAGES;
+	}
+	
+	@Override
+	public long getNumOfReads() {
+		return this.pageReads.get();
+	}
+	
+	@Override
+	public long getNumOfWrites() {
+		return this.pageWrites.get();
+	}
+	
+	@Override
+	public int getPageSize() {
+		return SIZEOF_PAGE;
+	}
+	
+	/**
+	 * Provides a copy of the contents of a given page, as returned by {@link #readPage(long)}, wrapped in a read-only {@link java.nio.ByteBuffer}.
+	 */
+	@Override
+	public ByteBuffer readPageBuffer(long pageNum) throws IOException {
+		byte[] bytes = readPage(pageNum);
+		return (bytes==null) ? null : ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Provides the contents of some consecutive pages, reading them one at a time with {@link #readPage(long)}.
+	 */
+	@Override
+	public byte[][] readPages(long firstPage, int numOfPages) throws IOException {
+		long size = fileSize();
+		
+		if(firstPage<0 || firstPage>=size)
+			return null;
+		byte[][] pages = new byte[(int)Math.min(numOfPages, size-firstPage)][];
+		for(int i=0;i<pages.length;i++)
+			pages[i] = readPage(firstPage+i);
+		return pages;
+	}
+	
+	@Override
+	public void resetNumOfAccesses() {
+		this.pageReads.set(0);  //the counters are reset in place, so that no concurrent access is counted in a discarded counter
+		this.pageWrites.set(0);
+		this.bytesRead.set(0);
+		this.bytesWritten.set(0);
+	}
+}
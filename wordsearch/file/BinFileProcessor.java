@@ -3,70 +3,199 @@ package wordsearch.file;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import wordsearch.structures.Page;
 
 /**
- * A simple class to read and write pages in binary files. It also counts the number of accesses in the disk.
+ * A simple class to read and write pages in binary files. It also counts the number of page reads and writes in the disk,
+ * as well as the number of bytes transferred. The counters are atomic, so they remain accurate when pages are read concurrently.
+ * Optionally, some pages at the start of the file are reserved for a header, and the numbering of the pages starts after them.
+ * <p>
+ * The written pages are kept in a write-behind buffer, where repeated writes of the same page replace each other, until the buffer is full
+ * or {@link #flush()} is called. Then the buffered pages are written in ascending order, and every run of consecutive pages is written with a
+ * single gathering write. Reads see the buffered pages, and the counters only count the pages which are actually transferred to or from the disk.
+ * Nothing is guaranteed to survive a crash of the system before {@link #sync()}.
  * @author Georgios Apostolakis
  */
-public class BinFileProcessor {
+public class BinFileProcessor extends AbstractPageStore {
 	private RandomAccessFile processor;
-	private int diskAccessesCounter;
+	private FileChannel channel;
+	private ConcurrentSkipListMap<Long, byte[]> dirtyPages;  //the buffered pages, by their position in the file (including the header)
+	private volatile long length;  //the length of the file (in bytes) on the disk
+	private int numOfDirtyPages;  //the size of dirtyPages, which is not computed in constant time by the map
 	
 	/**
-	 * The size (in bytes) of every {@link wordsearch.structures.Page} object in the binary file.
+	 * The default size (in bytes) of the write-behind buffer.
 	 */
-	public final int SIZEOF_PAGE;
+	public static final int DEFAULT_WRITE_BUFFER = 1<<22;
 	
 	/**
-	 * Constructs an instance of this class which reads/writes to a specific file on the disk.
+	 * The maximum number of pages in every gathering write.
+	 */
+	public static final int MAX_PAGES_PER_WRITE = 256;
+	
+	/**
+	 * The maximum number of pages kept in the write-behind buffer. If it is 0, every page is written immediately.
+	 */
+	public final int MAX_DIRTY_PAGES;
+	
+	/**
+	 * Constructs an instance of this class which reads/writes to a specific file on the disk, without a header.
 	 * @param SIZEOF_PAGE The value for the {@link #SIZEOF_PAGE} constant of this class.
 	 * @param filename The name of the binary file where the read/write operations will take place.
 	 * @throws FileNotFoundException In case where  the given filename does not denote an existing, writable file and a new file of that name cannot be created.
 	 */
 	public BinFileProcessor(int SIZEOF_PAGE, String filename) throws FileNotFoundException{
-		this.SIZEOF_PAGE = SIZEOF_PAGE;
+		this(SIZEOF_PAGE, filename, 0);
+	}
+	
+	/**
+	 * Constructs an instance of this class which reads/writes to a specific file on the disk, with some pages reserved for a header.
+	 * The page 0 of this instance is the first page after the header.
+	 * @param SIZEOF_PAGE The value for the {@link #SIZEOF_PAGE} constant of this class.
+	 * @param filename The name of the binary file where the read/write operations will take place.
+	 * @param HEADER_PAGES The value for the {@link #HEADER_PAGES} constant of this class.
+	 * @throws FileNotFoundException In case where  the given filename does not denote an existing, writable file and a new file of that name cannot be created.
+	 */
+	public BinFileProcessor(int SIZEOF_PAGE, String filename, int HEADER_PAGES) throws FileNotFoundException{
+		this(SIZEOF_PAGE, filename, HEADER_PAGES, DEFAULT_WRITE_BUFFER);
+	}
+	
+	/**
+	 * Constructs an instance of this class which reads/writes to a specific file on the disk, with some pages reserved for a header
+	 * and a write-behind buffer of a given size.
+	 * @param SIZEOF_PAGE The value for the {@link #SIZEOF_PAGE} constant of this class.
+	 * @param filename The name of the binary file where the read/write operations will take place.
+	 * @param HEADER_PAGES The value for the {@link #HEADER_PAGES} constant of this class.
+	 * @param writeBufferBytes The size (in bytes) of the write-behind buffer, which determines {@link #MAX_DIRTY_PAGES}, or 0 to write every page immediately.
+	 * @throws FileNotFoundException In case where  the given filename does not denote an existing, writable file and a new file of that name cannot be created.
+	 */
+	public BinFileProcessor(int SIZEOF_PAGE, String filename, int HEADER_PAGES, int writeBufferBytes) throws FileNotFoundException{
+		super(SIZEOF_PAGE, HEADER_PAGES);
+		this.MAX_DIRTY_PAGES = writeBufferBytes/SIZEOF_PAGE;
 		this.processor = new RandomAccessFile(filename, "rw");
-		this.diskAccessesCounter = 0;
+		this.channel = processor.getChannel();
+		this.dirtyPages = new ConcurrentSkipListMap<Long, byte[]>();
+		try {
+			this.length = processor.length();
+		}catch(IOException e) {
+			throw new FileNotFoundException("Unable to access " + filename + ".");
+		}
 	}
 	
 	/**
-	 * Deletes any contents existing in the binary file.
+	 * Deletes any contents existing in the binary file, including its header.
 	 * @throws IOException In case of an error while accessing the file.
 	 */
 	public void clearFile() throws IOException{
+		this.dirtyPages.clear();
+		this.numOfDirtyPages = 0;
 		this.processor.setLength(0);
+		this.length = 0;
 	}
 	
 	/**
-	 * Releases the binary file associated with this instance.
-	 * @throws IOException In case of an error while closing the stream to the file.
+	 * Writes the buffered pages and releases the binary file associated with this instance.
+	 * @throws IOException In case of an error while writing or closing the stream to the file.
 	 */
 	public void close() throws IOException {
+		flush();
 		this.processor.close();
 	}
 	
 	/**
-	 * Returns the size of the binary file, in number of {@link wordsearch.structures.Page} objects (and not in bytes).
+	 * Returns the size of the binary file, in number of {@link wordsearch.structures.Page} objects (and not in bytes), excluding the pages of the header.
 	 * @return A long number with the size of the binary file.
 	 * @throws IOException In case of an error while reading the file.
 	 */
 	public long fileSize() throws IOException {
-		long tmp = processor.length();
-		return tmp/SIZEOF_PAGE;
+		long tmp = length/SIZEOF_PAGE;
+		Map.Entry<Long, byte[]> last = dirtyPages.lastEntry();
+		if(last!=null)
+			tmp = Math.max(tmp, last.getKey()+1);
+		return Math.max(0, tmp - HEADER_PAGES);
+	}
+	
+	/**
+	 * Writes all the buffered pages into the binary file, in ascending order, with one gathering write for every run of consecutive pages
+	 * (up to {@link #MAX_PAGES_PER_WRITE} pages). After this method, the pages are visible to any other process which reads the file,
+	 * but they may still be lost in a crash of the system until {@link #sync()} is called.
+	 * @throws IOException In case of an error while writing into the file.
+	 */
+	public void flush() throws IOException {
+		ArrayList<Map.Entry<Long, byte[]>> run = new ArrayList<Map.Entry<Long, byte[]>>();
+		
+		for(Map.Entry<Long, byte[]> e : dirtyPages.entrySet()) {
+			if(!run.isEmpty() && (e.getKey()!=run.get(run.size()-1).getKey()+1 || run.size()==MAX_PAGES_PER_WRITE)) {
+				writeRun(run);
+				run.clear();
+			}
+			run.add(e);
+		}
+		if(!run.isEmpty())
+			writeRun(run);
+	}
+	
+	/**
+	 * Writes the buffered pages, as {@link #flush()}, and then forces the binary file to the storage device, so that they survive a crash of the system.
+	 * @throws IOException In case of an error while writing into the file.
+	 */
+	public void sync() throws IOException {
+		flush();
+		channel.force(false);
+	}
+	
+	/**
+	 * Writes a run of consecutive buffered pages with a single gathering write, and removes them from the buffer.
+	 * A page is removed only after it has been written, so a concurrent read finds it either in the buffer or in the file.
+	 * @param run A list with the positions (including the header) and the contents of consecutive pages, in ascending order.
+	 */
+	private void writeRun(ArrayList<Map.Entry<Long, byte[]>> run) throws IOException {
+		ByteBuffer[] buffers = new ByteBuffer[run.size()];
+		long position = run.get(0).getKey()*SIZEOF_PAGE, remaining = (long)run.size()*SIZEOF_PAGE;
+		
+		for(int i=0;i<buffers.length;i++)
+			buffers[i] = ByteBuffer.wrap(run.get(i).getValue(), 0, SIZEOF_PAGE);
+		synchronized(processor) {  //the position of the channel is shared with the header writes
+			channel.position(position);
+			while(remaining>0)
+				remaining -= channel.write(buffers);
+		}
+		length = Math.max(length, position + (long)run.size()*SIZEOF_PAGE);
+		countWrites(run.size(), (long)run.size()*SIZEOF_PAGE);
+		for(Map.Entry<Long, byte[]> e : run)
+			if(dirtyPages.remove(e.getKey(), e.getValue()))
+				numOfDirtyPages--;
 	}
 	
 	/**
-	 * Provides the current number of disk accesses, since the last time the counter was reset.
-	 * @return An integer with the number of disk accesses.
+	 * Provides the contents of the header of the binary file.
+	 * @return A byte array with the {@link #HEADER_PAGES} pages of the header, or {@code null} if the file is too short to contain a header.
+	 * @throws IOException In case of an error while reading from the file.
 	 */
-	public int getNumOfAccesses() {
-		return this.diskAccessesCounter;
+	public byte[] readHeader() throws IOException {
+		byte[] buffer = new byte[HEADER_PAGES*SIZEOF_PAGE];
+		
+		if(HEADER_PAGES==0 || length<buffer.length)
+			return null;
+		
+		ByteBuffer bb = ByteBuffer.wrap(buffer);
+		while(bb.hasRemaining() && processor.getChannel().read(bb, bb.position())>0)
+			;
+		countReads(HEADER_PAGES, buffer.length);
+		return buffer;
 	}
 	
 	/**
 	 * Provides a byte array with the contents of a given page from the binary file.
+	 * The page is read with a positional read, which does not move the file pointer, so pages may be read concurrently by multiple threads.
+	 * A page which is still in the write-behind buffer is copied from there, without an access to the disk.
 	 * @param pageNum The number of the page to be read.
 	 * @return A byte array with the read page from the file, or {@code null} when the page number is invalid.
 	 * @throws IOException In case of an error while reading from the file.
@@ -77,22 +206,60 @@ public class BinFileProcessor {
 		if(fileSize()<=pageNum||pageNum<0)
 			return null;
 		
-		processor.seek(pageNum*SIZEOF_PAGE);
-		processor.read(buffer);
-		this.diskAccessesCounter++;
+		byte[] dirty = dirtyPages.get(pageNum+HEADER_PAGES);
+		if(dirty!=null) {
+			System.arraycopy(dirty, 0, buffer, 0, SIZEOF_PAGE);
+			return buffer;
+		}
+		
+		ByteBuffer bb = ByteBuffer.wrap(buffer);
+		while(bb.hasRemaining() && processor.getChannel().read(bb, (pageNum+HEADER_PAGES)*SIZEOF_PAGE+bb.position())>0)
+			;  //repeat until the whole page has been read
+		countReads(1, SIZEOF_PAGE);
 		
 		return buffer;
 	}
 	
 	/**
-	 * Resets the counter of disk accesses to zero.
+	 * Provides the contents of some consecutive pages from the binary file, with a single positional read for all of them (as long as they exist in the file),
+	 * so that reading ahead the pages of a chain costs one access to the disk. The pages which are still in the write-behind buffer are copied from there.
+	 * @param firstPage The number of the first page to be read.
+	 * @param numOfPages The number of pages to be read. Fewer pages are read if the file ends before them.
+	 * @return An array with a byte array for every page which was read, or {@code null} when the number of the first page is invalid.
+	 * @throws IOException In case of an error while reading from the file.
 	 */
-	public void resetNumOfAccesses() {
-		this.diskAccessesCounter = 0;
+	public byte[][] readPages(long firstPage, int numOfPages) throws IOException {
+		long size = fileSize();
+		
+		if(firstPage<0 || firstPage>=size)
+			return null;
+		
+		byte[][] pages = new byte[(int)Math.min(numOfPages, size-firstPage)][];
+		long position = (firstPage+HEADER_PAGES)*SIZEOF_PAGE;
+		int onDisk = (int)Math.max(0, Math.min((long)pages.length*SIZEOF_PAGE, length-position)/SIZEOF_PAGE);  //the rest exist only in the buffer
+		byte[] buffer = new byte[onDisk*SIZEOF_PAGE];
+		
+		ByteBuffer bb = ByteBuffer.wrap(buffer);
+		while(bb.hasRemaining() && channel.read(bb, position+bb.position())>0)
+			;  //repeat until all the pages have been read
+		if(onDisk>0)
+			countReads(onDisk, buffer.length);
+		
+		for(int i=0;i<pages.length;i++) {
+			byte[] dirty = dirtyPages.get(firstPage+HEADER_PAGES+i);
+			if(dirty!=null)
+				pages[i] = Arrays.copyOf(dirty, SIZEOF_PAGE);
+			else if(i<onDisk)
+				pages[i] = Arrays.copyOfRange(buffer, i*SIZEOF_PAGE, (i+1)*SIZEOF_PAGE);
+			else  //a page which has never been written
+				pages[i] = new byte[SIZEOF_PAGE];
+		}
+		return pages;
 	}
 	
 	/**
-	 * Converts a given {@link wordsearch.structures.Page} object into a byte array and writes it in the binary file at a specified position.
+	 * Converts a given {@link wordsearch.structures.Page} object into a byte array and places it in the write-behind buffer, replacing any
+	 * previous contents of the same page. If the buffer becomes full, all its pages are written into the file, as by {@link #flush()}.
 	 * @param position An integer with the position where the {@link wordsearch.structures.Page} will be written. Gets values greater or equal to zero.
 	 * Notice that the i-th position corresponds to the i-th page of the file, and not to its i-th byte.
 	 * @param page A {@link wordsearch.structures.Page} object to be written into the file.
@@ -102,8 +269,33 @@ public class BinFileProcessor {
 		byte[] buffer;
 		
 		buffer = page.toByteArray();
-		processor.seek(position*SIZEOF_PAGE);
-		processor.write(buffer);
-		this.diskAccessesCounter++;
+		if(buffer.length<SIZEOF_PAGE) {  //as if it was written by a RandomAccessFile, over zeros
+			byte[] tmp = new byte[SIZEOF_PAGE];
+			System.arraycopy(buffer, 0, tmp, 0, buffer.length);
+			buffer = tmp;
+		}
+		if(dirtyPages.put(position+HEADER_PAGES, buffer)==null)
+			numOfDirtyPages++;
+		if(numOfDirtyPages>=MAX_DIRTY_PAGES)
+			flush();
+	}
+	
+	/**
+	 * Writes the header of the binary file, replacing the previous one. The header is not buffered: the buffered pages are written first,
+	 * as by {@link #flush()}, and then the header, so that the header in the file never describes pages which are not in the file yet.
+	 * @param header A byte array with at most {@link #HEADER_PAGES} pages. It is padded with zeros.
+	 * @throws IOException In case of an error while writing into the file.
+	 */
+	public void writeHeader(byte[] header) throws IOException {
+		byte[] buffer = new byte[HEADER_PAGES*SIZEOF_PAGE];
+		
+		System.arraycopy(header, 0, buffer, 0, Math.min(header.length, buffer.length));
+		flush();
+		synchronized(processor) {
+			processor.seek(0);
+			processor.write(buffer);
+		}
+		length = Math.max(length, (long)buffer.length);
+		countWrites(HEADER_PAGES, buffer.length);
 	}
-}
\ No newline at end of file
+}
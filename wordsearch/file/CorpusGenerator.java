@@ -0,0 +1,182 @@
+package wordsearch.file;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * This class generates synthetic ASCII files, which can be used as input for benchmarks and scale tests.
+ * A vocabulary of random words is generated first, with word lengths drawn from a configurable distribution.
+ * Then, the words of the files are drawn from the vocabulary following a Zipf distribution, as in natural language:
+ * the word of rank {@code r} appears with probability proportional to {@code 1/r^s}. Shorter words receive the lower ranks.
+ * Every output is fully determined by the seed and the parameters of the generator, so it can be reproduced on any machine.
+ * @author Georgios Apostolakis
+ */
+public class CorpusGenerator {
+	private String[] vocabulary;
+	private double[] cumulativeProbabilities;
+
+	/**
+	 * The default distribution of word lengths: the i-th entry is the relative frequency of words with {@code i+1} characters.
+	 */
+	public static final double[] DEFAULT_WORD_LENGTHS = {0.03, 0.17, 0.21, 0.16, 0.11, 0.09, 0.08, 0.06, 0.04, 0.03, 0.01, 0.01};
+
+	/**
+	 * The seed from which all random choices of this generator are made.
+	 */
+	public final long SEED;
+
+	/**
+	 * The exponent {@code s} of the Zipf distribution.
+	 */
+	public final double ZIPF_EXPONENT;
+
+	/**
+	 * Constructs a new generator with a vocabulary of a given size and the {@link #DEFAULT_WORD_LENGTHS default distribution} of word lengths.
+	 * @param seed The value for the {@link #SEED} constant of this class.
+	 * @param vocabularySize The number of distinct words that may appear in the generated files.
+	 * @param zipfExponent The value for the {@link #ZIPF_EXPONENT} constant of this class. Usually close to 1.
+	 */
+	public CorpusGenerator(long seed, int vocabularySize, double zipfExponent) {
+		this(seed, vocabularySize, zipfExponent, DEFAULT_WORD_LENGTHS);
+	}
+
+	/**
+	 * Constructs a new generator with a vocabulary of a given size.
+	 * @param seed The value for the {@link #SEED} constant of this class.
+	 * @param vocabularySize The number of distinct words that may appear in the generated files.
+	 * @param zipfExponent The value for the {@link #ZIPF_EXPONENT} constant of this class. Usually close to 1.
+	 * @param wordLengths The distribution of word lengths: the i-th entry is the relative frequency of words with {@code i+1} characters.
+	 * If all the words of some length have been used, longer words are generated instead.
+	 */
+	public CorpusGenerator(long seed, int vocabularySize, double zipfExponent, double[] wordLengths) {
+		this.SEED = seed;
+		this.ZIPF_EXPONENT = zipfExponent;
+		generateVocabulary(new Random(seed), vocabularySize, wordLengths);
+
+		this.cumulativeProbabilities = new double[vocabularySize];
+		double sum = 0;
+		for(int r=0;r<vocabularySize;r++) {
+			sum += 1/Math.pow(r+1, zipfExponent);
+			cumulativeProbabilities[r] = sum;
+		}
+		for(int r=0;r<vocabularySize;r++)
+			cumulativeProbabilities[r] /= sum;
+	}
+
+	/**
+	 * Writes a number of ASCII files with words drawn from the vocabulary. Words are separated by spaces, and a sentence
+	 * (ending with a full stop and a new line) is completed every few words. The i-th file is generated from its own random
+	 * sequence, so its contents do not depend on the number or the size of the other files.
+	 * @param directory The directory where the files will be written. It is created if it does not exist.
+	 * @param numOfFiles The number of files to be generated.
+	 * @param bytesPerFile The (approximate) size of every file in bytes. It must be less than 2GB, since locations into the files are stored as integers.
+	 * @return A {@link java.lang.String String[]} array with the names of the generated files.
+	 * @throws IOException In case of an error while writing the files.
+	 */
+	public String[] generate(String directory, int numOfFiles, long bytesPerFile) throws IOException {
+		String[] fileNames = new String[numOfFiles];
+		String width = "%0" + Integer.toString(Math.max(1, numOfFiles-1)).length() + "d";
+		BufferedWriter writer;
+		Random random;
+		String word;
+		long written;
+		int wordsInSentence;
+
+		if(bytesPerFile>=Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Every file must be smaller than 2GB.");
+		if(!directory.isEmpty() && !directory.endsWith("/"))
+			directory += "/";
+		new File(directory.isEmpty() ? "." : directory).mkdirs();
+
+		for(int f=0;f<numOfFiles;f++) {
+			fileNames[f] = directory + "c" + String.format(width, f) + ".txt";
+			random = new Random(SEED*31 + f);
+			writer = new BufferedWriter(new FileWriter(fileNames[f]), 1<<16);
+			written = 0;
+			wordsInSentence = 0;
+			while(written<bytesPerFile) {
+				word = nextWord(random);
+				wordsInSentence++;
+				if(wordsInSentence >= 8 + random.nextInt(10)) {  //complete the sentence
+					writer.write(word);
+					writer.write(".\n");
+					written += word.length() + 2;
+					wordsInSentence = 0;
+				}
+				else {
+					writer.write(word);
+					writer.write(' ');
+					written += word.length() + 1;
+				}
+			}
+			writer.close();
+		}
+		return fileNames;
+	}
+
+	/**
+	 * Provides the words of the vocabulary, ordered by rank (the most frequent word first).
+	 * @return A {@link java.lang.String String[]} array with the vocabulary. It must not be modified.
+	 */
+	public String[] getVocabulary() {
+		return vocabulary;
+	}
+
+	/**
+	 * Draws a word from the vocabulary, following the Zipf distribution of this generator.
+	 * @param random The {@link java.util.Random} object which provides the randomness.
+	 * @return A {@link java.lang.String} with a word of the vocabulary.
+	 */
+	public String nextWord(Random random) {
+		int r = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+		if(r<0)
+			r = -r-1;
+		return vocabulary[Math.min(r, vocabulary.length-1)];
+	}
+
+	/**
+	 * Generates the distinct words of the vocabulary and orders them by length, so that shorter words receive lower ranks.
+	 */
+	private void generateVocabulary(Random random, int vocabularySize, double[] wordLengths) {
+		HashSet<String> words = new HashSet<String>();
+		double total = 0, p;
+		int length, attempts;
+		String word;
+
+		for(int i=0;i<wordLengths.length;i++)
+			total += wordLengths[i];
+
+		this.vocabulary = new String[vocabularySize];
+		for(int i=0;i<vocabularySize;i++) {
+			p = random.nextDouble()*total;  //draw a length from the distribution
+			length = 0;
+			while(length<wordLengths.length-1 && p>=wordLengths[length]) {
+				p -= wordLengths[length];
+				length++;
+			}
+			length++;
+
+			attempts = 0;
+			do {
+				word = "";
+				for(int c=0;c<length;c++)
+					word += (char)('a' + random.nextInt(26));
+				if(++attempts % 64 == 0)  //probably all the words of this length have been used already
+					length++;
+			} while(!words.add(word));
+			vocabulary[i] = word;
+		}
+
+		Arrays.sort(vocabulary, new Comparator<String>() {  //stable, so words of the same length keep their random order
+			public int compare(String a, String b) {
+				return a.length() - b.length();
+			}
+		});
+	}
+}
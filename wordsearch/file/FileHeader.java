@@ -0,0 +1,219 @@
+package wordsearch.file;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class implements the header which is stored at the start of the binary files of the BTree and the index.
+ * It describes the format of the data files (the sizes of the pages, the keys and the filenames), together with some statistics
+ * of their contents (the size of the vocabulary, the height of the BTree and the number of files in the table of files),
+ * so that existing data files can be opened without knowing the parameters they were built with, and so that data files built
+ * with different parameters are detected instead of returning wrong results. It also records the generation of the data files,
+ * so that a BTree and an index which were not written by the same compaction are never used together.
+ * <p>
+ * The header always starts at the first byte of the file, and its layout does not depend on the size of the pages,
+ * so it can be read before that size is known. It occupies the first {@link #getNumOfHeaderPages(int)} pages of the file.
+ * @author Georgios Apostolakis
+ */
+public class FileHeader {
+	private int version;
+	private int pageSize;
+	private int keySize;
+	private int filenameSize;
+	private int vocabularySize;
+	private int treeHeight;
+	private int numOfFiles;
+	private int generation;
+
+	/**
+	 * The first integer of every header, which identifies the data files of this package.
+	 */
+	public static final int MAGIC = 0x57534458;
+
+	/**
+	 * The version of the format of the data files which is written by this package.
+	 * Version 2 added the number of occurrences and the number of files of every key to the records of the BTree,
+	 * version 3 keeps the records of every chain of the index in the order in which the files were indexed,
+	 * and version 4 added the generation of the data files.
+	 */
+	public static final int VERSION = 4;
+
+	/**
+	 * The size (in bytes) of the header.
+	 */
+	public static final int SIZEOF_HEADER = 9*(Integer.SIZE/8);
+
+	/**
+	 * Constructs a new header of the current {@link #VERSION}.
+	 * @param pageSize The size (in bytes) of every page of the data files.
+	 * @param keySize The exact size of every key of the BTree.
+	 * @param filenameSize The exact size of every filename of the index.
+	 * @param vocabularySize The number of distinct keys of the BTree.
+	 * @param treeHeight The height of the BTree.
+	 * @param numOfFiles The number of files in the table of files.
+	 * @param generation The generation of the data files, which is increased by every compaction of the index.
+	 */
+	public FileHeader(int pageSize, int keySize, int filenameSize, int vocabularySize, int treeHeight, int numOfFiles, int generation) {
+		this.version = VERSION;
+		this.pageSize = pageSize;
+		this.keySize = keySize;
+		this.filenameSize = filenameSize;
+		this.vocabularySize = vocabularySize;
+		this.treeHeight = treeHeight;
+		this.numOfFiles = numOfFiles;
+		this.generation = generation;
+	}
+
+	/**
+	 * Recovers a header from a byte array.
+	 * @param byteArray A byte array with at least {@link #SIZEOF_HEADER} bytes, or {@code null}.
+	 * @return A new {@link FileHeader} object, or {@code null} if the array is too short or it does not start with the {@link #MAGIC} number.
+	 */
+	public static FileHeader fromByteArray(byte[] byteArray) {
+		if(byteArray==null || byteArray.length<SIZEOF_HEADER)
+			return null;
+
+		ByteBuffer bb = ByteBuffer.wrap(byteArray);
+		if(bb.getInt()!=MAGIC)
+			return null;
+		FileHeader h = new FileHeader(0, 0, 0, 0, 0, 0, 0);
+		h.version = bb.getInt();
+		h.pageSize = bb.getInt();
+		h.keySize = bb.getInt();
+		h.filenameSize = bb.getInt();
+		h.vocabularySize = bb.getInt();
+		h.treeHeight = bb.getInt();
+		h.numOfFiles = bb.getInt();
+		h.generation = bb.getInt();
+		return h;
+	}
+
+	/**
+	 * Provides the number of pages occupied by the header at the start of a binary file.
+	 * @param pageSize The size (in bytes) of every page of the file.
+	 * @return An integer with the number of pages (at least 1).
+	 */
+	public static int getNumOfHeaderPages(int pageSize) {
+		return (SIZEOF_HEADER + pageSize - 1) / pageSize;
+	}
+
+	/**
+	 * Provides the size of the filenames.
+	 * @return An integer with the exact size of every filename of the index.
+	 */
+	public int getFilenameSize() {
+		return filenameSize;
+	}
+
+	/**
+	 * Provides the generation of the data files. The BTree and the index of the same data files always have the same generation,
+	 * unless a compaction of the index was interrupted after it replaced one of them.
+	 * @return An integer with the generation.
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Provides the size of the keys.
+	 * @return An integer with the exact size of every key of the BTree.
+	 */
+	public int getKeySize() {
+		return keySize;
+	}
+
+	/**
+	 * Provides the number of files in the table of files, when the header was written.
+	 * @return An integer with the number of files.
+	 */
+	public int getNumOfFiles() {
+		return numOfFiles;
+	}
+
+	/**
+	 * Provides the size of the pages.
+	 * @return An integer with the size (in bytes) of every page of the data files.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Provides the height of the BTree, when the header was written.
+	 * @return An integer with the height.
+	 */
+	public int getTreeHeight() {
+		return treeHeight;
+	}
+
+	/**
+	 * Provides the version of the format of the data files.
+	 * @return An integer with the version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Provides the size of the vocabulary, when the header was written.
+	 * @return An integer with the number of distinct keys of the BTree.
+	 */
+	public int getVocabularySize() {
+		return vocabularySize;
+	}
+
+	/**
+	 * Checks whether the data files described by this header can be read with the given parameters.
+	 * @param pageSize The size (in bytes) of every page.
+	 * @param keySize The exact size of every key.
+	 * @param filenameSize The exact size of every filename.
+	 * @return True if the version is the current one and all the sizes are equal, or false otherwise.
+	 */
+	public boolean matches(int pageSize, int keySize, int filenameSize) {
+		return version==VERSION && this.pageSize==pageSize && this.keySize==keySize && this.filenameSize==filenameSize;
+	}
+
+	/**
+	 * Reads the header of a binary file, without knowing the size of its pages.
+	 * @param filename The name of the binary file.
+	 * @return A new {@link FileHeader} object, or {@code null} if the file does not exist or it does not start with a valid header.
+	 * @throws IOException In case of an error while reading the file.
+	 */
+	public static FileHeader readFromFile(String filename) throws IOException {
+		File f = new File(filename);
+		if(!f.exists() || f.length()<SIZEOF_HEADER)
+			return null;
+
+		byte[] buffer = new byte[SIZEOF_HEADER];
+		DataInputStream dis = new DataInputStream(new FileInputStream(f));
+		try {
+			dis.readFully(buffer);
+		} finally {
+			dis.close();
+		}
+		return fromByteArray(buffer);
+	}
+
+	/**
+	 * Converts this header into a byte array.
+	 * @return A byte array with {@link #SIZEOF_HEADER} bytes.
+	 */
+	public byte[] toByteArray() {
+		ByteBuffer bb = ByteBuffer.allocate(SIZEOF_HEADER);
+		bb.putInt(MAGIC).putInt(version).putInt(pageSize).putInt(keySize).putInt(filenameSize);
+		bb.putInt(vocabularySize).putInt(treeHeight).putInt(numOfFiles).putInt(generation);
+		return bb.array();
+	}
+
+	/**
+	 * Provides a description of the format, e.g. for error messages.
+	 * @return A {@link java.lang.String} with the version and the sizes of this header.
+	 */
+	@Override
+	public String toString() {
+		return "version " + version + ", page size " + pageSize + ", key size " + keySize + ", filename size " + filenameSize;
+	}
+}
@@ -0,0 +1,245 @@
+package wordsearch.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * This class keeps track of the input ASCII files whose words are stored in the BTree and the index.
+ * Every file is identified by a number (its id), which is its position in the table and never changes.
+ * For every file, the table stores its last modification time, its size, a checksum of its contents and its number of words,
+ * so that files which have not changed since they were indexed can be detected without reading the index. It also stores the sequence
+ * number of the last time that every file was indexed, which is the order of the occurrences of the files in every chain of the index.
+ * Files which are removed are not deleted from the table; instead, they are marked with a tombstone ({@link #REMOVED}) until
+ * their entries are purged from the index ({@link #PURGED}).
+ * @author Georgios Apostolakis
+ */
+public class FileTable {
+	private ArrayList<String> names;
+	private ArrayList<long[]> statistics;  //last modification time, size, checksum, number of words and indexing sequence of every file
+	private ArrayList<Integer> states;
+	private HashMap<String, Integer> ids;
+	private long nextSequence;  //greater than the sequence numbers of all the files
+
+	/**
+	 * The state of a file whose words are stored in the index.
+	 */
+	public static final int ACTIVE = 0;
+
+	/**
+	 * The state of a file which has been removed, while its entries still exist in the index (and are ignored by the questions).
+	 */
+	public static final int REMOVED = 1;
+
+	/**
+	 * The state of a file which has been removed and whose entries have been deleted from the index.
+	 */
+	public static final int PURGED = 2;
+
+	/**
+	 * Constructs a new, empty table.
+	 */
+	public FileTable() {
+		this.names = new ArrayList<String>();
+		this.statistics = new ArrayList<long[]>();
+		this.states = new ArrayList<Integer>();
+		this.ids = new HashMap<String, Integer>();
+		this.nextSequence = 0;
+	}
+
+	/**
+	 * Adds a new file to the table, in the {@link #ACTIVE} state and without statistics.
+	 * @param name A {@link java.lang.String} with the name of the file.
+	 * @return The id of the new file.
+	 */
+	public int add(String name) {
+		names.add(name);
+		statistics.add(new long[] {-1, -1, -1, 0, -1});
+		states.add(ACTIVE);
+		ids.put(name, names.size()-1);
+		return names.size()-1;
+	}
+
+	/**
+	 * Computes a CRC-32 checksum of the contents of a file.
+	 * @param name A {@link java.lang.String} with the name of the file.
+	 * @return A long number with the checksum.
+	 * @throws IOException In case of an error while reading the file.
+	 */
+	public static long checksum(String name) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[1<<16];
+		int n;
+
+		InputStream is = new FileInputStream(name);
+		try {
+			while((n = is.read(buffer)) > 0)
+				crc.update(buffer, 0, n);
+		} finally {
+			is.close();
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Finds the id of a file.
+	 * @param name A {@link java.lang.String} with the name of the file.
+	 * @return The id of the file, or -1 if it does not exist in the table.
+	 */
+	public int find(String name) {
+		Integer id = ids.get(name);
+		return (id==null) ? -1 : id;
+	}
+
+	/**
+	 * Provides the name of a file.
+	 * @param id The id of the file.
+	 * @return A {@link java.lang.String} with the name of the file.
+	 */
+	public String getName(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * Provides the names of all files of the table, in the order of their ids.
+	 * @return A {@link java.lang.String String[]} array with the names of the files.
+	 */
+	public String[] getNames() {
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Provides the number of words that were read from a file when it was indexed.
+	 * @param id The id of the file.
+	 * @return An integer with the number of words.
+	 */
+	public int getNumOfWords(int id) {
+		return (int)statistics.get(id)[3];
+	}
+
+	/**
+	 * Provides the sequence number of the last time that a file was indexed. The occurrences of the files appear in every chain
+	 * of the index in the order of their sequence numbers, since the occurrences of a file are always added at the end of the chains.
+	 * @param id The id of the file.
+	 * @return A long number with the sequence number, or -1 if the file has not been indexed.
+	 */
+	public long getSequence(int id) {
+		return statistics.get(id)[4];
+	}
+
+	/**
+	 * Provides the state of a file.
+	 * @param id The id of the file.
+	 * @return One of {@link #ACTIVE}, {@link #REMOVED} and {@link #PURGED}.
+	 */
+	public int getState(int id) {
+		return states.get(id);
+	}
+
+	/**
+	 * Checks whether the contents of a file may have changed since its statistics were recorded. The checksum of the file is computed
+	 * only when its modification time or size differ from the recorded ones. If the checksum is the same, the new modification time is recorded.
+	 * @param id The id of the file.
+	 * @return True if the contents of the file have changed (or the file does not exist anymore), or false otherwise.
+	 * @throws IOException In case of an error while reading the file.
+	 */
+	public boolean isChanged(int id) throws IOException {
+		File f = new File(names.get(id));
+		long[] s = statistics.get(id);
+
+		if(!f.exists())
+			return true;
+		if(f.lastModified()==s[0] && f.length()==s[1])
+			return false;
+		if(f.length()==s[1] && checksum(names.get(id))==s[2]) {  //only touched
+			s[0] = f.lastModified();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a table which was previously saved with {@link #writeToFile(String)}.
+	 * @param filename The name of the binary file where the table is stored.
+	 * @return A new {@link FileTable} object, or {@code null} if the file does not exist.
+	 * @throws IOException In case of an error while reading the file, or a malformed file.
+	 */
+	public static FileTable readFromFile(String filename) throws IOException {
+		if(!new File(filename).exists())
+			return null;
+
+		FileTable table = new FileTable();
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			int size = dis.readInt();
+			for(int i=0;i<size;i++) {
+				table.names.add(dis.readUTF());
+				table.ids.put(table.names.get(i), i);
+				table.statistics.add(new long[] {dis.readLong(), dis.readLong(), dis.readLong(), dis.readLong(), dis.readLong()});
+				table.states.add(dis.readInt());
+				table.nextSequence = Math.max(table.nextSequence, table.statistics.get(i)[4]+1);
+			}
+		} finally {
+			dis.close();
+		}
+		return table;
+	}
+
+	/**
+	 * Records the current modification time, size and checksum of a file, together with the number of its words,
+	 * and gives it a sequence number greater than the ones of all the files which were indexed before (in constant time, without scanning the table).
+	 * @param id The id of the file.
+	 * @param numOfWords The number of words that were read from the file.
+	 * @throws IOException In case of an error while reading the file.
+	 */
+	public void setIndexed(int id, int numOfWords) throws IOException {
+		File f = new File(names.get(id));
+		statistics.set(id, new long[] {f.lastModified(), f.length(), checksum(names.get(id)), numOfWords, nextSequence++});
+	}
+
+	/**
+	 * Changes the state of a file.
+	 * @param id The id of the file.
+	 * @param state One of {@link #ACTIVE}, {@link #REMOVED} and {@link #PURGED}.
+	 */
+	public void setState(int id, int state) {
+		states.set(id, state);
+	}
+
+	/**
+	 * Provides the number of files in the table, including the removed ones.
+	 * @return An integer with the number of files.
+	 */
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Saves the table into a binary file, replacing its previous contents.
+	 * @param filename The name of the binary file where the table will be stored.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void writeToFile(String filename) throws IOException {
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			dos.writeInt(names.size());
+			for(int i=0;i<names.size();i++) {
+				dos.writeUTF(names.get(i));
+				for(int j=0;j<5;j++)
+					dos.writeLong(statistics.get(i)[j]);
+				dos.writeInt(states.get(i));
+			}
+		} finally {
+			dos.close();
+		}
+	}
+}
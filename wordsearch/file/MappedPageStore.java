@@ -0,0 +1,238 @@
+package wordsearch.file;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import wordsearch.structures.Page;
+
+/**
+ * A {@link PageStore} which maps a binary file into memory, so that the pages are read and written by copying memory, without a system call
+ * per page. The file is mapped in chunks of about 16 MB, and every chunk is mapped when one of its pages is first accessed.
+ * The operating system writes the modified pages back to the file, so its contents are the same as if it had been written by a {@link BinFileProcessor}.
+ * <p>
+ * A chunk which is only read is mapped read-only, up to the end of the file, so reading never changes the file. A chunk which is written is mapped
+ * read-write as a whole, so the file grows to the end of that chunk. It is truncated to its pages again by {@link #sync()} and {@link #close()},
+ * so that the unused part of the last chunk never outlives a crash after {@link #sync()} as if it contained pages.
+ * The pages are read through duplicates of the mapped buffers, so they may be read concurrently by multiple threads.
+ * @author Georgios Apostolakis
+ */
+public class MappedPageStore extends AbstractPageStore {
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private volatile MappedByteBuffer[] chunks;  //replaced as a whole when a chunk is mapped, and null for the chunks which have not been mapped
+	private volatile long length;  //the length of the file (in bytes) without the unused part of the last chunk
+	
+	/**
+	 * The number of pages (including the pages of the header) in every mapped chunk of the file.
+	 */
+	public final int PAGES_PER_CHUNK;
+	
+	/**
+	 * Constructs an instance of this class which maps a specific file on the disk, with some pages reserved for a header.
+	 * The page 0 of this instance is the first page after the header.
+	 * @param SIZEOF_PAGE The value for the {@link #SIZEOF_PAGE} constant of this class.
+	 * @param filename The name of the binary file to be mapped. It is created if it does not exist.
+	 * @param HEADER_PAGES The value for the {@link #HEADER_PAGES} constant of this class.
+	 * @throws IOException In case of an error while opening the file.
+	 */
+	public MappedPageStore(int SIZEOF_PAGE, String filename, int HEADER_PAGES) throws IOException {
+		super(SIZEOF_PAGE, HEADER_PAGES);
+		this.PAGES_PER_CHUNK = Math.max(1, (1<<24)/SIZEOF_PAGE);
+		this.file = new RandomAccessFile(filename, "rw");
+		this.channel = file.getChannel();
+		this.chunks = new MappedByteBuffer[0];
+		this.length = file.length();
+	}
+	
+	/**
+	 * Deletes any contents existing in the binary file, including its header.
+	 * The mapped chunks are released, and they are mapped again as the file grows.
+	 * @throws IOException In case of an error while accessing the file.
+	 */
+	public void clearFile() throws IOException {
+		this.chunks = new MappedByteBuffer[0];
+		this.length = 0;
+		this.channel.truncate(0);
+	}
+	
+	/**
+	 * Truncates the binary file to its pages and releases it.
+	 * @throws IOException In case of an error while closing the file.
+	 */
+	public void close() throws IOException {
+		sync();
+		this.file.close();
+	}
+	
+	/**
+	 * Does nothing, since the pages are written directly into the mapped memory, which is shared with the other readers of the file.
+	 */
+	public void flush() {
+	}
+	
+	/**
+	 * Forces the modified pages of the mapped chunks to the storage device, and truncates the binary file to its pages. The chunks are released,
+	 * since the unused part of a read-write chunk is no longer backed by the file, and they are mapped again when they are accessed.
+	 * The pages which were read before remain valid, as they are not truncated.
+	 * @throws IOException In case of an error while truncating the file.
+	 */
+	public void sync() throws IOException {
+		synchronized(this) {
+			for(MappedByteBuffer chunk : chunks)
+				if(chunk!=null)
+					chunk.force();
+			this.chunks = new MappedByteBuffer[0];
+			this.channel.truncate(length);
+			this.channel.force(false);
+		}
+	}
+	
+	/**
+	 * Returns the size of the binary file, in number of {@link wordsearch.structures.Page} objects (and not in bytes), excluding the pages of the header.
+	 * @return A long number with the size of the binary file.
+	 */
+	public long fileSize() {
+		return Math.max(0, length/SIZEOF_PAGE - HEADER_PAGES);
+	}
+	
+	/**
+	 * Provides the contents of the header of the binary file.
+	 * @return A byte array with the {@link #HEADER_PAGES} pages of the header, or {@code null} if the file is too short to contain a header.
+	 * @throws IOException In case of an error while mapping the file.
+	 */
+	public byte[] readHeader() throws IOException {
+		byte[] buffer = new byte[HEADER_PAGES*SIZEOF_PAGE];
+		
+		if(HEADER_PAGES==0 || length<buffer.length)
+			return null;
+		
+		for(int p=0;p<HEADER_PAGES;p++)
+			pageBuffer(p, false).get(buffer, p*SIZEOF_PAGE, SIZEOF_PAGE);
+		countReads(HEADER_PAGES, buffer.length);
+		return buffer;
+	}
+	
+	/**
+	 * Provides a byte array with the contents of a given page from the binary file.
+	 * @param pageNum The number of the page to be read.
+	 * @return A byte array with the read page from the file, or {@code null} when the page number is invalid.
+	 * @throws IOException In case of an error while mapping the file.
+	 */
+	public byte[] readPage(long pageNum) throws IOException {
+		byte[] buffer = new byte[SIZEOF_PAGE];
+		
+		if(fileSize()<=pageNum||pageNum<0)
+			return null;
+		
+		pageBuffer(pageNum+HEADER_PAGES, false).get(buffer);
+		countReads(1, SIZEOF_PAGE);
+		
+		return buffer;
+	}
+	
+	/**
+	 * Provides a read-only view of the mapped memory of a given page, without copying it. Its contents change if the page is written again.
+	 * @param pageNum The number of the page to be read.
+	 * @return A {@link java.nio.ByteBuffer} with the page, or {@code null} when the page number is invalid.
+	 * @throws IOException In case of an error while mapping the file.
+	 */
+	public ByteBuffer readPageBuffer(long pageNum) throws IOException {
+		if(fileSize()<=pageNum||pageNum<0)
+			return null;
+		
+		ByteBuffer b = pageBuffer(pageNum+HEADER_PAGES, false);
+		b.limit(b.position()+SIZEOF_PAGE);
+		countReads(1, SIZEOF_PAGE);
+		
+		return b.slice().asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Writes the header of the binary file, replacing the previous one.
+	 * @param header A byte array with at most {@link #HEADER_PAGES} pages. It is padded with zeros.
+	 * @throws IOException In case of an error while mapping the file.
+	 */
+	public void writeHeader(byte[] header) throws IOException {
+		byte[] buffer = new byte[HEADER_PAGES*SIZEOF_PAGE];
+		
+		System.arraycopy(header, 0, buffer, 0, Math.min(header.length, buffer.length));
+		for(int p=0;p<HEADER_PAGES;p++)
+			pageBuffer(p, true).put(buffer, p*SIZEOF_PAGE, SIZEOF_PAGE);
+		length = Math.max(length, (long)buffer.length);
+		countWrites(HEADER_PAGES, buffer.length);
+	}
+	
+	/**
+	 * Converts a given {@link wordsearch.structures.Page} object into a byte array and writes it in the binary file at a specified position.
+	 * @param position An integer with the position where the {@link wordsearch.structures.Page} will be written. Gets values greater or equal to zero.
+	 * Notice that the i-th position corresponds to the i-th page of the file, and not to its i-th byte.
+	 * @param page A {@link wordsearch.structures.Page} object to be written into the file.
+	 * @throws IOException In case of an error while mapping the file.
+	 */
+	public void writePage(long position, Page page) throws IOException {
+		byte[] buffer = page.toByteArray();
+		
+		pageBuffer(position+HEADER_PAGES, true).put(buffer, 0, Math.min(buffer.length, SIZEOF_PAGE));
+		length = Math.max(length, (position+HEADER_PAGES+1)*SIZEOF_PAGE);
+		countWrites(1, buffer.length);
+	}
+	
+	/**
+	 * Provides a buffer positioned at the start of a page of the file (counting the pages of the header), mapping its chunk if required.
+	 * The buffer is a duplicate of the mapped chunk, so its position is private to the caller.
+	 * @param absolutePage The number of the page, where 0 is the first page of the header.
+	 * @param writable True if the page will be written, so its chunk has to be mapped read-write, or false if it will only be read.
+	 * @return A {@link java.nio.ByteBuffer} with the page between its position and the end of the chunk.
+	 * @throws IOException In case of an error while mapping the file.
+	 */
+	private ByteBuffer pageBuffer(long absolutePage, boolean writable) throws IOException {
+		int c = (int)(absolutePage/PAGES_PER_CHUNK);
+		int offset = (int)(absolutePage%PAGES_PER_CHUNK)*SIZEOF_PAGE;
+		MappedByteBuffer[] tmp = chunks;
+		MappedByteBuffer chunk = (c<tmp.length) ? tmp[c] : null;
+		
+		if(!isMapped(chunk, offset, writable))
+			chunk = mapChunk(c, offset, writable);
+		ByteBuffer b = chunk.duplicate();
+		b.position(offset);
+		return b;
+	}
+	
+	/**
+	 * Maps a chunk of the file, unless it has already been mapped by another thread. A read-only chunk is mapped up to the end of the file,
+	 * and it is mapped again when a page after its end, or a page which will be written, is accessed.
+	 * @param c The number of the chunk.
+	 * @param offset The offset (in bytes) of the accessed page in the chunk.
+	 * @param writable True if the page will be written, or false if it will only be read.
+	 * @return The mapped chunk.
+	 * @throws IOException In case of an error while mapping the file.
+	 */
+	private synchronized MappedByteBuffer mapChunk(int c, int offset, boolean writable) throws IOException {
+		MappedByteBuffer[] tmp = Arrays.copyOf(chunks, Math.max(chunks.length, c+1));
+		long chunkSize = (long)PAGES_PER_CHUNK*SIZEOF_PAGE, start = c*chunkSize;
+		
+		if(!isMapped(tmp[c], offset, writable)) {
+			if(writable)
+				tmp[c] = channel.map(FileChannel.MapMode.READ_WRITE, start, chunkSize);
+			else
+				tmp[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, channel.size()-start));
+			chunks = tmp;
+		}
+		return tmp[c];
+	}
+	
+	/**
+	 * Checks whether a mapped chunk can be used in order to access one of its pages.
+	 * @param chunk The mapped chunk, or {@code null} if it has not been mapped.
+	 * @param offset The offset (in bytes) of the page in the chunk.
+	 * @param writable True if the page will be written, or false if it will only be read.
+	 * @return True if the chunk contains the whole page and it is mapped read-write when the page will be written.
+	 */
+	private boolean isMapped(MappedByteBuffer chunk, int offset, boolean writable) {
+		return chunk!=null && offset+SIZEOF_PAGE<=chunk.capacity() && !(writable && chunk.isReadOnly());
+	}
+}
@@ -0,0 +1,178 @@
+package wordsearch.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import wordsearch.structures.Page;
+
+/**
+ * A {@link PageStore} which keeps all its pages in memory, so that small indexes of frequently searched corpora can be built and searched
+ * without any access to the disk, and the cost of the algorithms can be measured without the cost of the I/O. The contents are lost when
+ * the store is closed.
+ * <p>
+ * The pages are stored in chunks of about 1 MB, which are allocated either on the heap of the JVM or off the heap (as direct buffers),
+ * so that large stores neither need a single huge array nor burden the garbage collector. The pages are read through duplicates of the
+ * buffers, so they may be read concurrently by multiple threads.
+ * @author Georgios Apostolakis
+ */
+public class MemoryPageStore extends AbstractPageStore {
+	private volatile ByteBuffer[] chunks;
+	private volatile long numOfPages;
+	private byte[] header;
+	
+	/**
+	 * The number of pages in every chunk of memory.
+	 */
+	public final int PAGES_PER_CHUNK;
+	
+	/**
+	 * Whether the chunks of memory are allocated off the heap of the JVM.
+	 */
+	public final boolean OFF_HEAP;
+	
+	/**
+	 * Constructs an empty store in memory.
+	 * @param SIZEOF_PAGE The value for the {@link #SIZEOF_PAGE} constant of this class.
+	 * @param HEADER_PAGES The value for the {@link #HEADER_PAGES} constant of this class.
+	 * @param OFF_HEAP The value for the {@link #OFF_HEAP} constant of this class.
+	 */
+	public MemoryPageStore(int SIZEOF_PAGE, int HEADER_PAGES, boolean OFF_HEAP) {
+		super(SIZEOF_PAGE, HEADER_PAGES);
+		this.OFF_HEAP = OFF_HEAP;
+		this.PAGES_PER_CHUNK = Math.max(1, (1<<20)/SIZEOF_PAGE);
+		this.chunks = new ByteBuffer[0];
+		this.numOfPages = 0;
+		this.header = null;
+	}
+	
+	/**
+	 * Deletes all the pages of the store, including its header, and releases their memory.
+	 */
+	public void clearFile() {
+		this.chunks = new ByteBuffer[0];
+		this.numOfPages = 0;
+		this.header = null;
+	}
+	
+	/**
+	 * Releases the memory of the store.
+	 */
+	public void close() {
+		clearFile();
+	}
+	
+	/**
+	 * Does nothing, since the pages are written directly into memory.
+	 */
+	public void flush() {
+	}
+	
+	/**
+	 * Does nothing, since the pages are never written to a storage device.
+	 */
+	public void sync() {
+	}
+	
+	/**
+	 * Returns the size of the store, in number of {@link wordsearch.structures.Page} objects (and not in bytes), excluding the pages of the header.
+	 * @return A long number with the size of the store.
+	 */
+	public long fileSize() {
+		return numOfPages;
+	}
+	
+	/**
+	 * Provides the number of bytes of memory allocated by the store, which is a multiple of the size of its chunks.
+	 * @return A long number with the number of bytes.
+	 */
+	public long getAllocatedBytes() {
+		return (long)chunks.length*PAGES_PER_CHUNK*SIZEOF_PAGE;
+	}
+	
+	/**
+	 * Provides the contents of the header of the store.
+	 * @return A byte array with the {@link #HEADER_PAGES} pages of the header, or {@code null} if no header has been written.
+	 */
+	public byte[] readHeader() {
+		byte[] tmp = header;
+		
+		if(HEADER_PAGES==0 || tmp==null)
+			return null;
+		countReads(HEADER_PAGES, tmp.length);
+		return tmp.clone();
+	}
+	
+	/**
+	 * Provides a byte array with the contents of a given page of the store.
+	 * @param pageNum The number of the page to be read.
+	 * @return A byte array with a copy of the page, or {@code null} when the page number is invalid.
+	 */
+	public byte[] readPage(long pageNum) {
+		byte[] buffer = new byte[SIZEOF_PAGE];
+		
+		if(numOfPages<=pageNum||pageNum<0)
+			return null;
+		
+		ByteBuffer chunk = chunks[(int)(pageNum/PAGES_PER_CHUNK)].duplicate();  //a private position, for concurrent reads
+		chunk.position((int)(pageNum%PAGES_PER_CHUNK)*SIZEOF_PAGE);
+		chunk.get(buffer);
+		countReads(1, SIZEOF_PAGE);
+		
+		return buffer;
+	}
+	
+	/**
+	 * Provides a read-only view of the memory of a given page, without copying it. Its contents change if the page is written again.
+	 * @param pageNum The number of the page to be read.
+	 * @return A {@link java.nio.ByteBuffer} with the page, or {@code null} when the page number is invalid.
+	 */
+	public ByteBuffer readPageBuffer(long pageNum) {
+		if(numOfPages<=pageNum||pageNum<0)
+			return null;
+		
+		ByteBuffer chunk = chunks[(int)(pageNum/PAGES_PER_CHUNK)].duplicate();
+		int offset = (int)(pageNum%PAGES_PER_CHUNK)*SIZEOF_PAGE;
+		chunk.limit(offset+SIZEOF_PAGE).position(offset);
+		countReads(1, SIZEOF_PAGE);
+		
+		return chunk.slice().asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Writes the header of the store, replacing the previous one.
+	 * @param header A byte array with at most {@link #HEADER_PAGES} pages. It is padded with zeros.
+	 */
+	public void writeHeader(byte[] header) {
+		byte[] buffer = new byte[HEADER_PAGES*SIZEOF_PAGE];
+		
+		System.arraycopy(header, 0, buffer, 0, Math.min(header.length, buffer.length));
+		this.header = buffer;
+		countWrites(HEADER_PAGES, buffer.length);
+	}
+	
+	/**
+	 * Converts a given {@link wordsearch.structures.Page} object into a byte array and writes it in the store at a specified position.
+	 * Writing after the last page extends the store, and any pages in between are filled with zeros.
+	 * @param position The number of the page to be written. Gets values greater or equal to zero.
+	 * @param page A {@link wordsearch.structures.Page} object to be written.
+	 * @throws IOException In case of an error while converting the page into bytes.
+	 */
+	public void writePage(long position, Page page) throws IOException {
+		byte[] buffer = page.toByteArray();
+		int c = (int)(position/PAGES_PER_CHUNK);
+		
+		if(c>=chunks.length) {
+			ByteBuffer[] tmp = new ByteBuffer[c+1];
+			System.arraycopy(chunks, 0, tmp, 0, chunks.length);
+			for(int i=chunks.length;i<tmp.length;i++)
+				tmp[i] = OFF_HEAP ? ByteBuffer.allocateDirect(PAGES_PER_CHUNK*SIZEOF_PAGE) : ByteBuffer.allocate(PAGES_PER_CHUNK*SIZEOF_PAGE);
+			chunks = tmp;
+		}
+		ByteBuffer chunk = chunks[c].duplicate();
+		chunk.position((int)(position%PAGES_PER_CHUNK)*SIZEOF_PAGE);
+		chunk.put(buffer, 0, Math.min(buffer.length, SIZEOF_PAGE));
+		if(position>=numOfPages)
+			numOfPages = position+1;
+		countWrites(1, buffer.length);
+	}
+}
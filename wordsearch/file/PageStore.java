@@ -0,0 +1,150 @@
+package wordsearch.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import wordsearch.structures.Page;
+
+/**
+ * The storage of the pages of a BTree or an index. The pages are numbered from 0, and some pages may be reserved for a header before them.
+ * Every implementation counts the pages and bytes it reads and writes, whether they are transferred to a disk or not, so that the cost of
+ * the algorithms can be compared independently of the storage.
+ * <p>
+ * The available implementations are {@link BinFileProcessor} (a file accessed with system calls), {@link MappedPageStore} (a memory-mapped file)
+ * and {@link MemoryPageStore} (memory only, on or off the heap).
+ * @author Georgios Apostolakis
+ */
+public interface PageStore {
+	
+	/**
+	 * Deletes all the pages of the store, including its header.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	void clearFile() throws IOException;
+	
+	/**
+	 * Releases the storage associated with this instance.
+	 * @throws IOException In case of an error while closing the storage.
+	 */
+	void close() throws IOException;
+	
+	/**
+	 * Writes any pages which are buffered by the store, so that they become visible to other readers of its storage.
+	 * They may still be lost in a crash of the system until {@link #sync()} is called.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	void flush() throws IOException;
+	
+	/**
+	 * Writes any buffered pages, as {@link #flush()}, and forces them to the storage device, so that they survive a crash of the system.
+	 * This is the only durability point of a store; it does nothing for stores which are kept only in memory.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	void sync() throws IOException;
+	
+	/**
+	 * Returns the size of the store, in number of {@link wordsearch.structures.Page} objects (and not in bytes), excluding the pages of the header.
+	 * @return A long number with the size of the store.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	long fileSize() throws IOException;
+	
+	/**
+	 * Provides the number of bytes read from the store, since the last time the counters were reset.
+	 * @return A long number with the number of bytes.
+	 */
+	long getBytesRead();
+	
+	/**
+	 * Provides the number of bytes written into the store, since the last time the counters were reset.
+	 * @return A long number with the number of bytes.
+	 */
+	long getBytesWritten();
+	
+	/**
+	 * Provides the number of pages reserved for a header before the page 0.
+	 * @return An integer with the number of pages.
+	 */
+	int getNumOfHeaderPages();
+	
+	/**
+	 * Provides the current number of page reads and writes, since the last time the counters were reset.
+	 * @return An integer with the number of accesses.
+	 */
+	int getNumOfAccesses();
+	
+	/**
+	 * Provides the number of pages read from the store, since the last time the counters were reset.
+	 * @return A long number with the number of page reads.
+	 */
+	long getNumOfReads();
+	
+	/**
+	 * Provides the number of pages written into the store, since the last time the counters were reset.
+	 * @return A long number with the number of page writes.
+	 */
+	long getNumOfWrites();
+	
+	/**
+	 * Provides the size of the pages of the store.
+	 * @return An integer with the size (in bytes) of every page.
+	 */
+	int getPageSize();
+	
+	/**
+	 * Provides the contents of the header of the store.
+	 * @return A byte array with the pages of the header, or {@code null} if the store is too short to contain a header.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	byte[] readHeader() throws IOException;
+	
+	/**
+	 * Provides a byte array with the contents of a given page. Pages may be read concurrently by multiple threads.
+	 * @param pageNum The number of the page to be read.
+	 * @return A byte array with the page, or {@code null} when the page number is invalid.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	byte[] readPage(long pageNum) throws IOException;
+	
+	/**
+	 * Provides the contents of some consecutive pages, e.g. in order to read ahead the pages of a chain which are stored one after the other.
+	 * Stores on a disk read them with a single access, so they cost one latency of the device instead of one for every page.
+	 * Every page is counted as a page read, as by {@link #readPage(long)}.
+	 * @param firstPage The number of the first page to be read.
+	 * @param numOfPages The number of pages to be read. Fewer pages are read if the store ends before them.
+	 * @return An array with a byte array for every page which was read, or {@code null} when the number of the first page is invalid.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	byte[][] readPages(long firstPage, int numOfPages) throws IOException;
+	
+	/**
+	 * Provides the contents of a given page as a read-only {@link java.nio.ByteBuffer}, from index 0 to the size of the page.
+	 * Stores which keep their pages in memory return a view of that memory without copying it, and its contents change if the page is written again;
+	 * the rest return a copy. It is counted as a page read, as {@link #readPage(long)}.
+	 * @param pageNum The number of the page to be read.
+	 * @return A {@link java.nio.ByteBuffer} with the page, or {@code null} when the page number is invalid.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	ByteBuffer readPageBuffer(long pageNum) throws IOException;
+	
+	/**
+	 * Resets the counters of page reads and writes to zero.
+	 */
+	void resetNumOfAccesses();
+	
+	/**
+	 * Writes the header of the store, replacing the previous one. A store which buffers its pages writes them before the header.
+	 * @param header A byte array with at most {@link #getNumOfHeaderPages()} pages. It is padded with zeros.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	void writeHeader(byte[] header) throws IOException;
+	
+	/**
+	 * Converts a given {@link wordsearch.structures.Page} object into a byte array and writes it at a specified position.
+	 * Writing after the last page extends the store.
+	 * @param position The number of the page to be written. Gets values greater or equal to zero.
+	 * @param page A {@link wordsearch.structures.Page} object to be written.
+	 * @throws IOException In case of an error while accessing the storage.
+	 */
+	void writePage(long position, Page page) throws IOException;
+}
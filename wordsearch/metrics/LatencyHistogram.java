@@ -0,0 +1,157 @@
+package wordsearch.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative long values (e.g. latencies in nanoseconds, or numbers of pages) with a bounded relative error.
+ * Following the design of HdrHistogram, every power of two is divided into {@link #SUB_BUCKETS} linear buckets, so every
+ * recorded value is counted in a bucket whose width is at most 1/{@link #SUB_BUCKETS} of the value itself.
+ * Recording a value costs a few atomic operations and no allocation, so an instance can be updated concurrently
+ * from multiple threads and it can be left enabled permanently.
+ * @author Georgios Apostolakis
+ */
+public class LatencyHistogram {
+	private AtomicLongArray buckets;
+	private AtomicLong count;
+	private AtomicLong sum;
+	private AtomicLong max;
+	
+	/**
+	 * The number of linear buckets for every power of two.
+	 */
+	public static final int SUB_BUCKETS = 32;
+	
+	private static final int SUB_BUCKET_BITS = 5;
+	
+	/**
+	 * Constructs a new, empty histogram.
+	 */
+	public LatencyHistogram() {
+		this.buckets = new AtomicLongArray((64-SUB_BUCKET_BITS+1)*SUB_BUCKETS);
+		this.count = new AtomicLong();
+		this.sum = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+	
+	/**
+	 * Provides the number of values recorded in this histogram.
+	 * @return A long number with the number of values.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * Provides the greatest value recorded in this histogram.
+	 * @return A long number with the maximum value, or 0 if the histogram is empty.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * Provides the average of the values recorded in this histogram.
+	 * @return A double number with the mean value, or 0 if the histogram is empty.
+	 */
+	public double getMean() {
+		long c = count.get();
+		return (c==0) ? 0 : (double)sum.get()/c;
+	}
+	
+	/**
+	 * Provides (approximately) the value below which a given percentage of the recorded values lie.
+	 * @param percentile A double number between 0 and 100.
+	 * @return A long number with the highest value of the bucket where the percentile lies, or 0 if the histogram is empty.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = count.get();
+		if(total==0)
+			return 0;
+		
+		long rank = (long)Math.ceil(percentile/100.0*total), seen = 0;
+		if(rank<1)
+			rank = 1;
+		for(int i=0;i<buckets.length();i++) {
+			seen += buckets.get(i);
+			if(seen>=rank)
+				return Math.min(highestValueOf(i), max.get());
+		}
+		return max.get();
+	}
+	
+	/**
+	 * Adds all the values recorded in another histogram to this one.
+	 * @param other The {@link LatencyHistogram} whose values will be added. It is not modified.
+	 */
+	public void merge(LatencyHistogram other) {
+		for(int i=0;i<buckets.length();i++)
+			buckets.addAndGet(i, other.buckets.get(i));
+		count.addAndGet(other.count.get());
+		sum.addAndGet(other.sum.get());
+		long m = max.get(), value = other.max.get();
+		while(value>m && !max.compareAndSet(m, value))
+			m = max.get();
+	}
+	
+	/**
+	 * Adds a new value to the histogram. Negative values are recorded as 0.
+	 * @param value The long number to be recorded.
+	 */
+	public void record(long value) {
+		if(value<0)
+			value = 0;
+		buckets.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long m = max.get();
+		while(value>m && !max.compareAndSet(m, value))
+			m = max.get();
+	}
+	
+	/**
+	 * Removes all values from the histogram.
+	 */
+	public void reset() {
+		for(int i=0;i<buckets.length();i++)
+			buckets.set(i, 0);
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+	
+	/**
+	 * Provides a short description of the histogram, with its count, mean, median, 99th percentile and maximum value.
+	 * @return A {@link java.lang.String} with the description of the histogram.
+	 */
+	public String toString() {
+		return "count=" + getCount() + " mean=" + String.format("%.1f", getMean()) + " p50=" + getValueAtPercentile(50)
+				+ " p99=" + getValueAtPercentile(99) + " max=" + getMax();
+	}
+	
+	/**
+	 * Computes the bucket where a value is counted.
+	 * @param value A non-negative long number.
+	 * @return The index of the respective bucket.
+	 */
+	private static int bucketOf(long value) {
+		if(value<SUB_BUCKETS)
+			return (int)value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);  //at least SUB_BUCKET_BITS
+		int subBucket = (int)(value >>> (exponent-SUB_BUCKET_BITS)) & (SUB_BUCKETS-1);
+		return (exponent-SUB_BUCKET_BITS+1)*SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * Computes the highest value which is counted in a specific bucket.
+	 * @param bucket The index of the bucket.
+	 * @return A long number with the highest value of the bucket.
+	 */
+	private static long highestValueOf(int bucket) {
+		if(bucket<SUB_BUCKETS)
+			return bucket;
+		int exponent = bucket/SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long lowest = (1L<<exponent) + ((long)(bucket%SUB_BUCKETS) << (exponent-SUB_BUCKET_BITS));
+		return lowest + (1L << (exponent-SUB_BUCKET_BITS)) - 1;
+	}
+}
@@ -0,0 +1,122 @@
+package wordsearch.metrics;
+
+/**
+ * A collection of histograms which are updated by the hot paths of the system (searching the BTree, reading the index, inserting words).
+ * One instance is shared by the BTree and the index of a {@link wordsearch.WordSearch} object, and its contents can be retrieved
+ * at any time in the form of a {@link MetricsSnapshot}.
+ * @author Georgios Apostolakis
+ */
+public class Metrics {
+	private LatencyHistogram lookupLatency;
+	private LatencyHistogram findDataLatency;
+	private LatencyHistogram insertLatency;
+	private LatencyHistogram splitLatency;
+	private LatencyHistogram treeDepth;
+	private LatencyHistogram chainLength;
+	private LatencyHistogram chainReads;
+	private LatencyHistogram fuzzyPages;
+	private LatencyHistogram regexPages;
+	
+	/**
+	 * Constructs a new instance of this class with empty histograms.
+	 */
+	public Metrics() {
+		this.lookupLatency = new LatencyHistogram();
+		this.findDataLatency = new LatencyHistogram();
+		this.insertLatency = new LatencyHistogram();
+		this.splitLatency = new LatencyHistogram();
+		this.treeDepth = new LatencyHistogram();
+		this.chainLength = new LatencyHistogram();
+		this.chainReads = new LatencyHistogram();
+		this.fuzzyPages = new LatencyHistogram();
+		this.regexPages = new LatencyHistogram();
+	}
+	
+	/**
+	 * Provides the histogram with the number of index pages that were read by every search in the index.
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getChainLength() {
+		return chainLength;
+	}
+	
+	/**
+	 * Provides the histogram with the number of accesses to the index that were made by every search in the index, which may be fewer
+	 * than the pages of the chain, since consecutive pages are read ahead with a single access.
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getChainReads() {
+		return chainReads;
+	}
+	
+	/**
+	 * Provides the histogram with the latencies (in nanoseconds) of searching the index for the occurrences of a word.
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getFindDataLatency() {
+		return findDataLatency;
+	}
+	
+	/**
+	 * Provides the histogram with the number of BTree pages that were read by every fuzzy search in the BTree.
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getFuzzyPages() {
+		return fuzzyPages;
+	}
+	
+	/**
+	 * Provides the histogram with the number of BTree pages that were read by every regular expression search in the BTree.
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getRegexPages() {
+		return regexPages;
+	}
+	
+	/**
+	 * Provides the histogram with the latencies (in nanoseconds) of inserting a new word into the BTree.
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getInsertLatency() {
+		return insertLatency;
+	}
+	
+	/**
+	 * Provides the histogram with the latencies (in nanoseconds) of answering a question, from the formatted word to the list of its occurrences.
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getLookupLatency() {
+		return lookupLatency;
+	}
+	
+	/**
+	 * Provides the histogram with the latencies (in nanoseconds) of splitting a full page of the BTree (and its ancestors, if needed).
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getSplitLatency() {
+		return splitLatency;
+	}
+	
+	/**
+	 * Provides the histogram with the number of BTree pages that were read by every search in the BTree.
+	 * @return A {@link LatencyHistogram} object.
+	 */
+	public LatencyHistogram getTreeDepth() {
+		return treeDepth;
+	}
+	
+	/**
+	 * Removes all values from every histogram of this instance.
+	 */
+	public void reset() {
+		lookupLatency.reset();
+		findDataLatency.reset();
+		insertLatency.reset();
+		splitLatency.reset();
+		treeDepth.reset();
+		chainLength.reset();
+		chainReads.reset();
+		fuzzyPages.reset();
+		regexPages.reset();
+	}
+}
@@ -0,0 +1,134 @@
+package wordsearch.metrics;
+
+/**
+ * An immutable copy of the metrics of a {@link wordsearch.WordSearch} object at a specific moment.
+ * It contains the histograms of a {@link Metrics} object, as well as the page and byte counters of the binary files
+ * where the BTree and the index are stored.
+ * @author Georgios Apostolakis
+ */
+public class MetricsSnapshot {
+	private Metrics metrics;
+	private long[] treeCounters;
+	private long[] indexCounters;
+	
+	/**
+	 * Constructs a new instance of this class.
+	 * @param metrics The {@link Metrics} object whose histograms will be copied.
+	 * @param treeCounters An array with the page reads, page writes, bytes read and bytes written of the BTree file (in this order).
+	 * @param indexCounters An array with the page reads, page writes, bytes read and bytes written of the index file (in this order).
+	 */
+	public MetricsSnapshot(Metrics metrics, long[] treeCounters, long[] indexCounters) {
+		this.metrics = copy(metrics);
+		this.treeCounters = treeCounters.clone();
+		this.indexCounters = indexCounters.clone();
+	}
+	
+	/**
+	 * Copies all the histograms of a {@link Metrics} object into a new one.
+	 * @param metrics The {@link Metrics} object to be copied.
+	 * @return A new {@link Metrics} object with the same histograms.
+	 */
+	private static Metrics copy(Metrics metrics) {
+		Metrics copy = new Metrics();
+		copy.getLookupLatency().merge(metrics.getLookupLatency());
+		copy.getFindDataLatency().merge(metrics.getFindDataLatency());
+		copy.getInsertLatency().merge(metrics.getInsertLatency());
+		copy.getSplitLatency().merge(metrics.getSplitLatency());
+		copy.getTreeDepth().merge(metrics.getTreeDepth());
+		copy.getChainLength().merge(metrics.getChainLength());
+		copy.getChainReads().merge(metrics.getChainReads());
+		copy.getFuzzyPages().merge(metrics.getFuzzyPages());
+		copy.getRegexPages().merge(metrics.getRegexPages());
+		return copy;
+	}
+	
+	/**
+	 * Provides the number of bytes read from the index file.
+	 * @return A long number with the bytes read.
+	 */
+	public long getIndexBytesRead() {
+		return indexCounters[2];
+	}
+	
+	/**
+	 * Provides the number of bytes written into the index file.
+	 * @return A long number with the bytes written.
+	 */
+	public long getIndexBytesWritten() {
+		return indexCounters[3];
+	}
+	
+	/**
+	 * Provides the number of pages read from the index file.
+	 * @return A long number with the page reads.
+	 */
+	public long getIndexPageReads() {
+		return indexCounters[0];
+	}
+	
+	/**
+	 * Provides the number of pages written into the index file.
+	 * @return A long number with the page writes.
+	 */
+	public long getIndexPageWrites() {
+		return indexCounters[1];
+	}
+	
+	/**
+	 * Provides a copy of the histograms of this snapshot, so that modifying it never changes the snapshot.
+	 * @return A new {@link Metrics} object.
+	 */
+	public Metrics getHistograms() {
+		return copy(metrics);
+	}
+	
+	/**
+	 * Provides the number of bytes read from the BTree file.
+	 * @return A long number with the bytes read.
+	 */
+	public long getTreeBytesRead() {
+		return treeCounters[2];
+	}
+	
+	/**
+	 * Provides the number of bytes written into the BTree file.
+	 * @return A long number with the bytes written.
+	 */
+	public long getTreeBytesWritten() {
+		return treeCounters[3];
+	}
+	
+	/**
+	 * Provides the number of pages read from the BTree file.
+	 * @return A long number with the page reads.
+	 */
+	public long getTreePageReads() {
+		return treeCounters[0];
+	}
+	
+	/**
+	 * Provides the number of pages written into the BTree file.
+	 * @return A long number with the page writes.
+	 */
+	public long getTreePageWrites() {
+		return treeCounters[1];
+	}
+	
+	/**
+	 * Provides a multi-line report with all the metrics of this snapshot. Latencies are reported in nanoseconds.
+	 * @return A {@link java.lang.String} with the report.
+	 */
+	public String toString() {
+		return "btree: reads=" + getTreePageReads() + " writes=" + getTreePageWrites() + " bytesRead=" + getTreeBytesRead() + " bytesWritten=" + getTreeBytesWritten() + "\n"
+				+ "index: reads=" + getIndexPageReads() + " writes=" + getIndexPageWrites() + " bytesRead=" + getIndexBytesRead() + " bytesWritten=" + getIndexBytesWritten() + "\n"
+				+ "lookup latency:   " + metrics.getLookupLatency() + "\n"
+				+ "findData latency: " + metrics.getFindDataLatency() + "\n"
+				+ "insert latency:   " + metrics.getInsertLatency() + "\n"
+				+ "split latency:    " + metrics.getSplitLatency() + "\n"
+				+ "tree depth:       " + metrics.getTreeDepth() + "\n"
+				+ "chain length:     " + metrics.getChainLength() + "\n"
+				+ "chain reads:      " + metrics.getChainReads() + "\n"
+				+ "fuzzy pages:      " + metrics.getFuzzyPages() + "\n"
+				+ "regex pages:      " + metrics.getRegexPages();
+	}
+}
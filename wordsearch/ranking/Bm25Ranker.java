@@ -0,0 +1,230 @@
+package wordsearch.ranking;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+
+import wordsearch.structures.index.ChainCursor;
+
+/**
+ * This class ranks the files which contain some words by their <a href="https://en.wikipedia.org/wiki/Okapi_BM25">BM25</a> score,
+ * and provides only the best k of them. The chains of the words are read document-at-a-time (one file at a time, in the order in which the files
+ * were indexed) with the MaxScore algorithm: every word has an upper bound of its score, computed from its number of occurrences and files in the BTree,
+ * and once the k-th best score exceeds the sum of the bounds of the least significant words, those words cannot bring a new file into the results.
+ * Then, their chains are only read as far as the files of the other words, and the rest of their pages are never read from the disk.
+ * Since the least significant words are the most frequent ones, with the longest chains, a question reads only a fraction of its occurrences.
+ * <p>
+ * The results are exactly the same as if all the occurrences were read and scored. Files with equal scores are ordered by the order in which they were indexed.
+ * @author Georgios Apostolakis
+ */
+public class Bm25Ranker {
+	private HashMap<String, Integer> ids;
+	private long[] sequences;
+	private int[] lengths;
+	private int numOfFiles;
+	private double avgLength;
+	private int minLength;
+	private int numOfPagesRead;
+	
+	/**
+	 * The default value of the {@link #K1} parameter.
+	 */
+	public static final double DEFAULT_K1 = 1.2;
+	
+	/**
+	 * The default value of the {@link #B} parameter.
+	 */
+	public static final double DEFAULT_B = 0.75;
+	
+	/**
+	 * The parameter of BM25 which controls how fast the score of a word saturates as its frequency in a file grows.
+	 */
+	public final double K1;
+	
+	/**
+	 * The parameter of BM25 which controls how much the score of a word is normalized by the length of the file, from 0 (not at all) to 1.
+	 */
+	public final double B;
+	
+	/**
+	 * Constructs a new ranker for a collection of files.
+	 * @param K1 The value for the {@link #K1} constant of this class. It must not be negative.
+	 * @param B The value for the {@link #B} constant of this class, from 0 to 1.
+	 * @param ids A {@link java.util.HashMap} from the filenames, as stored in the index, to the ids of the files which may be ranked.
+	 * The occurrences of any other filenames (e.g. of removed files) are ignored.
+	 * @param sequences The sequence number of every file, by its id, which is the order of its occurrences in every chain of the index.
+	 * @param lengths The number of words of every file, by its id.
+	 * @throws IllegalArgumentException If the parameters are out of their ranges.
+	 */
+	public Bm25Ranker(double K1, double B, HashMap<String, Integer> ids, long[] sequences, int[] lengths) {
+		long totalLength = 0;
+		
+		if(K1<0 || B<0 || B>1)
+			throw new IllegalArgumentException("The parameter k1 must not be negative, and the parameter b must be from 0 to 1.");
+		this.K1 = K1;
+		this.B = B;
+		this.ids = ids;
+		this.sequences = sequences;
+		this.lengths = lengths;
+		this.minLength = Integer.MAX_VALUE;
+		for(int id : new HashSet<Integer>(ids.values())) {
+			numOfFiles++;
+			totalLength += lengths[id];
+			minLength = Math.min(minLength, lengths[id]);
+		}
+		this.avgLength = (numOfFiles==0) ? 0 : (double)totalLength/numOfFiles;
+	}
+	
+	/**
+	 * Provides the number of pages of the chains which were read by the last call of {@link #rank(ChainCursor[], int[][], int)}.
+	 * @return An integer with the number of pages.
+	 */
+	public int getNumOfPagesRead() {
+		return numOfPagesRead;
+	}
+	
+	/**
+	 * Computes the inverse document frequency of a word, which is higher for rarer words. It is always positive.
+	 * @param numOfFilesWithWord The number of files which contain the word. If it exceeds the number of files which may be ranked
+	 * (e.g. because it also counts some removed files), it is limited to that number.
+	 * @return A double number with the inverse document frequency.
+	 */
+	public double idf(int numOfFilesWithWord) {
+		int n = Math.min(numOfFilesWithWord, numOfFiles);
+		return Math.log(1 + (numOfFiles - n + 0.5)/(n + 0.5));
+	}
+	
+	/**
+	 * Computes the score of a word in a file.
+	 * @param idf The {@link #idf(int) inverse document frequency} of the word.
+	 * @param frequency The number of occurrences of the word in the file.
+	 * @param length The number of words of the file.
+	 * @return A double number with the score.
+	 */
+	public double score(double idf, int frequency, int length) {
+		double norm = (avgLength==0) ? 1 : 1 - B + B*length/avgLength;
+		return idf * frequency * (K1+1) / (frequency + K1*norm);
+	}
+	
+	/**
+	 * Computes an upper bound of the score of a word in any file. The score grows with the frequency of the word and falls with the length of the file,
+	 * and no file contains more than {@code count-numOfFilesWithWord+1} occurrences of the word (since every other file contains at least one),
+	 * or is shorter than its occurrences or than the shortest file.
+	 * @param idf The {@link #idf(int) inverse document frequency} of the word.
+	 * @param count The total number of occurrences of the word.
+	 * @param numOfFilesWithWord The number of files which contain the word.
+	 * @return A double number which is not less than the score of the word in any file.
+	 */
+	public double upperBound(double idf, int count, int numOfFilesWithWord) {
+		int maxFrequency = Math.max(1, count - numOfFilesWithWord + 1);
+		return score(idf, maxFrequency, Math.max(maxFrequency, minLength)) * (1 + 1e-9);  //with a margin for the rounding of the sums
+	}
+	
+	/**
+	 * Finds the k files with the highest BM25 scores for some words.
+	 * @param cursors A {@link wordsearch.structures.index.ChainCursor} for the chain of every word, positioned before its first group.
+	 * The words must be distinct.
+	 * @param stats The number of occurrences and the number of files of every word (see {@link wordsearch.structures.btree.TreeRecord#getCount()}
+	 * and {@link wordsearch.structures.btree.TreeRecord#getNumOfFiles()}), in the same order as the cursors.
+	 * @param k The maximum number of files to be provided.
+	 * @return An {@link java.util.ArrayList} with up to k arrays, each one containing the id of a file and its score, in decreasing order of score.
+	 * @throws IOException In case of a problem while reading the chains from the index.
+	 */
+	public ArrayList<double[]> rank(ChainCursor[] cursors, int[][] stats, int k) throws IOException {
+		int n = cursors.length, essential = 0;
+		Integer[] order = new Integer[n];
+		ChainCursor[] c = new ChainCursor[n];
+		double[] idf = new double[n], bound = new double[n], prefix = new double[n];
+		int[] current = new int[n];  //the id of the current file of every cursor, or -1 at the end of the chain
+		PriorityQueue<double[]> top = new PriorityQueue<double[]>(Math.max(1, k), (x, y) -> (x[1]!=y[1]) ? Double.compare(x[1], y[1])
+				: Long.compare(sequences[(int)y[0]], sequences[(int)x[0]]));  //the worst result first, which is the latest one among equal scores
+		ArrayList<double[]> results = new ArrayList<double[]>();
+		double threshold = 0, score;
+		long candidate;
+		int id;
+		
+		numOfPagesRead = 0;
+		if(k<=0 || n==0 || numOfFiles==0)
+			return results;
+		
+		for(int i=0;i<n;i++)
+			order[i] = i;
+		Arrays.sort(order, (x, y) -> Double.compare(bound(stats[x]), bound(stats[y])));  //the least significant words first
+		for(int i=0;i<n;i++) {
+			c[i] = cursors[order[i]];
+			idf[i] = idf(stats[order[i]][1]);
+			bound[i] = upperBound(idf[i], stats[order[i]][0], stats[order[i]][1]);
+			prefix[i] = bound[i] + ((i>0) ? prefix[i-1] : 0);
+			current[i] = advance(c[i]);
+		}
+		
+		while(essential<n) {
+			candidate = Long.MAX_VALUE;  //the next file of the essential words, in the order of the chains
+			for(int i=essential;i<n;i++)
+				if(current[i]>=0)
+					candidate = Math.min(candidate, sequences[current[i]]);
+			if(candidate==Long.MAX_VALUE)  //all the chains of the essential words have been read
+				break;
+			
+			id = -1;
+			score = 0;
+			for(int i=essential;i<n;i++)
+				if(current[i]>=0 && sequences[current[i]]==candidate) {
+					id = current[i];
+					score += score(idf[i], c[i].getFrequency(), lengths[id]);
+					current[i] = advance(c[i]);
+				}
+			for(int i=essential-1;i>=0;i--) {  //the other words can only add to the score of this file
+				if(top.size()==k && score+prefix[i]<=threshold)
+					break;
+				while(current[i]>=0 && sequences[current[i]]<candidate)
+					current[i] = advance(c[i]);
+				if(current[i]==id)
+					score += score(idf[i], c[i].getFrequency(), lengths[id]);
+			}
+			
+			if(top.size()<k)
+				top.add(new double[] {id, score});
+			else if(score>threshold) {
+				top.poll();
+				top.add(new double[] {id, score});
+			}
+			if(top.size()==k) {
+				threshold = top.peek()[1];
+				while(essential<n && prefix[essential]<=threshold)  //no file which contains only these words can enter the results
+					essential++;
+			}
+		}
+		
+		for(ChainCursor cursor : cursors)
+			numOfPagesRead += cursor.getNumOfPagesRead();
+		while(!top.isEmpty())
+			results.add(top.poll());
+		for(int i=0, j=results.size()-1;i<j;i++, j--)  //from the best to the worst
+			results.set(i, results.set(j, results.get(i)));
+		return results;
+	}
+	
+	/**
+	 * Computes the upper bound of the score of a word from its statistics, as {@link #upperBound(double, int, int)}.
+	 */
+	private double bound(int[] stats) {
+		return upperBound(idf(stats[1]), stats[0], stats[1]);
+	}
+	
+	/**
+	 * Moves a cursor to the next group of occurrences of a file which may be ranked.
+	 * @return The id of the file, or -1 at the end of the chain.
+	 */
+	private int advance(ChainCursor cursor) throws IOException {
+		while(cursor.next()) {
+			Integer id = ids.get(cursor.getFilename());
+			if(id!=null)
+				return id;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,252 @@
+package wordsearch.segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import wordsearch.structures.btree.BTree;
+import wordsearch.structures.btree.BTreeCursor;
+import wordsearch.structures.btree.TreePage;
+import wordsearch.structures.btree.TreeRecord;
+import wordsearch.structures.index.Index;
+import wordsearch.structures.index.IndexRecord;
+
+/**
+ * This class implements an immutable segment of a {@link wordsearch.SegmentedWordSearch}, which consists of its own BTree and index.
+ * A segment is written once, sequentially: the chain of every key is stored in consecutive pages of the index, in the order of the keys,
+ * and the BTree is {@link BTree#bulkLoad(TreeRecord[]) bulk loaded} from the sorted keys. After that, it is only read, so it can be
+ * searched by many threads at the same time without any locking.
+ * <p>
+ * Every segment counts its references: the {@link wordsearch.SegmentedWordSearch} which contains it holds one, and every question
+ * holds one while it reads the segment. When a segment is replaced by a merged one, it is {@link #retire() retired}, and its files
+ * are deleted as soon as its last reference is released.
+ * @author Georgios Apostolakis
+ */
+public class Segment {
+	private BTree dictionary;
+	private Index index;
+	private AtomicInteger references;
+
+	/**
+	 * The number which identifies this segment, and which is part of the names of its files.
+	 */
+	public final int ID;
+
+	/**
+	 * The directory where the files of this segment are stored.
+	 */
+	public final String DIRECTORY;
+
+	/**
+	 * The exact size of every key, as stored in the BTree of this segment.
+	 */
+	public final int SIZEOF_KEY;
+
+	/**
+	 * The exact size of every filename, as stored in the index of this segment.
+	 */
+	public final int SIZEOF_FILENAME;
+
+	/**
+	 * The size of every page of the files of this segment.
+	 */
+	public final int SIZEOF_PAGE;
+
+	/**
+	 * Opens an existing segment.
+	 * @param directory The value for the {@link #DIRECTORY} constant of this class.
+	 * @param id The value for the {@link #ID} constant of this class.
+	 * @param SIZEOF_KEY The value for the {@link #SIZEOF_KEY} constant of this class.
+	 * @param SIZEOF_FILENAME The value for the {@link #SIZEOF_FILENAME} constant of this class.
+	 * @param SIZEOF_PAGE The value for the {@link #SIZEOF_PAGE} constant of this class.
+	 */
+	public Segment(String directory, int id, int SIZEOF_KEY, int SIZEOF_FILENAME, int SIZEOF_PAGE) {
+		this.DIRECTORY = directory;
+		this.ID = id;
+		this.SIZEOF_KEY = SIZEOF_KEY;
+		this.SIZEOF_FILENAME = SIZEOF_FILENAME;
+		this.SIZEOF_PAGE = SIZEOF_PAGE;
+		this.dictionary = new BTree(SIZEOF_PAGE, SIZEOF_KEY, treeFilename(directory, id));
+		this.index = new Index(SIZEOF_FILENAME, SIZEOF_PAGE, indexFilename(directory, id));
+		this.references = new AtomicInteger(1);
+	}
+
+	/**
+	 * Writes a new segment with the given occurrences.
+	 * @param directory The directory where the files of the segment will be stored.
+	 * @param id The number which identifies the new segment.
+	 * @param SIZEOF_KEY The exact size of every key.
+	 * @param SIZEOF_FILENAME The exact size of every filename.
+	 * @param SIZEOF_PAGE The size of every page.
+	 * @param occurrences A {@link java.util.TreeMap} with all the occurrences of every (formatted) key, in the order they were found.
+	 * @return The new {@link Segment}.
+	 * @throws IOException In case of an error while writing the files of the segment.
+	 */
+	public static Segment create(String directory, int id, int SIZEOF_KEY, int SIZEOF_FILENAME, int SIZEOF_PAGE,
+			TreeMap<String, ArrayList<IndexRecord>> occurrences) throws IOException {
+		Segment s = new Segment(directory, id, SIZEOF_KEY, SIZEOF_FILENAME, SIZEOF_PAGE);
+		TreeRecord[] records = new TreeRecord[occurrences.size()];
+		int i = 0;
+
+		s.index.clearDataOfIndexFile();
+		for(Map.Entry<String, ArrayList<IndexRecord>> e : occurrences.entrySet())
+			records[i++] = new TreeRecord(e.getKey(), s.index.appendChain(e.getValue()), e.getValue().size(), Index.countFiles(e.getValue()), SIZEOF_KEY);
+		s.dictionary.bulkLoad(records);
+		s.sync();
+		return s;
+	}
+
+	/**
+	 * Writes a new segment which contains all the occurrences of some other segments. The keys of the segments are merged
+	 * in a single pass over their BTrees, and the occurrences of every key are stored in the order of the given segments.
+	 * @param directory The directory where the files of the segment will be stored.
+	 * @param id The number which identifies the new segment.
+	 * @param segments The {@link Segment} objects to be merged, from the oldest to the newest. They must all have the same sizes.
+	 * @return The new {@link Segment}.
+	 * @throws IOException In case of an error while reading the given segments or writing the new one.
+	 */
+	public static Segment merge(String directory, int id, Segment[] segments) throws IOException {
+		Segment s = new Segment(directory, id, segments[0].SIZEOF_KEY, segments[0].SIZEOF_FILENAME, segments[0].SIZEOF_PAGE);
+		ArrayList<TreeRecord> records = new ArrayList<TreeRecord>();
+		BTreeCursor[] cursors = new BTreeCursor[segments.length];
+		TreeRecord[] current = new TreeRecord[segments.length];
+		ArrayList<IndexRecord> chain;
+		String key;
+
+		s.index.clearDataOfIndexFile();
+		for(int i=0;i<segments.length;i++) {
+			cursors[i] = new BTreeCursor(segments[i].dictionary);
+			current[i] = cursors[i].next();
+		}
+
+		while(true) {
+			key = null;
+			for(int i=0;i<segments.length;i++)  //find the smallest key
+				if(current[i]!=null && (key==null || current[i].getKey().compareTo(key)<0))
+					key = current[i].getKey();
+			if(key==null)  //all the segments have been read
+				break;
+
+			chain = new ArrayList<IndexRecord>();
+			for(int i=0;i<segments.length;i++)
+				if(current[i]!=null && current[i].getKey().equals(key)) {
+					chain.addAll(segments[i].index.readChain(current[i].getInfo()));
+					current[i] = cursors[i].next();
+				}
+			records.add(new TreeRecord(key, s.index.appendChain(chain), chain.size(), Index.countFiles(chain), s.SIZEOF_KEY));
+		}
+		s.dictionary.bulkLoad(records.toArray(new TreeRecord[records.size()]));
+		s.sync();
+		return s;
+	}
+
+	/**
+	 * Tries to obtain a reference to this segment, which must be {@link #release() released} when the segment is no longer read.
+	 * @return True if the reference was obtained, or false if the segment has already been deleted.
+	 */
+	public boolean acquire() {
+		int r;
+		do {
+			r = references.get();
+			if(r<=0)
+				return false;
+		} while(!references.compareAndSet(r, r+1));
+		return true;
+	}
+
+	/**
+	 * Releases the files of this segment, without deleting them.
+	 * @throws IOException In case of an error while closing the files.
+	 */
+	public void close() throws IOException {
+		dictionary.close();
+		index.close();
+	}
+
+	/**
+	 * Forces the files of the segment to the storage device. A new segment is synced before it is returned, so it survives a crash of the system
+	 * as soon as it is listed in the manifest.
+	 * @throws IOException In case of an error while writing the files.
+	 */
+	private void sync() throws IOException {
+		index.sync();
+		dictionary.sync();
+	}
+
+	/**
+	 * Provides the size of the index of this segment, which is proportional to its number of occurrences.
+	 * @return An integer with the number of pages of the index.
+	 * @throws IOException In case of an error while reading the file.
+	 */
+	public int getSizeInPages() throws IOException {
+		return index.getSize();
+	}
+
+	/**
+	 * Provides the number of occurrences of a key and the number of files which contain it, from the BTree of this segment alone.
+	 * @param key A {@link java.lang.String} with the formatted key.
+	 * @return An integer array with the number of occurrences and the number of files, or {@code null} if the key does not exist.
+	 * @throws IOException In case of an error while reading the files of the segment.
+	 */
+	public int[] count(String key) throws IOException {
+		return dictionary.getStats(key);
+	}
+
+	/**
+	 * Searches for a key into this segment.
+	 * @param key A {@link java.lang.String} with the formatted key.
+	 * @return An {@link java.util.ArrayList} with the {@link wordsearch.structures.index.IndexRecord} objects of all the occurrences of the key, which is empty if it does not exist.
+	 * @throws IOException In case of an error while reading the files of the segment.
+	 */
+	public ArrayList<IndexRecord> lookup(String key) throws IOException {
+		int pos = dictionary.searchTree(key);
+		if(pos<0)
+			return new ArrayList<IndexRecord>();
+		TreePage page = dictionary.getPage(pos);
+		return index.readChain(page.findRecord(key).getInfo());
+	}
+
+	/**
+	 * Releases a reference to this segment. If it was the last one, then the files of the segment are closed and deleted.
+	 * @throws IOException In case of an error while closing the files.
+	 */
+	public void release() throws IOException {
+		if(references.decrementAndGet()==0) {
+			close();
+			new File(treeFilename(DIRECTORY, ID)).delete();
+			new File(indexFilename(DIRECTORY, ID)).delete();
+		}
+	}
+
+	/**
+	 * Releases the reference which is held by the {@link wordsearch.SegmentedWordSearch} that contains this segment, after
+	 * it has been replaced. The files are deleted when all the questions which read the segment have finished.
+	 * @throws IOException In case of an error while closing the files.
+	 */
+	public void retire() throws IOException {
+		release();
+	}
+
+	/**
+	 * Provides the name of the file with the BTree of a segment.
+	 * @param directory The directory of the segment.
+	 * @param id The number of the segment.
+	 * @return A {@link java.lang.String} with the name of the file.
+	 */
+	public static String treeFilename(String directory, int id) {
+		return directory + "segment-" + id + "-btree.dat";
+	}
+
+	/**
+	 * Provides the name of the file with the index of a segment.
+	 * @param directory The directory of the segment.
+	 * @param id The number of the segment.
+	 * @return A {@link java.lang.String} with the name of the file.
+	 */
+	public static String indexFilename(String directory, int id) {
+		return directory + "segment-" + id + "-index.dat";
+	}
+}
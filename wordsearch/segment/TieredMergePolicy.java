@@ -0,0 +1,72 @@
+package wordsearch.segment;
+
+/**
+ * This class decides which segments of a {@link wordsearch.SegmentedWordSearch} should be merged.
+ * Every segment belongs to a tier according to its size: tier 0 holds the segments of up to {@link #MIN_SEGMENT_PAGES} pages,
+ * and every next tier holds segments {@link #MERGE_FACTOR} times larger than the previous one. When {@link #MERGE_FACTOR}
+ * consecutive segments belong to the same tier, they are merged into a single segment of the next tier. Thus, every occurrence
+ * is rewritten once per tier (a logarithmic number of times), and the number of segments which are searched by every question
+ * remains logarithmic in the size of the index.
+ * <p>
+ * Only consecutive segments are merged, so that the occurrences of every key remain in the order in which the files were added.
+ * @author Georgios Apostolakis
+ */
+public class TieredMergePolicy {
+
+	/**
+	 * The number of segments of the same tier which are merged together.
+	 */
+	public final int MERGE_FACTOR;
+
+	/**
+	 * The maximum size (in pages of the index) of the segments of the first tier.
+	 */
+	public final int MIN_SEGMENT_PAGES;
+
+	/**
+	 * Constructs a new policy.
+	 * @param mergeFactor The value for the {@link #MERGE_FACTOR} constant of this class. It must be at least 2.
+	 * @param minSegmentPages The value for the {@link #MIN_SEGMENT_PAGES} constant of this class. It must be at least 1.
+	 */
+	public TieredMergePolicy(int mergeFactor, int minSegmentPages) {
+		if(mergeFactor<2 || minSegmentPages<1)
+			throw new IllegalArgumentException("The merge factor must be at least 2 and the minimum size at least 1 page.");
+		this.MERGE_FACTOR = mergeFactor;
+		this.MIN_SEGMENT_PAGES = minSegmentPages;
+	}
+
+	/**
+	 * Finds some segments to be merged.
+	 * @param sizes The sizes (in pages of the index) of the segments, from the oldest to the newest.
+	 * @return An array {@code {from, to}} with the positions of the first and after the last segment to be merged, or {@code null} if no merge is needed.
+	 */
+	public int[] findMerge(int[] sizes) {
+		int runStart = 0;
+
+		for(int i=1;i<=sizes.length;i++) {
+			if(i<sizes.length && getTier(sizes[i])==getTier(sizes[runStart])) {
+				if(i-runStart+1==MERGE_FACTOR)
+					return new int[] {runStart, i+1};
+			}
+			else
+				runStart = i;
+		}
+		return null;
+	}
+
+	/**
+	 * Provides the tier of a segment.
+	 * @param size The size (in pages of the index) of the segment.
+	 * @return An integer with the tier, starting from 0.
+	 */
+	public int getTier(int size) {
+		int tier = 0;
+		long limit = MIN_SEGMENT_PAGES;
+
+		while(size>limit) {
+			limit *= MERGE_FACTOR;
+			tier++;
+		}
+		return tier;
+	}
+}
@@ -0,0 +1,28 @@
+package wordsearch.structures;
+
+import java.io.IOException;
+
+import wordsearch.structures.btree.TreeRecord;
+
+/**
+ * A dictionary which maps every word to its record, i.e. to the first page of its chain in the index and to its statistics.
+ * The available implementations are {@link wordsearch.structures.btree.BTree}, which can be updated, and
+ * {@link wordsearch.structures.fst.FstDictionary}, which is much smaller but read-only.
+ * @author Georgios Apostolakis
+ */
+public interface Dictionary {
+	
+	/**
+	 * Searches the dictionary for the record of a given key.
+	 * @param key A {@link java.lang.String} with the key, padded with spaces as in the {@link wordsearch.structures.btree.BTree}.
+	 * @return A {@link wordsearch.structures.btree.TreeRecord} with the key, the first page of its chain and its statistics, or {@code null} if the key does not exist.
+	 * @throws IOException In case of an error while reading the dictionary.
+	 */
+	TreeRecord findRecord(String key) throws IOException;
+	
+	/**
+	 * Releases the storage associated with this instance.
+	 * @throws IOException In case of an error while closing the storage.
+	 */
+	void close() throws IOException;
+}
@@ -0,0 +1,126 @@
+package wordsearch.structures.bitmap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class implements an index of the files which contain every word of the dictionary, as a {@link RoaringBitmap} of their ids for every word.
+ * So, the questions which only ask which files contain some words are answered without reading the occurrences of the words from the index,
+ * and the sets of different words are combined with the operations of the bitmaps.
+ * <p>
+ * The index is kept in memory, and it can be saved into (and restored from) a binary file on the disk.
+ * @author Georgios Apostolakis
+ */
+public class FileSetIndex {
+	private HashMap<String, RoaringBitmap> fileSets;
+	
+	/**
+	 * Constructs a new, empty index.
+	 */
+	public FileSetIndex() {
+		this.fileSets = new HashMap<String, RoaringBitmap>();
+	}
+	
+	/**
+	 * Records that a file contains a word.
+	 * @param word A {@link java.lang.String} with the word.
+	 * @param fileId The id of the file.
+	 */
+	public void add(String word, int fileId) {
+		RoaringBitmap files = fileSets.get(word);
+		if(files==null) {
+			files = new RoaringBitmap();
+			fileSets.put(word, files);
+		}
+		files.add(fileId);
+	}
+	
+	/**
+	 * Removes a file from the sets of all the words, e.g. after its occurrences have been deleted from the index.
+	 * @param fileId The id of the file.
+	 */
+	public void removeFile(int fileId) {
+		for(RoaringBitmap files : fileSets.values())
+			files.remove(fileId);
+	}
+	
+	/**
+	 * Provides the files which contain a word.
+	 * @param word A {@link java.lang.String} with the word.
+	 * @return A {@link RoaringBitmap} with the ids of the files, which is empty if the word does not exist. It must not be modified.
+	 */
+	public RoaringBitmap getFiles(String word) {
+		RoaringBitmap files = fileSets.get(word);
+		return (files==null) ? new RoaringBitmap() : files;
+	}
+	
+	/**
+	 * Provides the number of words of the index.
+	 * @return An integer with the number of words.
+	 */
+	public int getNumOfWords() {
+		return fileSets.size();
+	}
+	
+	/**
+	 * Provides the size of the index, as it is saved by {@link #writeToFile(String)}.
+	 * @return A long number with the size in bytes.
+	 */
+	public long getSizeInBytes() {
+		long size = Integer.SIZE/8;  //the number of words
+		
+		for(Map.Entry<String, RoaringBitmap> e : fileSets.entrySet())
+			size += 2 + e.getKey().length() + e.getValue().getSizeInBytes();  //as modified UTF-8, with one byte per ASCII character
+		return size;
+	}
+	
+	/**
+	 * Reads an index which was previously saved with {@link #writeToFile(String)}.
+	 * @param filename The name of the binary file where the index is stored.
+	 * @return A new {@link FileSetIndex} object, or {@code null} if the file does not exist.
+	 * @throws IOException In case of an error while reading the file, or a malformed file.
+	 */
+	public static FileSetIndex readFromFile(String filename) throws IOException {
+		if(!new File(filename).exists())
+			return null;
+		
+		FileSetIndex index = new FileSetIndex();
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			int numOfWords = dis.readInt();
+			for(int i=0;i<numOfWords;i++) {
+				String word = dis.readUTF();
+				index.fileSets.put(word, RoaringBitmap.readFrom(dis));
+			}
+			return index;
+		} finally {
+			dis.close();
+		}
+	}
+	
+	/**
+	 * Saves the index into a binary file, replacing its previous contents.
+	 * @param filename The name of the binary file where the index will be stored.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void writeToFile(String filename) throws IOException {
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			dos.writeInt(fileSets.size());
+			for(Map.Entry<String, RoaringBitmap> e : fileSets.entrySet()) {
+				dos.writeUTF(e.getKey());
+				e.getValue().writeTo(dos);
+			}
+		} finally {
+			dos.close();
+		}
+	}
+}
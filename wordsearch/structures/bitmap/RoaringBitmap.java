@@ -0,0 +1,438 @@
+package wordsearch.structures.bitmap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative integers, as described by <a href="https://roaringbitmap.org/">Roaring bitmaps</a>. The integers are grouped into chunks
+ * by their upper 16 bits, and every chunk which is not empty has a container with the lower 16 bits of its integers: a sorted array while it has at most
+ * {@link #MAX_ARRAY_SIZE} integers, or a bitmap of 65536 bits otherwise. Thus, both sparse and dense sets occupy little memory, and the intersection, union
+ * and difference of two sets are computed one container at a time, with merges of sorted arrays or bitwise operations on the bitmaps.
+ * @author Georgios Apostolakis
+ */
+public class RoaringBitmap {
+	private char[] keys;  //the upper 16 bits of the integers of every container, in increasing order
+	private Container[] containers;
+	private int size;  //the number of containers
+	
+	/**
+	 * The maximum number of integers of a container which is stored as a sorted array. Larger containers are stored as bitmaps,
+	 * which occupy the same 8 KB as an array of this size.
+	 */
+	public static final int MAX_ARRAY_SIZE = 4096;
+	
+	/**
+	 * Constructs a new, empty set.
+	 */
+	public RoaringBitmap() {
+		this.keys = new char[1];
+		this.containers = new Container[1];
+		this.size = 0;
+	}
+	
+	/**
+	 * Adds an integer to the set, if it does not exist.
+	 * @param x The integer, which must not be negative.
+	 */
+	public void add(int x) {
+		int i = findContainer((char)(x>>>16));
+		if(i<0) {
+			i = -i-1;
+			if(size==keys.length) {
+				keys = Arrays.copyOf(keys, 2*size);
+				containers = Arrays.copyOf(containers, 2*size);
+			}
+			System.arraycopy(keys, i, keys, i+1, size-i);
+			System.arraycopy(containers, i, containers, i+1, size-i);
+			keys[i] = (char)(x>>>16);
+			containers[i] = new Container();
+			size++;
+		}
+		containers[i].add((char)x);
+	}
+	
+	/**
+	 * Removes an integer from the set, if it exists.
+	 * @param x The integer.
+	 */
+	public void remove(int x) {
+		int i = findContainer((char)(x>>>16));
+		if(i<0)
+			return;
+		containers[i].remove((char)x);
+		if(containers[i].cardinality==0) {
+			System.arraycopy(keys, i+1, keys, i, size-i-1);
+			System.arraycopy(containers, i+1, containers, i, size-i-1);
+			size--;
+		}
+	}
+	
+	/**
+	 * Checks whether an integer belongs to the set.
+	 * @param x The integer.
+	 * @return True if the integer belongs to the set, or false otherwise.
+	 */
+	public boolean contains(int x) {
+		int i = findContainer((char)(x>>>16));
+		return i>=0 && containers[i].contains((char)x);
+	}
+	
+	/**
+	 * Provides the number of integers of the set.
+	 * @return An integer with the cardinality of the set.
+	 */
+	public int getCardinality() {
+		int cardinality = 0;
+		for(int i=0;i<size;i++)
+			cardinality += containers[i].cardinality;
+		return cardinality;
+	}
+	
+	/**
+	 * Checks whether the set is empty.
+	 * @return True if the set has no integers, or false otherwise.
+	 */
+	public boolean isEmpty() {
+		return size==0;
+	}
+	
+	/**
+	 * Provides the integers of the set.
+	 * @return An integer array with the integers, in increasing order.
+	 */
+	public int[] toArray() {
+		int[] values = new int[getCardinality()];
+		int n = 0;
+		
+		for(int i=0;i<size;i++) {
+			Container c = containers[i];
+			if(c.array!=null)
+				for(int j=0;j<c.cardinality;j++)
+					values[n++] = (keys[i]<<16) | c.array[j];
+			else
+				for(int w=0;w<c.bits.length;w++)
+					for(long word=c.bits[w];word!=0;word&=word-1)
+						values[n++] = (keys[i]<<16) | (w<<6) | Long.numberOfTrailingZeros(word);
+		}
+		return values;
+	}
+	
+	/**
+	 * Computes the intersection of this set with another one.
+	 * @param other Another {@link RoaringBitmap}.
+	 * @return A new {@link RoaringBitmap} with the integers which belong to both sets.
+	 */
+	public RoaringBitmap and(RoaringBitmap other) {
+		RoaringBitmap result = new RoaringBitmap();
+		
+		for(int i=0, j=0;i<size && j<other.size;) {
+			if(keys[i]<other.keys[j])
+				i++;
+			else if(keys[i]>other.keys[j])
+				j++;
+			else
+				result.append(keys[i], Container.and(containers[i++], other.containers[j++]));
+		}
+		return result;
+	}
+	
+	/**
+	 * Computes the union of this set with another one.
+	 * @param other Another {@link RoaringBitmap}.
+	 * @return A new {@link RoaringBitmap} with the integers which belong to any of the sets.
+	 */
+	public RoaringBitmap or(RoaringBitmap other) {
+		RoaringBitmap result = new RoaringBitmap();
+		
+		for(int i=0, j=0;i<size || j<other.size;) {
+			if(j==other.size || (i<size && keys[i]<other.keys[j]))
+				result.append(keys[i], containers[i++].copy());
+			else if(i==size || keys[i]>other.keys[j])
+				result.append(other.keys[j], other.containers[j++].copy());
+			else
+				result.append(keys[i], Container.or(containers[i++], other.containers[j++]));
+		}
+		return result;
+	}
+	
+	/**
+	 * Computes the difference of another set from this one.
+	 * @param other Another {@link RoaringBitmap}.
+	 * @return A new {@link RoaringBitmap} with the integers of this set which do not belong to the other one.
+	 */
+	public RoaringBitmap andNot(RoaringBitmap other) {
+		RoaringBitmap result = new RoaringBitmap();
+		
+		for(int i=0, j=0;i<size;) {
+			if(j==other.size || keys[i]<other.keys[j])
+				result.append(keys[i], containers[i++].copy());
+			else if(keys[i]>other.keys[j])
+				j++;
+			else
+				result.append(keys[i], Container.andNot(containers[i++], other.containers[j++]));
+		}
+		return result;
+	}
+	
+	/**
+	 * Provides the size of the set, as it is saved by {@link #writeTo(DataOutputStream)}.
+	 * @return An integer with the size in bytes.
+	 */
+	public int getSizeInBytes() {
+		int bytes = Integer.SIZE/8;  //the number of containers
+		for(int i=0;i<size;i++)
+			bytes += 2*(Character.SIZE/8) + ((containers[i].array!=null) ? containers[i].cardinality*(Character.SIZE/8) : containers[i].bits.length*(Long.SIZE/8));
+		return bytes;
+	}
+	
+	/**
+	 * Writes the set into a stream, with the key and the cardinality of every container followed by its array or bitmap.
+	 * @param dos The {@link java.io.DataOutputStream} where the set will be written.
+	 * @throws IOException In case of an error while writing the stream.
+	 */
+	public void writeTo(DataOutputStream dos) throws IOException {
+		dos.writeInt(size);
+		for(int i=0;i<size;i++) {
+			Container c = containers[i];
+			dos.writeChar(keys[i]);
+			dos.writeChar(c.cardinality-1);  //from 1 up to 65536
+			if(c.array!=null)
+				for(int j=0;j<c.cardinality;j++)
+					dos.writeChar(c.array[j]);
+			else
+				for(long word : c.bits)
+					dos.writeLong(word);
+		}
+	}
+	
+	/**
+	 * Reads a set which was written with {@link #writeTo(DataOutputStream)}.
+	 * @param dis The {@link java.io.DataInputStream} from which the set will be read.
+	 * @return A new {@link RoaringBitmap} object.
+	 * @throws IOException In case of an error while reading the stream.
+	 */
+	public static RoaringBitmap readFrom(DataInputStream dis) throws IOException {
+		RoaringBitmap bitmap = new RoaringBitmap();
+		int numOfContainers = dis.readInt();
+		
+		for(int i=0;i<numOfContainers;i++) {
+			Container c = new Container();
+			char key = dis.readChar();
+			c.cardinality = dis.readChar() + 1;
+			if(c.cardinality<=MAX_ARRAY_SIZE) {
+				c.array = new char[c.cardinality];
+				for(int j=0;j<c.cardinality;j++)
+					c.array[j] = dis.readChar();
+			}
+			else {
+				c.array = null;
+				c.bits = new long[Container.NUM_OF_WORDS];
+				for(int w=0;w<c.bits.length;w++)
+					c.bits[w] = dis.readLong();
+			}
+			bitmap.append(key, c);
+		}
+		return bitmap;
+	}
+	
+	/**
+	 * Finds the position of the container with the given upper 16 bits, with a binary search.
+	 * @return The position of the container, or {@code -(insertion point)-1} if it does not exist.
+	 */
+	private int findContainer(char key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+	
+	/**
+	 * Appends a container after the existing ones, unless it is empty. Its key must be greater than theirs.
+	 */
+	private void append(char key, Container c) {
+		if(c.cardinality==0)
+			return;
+		if(size==keys.length) {
+			keys = Arrays.copyOf(keys, 2*size);
+			containers = Arrays.copyOf(containers, 2*size);
+		}
+		keys[size] = key;
+		containers[size++] = c;
+	}
+	
+	/**
+	 * The lower 16 bits of the integers of a chunk, either as a sorted array or as a bitmap.
+	 */
+	private static class Container {
+		private static final int NUM_OF_WORDS = (1<<16)/Long.SIZE;
+		private char[] array;  //null if the container is a bitmap
+		private long[] bits;
+		private int cardinality;
+		
+		private Container() {
+			this.array = new char[4];
+			this.bits = null;
+			this.cardinality = 0;
+		}
+		
+		private boolean contains(char x) {
+			if(array!=null)
+				return Arrays.binarySearch(array, 0, cardinality, x)>=0;
+			return (bits[x>>>6] & (1L<<x))!=0;
+		}
+		
+		private void add(char x) {
+			if(array==null) {
+				if((bits[x>>>6] & (1L<<x))==0) {
+					bits[x>>>6] |= 1L<<x;
+					cardinality++;
+				}
+				return;
+			}
+			int i = Arrays.binarySearch(array, 0, cardinality, x);
+			if(i>=0)
+				return;
+			if(cardinality==MAX_ARRAY_SIZE) {  //it becomes a bitmap
+				toBitmap();
+				add(x);
+				return;
+			}
+			i = -i-1;
+			if(cardinality==array.length)
+				array = Arrays.copyOf(array, Math.min(2*cardinality, MAX_ARRAY_SIZE));
+			System.arraycopy(array, i, array, i+1, cardinality-i);
+			array[i] = x;
+			cardinality++;
+		}
+		
+		private void remove(char x) {
+			if(array==null) {
+				if((bits[x>>>6] & (1L<<x))!=0) {
+					bits[x>>>6] &= ~(1L<<x);
+					cardinality--;
+					if(cardinality<=MAX_ARRAY_SIZE)
+						toArray();
+				}
+				return;
+			}
+			int i = Arrays.binarySearch(array, 0, cardinality, x);
+			if(i<0)
+				return;
+			System.arraycopy(array, i+1, array, i, cardinality-i-1);
+			cardinality--;
+		}
+		
+		private void toBitmap() {
+			bits = new long[NUM_OF_WORDS];
+			for(int j=0;j<cardinality;j++)
+				bits[array[j]>>>6] |= 1L<<array[j];
+			array = null;
+		}
+		
+		private void toArray() {
+			char[] values = new char[cardinality];
+			int n = 0;
+			for(int w=0;w<bits.length;w++)
+				for(long word=bits[w];word!=0;word&=word-1)
+					values[n++] = (char)((w<<6) | Long.numberOfTrailingZeros(word));
+			array = values;
+			bits = null;
+		}
+		
+		private Container copy() {
+			Container c = new Container();
+			c.array = (array==null) ? null : Arrays.copyOf(array, cardinality);
+			c.bits = (bits==null) ? null : bits.clone();
+			c.cardinality = cardinality;
+			return c;
+		}
+		
+		/**
+		 * Makes a container from a bitmap, as an array if it is small enough.
+		 */
+		private static Container fromBits(long[] bits) {
+			Container c = new Container();
+			c.array = null;
+			c.bits = bits;
+			for(long word : bits)
+				c.cardinality += Long.bitCount(word);
+			if(c.cardinality<=MAX_ARRAY_SIZE)
+				c.toArray();
+			return c;
+		}
+		
+		/**
+		 * Makes a container from the values of a list, which are in increasing order.
+		 */
+		private static Container fromList(ArrayList<Character> values) {
+			Container c = new Container();
+			c.array = new char[Math.max(values.size(), 1)];
+			for(char x : values)
+				c.array[c.cardinality++] = x;
+			if(c.cardinality>MAX_ARRAY_SIZE)
+				c.toBitmap();
+			return c;
+		}
+		
+		private static Container and(Container x, Container y) {
+			if(x.array==null && y.array==null) {
+				long[] bits = new long[NUM_OF_WORDS];
+				for(int w=0;w<NUM_OF_WORDS;w++)
+					bits[w] = x.bits[w] & y.bits[w];
+				return fromBits(bits);
+			}
+			Container small = (x.array!=null) ? x : y, large = (small==x) ? y : x;
+			ArrayList<Character> values = new ArrayList<Character>();
+			for(int j=0;j<small.cardinality;j++)
+				if(large.contains(small.array[j]))
+					values.add(small.array[j]);
+			return fromList(values);
+		}
+		
+		private static Container or(Container x, Container y) {
+			if(x.array!=null && y.array!=null) {  //merge the sorted arrays
+				ArrayList<Character> values = new ArrayList<Character>();
+				int i = 0, j = 0;
+				while(i<x.cardinality || j<y.cardinality) {
+					if(j==y.cardinality || (i<x.cardinality && x.array[i]<y.array[j]))
+						values.add(x.array[i++]);
+					else if(i==x.cardinality || x.array[i]>y.array[j])
+						values.add(y.array[j++]);
+					else {
+						values.add(x.array[i++]);
+						j++;
+					}
+				}
+				return fromList(values);
+			}
+			long[] bits = new long[NUM_OF_WORDS];
+			for(Container c : new Container[] {x, y}) {
+				if(c.array==null)
+					for(int w=0;w<NUM_OF_WORDS;w++)
+						bits[w] |= c.bits[w];
+				else
+					for(int j=0;j<c.cardinality;j++)
+						bits[c.array[j]>>>6] |= 1L<<c.array[j];
+			}
+			return fromBits(bits);
+		}
+		
+		private static Container andNot(Container x, Container y) {
+			if(x.array!=null) {
+				ArrayList<Character> values = new ArrayList<Character>();
+				for(int j=0;j<x.cardinality;j++)
+					if(!y.contains(x.array[j]))
+						values.add(x.array[j]);
+				return fromList(values);
+			}
+			long[] bits = x.bits.clone();
+			if(y.array==null)
+				for(int w=0;w<NUM_OF_WORDS;w++)
+					bits[w] &= ~y.bits[w];
+			else
+				for(int j=0;j<y.cardinality;j++)
+					bits[y.array[j]>>>6] &= ~(1L<<y.array[j]);
+			return fromBits(bits);
+		}
+	}
+}
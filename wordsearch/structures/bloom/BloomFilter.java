@@ -0,0 +1,185 @@
+package wordsearch.structures.bloom;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * This class implements a Bloom filter over the keys of the dictionary. It answers whether a key may exist in the dictionary
+ * without any disk accesses. If the answer is negative then the key certainly does not exist, while a positive answer may be
+ * wrong with a (small) probability, which is determined when the filter is constructed.
+ * The filter is kept in memory as an array of bits, and it can be saved into (and restored from) a binary file on the disk.
+ * @author Georgios Apostolakis
+ */
+public class BloomFilter {
+	private long[] bits;
+	private long numOfKeys;
+	
+	/**
+	 * The number of bits of the filter.
+	 */
+	public final long NUM_OF_BITS;
+	
+	/**
+	 * The number of hash functions which are applied to every key.
+	 */
+	public final int NUM_OF_HASHES;
+	
+	/**
+	 * The size (in bytes) of the fields which precede the bits in the binary file: the number of hash functions, the number of keys and the number of longs.
+	 */
+	private static final int SIZEOF_HEADER = Integer.SIZE/8 + Long.SIZE/8 + Integer.SIZE/8;
+	
+	/**
+	 * Constructs a new, empty filter which is dimensioned to hold a given number of keys with a given false positive rate.
+	 * @param expectedKeys The number of keys which will be added to the filter. Values less than 1 are treated as 1.
+	 * @param falsePositiveRate The desired probability (greater than 0 and less than 1) that a key which was not added is reported as existing.
+	 */
+	public BloomFilter(long expectedKeys, double falsePositiveRate) {
+		if(expectedKeys<1)
+			expectedKeys = 1;
+		long m = (long)Math.ceil(-expectedKeys*Math.log(falsePositiveRate) / (Math.log(2)*Math.log(2)));
+		m = Math.max(64, (m+63)/64*64);  //round up to a multiple of 64, so that every long of the array is fully used
+		
+		this.NUM_OF_BITS = m;
+		this.NUM_OF_HASHES = Math.max(1, (int)Math.round((double)m/expectedKeys*Math.log(2)));
+		this.bits = new long[(int)(m/64)];
+		this.numOfKeys = 0;
+	}
+	
+	/**
+	 * Constructs a new instance of this class with the given contents.
+	 * @param bits The array with the bits of the filter.
+	 * @param numOfHashes The value for the {@link #NUM_OF_HASHES} constant of this class.
+	 * @param numOfKeys The number of keys which have been added to the filter.
+	 */
+	private BloomFilter(long[] bits, int numOfHashes, long numOfKeys) {
+		this.NUM_OF_BITS = 64L*bits.length;
+		this.NUM_OF_HASHES = numOfHashes;
+		this.bits = bits;
+		this.numOfKeys = numOfKeys;
+	}
+	
+	/**
+	 * Adds a new key to the filter.
+	 * @param key A {@link java.lang.String} with the key to be added.
+	 */
+	public void add(String key) {
+		long h1 = hash(key), h2 = mix(h1);
+		for(int i=0;i<NUM_OF_HASHES;i++) {
+			long bit = Math.floorMod(h1 + i*h2, NUM_OF_BITS);
+			bits[(int)(bit>>>6)] |= 1L << bit;
+		}
+		numOfKeys++;
+	}
+	
+	/**
+	 * Provides the probability that a key which was never added is reported as existing, given the keys added so far.
+	 * @return A double number between 0 and 1.
+	 */
+	public double getFalsePositiveRate() {
+		return Math.pow(1 - Math.exp(-(double)NUM_OF_HASHES*numOfKeys/NUM_OF_BITS), NUM_OF_HASHES);
+	}
+	
+	/**
+	 * Provides the number of keys which have been added to the filter.
+	 * @return A long number with the number of keys.
+	 */
+	public long getNumOfKeys() {
+		return numOfKeys;
+	}
+	
+	/**
+	 * Checks whether a key may have been added to the filter.
+	 * @param key A {@link java.lang.String} with the key to be checked.
+	 * @return False if the key was certainly never added, or true if it was probably added.
+	 */
+	public boolean mightContain(String key) {
+		long h1 = hash(key), h2 = mix(h1);
+		for(int i=0;i<NUM_OF_HASHES;i++) {
+			long bit = Math.floorMod(h1 + i*h2, NUM_OF_BITS);
+			if((bits[(int)(bit>>>6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Reads a filter which was previously saved with {@link #writeToFile(String)}.
+	 * @param filename The name of the binary file where the filter is stored.
+	 * @return A new {@link BloomFilter} object, or {@code null} if the file does not exist.
+	 * @throws IOException In case of an error while reading the file, or a malformed file (e.g. one whose length field does not match
+	 * the size of the file), which is detected before any memory is allocated for the bits.
+	 */
+	public static BloomFilter readFromFile(String filename) throws IOException {
+		File f = new File(filename);
+		if(!f.exists())
+			return null;
+		
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			int numOfHashes = dis.readInt();
+			long numOfKeys = dis.readLong();
+			int length = dis.readInt();
+			if(numOfHashes<1 || numOfKeys<0 || length<1 || f.length()!=SIZEOF_HEADER+8L*length)
+				throw new IOException("The binary file " + filename + " is malformed.");
+			long[] bits = new long[length];
+			for(int i=0;i<bits.length;i++)
+				bits[i] = dis.readLong();
+			return new BloomFilter(bits, numOfHashes, numOfKeys);
+		} finally {
+			dis.close();
+		}
+	}
+	
+	/**
+	 * Saves the filter into a binary file, replacing its previous contents.
+	 * @param filename The name of the binary file where the filter will be stored.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void writeToFile(String filename) throws IOException {
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			dos.writeInt(NUM_OF_HASHES);
+			dos.writeLong(numOfKeys);
+			dos.writeInt(bits.length);
+			for(int i=0;i<bits.length;i++)
+				dos.writeLong(bits[i]);
+		} finally {
+			dos.close();
+		}
+	}
+	
+	/**
+	 * Computes a 64-bit FNV-1a hash of a key.
+	 * @param key A {@link java.lang.String} with the key.
+	 * @return A long number with the hash of the key.
+	 */
+	private static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for(int i=0;i<key.length();i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+	
+	/**
+	 * Derives a second hash value from the first one, so that the i-th hash function can be computed as {@code h1 + i*h2}.
+	 * @param h A long number with the first hash value.
+	 * @return A long number with the second hash value, which is always odd.
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h | 1;
+	}
+}
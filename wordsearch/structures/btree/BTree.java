@@ -2,8 +2,16 @@ package wordsearch.structures.btree;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import wordsearch.file.BinFileProcessor;
+import wordsearch.file.FileHeader;
+import wordsearch.file.PageStore;
+import wordsearch.metrics.Metrics;
+import wordsearch.structures.Dictionary;
 
 /**
  * This class implements a BTree on the disk, which serves as a dictionary for searching words.
@@ -13,8 +21,14 @@ import wordsearch.file.BinFileProcessor;
  * @author Georgios Apostolakis
  *
  */
-public class BTree {
-	private BinFileProcessor binaryFileEditor;
+public class BTree implements Dictionary {
+	private PageStore binaryFileEditor;
+	private Metrics metrics;
+	private volatile HashMap<Integer, ByteBuffer> pinnedPages;  //the contents of the pages of the top levels (off the heap), or null if no levels are pinned
+	private int levelsToPin;
+	private long maxPinnedBytes;
+	private int pinnedLevels;
+	private boolean pinnedStale;  //whether a pinned page has been split, so the pinned levels may not contain all their pages
 	
 	/**
 	 * The size (in bytes) of every {@link wordsearch.structures.btree.TreePage page} of the BTree.
@@ -38,20 +52,114 @@ public class BTree {
 	
 	/**
 	 * Constructs a new instance of this class which builds a BTree into a binary file.
+	 * The first pages of the file are reserved for a {@link wordsearch.file.FileHeader}.
 	 * @param SIZEOF_PAGE The size (in bytes) of every {@link wordsearch.structures.btree.TreePage page} of the BTree.
 	 * @param SIZEOF_KEY The size (in bytes) of every key stored inside the {@link wordsearch.structures.btree.TreeRecord} objects of the BTree.
 	 * @param filename The name of the binary file into which the BTree will be stored.
 	 */
 	public BTree(int SIZEOF_PAGE, int SIZEOF_KEY, String filename){
-		this.SIZEOF_PAGE = SIZEOF_PAGE;
+		this(SIZEOF_KEY, openFile(SIZEOF_PAGE, filename));
+	}
+	
+	/**
+	 * Constructs a new instance of this class which builds a BTree into a given {@link wordsearch.file.PageStore}.
+	 * The size of the pages of the tree is the size of the pages of the store, which should reserve enough pages for a {@link wordsearch.file.FileHeader}.
+	 * @param SIZEOF_KEY The size (in bytes) of every key stored inside the {@link wordsearch.structures.btree.TreeRecord} objects of the BTree.
+	 * @param store The {@link wordsearch.file.PageStore} where the pages of the BTree will be stored. It is closed by {@link #close()}.
+	 */
+	public BTree(int SIZEOF_KEY, PageStore store){
+		this.SIZEOF_PAGE = store.getPageSize();
 		this.SIZEOF_KEY = SIZEOF_KEY;
-		this.CHILDREN_PER_TREE_PAGE = (SIZEOF_PAGE-(Integer.SIZE/8)+SIZEOF_KEY)/(2*(Integer.SIZE/8)+SIZEOF_KEY);
+		this.CHILDREN_PER_TREE_PAGE = TreePage.childrenPerPage(SIZEOF_KEY, SIZEOF_PAGE);
 		this.RECORDS_PER_TREE_PAGE = CHILDREN_PER_TREE_PAGE - 1;
+		this.metrics = null;
+		this.binaryFileEditor = store;
+	}
+	
+	/**
+	 * Opens the binary file of a BTree, with the first pages reserved for a {@link wordsearch.file.FileHeader}.
+	 * @param SIZEOF_PAGE The size (in bytes) of every page of the BTree.
+	 * @param filename The name of the binary file.
+	 * @return A {@link wordsearch.file.BinFileProcessor} for the file.
+	 */
+	private static PageStore openFile(int SIZEOF_PAGE, String filename) {
 		try{
-			binaryFileEditor = new BinFileProcessor(SIZEOF_PAGE, filename);
+			return new BinFileProcessor(SIZEOF_PAGE, filename, FileHeader.getNumOfHeaderPages(SIZEOF_PAGE));
 		} catch(FileNotFoundException e){
 			System.err.println("Error. Unable to create btree file.");
 			System.exit(-1);
+			return null;
+		}
+	}
+	
+	/**
+	 * Replaces the contents of the tree with the given {@link wordsearch.structures.btree.TreeRecord} objects, which must be sorted by their keys.
+	 * Instead of inserting the records one by one, the tree is built bottom-up: the records are distributed evenly to the leaves,
+	 * with one separating record between every two consecutive leaves, and the separating records form the level above in the same way, up to the root.
+	 * Every page is written exactly once, its pages are as full as possible (without being full), and the pages of every level are consecutive in the file,
+	 * with the root at page 0 and the leaves at the end.
+	 * @param records An array with the {@link wordsearch.structures.btree.TreeRecord} objects, sorted by their keys and without duplicate keys.
+	 * @throws IOException In case of an error while writing the file with the btree.
+	 */
+	public void bulkLoad(TreeRecord[] records) throws IOException {
+		ArrayList<TreeRecord[]> levelRecords = new ArrayList<TreeRecord[]>();  //the records of every level, starting from the leaves
+		ArrayList<int[]> levelNodes = new ArrayList<int[]>();  //the index (in the records of its level) of the first record of every node, plus the number of records of the level
+		int maxRecords = RECORDS_PER_TREE_PAGE - 1;  //a page with RECORDS_PER_TREE_PAGE records is split immediately, so it never exists in the file
+		TreeRecord[] current = records;
+		
+		this.clearDataOfTreeFile();
+		if(records.length==0)
+			return;
+		
+		while(true) {
+			int n = current.length;
+			int k = (n<=maxRecords) ? 1 : (n+maxRecords)/(maxRecords+1);  //the number of nodes, so that the n-(k-1) records (except the separators) fit in them
+			int perNode = (n-(k-1))/k, extra = (n-(k-1))%k, pos = 0;
+			int[] starts = new int[k+1];
+			TreeRecord[] separators = new TreeRecord[k-1];
+			
+			for(int i=0;i<k;i++) {
+				starts[i] = pos;
+				pos += perNode + ((i<extra) ? 1 : 0);
+				if(i<k-1)
+					separators[i] = current[pos++];  //the record between two consecutive nodes moves to the level above
+			}
+			starts[k] = pos+1;  //as if a separator followed the last node
+			levelRecords.add(current);
+			levelNodes.add(starts);
+			if(k==1)
+				break;
+			current = separators;
+		}
+		
+		//assign the page numbers, starting from the root (top level) and ending with the leaves
+		int numOfLevels = levelNodes.size();
+		int[] firstPage = new int[numOfLevels];
+		int nextPage = 0;
+		for(int l=numOfLevels-1;l>=0;l--) {
+			firstPage[l] = nextPage;
+			nextPage += levelNodes.get(l).length-1;
+		}
+		
+		int[] fathers = {-1};  //the father of every node of the current level
+		for(int l=numOfLevels-1;l>=0;l--) {
+			int[] starts = levelNodes.get(l);
+			int[] childFathers = (l>0) ? new int[levelNodes.get(l-1).length-1] : null;
+			for(int j=0;j<starts.length-1;j++) {
+				TreeRecord[] pageRecords = new TreeRecord[RECORDS_PER_TREE_PAGE];
+				int[] child = new int[CHILDREN_PER_TREE_PAGE];
+				int size = starts[j+1]-1-starts[j];
+				
+				for(int i=0;i<size;i++)
+					pageRecords[i] = levelRecords.get(l)[starts[j]+i];
+				if(l>0)  //the record r of this level separates the nodes r and r+1 of the level below
+					for(int i=0;i<=size;i++) {
+						child[i] = firstPage[l-1] + starts[j] + i;
+						childFathers[starts[j]+i] = firstPage[l] + j;
+					}
+				writePage(firstPage[l]+j, new TreePage(SIZEOF_KEY, SIZEOF_PAGE, pageRecords, child, fathers[j], size));
+			}
+			fathers = childFathers;
 		}
 	}
 	
@@ -61,6 +169,10 @@ public class BTree {
 	 */
 	public void clearDataOfTreeFile() throws IOException {
 		this.binaryFileEditor.clearFile();
+		if(pinnedPages!=null) {
+			pinnedPages = new HashMap<Integer, ByteBuffer>();
+			pinnedStale = true;
+		}
 	}
 	
 	/**
@@ -71,6 +183,22 @@ public class BTree {
 		binaryFileEditor.close();
 	}
 	
+	/**
+	 * Writes the pages of the btree which are buffered by its {@link wordsearch.file.PageStore}, so that they become visible to other readers of the file.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void flush() throws IOException {
+		binaryFileEditor.flush();
+	}
+	
+	/**
+	 * Writes the buffered pages of the btree and forces them to the storage device, so that they survive a crash of the system.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void sync() throws IOException {
+		binaryFileEditor.sync();
+	}
+	
 	/**
 	 * Returns the size of the binary file that contains the btree, in number of {@link wordsearch.structures.btree.TreePage} objects (and not in bytes).
 	 * @return An integer number with the size of the binary file.
@@ -80,6 +208,47 @@ public class BTree {
 		return (int)this.binaryFileEditor.fileSize();
 	}
 	
+	/**
+	 * Computes the fraction of the capacity of the pages of the tree which is occupied by records. Every page of the tree is read once.
+	 * @return A double number from 0 to 1, which is 0 if the tree is empty.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public double getFillFactor() throws IOException {
+		long records = 0;
+		
+		for(int p=0;p<this.getSize();p++)
+			records += getPage(p).getSize();
+		return (this.getSize()==0) ? 0 : (double)records/((long)this.getSize()*RECORDS_PER_TREE_PAGE);
+	}
+	
+	/**
+	 * Computes the height of the tree, which is the number of pages read by a search that reaches a leaf.
+	 * All leaves of a BTree have the same depth, so the height is found by following the first child of every page from the root.
+	 * @return An integer with the height of the tree, or 0 if the tree is empty.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public int getHeight() throws IOException {
+		int height = 0, next = 0;
+		TreePageView node = new TreePageView(SIZEOF_KEY, SIZEOF_PAGE);
+		
+		if(this.getSize()==0)
+			return 0;
+		do {
+			node.wrap(readPageBuffer(next));
+			next = node.getChild(0);
+			height++;
+		}while(next>0);
+		return height;
+	}
+	
+	/**
+	 * Provides the counters of the binary file that contains the btree, since the last time they were reset.
+	 * @return A long array with the number of page reads, page writes, bytes read and bytes written (in this order).
+	 */
+	public long[] getIOCounters() {
+		return new long[] {binaryFileEditor.getNumOfReads(), binaryFileEditor.getNumOfWrites(), binaryFileEditor.getBytesRead(), binaryFileEditor.getBytesWritten()};
+	}
+	
 	/**
 	 * Returns the number of disk accesses from the last time they were reset.
 	 * @return An integer number with the number of disk accesses for the purposes of this instance.
@@ -88,6 +257,23 @@ public class BTree {
 		return this.binaryFileEditor.getNumOfAccesses();
 	}
 	
+	/**
+	 * Provides the number of bytes occupied by the contents of the pinned pages.
+	 * @return A long number with the number of bytes, which is 0 if no levels are pinned.
+	 */
+	public long getPinnedBytes() {
+		HashMap<Integer, ByteBuffer> pinned = pinnedPages;
+		return (pinned==null) ? 0 : (long)pinned.size()*SIZEOF_PAGE;
+	}
+	
+	/**
+	 * Provides the number of levels of the tree whose pages are pinned in memory.
+	 * @return An integer with the number of levels, which may be less than the requested one due to the limit of memory or the height of the tree.
+	 */
+	public int getPinnedLevels() {
+		return pinnedLevels;
+	}
+	
 	/**
 	 * Provides a specific page of the tree.
 	 * @param i The index (at the binary file of the btree) of the {@link wordsearch.structures.btree.TreePage} to be returned.
@@ -95,7 +281,7 @@ public class BTree {
 	 * @throws IOException In case of an error while reading the file, or a malformed binary file.
 	 */
 	public TreePage getPage(int i) throws IOException{
-		byte[] tmp = binaryFileEditor.readPage(i);
+		byte[] tmp = readPageBytes(i);
 		if(tmp != null)
 			return new TreePage(SIZEOF_KEY, SIZEOF_PAGE, tmp);
 		return null;
@@ -109,6 +295,7 @@ public class BTree {
 	public void insert(TreeRecord r) throws IOException{
 		int positionInFile;
 		TreePage pageRead;
+		long startTime = System.nanoTime();
 		
 		positionInFile = searchTree(r.getKey());
 		if(positionInFile>=0)    //A TreeRecord with the same key already exists in the file
@@ -116,12 +303,310 @@ public class BTree {
 
 		//If the TreeRecord doesn't exist, search returns a negative number to indicate where it should be inserted (see searchTree() method).
 		positionInFile = - positionInFile -1; 
-		pageRead = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, binaryFileEditor.readPage(positionInFile));
+		pageRead = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, readPageBytes(positionInFile));
 		
 		pageRead.addRecord(r);  //Just add the record, all children remain to 0 since the TreePage is a leaf of the tree
 		
-		binaryFileEditor.writePage(positionInFile, pageRead); //Write the updated TreePage back to the file
+		writePage(positionInFile, pageRead); //Write the updated TreePage back to the file
 		splitNodes(positionInFile);	//Split this page and its ancestors, if needed	
+		
+		if(metrics!=null)
+			metrics.getInsertLatency().record(System.nanoTime()-startTime);
+	}
+	
+	/**
+	 * Writes a {@link wordsearch.file.FileHeader} at the start of the binary file of the btree, replacing the previous one.
+	 * @param header The {@link wordsearch.file.FileHeader} to be written.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void writeHeader(FileHeader header) throws IOException {
+		binaryFileEditor.writeHeader(header.toByteArray());
+	}
+	
+	/**
+	 * Replaces the info of the records of the tree, e.g. after the chains of the index have been moved.
+	 * Every page of the tree is read once, in the order of the binary file, and only the pages with modified records are written back.
+	 * @param newInfo A {@link java.util.Map} from the old to the new info. Records whose info is not contained in it are not modified.
+	 * @throws IOException In case of an error while reading or writing the file with the btree.
+	 */
+	public void remapInfo(Map<Integer, Integer> newInfo) throws IOException {
+		TreePage page;
+		TreeRecord r;
+		Integer info;
+		boolean modified;
+		
+		for(int p=0;p<this.getSize();p++) {
+			page = getPage(p);
+			modified = false;
+			for(int i=0;i<page.getSize();i++) {
+				r = (TreeRecord)page.getRecord(i);
+				info = newInfo.get(r.getInfo());
+				if(info!=null && info!=r.getInfo()) {
+					r.setInfo(info);
+					modified = true;
+				}
+			}
+			if(modified)
+				writePage(p, page);
+		}
+	}
+	
+	/**
+	 * Adds to the statistics of the record with a given key, e.g. after the occurrences of a new file have been added to its chain of the index.
+	 * @param key A {@link java.lang.String} with the key of the record.
+	 * @param occurrences The number of occurrences to be added to its {@link wordsearch.structures.btree.TreeRecord#getCount() count}.
+	 * @param files The number of files to be added to its {@link wordsearch.structures.btree.TreeRecord#getNumOfFiles() number of files}.
+	 * @return True if the record was updated, or false if the key does not exist in the tree.
+	 * @throws IOException In case of an error while reading or writing the file with the btree.
+	 */
+	public boolean addStats(String key, int occurrences, int files) throws IOException {
+		int position = searchTree(key);
+		if(position<0)
+			return false;
+		
+		TreePage page = getPage(position);
+		TreeRecord r = page.findRecord(key);
+		r.setCount(r.getCount()+occurrences);
+		r.setNumOfFiles(r.getNumOfFiles()+files);
+		writePage(position, page);
+		return true;
+	}
+	
+	/**
+	 * Searches the tree for the record with a given key, reading only the pages of a search (see {@link #searchTree(String)}) and decoding only that record.
+	 * @param key A {@link java.lang.String} with the key of the record.
+	 * @return A copy of the {@link wordsearch.structures.btree.TreeRecord}, or {@code null} if the key does not exist in the tree.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public TreeRecord findRecord(String key) throws IOException {
+		TreePageView node = new TreePageView(SIZEOF_KEY, SIZEOF_PAGE);
+		if(searchTree(key, node)<0)
+			return null;
+		
+		int i = node.search(key);  //the view is still on the page of the record
+		return new TreeRecord(node.getKey(i), node.getInfo(i), node.getCount(i), node.getNumOfFiles(i), SIZEOF_KEY);
+	}
+	
+	/**
+	 * Finds all the records whose keys are accepted by a {@link wordsearch.structures.btree.LevenshteinAutomaton}, i.e. they are within an edit distance
+	 * from its word (ignoring the spaces which pad the keys). The tree is traversed in the order of the keys, and every subtree is read only if
+	 * some key between the keys around it may be accepted by the automaton (see {@link wordsearch.structures.btree.LevenshteinAutomaton#canMatchRange(String, String)}).
+	 * Hence, most subtrees are skipped without being read. The number of pages which were read is recorded in the {@link wordsearch.metrics.Metrics}.
+	 * The records whose count is 0 (i.e. all their occurrences have been removed from the index) are skipped.
+	 * @param automaton The {@link wordsearch.structures.btree.LevenshteinAutomaton} of the word.
+	 * @return An {@link java.util.ArrayList} with copies of the accepted {@link wordsearch.structures.btree.TreeRecord} objects whose count is not 0, in the order of their keys.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public ArrayList<TreeRecord> fuzzySearch(LevenshteinAutomaton automaton) throws IOException {
+		ArrayList<TreeRecord> results = new ArrayList<TreeRecord>();
+		int pages = 0;
+		
+		if(this.getSize()>0) {
+			if(pinnedStale && pinnedPages!=null)
+				loadPinnedLevels();
+			pages = search(0, null, null, automaton, Integer.MAX_VALUE, results);  //the keys of the root are not bounded
+		}
+		if(metrics!=null)
+			metrics.getFuzzyPages().record(pages);
+		return results;
+	}
+	
+	/**
+	 * Finds the records whose keys match a regular expression, in the order of their keys. As in {@link #fuzzySearch(LevenshteinAutomaton)},
+	 * only the subtrees whose range of keys may contain a match are read (see {@link wordsearch.structures.btree.RegexAutomaton#canMatchRange(String, String)}),
+	 * and the search stops as soon as enough records have been found. The records whose count is 0 (i.e. all their occurrences have been removed from the index)
+	 * are skipped, so they do not count towards the maximum number of records.
+	 * @param automaton The {@link wordsearch.structures.btree.RegexAutomaton} of the regular expression.
+	 * @param maxResults The maximum number of records to be found.
+	 * @return An {@link java.util.ArrayList} with at most maxResults records which match the regular expression and whose count is not 0, in increasing order of their keys.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public ArrayList<TreeRecord> regexSearch(RegexAutomaton automaton, int maxResults) throws IOException {
+		ArrayList<TreeRecord> results = new ArrayList<TreeRecord>();
+		int pages = 0;
+		
+		if(this.getSize()>0 && maxResults>0) {
+			if(pinnedStale && pinnedPages!=null)
+				loadPinnedLevels();
+			pages = search(0, null, null, automaton, maxResults, results);
+		}
+		if(metrics!=null)
+			metrics.getRegexPages().record(pages);
+		return results;
+	}
+	
+	/**
+	 * Finds the records of the subtree of a page (whose keys are between two given keys) which are accepted by a {@link KeyAutomaton} and whose count is not 0,
+	 * until a maximum number of results has been reached.
+	 * @return The number of pages of the subtree which were read.
+	 */
+	private int search(int pageNum, String low, String high, KeyAutomaton automaton, int maxResults, ArrayList<TreeRecord> results) throws IOException {
+		TreePageView node = new TreePageView(SIZEOF_KEY, SIZEOF_PAGE).wrap(readPageBuffer(pageNum));
+		int size = node.getSize(), pages = 1;
+		boolean leaf = (node.getChild(0)==0);
+		String[] keys = new String[size];
+		String lower, upper;
+		
+		for(int i=0;i<size;i++)
+			keys[i] = node.getKey(i);
+		for(int i=0;i<=size && results.size()<maxResults;i++) {
+			if(!leaf) {  //the keys of child[i] are between the keys of the records i-1 and i
+				lower = (i==0) ? low : keys[i-1];
+				upper = (i==size) ? high : keys[i];
+				if(automaton.canMatchRange(lower, upper))
+					pages += search(node.getChild(i), lower, upper, automaton, maxResults, results);
+			}
+			if(i<size && results.size()<maxResults && node.getCount(i)>0 && automaton.accepts(TreeRecord.stripPadding(keys[i])))
+				results.add(new TreeRecord(keys[i], node.getInfo(i), node.getCount(i), node.getNumOfFiles(i), SIZEOF_KEY));
+		}
+		return pages;
+	}
+	
+	/**
+	 * Provides the statistics of the record with a given key, reading only the pages of a search (see {@link #searchTree(String)}).
+	 * @param key A {@link java.lang.String} with the key of the record.
+	 * @return An array with the {@link wordsearch.structures.btree.TreeRecord#getCount() count} and the
+	 * {@link wordsearch.structures.btree.TreeRecord#getNumOfFiles() number of files} of the record, or {@code null} if the key does not exist in the tree.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public int[] getStats(String key) throws IOException {
+		TreePageView node = new TreePageView(SIZEOF_KEY, SIZEOF_PAGE);
+		if(searchTree(key, node)<0)
+			return null;
+		
+		int i = node.search(key);  //the view is still on the page of the record
+		return new int[] {node.getCount(i), node.getNumOfFiles(i)};
+	}
+	
+	/**
+	 * Replaces the statistics of the records of the tree, e.g. after some occurrences have been removed from the index.
+	 * Every page of the tree is read once, in the order of the binary file, and only the pages with modified records are written back.
+	 * @param newStats A {@link java.util.Map} from the info of a record to an array with its new count and number of files.
+	 * Records whose info is not contained in it are not modified.
+	 * @throws IOException In case of an error while reading or writing the file with the btree.
+	 */
+	public void setStats(Map<Integer, int[]> newStats) throws IOException {
+		TreePage page;
+		TreeRecord r;
+		int[] stats;
+		boolean modified;
+		
+		for(int p=0;p<this.getSize();p++) {
+			page = getPage(p);
+			modified = false;
+			for(int i=0;i<page.getSize();i++) {
+				r = (TreeRecord)page.getRecord(i);
+				stats = newStats.get(r.getInfo());
+				if(stats!=null && (stats[0]!=r.getCount() || stats[1]!=r.getNumOfFiles())) {
+					r.setCount(stats[0]);
+					r.setNumOfFiles(stats[1]);
+					modified = true;
+				}
+			}
+			if(modified)
+				writePage(p, page);
+		}
+	}
+	
+	/**
+	 * Keeps the pages of the top levels of the tree (starting from the root) in memory, so that every search reads from the disk only the pages of the lower levels.
+	 * The pages are loaded immediately, one level at a time, as long as the memory they occupy does not exceed a limit. The pinned pages are updated
+	 * whenever they are written, and if one of them is split, the pinned levels are loaded again before the next search.
+	 * @param levels The number of levels to be pinned, or 0 to release the pinned pages.
+	 * @param maxBytes The maximum number of bytes occupied by the contents of the pinned pages.
+	 * @return An integer with the number of levels which were pinned.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public int pinLevels(int levels, long maxBytes) throws IOException {
+		this.levelsToPin = levels;
+		this.maxPinnedBytes = maxBytes;
+		if(levels<=0) {
+			pinnedPages = null;
+			pinnedLevels = 0;
+			return 0;
+		}
+		loadPinnedLevels();
+		return pinnedLevels;
+	}
+	
+	/**
+	 * Loads the pages of the top {@code levelsToPin} levels of the tree, one level at a time, without exceeding {@code maxPinnedBytes}.
+	 * The pages of every level are copied into a direct buffer, so the pinned levels occupy memory off the heap.
+	 */
+	private void loadPinnedLevels() throws IOException {
+		HashMap<Integer, ByteBuffer> pinned = new HashMap<Integer, ByteBuffer>();
+		ArrayList<Integer> level = new ArrayList<Integer>(), nextLevel;
+		TreePageView node = new TreePageView(SIZEOF_KEY, SIZEOF_PAGE);
+		ByteBuffer levelBuffer, page;
+		
+		pinnedLevels = 0;
+		if(this.getSize()>0)
+			level.add(0);
+		while(pinnedLevels<levelsToPin && !level.isEmpty() && (long)(pinned.size()+level.size())*SIZEOF_PAGE<=maxPinnedBytes) {
+			nextLevel = new ArrayList<Integer>();
+			levelBuffer = ByteBuffer.allocateDirect(level.size()*SIZEOF_PAGE);
+			for(int i=0;i<level.size();i++) {
+				levelBuffer.limit((i+1)*SIZEOF_PAGE).position(i*SIZEOF_PAGE);
+				page = levelBuffer.slice();
+				page.put(binaryFileEditor.readPage(level.get(i))).rewind();
+				pinned.put(level.get(i), page);
+				node.wrap(page);
+				for(int j=0;j<=node.getSize() && node.getChild(0)>0;j++)
+					nextLevel.add(node.getChild(j));
+			}
+			pinnedLevels++;
+			level = nextLevel;
+		}
+		pinnedPages = pinned;
+		pinnedStale = false;
+	}
+	
+	/**
+	 * Provides a copy of the contents of a page, from memory if it is pinned, or from the binary file otherwise.
+	 */
+	private byte[] readPageBytes(long pageNum) throws IOException {
+		HashMap<Integer, ByteBuffer> pinned = pinnedPages;
+		if(pinned!=null) {
+			ByteBuffer page = pinned.get((int)pageNum);
+			if(page!=null) {
+				byte[] bytes = new byte[SIZEOF_PAGE];
+				page.duplicate().get(bytes);
+				return bytes;
+			}
+		}
+		return binaryFileEditor.readPage(pageNum);
+	}
+	
+	/**
+	 * Provides the contents of a page for a {@link TreePageView}, from memory if it is pinned, or from the store otherwise (without a copy, if the store is in memory).
+	 */
+	private ByteBuffer readPageBuffer(long pageNum) throws IOException {
+		HashMap<Integer, ByteBuffer> pinned = pinnedPages;
+		if(pinned!=null) {
+			ByteBuffer page = pinned.get((int)pageNum);
+			if(page!=null)
+				return page;
+		}
+		return binaryFileEditor.readPageBuffer(pageNum);
+	}
+	
+	/**
+	 * Writes a page into the binary file, and updates its contents in memory if it is pinned.
+	 */
+	private void writePage(long pageNum, TreePage page) throws IOException {
+		binaryFileEditor.writePage(pageNum, page);
+		HashMap<Integer, ByteBuffer> pinned = pinnedPages;
+		if(pinned!=null && pinned.containsKey((int)pageNum))
+			pinned.get((int)pageNum).duplicate().put(page.toByteArray(), 0, SIZEOF_PAGE);
+	}
+	
+	/**
+	 * Reads the {@link wordsearch.file.FileHeader} at the start of the binary file of the btree.
+	 * @return The {@link wordsearch.file.FileHeader}, or {@code null} if the file does not start with a valid header.
+	 * @throws IOException In case of an error while reading the file.
+	 */
+	public FileHeader readHeader() throws IOException {
+		return FileHeader.fromByteArray(binaryFileEditor.readHeader());
 	}
 	
 	/**
@@ -131,6 +616,14 @@ public class BTree {
 		this.binaryFileEditor.resetNumOfAccesses();
 	}
 	
+	/**
+	 * Sets the {@link wordsearch.metrics.Metrics} object where the depth of every search, as well as the latencies of insertions and splits will be recorded.
+	 * @param metrics A {@link wordsearch.metrics.Metrics} object, or {@code null} to stop recording.
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+	
 	/**
 	 * Searches the tree for a {@link wordsearch.structures.btree.TreeRecord} with a specific {@link wordsearch.structures.btree.TreeRecord#getKey() key}.
 	 * @param key A {@link java.lang.String} object to search for inside the {@link wordsearch.structures.btree.TreeRecord} instances of the tree.
@@ -139,40 +632,40 @@ public class BTree {
 	 * @throws IOException In case of an error while reading/writing the file with the btree.
 	 */
 	public int searchTree(String key) throws IOException{
+		return searchTree(key, new TreePageView(SIZEOF_KEY, SIZEOF_PAGE));  //reads the keys in place, so no records are decoded
+	}
+	
+	/**
+	 * Implements {@link #searchTree(String)}, leaving a given view on the last page which was read, so that the caller can read the found record without reading its page again.
+	 */
+	private int searchTree(String key, TreePageView node) throws IOException{
 		int foundPosition = -1;
 		int currNode = 0; //the root of the tree
 		int nextNode=-1;
-		TreePage node;
+		int depth = 1;
 		
 		if(this.getSize()==0)  //Empty file - the new page must be inserted in position -0-1 = -1
 			return -1;
-		node = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, binaryFileEditor.readPage(0));  //page 0 always is the root of the tree
+		if(pinnedStale && pinnedPages!=null)  //some pages of the pinned levels may be missing
+			loadPinnedLevels();
+		node.wrap(readPageBuffer(0));  //page 0 always is the root of the tree
 		  		
 		do{
-			if(((TreeRecord)node.getRecord(0)).getKey().compareTo(key)>0)  //if key < every key in this node
-				nextNode = node.getChild(0);  
-			else if(((TreeRecord)node.getRecord(node.getSize()-1)).getKey().compareTo(key)<0)  // if key > every key in this node
-				nextNode = node.getChild(node.getSize());  
-			else {
-				for(int i=0;i<node.getSize();i++)  //if key equals to one of the node's keys
-					if(((TreeRecord)node.getRecord(i)).getKey().equals(key)){
-						foundPosition=currNode;
-						break;
-					}
-				if(foundPosition<0)  //if key different than every key in this node but it should be somewhere between them
-					for(int i=0;i<node.getSize()-1;i++)
-						if(((TreeRecord)node.getRecord(i)).getKey().compareTo(key)<0 && ((TreeRecord)node.getRecord(i+1)).getKey().compareTo(key)>0) {  //if record[i].key < key < record[i+1].key
-							nextNode = node.getChild(i+1);
-							break;
-						}
-			}
+			int i = node.search(key);  //binary search among the keys of the node
+			if(i>=0)  //if key equals to one of the node's keys
+				foundPosition = currNode;
+			else  //record[-i-2].key < key < record[-i-1].key, so the key may only exist in the subtree between them
+				nextNode = node.getChild(-i-1);
 			
 			if(foundPosition<0 && nextNode>0) {  //not found and not reached a leaf
-				node = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, binaryFileEditor.readPage(nextNode));
+				node.wrap(readPageBuffer(nextNode));
 				currNode = nextNode;
+				depth++;
 			}
 		}while(foundPosition<0 && nextNode>0);  //next node to be read will never be node 0, since that's the tree's root, so nextNode will equal to 0 only when a leaf is reached
 		
+		if(metrics!=null)
+			metrics.getTreeDepth().record(depth);
 		if(foundPosition<0)  //if not found
 			return -currNode-1;
 		return foundPosition;  //if found
@@ -187,50 +680,59 @@ public class BTree {
 	public void splitNodes(int position) throws IOException{
 		int node1Pos = position;  //nodePos1 = the position of the initial node, as well as for the 1st of the 2 final nodes
 		int node2Pos; 			  //nodePos2 = the position of the 2nd of the final nodes
-		TreePage initial = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, binaryFileEditor.readPage(position));  //the node to be split (if needed)
+		TreePage initial = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, readPageBytes(position));  //the node to be split (if needed)
 		int father;
 		TreePage fatherNode = null;
 		TreePage[] finNode;
 		int posAdded;   //The position where the middle record was added into the father node
+		long startTime = System.nanoTime();
+		
+		if(initial.getSize()<RECORDS_PER_TREE_PAGE)  //no split is needed
+			return;
 		
 		while(initial.getSize()==RECORDS_PER_TREE_PAGE){
 			
 			father = initial.getFather();
+			if(pinnedPages!=null && (father<0 || pinnedPages.containsKey(node1Pos)))  //the new page (or the new level) should be pinned too
+				pinnedStale = true;
 			finNode = initial.split();
 			node2Pos = this.getSize();  //the position of the 2nd node will be at the end of the file
 
 			if(father<0) {  //if initial is the root of the tree
 				finNode[0].setFather(0);  //because now the old father (-1) is NOT equal to the new one (0)
 				finNode[1].setFather(0);
-				binaryFileEditor.writePage(node2Pos, finNode[0]);  //write the 1st and 2nd node at the end of the file
-				binaryFileEditor.writePage(node2Pos+1, finNode[1]);
+				writePage(node2Pos, finNode[0]);  //write the 1st and 2nd node at the end of the file
+				writePage(node2Pos+1, finNode[1]);
 
 				fatherNode = new TreePage(SIZEOF_KEY, SIZEOF_PAGE);
 				fatherNode.addRecord(initial.getRecord((int)RECORDS_PER_TREE_PAGE/2)); //the middle record of the split node will be stored in the father of the 2 final nodes
 				for(int i=0;i<2;i++)  //add the two final nodes as children to the father.
 					fatherNode.setChild(i, node2Pos+i);
-				binaryFileEditor.writePage(node1Pos, fatherNode);  //replace the root node in the file
+				writePage(node1Pos, fatherNode);  //replace the root node in the file
 
 				updateFatherOfChildren(finNode[0], node2Pos);  //for every split node, update its children's father variable, since its position now changed
 				updateFatherOfChildren(finNode[1], node2Pos+1);
 			}
 			else { //if initial is not the root of the tree
-				binaryFileEditor.writePage(node1Pos, finNode[0]);  //the position here doesn't change, so no update of node's 1 children's father variable is needed
-				binaryFileEditor.writePage(node2Pos, finNode[1]);
+				writePage(node1Pos, finNode[0]);  //the position here doesn't change, so no update of node's 1 children's father variable is needed
+				writePage(node2Pos, finNode[1]);
 				updateFatherOfChildren(finNode[1], node2Pos); //for every split node, update its children's father variable, since its position now changed
 				
-				fatherNode = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, binaryFileEditor.readPage(father));
+				fatherNode = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, readPageBytes(father));
 				posAdded = fatherNode.addRecord(initial.getRecord((int)RECORDS_PER_TREE_PAGE/2));
 				fatherNode.setChild(posAdded, node1Pos);  //add the two final nodes as children to the father to the 'posAdded' position in the children's array
 				fatherNode.addChild(posAdded+1, node2Pos); //change the posAdded child and put the extra one in posAdded+1 position by shifting the others right
-				binaryFileEditor.writePage(father, fatherNode);  //replace the father node in the file
+				writePage(father, fatherNode);  //replace the father node in the file
 			}
 			
 			if(father<0)  //if we just split the root of the tree it's no use looking for a new father
 	            break;
-	        initial=new TreePage(SIZEOF_KEY, SIZEOF_PAGE, binaryFileEditor.readPage(father));  //read the new father so as to loop again if needed
+	        initial=new TreePage(SIZEOF_KEY, SIZEOF_PAGE, readPageBytes(father));  //read the new father so as to loop again if needed
 			node1Pos=father;  //the new position for the 1st of the final nodes, if the loop is repeated (or for the new root, if the new initial node is the tree's root)
 		}
+		
+		if(metrics!=null)
+			metrics.getSplitLatency().record(System.nanoTime()-startTime);
 	}
 	
 	/**
@@ -248,9 +750,9 @@ public class BTree {
 			if(child==0)
 				break;
 			
-			tmpNode = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, binaryFileEditor.readPage(child));
+			tmpNode = new TreePage(SIZEOF_KEY, SIZEOF_PAGE, readPageBytes(child));
 			tmpNode.setFather(newFather);
-			binaryFileEditor.writePage(child, tmpNode);
+			writePage(child, tmpNode);
 		}
 	}	
 }
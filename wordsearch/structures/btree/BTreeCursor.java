@@ -0,0 +1,67 @@
+package wordsearch.structures.btree;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * This class iterates over all the {@link wordsearch.structures.btree.TreeRecord} objects of a {@link BTree}, in the order of their keys.
+ * It keeps the path from the root to the current page in memory, so every page of the tree is read exactly once.
+ * The tree must not be modified while it is being iterated.
+ * @author Georgios Apostolakis
+ */
+public class BTreeCursor {
+	private BTree tree;
+	private ArrayList<TreePage> pages;  //the path from the root to the current page
+	private ArrayList<Integer> positions;  //the position of the next record in every page of the path
+
+	/**
+	 * Constructs a new cursor, which is positioned before the record with the smallest key of a tree.
+	 * @param tree The {@link BTree} whose records will be provided.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public BTreeCursor(BTree tree) throws IOException {
+		this.tree = tree;
+		this.pages = new ArrayList<TreePage>();
+		this.positions = new ArrayList<Integer>();
+		if(tree.getSize()>0)
+			descend(0);
+	}
+
+	/**
+	 * Provides the next {@link wordsearch.structures.btree.TreeRecord} in the order of the keys.
+	 * @return The next {@link wordsearch.structures.btree.TreeRecord}, or {@code null} if all the records have already been provided.
+	 * @throws IOException In case of an error while reading the file with the btree.
+	 */
+	public TreeRecord next() throws IOException {
+		while(!pages.isEmpty()) {
+			int top = pages.size()-1;
+			TreePage page = pages.get(top);
+			int i = positions.get(top);
+
+			if(i<page.getSize()) {
+				TreeRecord r = (TreeRecord)page.getRecord(i);
+				positions.set(top, i+1);
+				if(page.getChild(0)>0)  //the subtree between this record and the next one follows
+					descend(page.getChild(i+1));
+				return r;
+			}
+			pages.remove(top);  //all the records of this page (and its subtrees) have been provided
+			positions.remove(top);
+		}
+		return null;
+	}
+
+	/**
+	 * Adds to the path a page and the leftmost path of its subtree.
+	 */
+	private void descend(int pageNum) throws IOException {
+		TreePage page = tree.getPage(pageNum);
+		pages.add(page);
+		positions.add(0);
+		while(page.getChild(0)>0) {  //the root is the only page with number 0, so no child is 0
+			page = tree.getPage(page.getChild(0));
+			pages.add(page);
+			positions.add(0);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package wordsearch.structures.btree;
+
+/**
+ * An automaton which accepts some of the keys of the {@link BTree}, and which can tell whether a whole range of keys contains any accepted key.
+ * Thus, the tree can be traversed in the order of its keys, skipping every subtree whose range of keys cannot contain any accepted key
+ * (see {@link BTree#fuzzySearch(LevenshteinAutomaton)} and {@link BTree#regexSearch(RegexAutomaton, int)}).
+ * @author Georgios Apostolakis
+ */
+public interface KeyAutomaton {
+	
+	/**
+	 * Checks whether a word is accepted.
+	 * @param word A {@link java.lang.String} with the word, without the spaces which pad the keys.
+	 * @return True if the word is accepted, or false otherwise.
+	 */
+	boolean accepts(String word);
+	
+	/**
+	 * Checks whether any key between two given keys may be accepted. The keys are padded with spaces, as in the {@link BTree},
+	 * and the spaces at the end of a key are not part of the word which is read by the automaton.
+	 * @param lower A {@link java.lang.String} with the smallest key of the range, or {@code null} if the range is not bounded from below.
+	 * @param upper A {@link java.lang.String} with the largest key of the range, or {@code null} if the range is not bounded from above.
+	 * If both are given, they must have the same length.
+	 * @return False if no key of the range can be accepted, or true if some key may be accepted.
+	 */
+	boolean canMatchRange(String lower, String upper);
+}
@@ -0,0 +1,184 @@
+package wordsearch.structures.btree;
+
+/**
+ * An automaton which accepts all the strings within a maximum <a href="https://en.wikipedia.org/wiki/Levenshtein_distance">edit distance</a>
+ * (insertions, deletions and substitutions of single characters) from a given word. It is simulated one character at a time:
+ * its state after reading a string is the last row of the table of distances between the word and that string, restricted to the diagonal band
+ * of width {@code 2*MAX_DISTANCE+1}, since any entry outside the band exceeds the maximum distance.
+ * <p>
+ * As soon as every entry of the state exceeds the maximum distance, no continuation of the string can be accepted. Thus, the automaton can
+ * reject a whole range of keys of the {@link BTree} from its bounds alone (see {@link #canMatchRange(String, String)} and {@link BTree#fuzzySearch(LevenshteinAutomaton)}).
+ * @author Georgios Apostolakis
+ */
+public class LevenshteinAutomaton implements KeyAutomaton {
+	private final String word;
+	
+	/**
+	 * The maximum edit distance of the accepted strings.
+	 */
+	public final int MAX_DISTANCE;
+	
+	/**
+	 * Constructs an automaton for a given word.
+	 * @param word A {@link java.lang.String} with the word.
+	 * @param MAX_DISTANCE The value for the {@link #MAX_DISTANCE} constant of this class. It must not be negative.
+	 * @throws IllegalArgumentException If the maximum distance is negative.
+	 */
+	public LevenshteinAutomaton(String word, int MAX_DISTANCE) {
+		if(MAX_DISTANCE<0)
+			throw new IllegalArgumentException("The maximum edit distance must not be negative.");
+		this.word = word;
+		this.MAX_DISTANCE = MAX_DISTANCE;
+	}
+	
+	/**
+	 * Provides the word of this automaton.
+	 * @return A {@link java.lang.String} with the word.
+	 */
+	public String getWord() {
+		return word;
+	}
+	
+	/**
+	 * Provides the initial state of the automaton, before any character has been read.
+	 * @return An integer array with the distances between every prefix of the word and the empty string.
+	 */
+	public int[] start() {
+		int[] state = new int[word.length()+1];
+		for(int j=0;j<state.length;j++)
+			state[j] = (j<=MAX_DISTANCE) ? j : MAX_DISTANCE+1;
+		return state;
+	}
+	
+	/**
+	 * Reads one more character.
+	 * @param state The current state, which is not modified.
+	 * @param c The character which is read.
+	 * @param length The number of characters which have been read before {@code c}.
+	 * @return An integer array with the new state. Its entries are limited to {@code MAX_DISTANCE+1}.
+	 */
+	public int[] step(int[] state, char c, int length) {
+		int[] next = new int[state.length];
+		int i = length+1, limit = MAX_DISTANCE+1;
+		
+		next[0] = Math.min(i, limit);
+		for(int j=1;j<next.length;j++) {
+			if(j<i-MAX_DISTANCE || j>i+MAX_DISTANCE) {  //outside the diagonal band
+				next[j] = limit;
+				continue;
+			}
+			int cost = state[j-1] + ((word.charAt(j-1)==c) ? 0 : 1);  //substitution (or match)
+			cost = Math.min(cost, state[j]+1);  //insertion
+			cost = Math.min(cost, next[j-1]+1);  //deletion
+			next[j] = Math.min(cost, limit);
+		}
+		return next;
+	}
+	
+	/**
+	 * Checks whether any continuation of the string which led to a state may be accepted.
+	 * @param state A state of the automaton.
+	 * @return True if some entry of the state does not exceed {@link #MAX_DISTANCE}, or false otherwise.
+	 */
+	public boolean canMatch(int[] state) {
+		for(int d : state)
+			if(d<=MAX_DISTANCE)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Checks whether any key between two given keys may be accepted. The keys are padded with spaces, as in the {@link BTree}, and the spaces
+	 * at the end of a key are not part of the string which is read by the automaton. The characters of the candidate keys are chosen one at a time,
+	 * following the bounds as long as the key is equal to them: once a character falls strictly between the bounds, any continuation is possible.
+	 * Since all the characters which do not appear in the word have the same effect, only the characters of the word and one other character are tried.
+	 * @param lower A {@link java.lang.String} with the smallest key of the range, or {@code null} if the range is not bounded from below.
+	 * @param upper A {@link java.lang.String} with the largest key of the range, or {@code null} if the range is not bounded from above.
+	 * If both are given, they must have the same length.
+	 * @return False if no key of the range can be accepted, or true otherwise (including some ranges whose keys exceed the length of the bounds).
+	 */
+	public boolean canMatchRange(String lower, String upper) {
+		return canMatchRange(start(), 0, lower, upper);
+	}
+	
+	/**
+	 * Implements {@link #canMatchRange(String, String)} for the keys which start with the string that led to a state.
+	 * @param low The lower bound, or {@code null} if the string which has been read is greater than the prefix of the lower bound.
+	 * @param high The upper bound, or {@code null} if the string which has been read is less than the prefix of the upper bound.
+	 */
+	private boolean canMatchRange(int[] state, int length, String low, String high) {
+		if(!canMatch(state))
+			return false;
+		if(low==null && high==null)  //any continuation is within the range
+			return true;
+		if(length==((low!=null) ? low : high).length())
+			return state[state.length-1]<=MAX_DISTANCE;
+		
+		char from = (low==null) ? Character.MIN_VALUE : low.charAt(length), to = (high==null) ? Character.MAX_VALUE : high.charAt(length);
+		if(state[state.length-1]<=MAX_DISTANCE && isPaddingInRange(length, low, high))
+			return true;  //the string which has been read is accepted, and the key ends here (it is padded with spaces)
+		
+		char other = (char)((low==null) ? from : from+1);  //the first character not bound by the lower bound which does not appear in the word, and is not a space
+		while(other<to && (word.indexOf(other)>=0 || other==' '))
+			other++;
+		for(int c=(low==null) ? nextCandidate(from, to, other) : from;c<=to;c=nextCandidate(c+1, to, other))  //the other characters have the same effect as the one above
+			if(c!=' ' && canMatchRange(step(state, (char)c, length), length+1, (c==from) ? low : null, (c==to) ? high : null))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Checks whether the key which consists of the first characters of the bounds, padded with spaces, is within the bounds. The keys may contain
+	 * characters less than a space (e.g. {@code '\r'}), so the key may be less than the lower bound, or greater than the upper bound, even if the bound
+	 * continues with spaces only after some other characters.
+	 * @param length The number of characters of the key before its padding, which are equal to the first characters of every bound which is given.
+	 * @param low The lower bound, or {@code null} if the key is greater than the prefix of the lower bound.
+	 * @param high The upper bound, or {@code null} if the key is less than the prefix of the upper bound. At least one of the bounds must be given.
+	 * @return True if the padded key is within the bounds, or false otherwise.
+	 */
+	static boolean isPaddingInRange(int length, String low, String high) {
+		String bound = (low!=null) ? low : high;
+		StringBuilder key = new StringBuilder(bound.length());
+		
+		key.append(bound, 0, length);
+		while(key.length()<bound.length())
+			key.append(' ');
+		return (low==null || key.toString().compareTo(low)>=0) && (high==null || key.toString().compareTo(high)<=0);
+	}
+	
+	/**
+	 * Provides the smallest character from a given one up to a limit which is either the limit, or a given other character, or a character of the word.
+	 */
+	private int nextCandidate(int from, int to, char other) {
+		int next = (other>=from && other<to) ? other : to;
+		for(int i=0;i<word.length();i++)
+			if(word.charAt(i)>=from && word.charAt(i)<next)
+				next = word.charAt(i);
+		return (from>to) ? to+1 : next;
+	}
+	
+	/**
+	 * Checks whether a given string is within the maximum edit distance from the word.
+	 * @param s A {@link java.lang.String} with the string.
+	 * @return True if the string is accepted, or false otherwise.
+	 */
+	public boolean accepts(String s) {
+		return distance(s)<=MAX_DISTANCE;
+	}
+	
+	/**
+	 * Computes the edit distance between the word and a given string, as long as it does not exceed the maximum distance.
+	 * The computation stops as soon as the string cannot be accepted.
+	 * @param s A {@link java.lang.String} with the string.
+	 * @return The edit distance, or {@code MAX_DISTANCE+1} if it exceeds {@link #MAX_DISTANCE}.
+	 */
+	public int distance(String s) {
+		int[] state = start();
+		for(int i=0;i<s.length();i++) {
+			state = step(state, s.charAt(i), i);
+			if(!canMatch(state))
+				return MAX_DISTANCE+1;
+		}
+		return state[state.length-1];
+	}
+}
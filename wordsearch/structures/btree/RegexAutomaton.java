@@ -0,0 +1,336 @@
+package wordsearch.structures.btree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.TreeSet;
+
+/**
+ * An automaton which accepts the words that match a regular expression as a whole. The expression is compiled into a nondeterministic automaton
+ * (with Thompson's construction), which is simulated one character at a time: its state after reading a string is the set of the states which can be reached.
+ * The supported syntax consists of characters (with {@code \} before the special ones), any character ({@code .}), classes of characters
+ * (e.g. {@code [a-z]} or {@code [^aeiou]}), groups ({@code (...)}), alternatives ({@code |}) and repetitions ({@code *}, {@code +}, {@code ?}).
+ * <p>
+ * As soon as no state which can still lead to the end of the expression is reached, no continuation of the string can be accepted. Thus, the automaton
+ * can reject a whole range of keys of the {@link BTree} from its bounds alone (see {@link #canMatchRange(String, String)}). In particular, if the expression
+ * starts with some literal characters, only the range of the keys which start with them is read.
+ * @author Georgios Apostolakis
+ */
+public class RegexAutomaton implements KeyAutomaton {
+	private ArrayList<ArrayList<int[]>> transitions;  //the ranges of characters {first, last, target} from every state
+	private ArrayList<ArrayList<Integer>> epsilons;  //the targets of the transitions which read no character, from every state
+	private boolean[] live;  //whether the final state can be reached from every state
+	private int start, end;
+	private String pattern;
+	private int position;  //the position of the parser in the pattern
+	
+	/**
+	 * The regular expression of the automaton.
+	 */
+	public final String PATTERN;
+	
+	/**
+	 * Compiles a regular expression into an automaton.
+	 * @param PATTERN The value for the {@link #PATTERN} constant of this class.
+	 * @throws IllegalArgumentException If the regular expression is not valid.
+	 */
+	public RegexAutomaton(String PATTERN) {
+		this.PATTERN = PATTERN;
+		this.transitions = new ArrayList<ArrayList<int[]>>();
+		this.epsilons = new ArrayList<ArrayList<Integer>>();
+		this.pattern = PATTERN;
+		this.position = 0;
+		
+		int[] fragment = parseAlternatives();
+		if(position<pattern.length())
+			throw new IllegalArgumentException("Unexpected '" + pattern.charAt(position) + "' at position " + position + " of the regular expression " + PATTERN + ".");
+		this.start = fragment[0];
+		this.end = fragment[1];
+		this.live = findLiveStates();
+	}
+	
+	/**
+	 * Checks whether a word matches the regular expression.
+	 * @param word A {@link java.lang.String} with the word.
+	 * @return True if the whole word matches, or false otherwise.
+	 */
+	public boolean accepts(String word) {
+		BitSet states = start();
+		for(int i=0;i<word.length() && !states.isEmpty();i++)
+			states = step(states, word.charAt(i));
+		return states.get(end);
+	}
+	
+	/**
+	 * Checks whether any key between two given keys may be accepted. The characters of the candidate keys are chosen one at a time,
+	 * following the bounds as long as the key is equal to them: once a character falls strictly between the bounds, any continuation is possible.
+	 * Since the transitions read ranges of characters, only the first character of every range (and of every gap between them) is tried.
+	 * @param lower A {@link java.lang.String} with the smallest key of the range, or {@code null} if the range is not bounded from below.
+	 * @param upper A {@link java.lang.String} with the largest key of the range, or {@code null} if the range is not bounded from above.
+	 * @return False if no key of the range can be accepted, or true otherwise (including some ranges whose keys exceed the length of the bounds).
+	 */
+	public boolean canMatchRange(String lower, String upper) {
+		return canMatchRange(start(), 0, lower, upper);
+	}
+	
+	/**
+	 * Implements {@link #canMatchRange(String, String)} for the keys which start with the string that led to a set of states.
+	 * @param low The lower bound, or {@code null} if the string which has been read is greater than the prefix of the lower bound.
+	 * @param high The upper bound, or {@code null} if the string which has been read is less than the prefix of the upper bound.
+	 */
+	private boolean canMatchRange(BitSet states, int length, String low, String high) {
+		if(!isLive(states))
+			return false;
+		if(low==null && high==null)  //any continuation is within the range
+			return true;
+		if(length==((low!=null) ? low : high).length())
+			return states.get(end);
+		
+		char from = (low==null) ? Character.MIN_VALUE : low.charAt(length), to = (high==null) ? Character.MAX_VALUE : high.charAt(length);
+		if(states.get(end) && LevenshteinAutomaton.isPaddingInRange(length, low, high))
+			return true;  //the string which has been read is accepted, and the key ends here (it is padded with spaces)
+		
+		TreeSet<Integer> candidates = new TreeSet<Integer>();  //the characters which may lead to different results
+		candidates.add((int)from);
+		candidates.add((int)to);
+		if(from+1<to)  //the first character which is not bound by the lower bound
+			candidates.add(from+1);
+		for(int s=states.nextSetBit(0);s>=0;s=states.nextSetBit(s+1))
+			for(int[] t : transitions.get(s)) {
+				if(t[0]>from && t[0]<to)
+					candidates.add(t[0]);
+				if(t[1]+1>from && t[1]+1<to)
+					candidates.add(t[1]+1);
+			}
+		if(candidates.remove((int)' ') && ' '+1<=to)  //a space only pads the keys, so the greater characters of its range are tried instead
+			candidates.add(' '+1);
+		
+		for(int c : candidates) {
+			BitSet next = step(states, (char)c);
+			if(!next.isEmpty() && canMatchRange(next, length+1, (c==from) ? low : null, (c==to) ? high : null))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Provides the initial set of states, before any character has been read.
+	 */
+	private BitSet start() {
+		BitSet states = new BitSet(transitions.size());
+		states.set(start);
+		return closure(states);
+	}
+	
+	/**
+	 * Reads one more character from a set of states.
+	 */
+	private BitSet step(BitSet states, char c) {
+		BitSet next = new BitSet(transitions.size());
+		for(int s=states.nextSetBit(0);s>=0;s=states.nextSetBit(s+1))
+			for(int[] t : transitions.get(s))
+				if(t[0]<=c && c<=t[1])
+					next.set(t[2]);
+		return closure(next);
+	}
+	
+	/**
+	 * Adds to a set of states all the states which can be reached from them without reading any character.
+	 */
+	private BitSet closure(BitSet states) {
+		ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+		for(int s=states.nextSetBit(0);s>=0;s=states.nextSetBit(s+1))
+			pending.push(s);
+		while(!pending.isEmpty())
+			for(int target : epsilons.get(pending.pop()))
+				if(!states.get(target)) {
+					states.set(target);
+					pending.push(target);
+				}
+		return states;
+	}
+	
+	/**
+	 * Checks whether the final state can be reached from any state of a set.
+	 */
+	private boolean isLive(BitSet states) {
+		for(int s=states.nextSetBit(0);s>=0;s=states.nextSetBit(s+1))
+			if(live[s])
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Finds the states from which the final state can be reached, by following the transitions backwards from it.
+	 */
+	private boolean[] findLiveStates() {
+		ArrayList<ArrayList<Integer>> sources = new ArrayList<ArrayList<Integer>>();
+		ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+		boolean[] reached = new boolean[transitions.size()];
+		
+		for(int s=0;s<transitions.size();s++)
+			sources.add(new ArrayList<Integer>());
+		for(int s=0;s<transitions.size();s++) {
+			for(int[] t : transitions.get(s))
+				sources.get(t[2]).add(s);
+			for(int target : epsilons.get(s))
+				sources.get(target).add(s);
+		}
+		reached[end] = true;
+		pending.push(end);
+		while(!pending.isEmpty())
+			for(int source : sources.get(pending.pop()))
+				if(!reached[source]) {
+					reached[source] = true;
+					pending.push(source);
+				}
+		return reached;
+	}
+	
+	/**
+	 * Adds a new state without any transitions.
+	 */
+	private int newState() {
+		transitions.add(new ArrayList<int[]>());
+		epsilons.add(new ArrayList<Integer>());
+		return transitions.size()-1;
+	}
+	
+	/**
+	 * Parses some alternatives, separated by {@code |}, up to the end of the pattern or of the current group.
+	 * @return The start and end states of a fragment of the automaton.
+	 */
+	private int[] parseAlternatives() {
+		int[] fragment = parseSequence();
+		while(position<pattern.length() && pattern.charAt(position)=='|') {
+			position++;
+			int[] other = parseSequence();
+			int s = newState(), e = newState();
+			epsilons.get(s).add(fragment[0]);
+			epsilons.get(s).add(other[0]);
+			epsilons.get(fragment[1]).add(e);
+			epsilons.get(other[1]).add(e);
+			fragment = new int[] {s, e};
+		}
+		return fragment;
+	}
+	
+	/**
+	 * Parses a sequence of (possibly repeated) items, up to the next alternative or the end of the pattern or of the current group.
+	 */
+	private int[] parseSequence() {
+		int s = newState();
+		int[] fragment = new int[] {s, s};  //the empty sequence
+		while(position<pattern.length() && pattern.charAt(position)!='|' && pattern.charAt(position)!=')') {
+			int[] item = parseRepetition();
+			epsilons.get(fragment[1]).add(item[0]);
+			fragment = new int[] {fragment[0], item[1]};
+		}
+		return fragment;
+	}
+	
+	/**
+	 * Parses an item, followed by any number of repetition operators.
+	 */
+	private int[] parseRepetition() {
+		int[] fragment = parseItem();
+		while(position<pattern.length() && "*+?".indexOf(pattern.charAt(position))>=0) {
+			char operator = pattern.charAt(position++);
+			int s = newState(), e = newState();
+			epsilons.get(s).add(fragment[0]);
+			epsilons.get(fragment[1]).add(e);
+			if(operator!='+')  //zero occurrences
+				epsilons.get(s).add(e);
+			if(operator!='?')  //more occurrences
+				epsilons.get(fragment[1]).add(fragment[0]);
+			fragment = new int[] {s, e};
+		}
+		return fragment;
+	}
+	
+	/**
+	 * Parses a character, a class of characters or a group.
+	 */
+	private int[] parseItem() {
+		char c = pattern.charAt(position++);
+		ArrayList<int[]> ranges = new ArrayList<int[]>();
+		
+		switch(c) {
+		case '(':
+			int[] group = parseAlternatives();
+			if(position>=pattern.length() || pattern.charAt(position)!=')')
+				throw new IllegalArgumentException("Missing ')' in the regular expression " + PATTERN + ".");
+			position++;
+			return group;
+		case '*':
+		case '+':
+		case '?':
+			throw new IllegalArgumentException("Nothing to repeat at position " + (position-1) + " of the regular expression " + PATTERN + ".");
+		case '.':
+			ranges.add(new int[] {0, Character.MAX_VALUE});
+			break;
+		case '[':
+			ranges = parseClass();
+			break;
+		default:
+			c = (c=='\\') ? escapedCharacter() : c;
+			ranges.add(new int[] {c, c});
+		}
+		
+		int s = newState(), e = newState();
+		for(int[] range : ranges)
+			transitions.get(s).add(new int[] {range[0], range[1], e});
+		return new int[] {s, e};
+	}
+	
+	/**
+	 * Parses a class of characters after its {@code [}, up to its {@code ]}.
+	 * @return The ranges of the characters of the class, as {first, last} arrays.
+	 */
+	private ArrayList<int[]> parseClass() {
+		ArrayList<int[]> ranges = new ArrayList<int[]>();
+		boolean negated = position<pattern.length() && pattern.charAt(position)=='^';
+		
+		if(negated)
+			position++;
+		while(position<pattern.length() && (pattern.charAt(position)!=']' || ranges.isEmpty())) {
+			char first = pattern.charAt(position++), last;
+			first = (first=='\\') ? escapedCharacter() : first;
+			last = first;
+			if(position+1<pattern.length() && pattern.charAt(position)=='-' && pattern.charAt(position+1)!=']') {
+				position++;
+				last = pattern.charAt(position++);
+				last = (last=='\\') ? escapedCharacter() : last;
+				if(last<first)
+					throw new IllegalArgumentException("Invalid range " + first + "-" + last + " in the regular expression " + PATTERN + ".");
+			}
+			ranges.add(new int[] {first, last});
+		}
+		if(position>=pattern.length())
+			throw new IllegalArgumentException("Missing ']' in the regular expression " + PATTERN + ".");
+		position++;
+		if(!negated)
+			return ranges;
+		
+		ArrayList<int[]> complement = new ArrayList<int[]>();
+		ranges.sort((x, y) -> Integer.compare(x[0], y[0]));
+		int next = 0;  //the first character which has not been covered
+		for(int[] range : ranges) {
+			if(range[0]>next)
+				complement.add(new int[] {next, range[0]-1});
+			next = Math.max(next, range[1]+1);
+		}
+		if(next<=Character.MAX_VALUE)
+			complement.add(new int[] {next, Character.MAX_VALUE});
+		return complement;
+	}
+	
+	/**
+	 * Provides the character after a {@code \}, which is taken literally.
+	 */
+	private char escapedCharacter() {
+		if(position>=pattern.length())
+			throw new IllegalArgumentException("Nothing to escape at the end of the regular expression " + PATTERN + ".");
+		return pattern.charAt(position++);
+	}
+}
@@ -22,6 +22,7 @@ public class TreePage extends Page{
 	/**
 	 * The maximum number of children per page of the tree.
 	 * @see "The theoretical report coming with the package, which explains the way this constant is computed."
+	 * @see #childrenPerPage(int, int)
 	 */
 	public final int CHILDREN_PER_PAGE;
 	
@@ -41,7 +42,7 @@ public class TreePage extends Page{
 	public TreePage(int SIZEOF_KEY, int SIZEOF_PAGE){
 		super(SIZEOF_KEY, SIZEOF_PAGE);
 		
-		this.CHILDREN_PER_PAGE = (SIZEOF_PAGE-SIZEOF_INT+SIZEOF_KEY)/(2*SIZEOF_INT+SIZEOF_KEY); //see report for detailed calculation
+		this.CHILDREN_PER_PAGE = childrenPerPage(SIZEOF_KEY, SIZEOF_PAGE); //see report for detailed calculation
 		this.RECORDS_PER_PAGE = CHILDREN_PER_PAGE - 1;
 		setRecordList(new TreeRecord[RECORDS_PER_PAGE]);
 		for(int i=0;i<RECORDS_PER_PAGE;i++)
@@ -66,7 +67,7 @@ public class TreePage extends Page{
 	 */
 	public TreePage(int SIZEOF_KEY, int SIZEOF_PAGE, TreeRecord[] recordList, int[] child, int father, int size){
 		super(SIZEOF_KEY, SIZEOF_PAGE);
-		this.CHILDREN_PER_PAGE = (SIZEOF_PAGE-SIZEOF_INT+SIZEOF_KEY)/(2*SIZEOF_INT+SIZEOF_KEY);
+		this.CHILDREN_PER_PAGE = childrenPerPage(SIZEOF_KEY, SIZEOF_PAGE);
 		this.RECORDS_PER_PAGE = CHILDREN_PER_PAGE - 1;
 		
 		setRecordList(recordList);
@@ -84,7 +85,7 @@ public class TreePage extends Page{
 	 */
 	public TreePage(int SIZEOF_KEY, int SIZEOF_PAGE, byte[] byteArray) throws IOException {
 		super(SIZEOF_KEY, SIZEOF_PAGE);
-		this.CHILDREN_PER_PAGE = (SIZEOF_PAGE-SIZEOF_INT+SIZEOF_KEY)/(2*SIZEOF_INT+SIZEOF_KEY);
+		this.CHILDREN_PER_PAGE = childrenPerPage(SIZEOF_KEY, SIZEOF_PAGE);
 		this.RECORDS_PER_PAGE = CHILDREN_PER_PAGE - 1;
 		
 		if(byteArray==null) {
@@ -102,6 +103,8 @@ public class TreePage extends Page{
 		}
 		
 		int[] infoArray = new int[RECORDS_PER_PAGE];
+		int[] countArray = new int[RECORDS_PER_PAGE];
+		int[] filesArray = new int[RECORDS_PER_PAGE];
 		String[] s = new String[RECORDS_PER_PAGE];
 		
 		ByteArrayInputStream bis = new ByteArrayInputStream(byteArray);
@@ -115,12 +118,18 @@ public class TreePage extends Page{
 				
 		for(int i=0;i<RECORDS_PER_PAGE;i++)  //read infos
 			infoArray[i] = dis.readInt();
+		for(int i=0;i<RECORDS_PER_PAGE;i++)  //read the numbers of occurrences
+			countArray[i] = dis.readInt();
+		for(int i=0;i<RECORDS_PER_PAGE;i++)  //read the numbers of files
+			filesArray[i] = dis.readInt();
+		char[] chars = new char[SIZEOF_KEY];
+		int keysStart = (2+CHILDREN_PER_PAGE)*SIZEOF_INT+3*RECORDS_PER_PAGE*SIZEOF_INT;
 		for(int i=0;i<RECORDS_PER_PAGE;i++){  //read each key char by char
-			s[i] = "";
-			for(int j=0;j<SIZEOF_KEY;j++){
-				Byte bt = byteArray[(2+CHILDREN_PER_PAGE)*SIZEOF_INT+RECORDS_PER_PAGE*SIZEOF_INT+SIZEOF_KEY*i+j];
-				s[i] += (char)(Integer.parseInt(bt.toString()));
-			}
+			if(infoArray[i]<0)  //there is no record here, so its key is not needed
+				continue;
+			for(int j=0;j<SIZEOF_KEY;j++)
+				chars[j] = (char)byteArray[keysStart+SIZEOF_KEY*i+j];
+			s[i] = new String(chars);
 		}
 		
 		super.setRecordList(new TreeRecord[RECORDS_PER_PAGE]);
@@ -128,12 +137,24 @@ public class TreePage extends Page{
 			if(infoArray[i]<0)      //if there is a real record
 				setRecord(i, null);
 			else
-				setRecord(i, new TreeRecord(s[i], infoArray[i], SIZEOF_KEY));
+				setRecord(i, new TreeRecord(s[i], infoArray[i], countArray[i], filesArray[i], SIZEOF_KEY));
 		}
 		dis.close();
 		bis.close();
 	}
 	
+	/**
+	 * Computes the maximum number of children per page of the tree. Every page holds its size, its father and its {@code child[]} array,
+	 * and every {@link wordsearch.structures.btree.TreeRecord} occupies its key, its info, its number of occurrences and its number of files.
+	 * @param SIZEOF_KEY The size of the {@link java.lang.String} {@code key} stored inside every {@link wordsearch.structures.btree.TreeRecord} instance.
+	 * @param SIZEOF_PAGE The size (in bytes) of every page.
+	 * @return An integer with the number of children, which is one more than the number of records of a page.
+	 */
+	public static int childrenPerPage(int SIZEOF_KEY, int SIZEOF_PAGE) {
+		int sizeofInt = Integer.SIZE/8;
+		return (SIZEOF_PAGE+sizeofInt+SIZEOF_KEY)/(4*sizeofInt+SIZEOF_KEY);  //2 ints per page, plus 1 int per child and 3 ints and a key per record
+	}
+	
 	/**
 	 * Adds a new entry in the {@code child[]} array, if some free space exists (i.e. one or more of its last entries equal to 0).
 	 * When the new entry is added at a specific position, all entries at this and greater positions are shifted (and one zero entry disappears from the end of the array).
@@ -202,10 +223,32 @@ public class TreePage extends Page{
 	 * @return If exists, a {@link wordsearch.structures.btree.TreeRecord} object which contains the specific key, or else {@code null}.
 	 */
 	public TreeRecord findRecord(String key) {
-		for(int i=0;i<RECORDS_PER_PAGE;i++)
-			if(((TreeRecord)getRecord(i)).getKey().equals(key))
-				return (TreeRecord)getRecord(i);
-		return null;
+		int i = search(key);
+		return (i>=0) ? (TreeRecord)getRecord(i) : null;
+	}
+	
+	/**
+	 * Performs a binary search for a key among the {@link wordsearch.structures.btree.TreeRecord} objects stored in this instance, which are sorted by their keys.
+	 * Thus, only a logarithmic number of keys is compared, which matters for large pages.
+	 * @param key A {@link java.lang.String} with the key to search for.
+	 * @return The position of the {@link wordsearch.structures.btree.TreeRecord} with the given key, if it exists; otherwise, {@code -(i+1)},
+	 * where {@code i} is the position of the first record with a greater key (or {@link #getSize()} if there is none). Thus, {@code i} is also the
+	 * position in {@code child[]} of the subtree where the key may be found.
+	 */
+	public int search(String key) {
+		int low = 0, high = size-1, mid, cmp;
+		
+		while(low<=high) {
+			mid = (low+high) >>> 1;
+			cmp = ((TreeRecord)getRecord(mid)).getKey().compareTo(key);
+			if(cmp<0)
+				low = mid+1;
+			else if(cmp>0)
+				high = mid-1;
+			else
+				return mid;
+		}
+		return -(low+1);
 	}
 	
 	/**
@@ -274,7 +317,7 @@ public class TreePage extends Page{
 		for(int i=(int)RECORDS_PER_PAGE/2+1;i<CHILDREN_PER_PAGE;i++)
 			finPage[0].setChild(i,0);
 		
-		finPage[1] = new TreePage(SIZEOF_STRING, SIZEOF_PAGE, ((TreeRecord[])getRecordList()).clone(), child.clone(), this.father, this.size/2);
+		finPage[1] = new TreePage(SIZEOF_STRING, SIZEOF_PAGE, ((TreeRecord[])getRecordList()).clone(), child.clone(), this.father, this.size-this.size/2-1);  //the middle record is omitted
 		for(int i=((int)RECORDS_PER_PAGE/2+1);i<RECORDS_PER_PAGE;i++) //move the last elements to the start of the array
 			finPage[1].setRecord(i-((int)RECORDS_PER_PAGE/2+1), finPage[1].getRecord(i));
 		
@@ -301,24 +344,21 @@ public class TreePage extends Page{
 	 * @return A byte array with all information existing in this object.
 	 */
 	public byte[] toByteArray(){
-		String nullRecString = "", keyRecString="", completePageStr="";
+		StringBuilder keyRecString = new StringBuilder(RECORDS_PER_PAGE*SIZEOF_STRING);
 		byte [] array = null;
 		
-		
-		for(int i=0;i<SIZEOF_STRING;i++)  // used in the position of null records
-			nullRecString += ' ';
-		for(int i=0;i<(SIZEOF_PAGE-2*SIZEOF_INT - CHILDREN_PER_PAGE*SIZEOF_INT - RECORDS_PER_PAGE*SIZEOF_RECORD);i++)
-			completePageStr += ' ';   //used to complete the 128 bytes
-		
 		for(int i=0;i<RECORDS_PER_PAGE;i++) { //contains the keys from all records of this instance
 			if(super.getRecord(i)!=null)
-				keyRecString += ((TreeRecord)super.getRecord(i)).getKey();
+				keyRecString.append(((TreeRecord)super.getRecord(i)).getKey());
 			else
-				keyRecString += nullRecString;
+				for(int j=0;j<SIZEOF_STRING;j++)  // used in the position of null records
+					keyRecString.append(' ');
 		}
+		for(int i=0;i<(SIZEOF_PAGE-2*SIZEOF_INT - CHILDREN_PER_PAGE*SIZEOF_INT - RECORDS_PER_PAGE*(SIZEOF_RECORD+2*SIZEOF_INT));i++)
+			keyRecString.append(' ');   //used to complete the size of the page
 		
 		try {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(SIZEOF_PAGE);
 			DataOutputStream dos = new DataOutputStream(bos);
 			
 			dos.writeInt(this.size);  //write the size variable
@@ -331,8 +371,11 @@ public class TreePage extends Page{
 				else
 					dos.writeInt(-1);
 			}
-			dos.writeBytes(keyRecString);   //write the keys of the records
-			dos.writeBytes(completePageStr);  //to complete the size of the page
+			for(int i=0;i<RECORDS_PER_PAGE;i++)  //write the numbers of occurrences of the records
+				dos.writeInt((super.getRecord(i)!=null) ? ((TreeRecord)super.getRecord(i)).getCount() : 0);
+			for(int i=0;i<RECORDS_PER_PAGE;i++)  //write the numbers of files of the records
+				dos.writeInt((super.getRecord(i)!=null) ? ((TreeRecord)super.getRecord(i)).getNumOfFiles() : 0);
+			dos.writeBytes(keyRecString.toString());   //write the keys of the records, and complete the size of the page
 			
 			array = bos.toByteArray();
 			
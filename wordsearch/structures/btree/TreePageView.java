@@ -0,0 +1,165 @@
+package wordsearch.structures.btree;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A flyweight over the bytes of a {@link TreePage}, which reads its size, children, infos and keys in place, without decoding the page.
+ * Thus, a search in the tree creates no {@link TreePage}, {@link TreeRecord} or {@link java.lang.String} objects, and the bytes of the page
+ * may remain in memory off the heap (e.g. in a {@link wordsearch.file.MemoryPageStore} or in the pinned levels of the {@link BTree}).
+ * The same instance is reused for every page of a search, by {@link #wrap(ByteBuffer) wrapping} the next page.
+ * <p>
+ * The layout of the bytes is the one written by {@link TreePage#toByteArray()}: the size, the father, the {@code child[]} array, the infos,
+ * the numbers of occurrences and the numbers of files of the records, and their keys, with one byte per character.
+ * @author Georgios Apostolakis
+ */
+public class TreePageView {
+	private ByteBuffer page;
+	private final int infosStart;
+	private final int countsStart;
+	private final int filesStart;
+	private final int keysStart;
+	
+	/**
+	 * The size of the keys of the records, as in {@link TreePage#SIZEOF_STRING}.
+	 */
+	public final int SIZEOF_KEY;
+	
+	/**
+	 * The maximum number of children per page, as in {@link TreePage#CHILDREN_PER_PAGE}.
+	 */
+	public final int CHILDREN_PER_PAGE;
+	
+	/**
+	 * The maximum number of records per page, as in {@link TreePage#RECORDS_PER_PAGE}.
+	 */
+	public final int RECORDS_PER_PAGE;
+	
+	/**
+	 * Constructs a view which does not wrap any page yet.
+	 * @param SIZEOF_KEY The size of the keys of the records.
+	 * @param SIZEOF_PAGE The size (in bytes) of the pages.
+	 */
+	public TreePageView(int SIZEOF_KEY, int SIZEOF_PAGE) {
+		int sizeofInt = Integer.SIZE/8;
+		
+		this.SIZEOF_KEY = SIZEOF_KEY;
+		this.CHILDREN_PER_PAGE = TreePage.childrenPerPage(SIZEOF_KEY, SIZEOF_PAGE);
+		this.RECORDS_PER_PAGE = CHILDREN_PER_PAGE - 1;
+		this.infosStart = (2+CHILDREN_PER_PAGE)*sizeofInt;
+		this.countsStart = infosStart + RECORDS_PER_PAGE*sizeofInt;
+		this.filesStart = countsStart + RECORDS_PER_PAGE*sizeofInt;
+		this.keysStart = filesStart + RECORDS_PER_PAGE*sizeofInt;
+		this.page = null;
+	}
+	
+	/**
+	 * Makes this view read a given page. The bytes are not copied, so they must not change while the view is used.
+	 * @param page A {@link java.nio.ByteBuffer} with the bytes of the page, from index 0 on.
+	 * @return This instance.
+	 */
+	public TreePageView wrap(ByteBuffer page) {
+		this.page = page;
+		return this;
+	}
+	
+	/**
+	 * Provides the variable {@code child[i]} of the page, as {@link TreePage#getChild(int)}.
+	 * @param i An integer which is an index at the array {@code child[]}.
+	 * @return An integer which is the value of {@code child[i]}.
+	 */
+	public int getChild(int i) {
+		return page.getInt((2+i)*(Integer.SIZE/8));
+	}
+	
+	/**
+	 * Provides the {@code father} of the page, as {@link TreePage#getFather()}.
+	 * @return An integer with the position of the father of the page, or -1 for the root.
+	 */
+	public int getFather() {
+		return page.getInt(Integer.SIZE/8);
+	}
+	
+	/**
+	 * Provides the {@link TreeRecord#getInfo() info} of the i-th record of the page.
+	 * @param i The position of the record, from 0 to {@link #getSize()}-1.
+	 * @return An integer with the info of the record.
+	 */
+	public int getInfo(int i) {
+		return page.getInt(infosStart + i*(Integer.SIZE/8));
+	}
+	
+	/**
+	 * Provides the {@link TreeRecord#getCount() number of occurrences} of the key of the i-th record of the page.
+	 * @param i The position of the record, from 0 to {@link #getSize()}-1.
+	 * @return An integer with the number of occurrences.
+	 */
+	public int getCount(int i) {
+		return page.getInt(countsStart + i*(Integer.SIZE/8));
+	}
+	
+	/**
+	 * Provides the {@link TreeRecord#getNumOfFiles() number of files} which contain the key of the i-th record of the page.
+	 * @param i The position of the record, from 0 to {@link #getSize()}-1.
+	 * @return An integer with the number of files.
+	 */
+	public int getNumOfFiles(int i) {
+		return page.getInt(filesStart + i*(Integer.SIZE/8));
+	}
+	
+	/**
+	 * Provides the key of the i-th record of the page. It creates a new {@link java.lang.String}, so it should only be called for the record which is needed.
+	 * @param i The position of the record, from 0 to {@link #getSize()}-1.
+	 * @return A {@link java.lang.String} with exactly {@link #SIZEOF_KEY} characters.
+	 */
+	public String getKey(int i) {
+		char[] chars = new char[SIZEOF_KEY];
+		for(int j=0;j<SIZEOF_KEY;j++)
+			chars[j] = (char)page.get(keysStart+SIZEOF_KEY*i+j);
+		return new String(chars);
+	}
+	
+	/**
+	 * Provides the number of records stored in the page, as {@link TreePage#getSize()}.
+	 * @return An integer with the number of records.
+	 */
+	public int getSize() {
+		return page.getInt(0);
+	}
+	
+	/**
+	 * Compares the key of the i-th record of the page with a given key, in place, in the same way as {@link java.lang.String#compareTo(String)}.
+	 * @param i The position of the record, from 0 to {@link #getSize()}-1.
+	 * @param key A {@link java.lang.String} with the key to be compared.
+	 * @return A negative integer, zero, or a positive integer as the key of the record is less than, equal to, or greater than the given key.
+	 */
+	public int compareKey(int i, String key) {
+		int n = Math.min(SIZEOF_KEY, key.length()), offset = keysStart+SIZEOF_KEY*i;
+		for(int j=0;j<n;j++) {
+			char c = (char)page.get(offset+j);  //decoded exactly as in the constructor of TreePage
+			if(c!=key.charAt(j))
+				return c - key.charAt(j);
+		}
+		return SIZEOF_KEY - key.length();
+	}
+	
+	/**
+	 * Performs a binary search for a key among the records of the page, with the same result as {@link TreePage#search(String)}.
+	 * @param key A {@link java.lang.String} with the key to search for.
+	 * @return The position of the record with the given key, if it exists; otherwise, {@code -(i+1)}, where {@code i} is the position
+	 * in {@code child[]} of the subtree where the key may be found.
+	 */
+	public int search(String key) {
+		int low = 0, high = getSize()-1, mid, cmp;
+		while(low<=high) {
+			mid = (low+high) >>> 1;
+			cmp = compareKey(mid, key);
+			if(cmp<0)
+				low = mid+1;
+			else if(cmp>0)
+				high = mid-1;
+			else
+				return mid;
+		}
+		return -(low+1);
+	}
+}
@@ -7,6 +7,9 @@ import wordsearch.structures.Record;
  * @author Georgios Apostolakis
  */
 public class TreeRecord extends Record{
+	private int count;
+	private int numOfFiles;
+	
 	/**
 	 * Constructs a new instance of {@link TreeRecord} that contains the {@link java.lang.String} {@code key} and integer {@code info} provided as arguments.
 	 * The length of the {@code key} is made to be exactly SIZEOF_KEY characters, by either padding with spaces at the ending, or by deleting its last characters.
@@ -16,9 +19,32 @@ public class TreeRecord extends Record{
 	 * @param SIZEOF_KEY The value for the {@link wordsearch.structures.Record#SIZEOF_STRING} constant which determines the size of {@code key}.
 	 */
 	public TreeRecord(String key, int info, int SIZEOF_KEY){
+		this(key, info, 0, 0, SIZEOF_KEY);
+	}
+	
+	/**
+	 * Constructs a new instance of {@link TreeRecord} that also contains the statistics of its key: the total number of its occurrences,
+	 * and the number of distinct files where it occurs.
+	 * @param key The {@link java.lang.String} to be stored in the new instance.
+	 * @param info The integer to be stored in the new instance.
+	 * @param count The number of occurrences of the key.
+	 * @param numOfFiles The number of distinct files which contain the key.
+	 * @param SIZEOF_KEY The value for the {@link wordsearch.structures.Record#SIZEOF_STRING} constant which determines the size of {@code key}.
+	 */
+	public TreeRecord(String key, int info, int count, int numOfFiles, int SIZEOF_KEY){
 		super(SIZEOF_KEY);
 		setKey(key);
 		setInfo(info);
+		this.count = count;
+		this.numOfFiles = numOfFiles;
+	}
+	
+	/**
+	 * Provides the total number of occurrences of the key of this instance.
+	 * @return An integer with the number of occurrences.
+	 */
+	public int getCount() {
+		return count;
 	}
 	
 	/**
@@ -37,6 +63,22 @@ public class TreeRecord extends Record{
 		return super.getString();
 	}
 	
+	/**
+	 * Provides the number of distinct files where the key of this instance occurs.
+	 * @return An integer with the number of files.
+	 */
+	public int getNumOfFiles() {
+		return numOfFiles;
+	}
+	
+	/**
+	 * Sets the total number of occurrences of the key of this instance.
+	 * @param count An integer with the number of occurrences.
+	 */
+	public void setCount(int count) {
+		this.count = count;
+	}
+	
 	/**
 	 * Sets the info of this instance.
 	 * @param info An integer containing the info that will be stored in this object.
@@ -45,6 +87,30 @@ public class TreeRecord extends Record{
 		super.setIntValue(info);
 	}
 	
+	/**
+	 * Sets the number of distinct files where the key of this instance occurs.
+	 * @param numOfFiles An integer with the number of files.
+	 */
+	public void setNumOfFiles(int numOfFiles) {
+		this.numOfFiles = numOfFiles;
+	}
+	
+	/**
+	 * Provides the word of a key, without the spaces which pad it to its fixed length. Only the spaces at its end are removed: any other character
+	 * (e.g. the {@code '\r'} which ends the lines of a file with CRLF line endings) is part of the word, so that two distinct keys never have the same word.
+	 * Notice that the order of the words may differ from the order of their keys, since a character less than a space sorts a longer word before its prefix
+	 * (e.g. the key of "beta\r" is less than the key of "beta").
+	 * @param key A {@link java.lang.String} with the key, as padded by {@link #setKey(String)}.
+	 * @return A {@link java.lang.String} with the word.
+	 */
+	public static String stripPadding(String key) {
+		int end = key.length();
+		
+		while(end>0 && key.charAt(end-1)==' ')
+			end--;
+		return key.substring(0, end);
+	}
+	
 	/**
 	 * Sets the key of this instance.
 	 * @param key The new key, of type {@link java.lang.String}. If its length is less than SIZEOF_STRING, it is padded with spaces at its ending. If its length is greater than SIZEOF_STRING, its last characters are deleted.
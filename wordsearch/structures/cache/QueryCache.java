@@ -0,0 +1,187 @@
+package wordsearch.structures.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache which keeps the results of the most popular questions in memory, so that they can be answered without reading
+ * the BTree and the index from the disk. The results of a question are stored in a compact form, as an array of integers
+ * which holds pairs of (file id, offset) values.
+ * The total size of the cache is bounded by a predetermined number of bytes and the eviction follows a segmented LRU policy.
+ * New entries are placed in a probationary segment and they are promoted to a protected segment when they are requested again.
+ * Consequently, words which are asked only once can not push the frequently asked words out of the cache.
+ * @author Georgios Apostolakis
+ */
+public class QueryCache {
+	private LinkedHashMap<String, int[]> probation;
+	private LinkedHashMap<String, int[]> protectedSegment;
+	private long probationBytes, protectedBytes;
+	private long hits, misses;
+	
+	/**
+	 * The maximum number of bytes that may be occupied by the entries of the cache.
+	 */
+	public final long MAX_BYTES;
+	
+	/**
+	 * The maximum number of bytes that may be occupied by the entries of the protected segment of the cache.
+	 */
+	public final long MAX_PROTECTED_BYTES;
+	
+	/**
+	 * An estimation (in bytes) of the memory occupied by every entry of the cache, apart from its key and postings.
+	 */
+	public static final int ENTRY_OVERHEAD = 64;
+	
+	/**
+	 * Constructs a new, empty instance of this class.
+	 * @param maxBytes The value for the {@link #MAX_BYTES} constant of this class. 80% of it is reserved for the protected segment.
+	 */
+	public QueryCache(long maxBytes) {
+		this.MAX_BYTES = maxBytes;
+		this.MAX_PROTECTED_BYTES = maxBytes/5*4;
+		this.probation = new LinkedHashMap<String, int[]>(16, 0.75f, true);
+		this.protectedSegment = new LinkedHashMap<String, int[]>(16, 0.75f, true);
+		this.probationBytes = 0;
+		this.protectedBytes = 0;
+		this.hits = 0;
+		this.misses = 0;
+	}
+	
+	/**
+	 * Removes all entries from the cache. The statistics (hits and misses) are not affected.
+	 */
+	public synchronized void clear() {
+		probation.clear();
+		protectedSegment.clear();
+		probationBytes = 0;
+		protectedBytes = 0;
+	}
+	
+	/**
+	 * Provides the postings stored in the cache for a specific key.
+	 * @param key The (already formatted) key of the dictionary.
+	 * @return An integer array with pairs of (file id, offset) values, or {@code null} if the key is not cached.
+	 */
+	public synchronized int[] get(String key) {
+		int[] postings = protectedSegment.get(key);
+		if(postings != null) {
+			hits++;
+			return postings;
+		}
+		
+		postings = probation.remove(key);
+		if(postings == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		
+		//the entry was requested for a second time, so it is promoted to the protected segment
+		probationBytes -= sizeOf(key, postings);
+		protectedSegment.put(key, postings);
+		protectedBytes += sizeOf(key, postings);
+		while(protectedBytes > MAX_PROTECTED_BYTES) {  //demote the least recently used entries of the protected segment
+			Map.Entry<String, int[]> eldest = protectedSegment.entrySet().iterator().next();
+			protectedSegment.remove(eldest.getKey());
+			protectedBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+			probation.put(eldest.getKey(), eldest.getValue());
+			probationBytes += sizeOf(eldest.getKey(), eldest.getValue());
+		}
+		evict();
+		return postings;
+	}
+	
+	/**
+	 * Provides the number of bytes occupied by the entries of the cache.
+	 * @return A long number with the (estimated) number of bytes.
+	 */
+	public synchronized long getBytesUsed() {
+		return probationBytes + protectedBytes;
+	}
+	
+	/**
+	 * Provides the fraction of requests which were answered by the cache.
+	 * @return A double number between 0 and 1, or 0 if no requests have been made yet.
+	 */
+	public synchronized double getHitRatio() {
+		if(hits + misses == 0)
+			return 0;
+		return (double)hits / (hits + misses);
+	}
+	
+	/**
+	 * Provides the number of requests which were answered by the cache.
+	 * @return A long number with the number of hits.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Provides the number of requests which were not answered by the cache.
+	 * @return A long number with the number of misses.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Stores the postings of a key into the probationary segment of the cache. Entries larger than the whole cache are ignored.
+	 * @param key The (already formatted) key of the dictionary.
+	 * @param postings An integer array with pairs of (file id, offset) values.
+	 */
+	public synchronized void put(String key, int[] postings) {
+		if(sizeOf(key, postings) > MAX_BYTES || protectedSegment.containsKey(key))
+			return;
+		
+		int[] old = probation.put(key, postings);
+		if(old != null)
+			probationBytes -= sizeOf(key, old);
+		probationBytes += sizeOf(key, postings);
+		evict();
+	}
+	
+	/**
+	 * Resets the number of hits and misses of the cache to zero.
+	 */
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+	}
+	
+	/**
+	 * Removes the least recently used entries of the probationary segment (or of the protected one, if the former is empty)
+	 * until the total size of the cache does not exceed {@link #MAX_BYTES}.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, int[]>> it;
+		Map.Entry<String, int[]> eldest;
+		
+		while(probationBytes + protectedBytes > MAX_BYTES) {
+			if(!probation.isEmpty()) {
+				it = probation.entrySet().iterator();
+				eldest = it.next();
+				it.remove();
+				probationBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+			}
+			else {
+				it = protectedSegment.entrySet().iterator();
+				eldest = it.next();
+				it.remove();
+				protectedBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+			}
+		}
+	}
+	
+	/**
+	 * Estimates the memory occupied by an entry of the cache.
+	 * @param key The key of the entry.
+	 * @param postings The postings of the entry.
+	 * @return A long number with the estimated size (in bytes).
+	 */
+	private static long sizeOf(String key, int[] postings) {
+		return ENTRY_OVERHEAD + 2L*key.length() + 4L*postings.length;
+	}
+}
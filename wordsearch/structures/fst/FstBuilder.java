@@ -0,0 +1,214 @@
+package wordsearch.structures.fst;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class builds a minimal acyclic finite state transducer (FST) in one pass, from words which are added in alphabetical order,
+ * and saves it into a binary file which is read by {@link FstDictionary}. Every word is mapped to {@link FstDictionary#NUM_OF_OUTPUTS} outputs
+ * (the first page of its chain in the index, its number of occurrences and its number of files), which are the sums of the outputs
+ * of the arcs along its path and of its final state.
+ * <p>
+ * Only the states on the path of the last word may still change. When the next word leaves that path, the states after the common prefix
+ * are frozen: they are encoded, and any equal state which has already been encoded is shared instead, so the suffixes of the words are stored only once.
+ * The outputs are pushed as close to the start as possible (every arc keeps the minimum of the outputs of the words below it), so that
+ * the states of equal suffixes with different outputs can still be shared.
+ * @author Georgios Apostolakis
+ */
+public class FstBuilder {
+	private ByteArrayOutputStream encoded;  //the encoded states, each one after the states it points to
+	private HashMap<String, Integer> registry;  //the address of every encoded state, by its encoding
+	private State[] frontier;  //the states of the path of the last word, by depth
+	private String lastWord;
+	private int numOfWords;
+	
+	/**
+	 * Constructs a new builder, without any words.
+	 */
+	public FstBuilder() {
+		this.encoded = new ByteArrayOutputStream();
+		this.registry = new HashMap<String, Integer>();
+		this.frontier = new State[] {new State()};
+		this.lastWord = "";
+		this.numOfWords = 0;
+	}
+	
+	/**
+	 * Adds a new word to the transducer. The words must be added in alphabetical order, and each one only once.
+	 * @param word A {@link java.lang.String} with the word, which must not be empty.
+	 * @param outputs An integer array with the {@link FstDictionary#NUM_OF_OUTPUTS} outputs of the word, which must not be negative.
+	 * @throws IllegalArgumentException If the word is empty or it does not follow the last word which was added, or the outputs are not valid.
+	 */
+	public void add(String word, int[] outputs) {
+		int common = 0;
+		int[] remaining = outputs.clone();
+		
+		if(word.isEmpty() || word.compareTo(lastWord)<=0)
+			throw new IllegalArgumentException("The words must be added in alphabetical order, and each one only once.");
+		if(outputs.length!=FstDictionary.NUM_OF_OUTPUTS || Arrays.stream(outputs).min().getAsInt()<0)
+			throw new IllegalArgumentException("Every word must have " + FstDictionary.NUM_OF_OUTPUTS + " outputs, which must not be negative.");
+		while(common<lastWord.length() && word.charAt(common)==lastWord.charAt(common))
+			common++;
+		
+		freeze(common);
+		if(frontier.length<word.length()+1)
+			frontier = Arrays.copyOf(frontier, Math.max(word.length()+1, 2*frontier.length));
+		for(int d=common;d<word.length();d++) {  //the new states after the common prefix
+			frontier[d+1] = new State();
+			frontier[d].arcs.add(new Arc(word.charAt(d), new int[FstDictionary.NUM_OF_OUTPUTS]));
+		}
+		frontier[word.length()].isFinal = true;
+		frontier[word.length()].finalOutputs = new int[FstDictionary.NUM_OF_OUTPUTS];
+		
+		for(int d=0;d<common;d++) {  //keep only the common part of the outputs on the shared arcs, and push the rest to the next state
+			Arc arc = frontier[d].lastArc();
+			int[] pushed = new int[FstDictionary.NUM_OF_OUTPUTS];
+			for(int j=0;j<pushed.length;j++) {
+				int shared = Math.min(arc.outputs[j], remaining[j]);
+				pushed[j] = arc.outputs[j] - shared;
+				arc.outputs[j] = shared;
+				remaining[j] -= shared;
+			}
+			frontier[d+1].addToOutputs(pushed);
+		}
+		frontier[common].lastArc().outputs = remaining;  //the first new arc
+		
+		lastWord = word;
+		numOfWords++;
+	}
+	
+	/**
+	 * Provides the number of words which have been added.
+	 * @return An integer with the number of words.
+	 */
+	public int getNumOfWords() {
+		return numOfWords;
+	}
+	
+	/**
+	 * Encodes the remaining states and saves the transducer into a binary file, replacing its previous contents. The builder must not be used afterwards.
+	 * @param filename The name of the binary file.
+	 * @return A long number with the size of the file in bytes.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public long writeToFile(String filename) throws IOException {
+		freeze(0);
+		int root = encode(frontier[0]);
+		byte[] states = encoded.toByteArray();
+		
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			dos.writeInt(FstDictionary.VERSION);
+			dos.writeInt(numOfWords);
+			dos.writeInt(root);
+			dos.writeInt(states.length);
+			dos.write(states);
+		} finally {
+			dos.close();
+		}
+		return FstDictionary.SIZEOF_HEADER + states.length;
+	}
+	
+	/**
+	 * Encodes the states of the path of the last word which are deeper than a given depth, from the deepest one,
+	 * and replaces them in the arcs which point to them by their addresses.
+	 */
+	private void freeze(int depth) {
+		for(int d=lastWord.length();d>depth;d--) {
+			frontier[d-1].lastArc().address = encode(frontier[d]);
+			frontier[d] = null;
+		}
+	}
+	
+	/**
+	 * Provides the address of a state whose arcs point only to encoded states, encoding it only if no equal state has been encoded.
+	 * A state is encoded as a byte with its flags, its final outputs (if it is final), its number of arcs, and then the label,
+	 * the outputs and the address of the target of every arc, all as variable-length integers (see {@link FstDictionary}).
+	 */
+	private int encode(State state) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		
+		bytes.write(state.isFinal ? FstDictionary.FINAL : 0);
+		if(state.isFinal)
+			for(int output : state.finalOutputs)
+				writeVarInt(bytes, output);
+		writeVarInt(bytes, state.arcs.size());
+		for(Arc arc : state.arcs) {
+			writeVarInt(bytes, arc.label);
+			for(int output : arc.outputs)
+				writeVarInt(bytes, output);
+			writeVarInt(bytes, arc.address);
+		}
+		
+		byte[] encoding = bytes.toByteArray();
+		String key = new String(encoding, StandardCharsets.ISO_8859_1);  //one character per byte
+		Integer address = registry.get(key);
+		if(address==null) {
+			address = encoded.size();
+			registry.put(key, address);
+			encoded.write(encoding, 0, encoding.length);
+		}
+		return address;
+	}
+	
+	/**
+	 * Writes a non-negative integer with 7 bits per byte, starting from the least significant ones, where the highest bit of every byte
+	 * (except for the last one) is set.
+	 */
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while((value & ~0x7F)!=0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+	
+	/**
+	 * A state of the transducer which may still change, i.e. a state of the path of the last word.
+	 */
+	private static class State {
+		private ArrayList<Arc> arcs = new ArrayList<Arc>();  //in alphabetical order
+		private boolean isFinal;
+		private int[] finalOutputs;
+		
+		private Arc lastArc() {
+			return arcs.get(arcs.size()-1);
+		}
+		
+		/**
+		 * Adds some outputs to every arc of the state and to its final outputs, so that the sums along all the paths through it grow by the same amount.
+		 */
+		private void addToOutputs(int[] outputs) {
+			for(int j=0;j<outputs.length;j++) {
+				if(outputs[j]==0)
+					continue;
+				for(Arc arc : arcs)
+					arc.outputs[j] += outputs[j];
+				if(isFinal)
+					finalOutputs[j] += outputs[j];
+			}
+		}
+	}
+	
+	/**
+	 * An arc of a {@link State}. It points to the next state of the path of the last word until that state is encoded, and then to its address.
+	 */
+	private static class Arc {
+		private final char label;
+		private int[] outputs;
+		private int address;
+		
+		private Arc(char label, int[] outputs) {
+			this.label = label;
+			this.outputs = outputs;
+			this.address = -1;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package wordsearch.structures.fst;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import wordsearch.structures.Dictionary;
+import wordsearch.structures.btree.TreeRecord;
+
+/**
+ * This class implements a read-only {@link wordsearch.structures.Dictionary} as a minimal acyclic finite state transducer (FST), which is built by an {@link FstBuilder}.
+ * Every word is a path of arcs from the root, labeled with its characters, and its record is the sum of the outputs of those arcs and of the final state.
+ * Since the words share both their prefixes and their suffixes, and the states are encoded with variable-length integers, the transducer is usually
+ * much smaller than the {@link wordsearch.structures.btree.BTree}, whose keys are padded to a fixed size and whose pages are partly empty.
+ * <p>
+ * The binary file is mapped into memory and read in place, so opening it reads nothing, and a search reads only the states along the path of its key,
+ * without any system calls. Once they have been loaded by the operating system, no search accesses the disk.
+ * <p>
+ * The file starts with a header of {@link #SIZEOF_HEADER} bytes (the {@link #VERSION} of the format, the number of words, the address of the root
+ * and the size of the states), which is followed by the encoded states. Every state consists of a byte with its flags, its final outputs (only if it is
+ * {@link #FINAL}), its number of arcs, and then the label, the {@link #NUM_OF_OUTPUTS} outputs and the address of the target state of every arc,
+ * in alphabetical order of their labels. All the numbers after the flags are variable-length integers, with 7 bits per byte.
+ * @author Georgios Apostolakis
+ */
+public class FstDictionary implements Dictionary {
+	private RandomAccessFile file;
+	private MappedByteBuffer states;
+	private int numOfWords;
+	private int root;
+	
+	/**
+	 * The version of the format of the binary file.
+	 */
+	public static final int VERSION = 1;
+	
+	/**
+	 * The size (in bytes) of the header of the binary file.
+	 */
+	public static final int SIZEOF_HEADER = 16;
+	
+	/**
+	 * The number of outputs of every word: the first page of its chain in the index, its number of occurrences and its number of files.
+	 */
+	public static final int NUM_OF_OUTPUTS = 3;
+	
+	/**
+	 * The flag of the states where a word ends.
+	 */
+	public static final int FINAL = 1;
+	
+	/**
+	 * The size (in bytes) of every key, to which the keys of the provided records are padded with spaces.
+	 */
+	public final int SIZEOF_KEY;
+	
+	/**
+	 * Constructs a new instance of this class with the given contents.
+	 */
+	private FstDictionary(RandomAccessFile file, MappedByteBuffer states, int numOfWords, int root, int SIZEOF_KEY) {
+		this.file = file;
+		this.states = states;
+		this.numOfWords = numOfWords;
+		this.root = root;
+		this.SIZEOF_KEY = SIZEOF_KEY;
+	}
+	
+	/**
+	 * Opens a transducer which was saved by {@link FstBuilder#writeToFile(String)}, by mapping its binary file into memory.
+	 * @param filename The name of the binary file.
+	 * @param SIZEOF_KEY The value for the {@link #SIZEOF_KEY} constant of this class.
+	 * @return A new {@link FstDictionary} object, or {@code null} if the file does not exist.
+	 * @throws IOException In case of an error while reading the file, or a file of another version or a malformed one.
+	 */
+	public static FstDictionary open(String filename, int SIZEOF_KEY) throws IOException {
+		if(!new File(filename).exists())
+			return null;
+		
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			if(file.length()<SIZEOF_HEADER || file.readInt()!=VERSION)
+				throw new IOException("The binary file " + filename + " does not contain a transducer of version " + VERSION + ".");
+			int numOfWords = file.readInt(), root = file.readInt(), length = file.readInt();
+			if(length!=file.length()-SIZEOF_HEADER || root<0 || root>=length)
+				throw new IOException("The binary file " + filename + " is malformed.");
+			MappedByteBuffer states = file.getChannel().map(FileChannel.MapMode.READ_ONLY, SIZEOF_HEADER, length);
+			return new FstDictionary(file, states, numOfWords, root, SIZEOF_KEY);
+		}catch(IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Provides the number of words of the dictionary.
+	 * @return An integer with the number of words.
+	 */
+	public int getNumOfWords() {
+		return numOfWords;
+	}
+	
+	/**
+	 * Provides the size of the binary file of the dictionary.
+	 * @return A long number with the size in bytes, including the header.
+	 */
+	public long getSizeInBytes() {
+		return SIZEOF_HEADER + states.capacity();
+	}
+	
+	/**
+	 * Searches the transducer for a key, following the arc with the next character of the key from every state.
+	 * The spaces at the end of the key are ignored.
+	 * @param key A {@link java.lang.String} with the key.
+	 * @return A new {@link wordsearch.structures.btree.TreeRecord} with the key (padded to {@link #SIZEOF_KEY} characters), the first page of its chain
+	 * and its statistics, or {@code null} if the key does not exist.
+	 */
+	public TreeRecord findRecord(String key) {
+		String word = TreeRecord.stripPadding(key);
+		int[] outputs = new int[NUM_OF_OUTPUTS];
+		int[] position = new int[] {root};  //the position of the next byte to be read
+		int flags, numOfArcs, label, target;
+		
+		for(int i=0;i<=word.length();i++) {
+			flags = states.get(position[0]++);
+			if(i==word.length()) {  //the whole key has been read
+				if((flags & FINAL)==0)
+					return null;
+				for(int j=0;j<NUM_OF_OUTPUTS;j++)
+					outputs[j] += readVarInt(position);
+				break;
+			}
+			if((flags & FINAL)!=0)
+				for(int j=0;j<NUM_OF_OUTPUTS;j++)
+					readVarInt(position);
+			
+			numOfArcs = readVarInt(position);
+			target = -1;
+			for(int a=0;a<numOfArcs && target<0;a++) {
+				label = readVarInt(position);
+				if(label>word.charAt(i))  //the labels are in alphabetical order
+					return null;
+				if(label==word.charAt(i)) {
+					for(int j=0;j<NUM_OF_OUTPUTS;j++)
+						outputs[j] += readVarInt(position);
+					target = readVarInt(position);
+				}
+				else
+					for(int j=0;j<=NUM_OF_OUTPUTS;j++)  //the outputs and the target of the arc
+						readVarInt(position);
+			}
+			if(target<0)
+				return null;
+			position[0] = target;
+		}
+		
+		StringBuilder padded = new StringBuilder(word);
+		while(padded.length()<SIZEOF_KEY)
+			padded.append(' ');
+		return new TreeRecord(padded.toString(), outputs[0], outputs[1], outputs[2], SIZEOF_KEY);
+	}
+	
+	/**
+	 * Releases the binary file. The mapped memory is released by the garbage collector.
+	 * @throws IOException In case of an error while closing the file.
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+	
+	/**
+	 * Reads a variable-length integer (see {@link FstBuilder}) from a position of the states, and moves the position after it.
+	 */
+	private int readVarInt(int[] position) {
+		int value = 0, shift = 0;
+		byte b;
+		
+		do {
+			b = states.get(position[0]++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}while((b & 0x80)!=0);
+		return value;
+	}
+}
@@ -0,0 +1,98 @@
+package wordsearch.structures.index;
+
+import java.io.IOException;
+
+/**
+ * A cursor which reads a chain of the {@link Index} lazily, one page at a time, and provides its occurrences grouped by file.
+ * The occurrences of a file are consecutive in every chain (see {@link Index#addRecord(int, IndexRecord)}), so every group
+ * contains all the occurrences of a file, and their number is the frequency of the word in that file.
+ * Since the pages are read only when they are needed, a caller which stops before the end of the chain never reads its remaining pages.
+ * @author Georgios Apostolakis
+ */
+public class ChainCursor {
+	private Index index;
+	private IndexPage page;
+	private int position;  //the position of the next record in the current page
+	private IndexRecord pending;  //the first record of the next group, which has already been read
+	private String filename;
+	private int frequency;
+	private int numOfPagesRead;
+	
+	/**
+	 * Constructs a new cursor, which is positioned before the first group of a chain.
+	 * @param index The {@link Index} which contains the chain.
+	 * @param pageNumber The position of the first {@link IndexPage} of the chain.
+	 * @throws IOException In case of a problem while reading data from the index at the disk.
+	 */
+	public ChainCursor(Index index, int pageNumber) throws IOException {
+		this.index = index;
+		this.page = index.getPage(pageNumber);
+		this.position = 0;
+		this.numOfPagesRead = (page==null) ? 0 : 1;
+		this.pending = null;
+		this.filename = null;
+		this.frequency = 0;
+	}
+	
+	/**
+	 * Provides the filename of the current group, as it is stored in the {@link IndexRecord} objects.
+	 * @return A {@link java.lang.String} with exactly {@link Index#SIZEOF_FILENAME} characters, or {@code null} if the cursor is not positioned on a group.
+	 */
+	public String getFilename() {
+		return filename;
+	}
+	
+	/**
+	 * Provides the number of occurrences in the current group.
+	 * @return An integer with the number of occurrences, which is 0 if the cursor is not positioned on a group.
+	 */
+	public int getFrequency() {
+		return frequency;
+	}
+	
+	/**
+	 * Provides the number of pages of the chain which have been read so far.
+	 * @return An integer with the number of pages.
+	 */
+	public int getNumOfPagesRead() {
+		return numOfPagesRead;
+	}
+	
+	/**
+	 * Moves the cursor to the next group of occurrences. The first record of the following group is also read, so the page where it is stored may be read too.
+	 * @return True if the cursor was moved to a new group, or false if the end of the chain was reached.
+	 * @throws IOException In case of a problem while reading data from the index at the disk.
+	 */
+	public boolean next() throws IOException {
+		if(pending==null)
+			pending = nextRecord();
+		if(pending==null) {
+			filename = null;
+			frequency = 0;
+			return false;
+		}
+		
+		filename = pending.getFilename();
+		frequency = 0;
+		while(pending!=null && pending.getFilename().equals(filename)) {
+			frequency++;
+			pending = nextRecord();
+		}
+		return true;
+	}
+	
+	/**
+	 * Provides the next record of the chain, following the links to the next pages (and skipping any empty pages).
+	 */
+	private IndexRecord nextRecord() throws IOException {
+		while(page!=null) {
+			if(position<page.RECORDS_PER_PAGE && page.getRecord(position)!=null)
+				return (IndexRecord)page.getRecord(position++);
+			page = (page.getNextPage()>=0) ? index.getPage(page.getNextPage()) : null;
+			position = 0;
+			if(page!=null)
+				numOfPagesRead++;
+		}
+		return null;
+	}
+}
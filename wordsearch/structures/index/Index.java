@@ -2,9 +2,15 @@ package wordsearch.structures.index;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 
 import wordsearch.file.BinFileProcessor;
+import wordsearch.file.FileHeader;
+import wordsearch.file.PageStore;
+import wordsearch.metrics.Metrics;
 
 /**
  * This class implements an index on the disk, where every word from the input files is matched with its location on those files.
@@ -15,7 +21,12 @@ import wordsearch.file.BinFileProcessor;
  * @author Georgios Apostolakis
  */
 public class Index {
-	private BinFileProcessor binaryFileEditor;
+	private PageStore binaryFileEditor;
+	private Metrics metrics;
+	private int maxReadAhead;
+	private volatile double averageChainLength;  //a moving average of the number of pages of the chains which have been read
+	private SkipTable skips;
+	private HashMap<Integer, Integer> runStarts;  //the first page of the run of the last linked page of every chain
 	
 	/**
 	 * This constant is returned when the wanted page does not exist in the index. It has to be less than zero.
@@ -52,29 +63,61 @@ public class Index {
 	 */
 	public final int RECORDS_PER_INDEX_PAGE;
 	
+	/**
+	 * The default maximum number of pages which are read ahead with a single access, while a chain is read (see {@link #setMaxReadAhead(int)}).
+	 */
+	public static final int DEFAULT_READ_AHEAD = 32;
+	
 	/**
 	 * Constructs a new instance of this class which builds an index into a file with a specific filename.
+	 * The first pages of the file are reserved for a {@link wordsearch.file.FileHeader}.
 	 * @param SIZEOF_FILENAME The value for the {@link Index#SIZEOF_FILENAME} constant of this class.
 	 * @param SIZEOF_PAGE The value for the {@link Index#SIZEOF_PAGE} constant of this class.
 	 * @param indexFilename The name of the file into which the index will be stored.
 	 */
 	public Index(int SIZEOF_FILENAME, int SIZEOF_PAGE, String indexFilename){
+		this(SIZEOF_FILENAME, openFile(SIZEOF_PAGE, indexFilename));
+	}
+	
+	/**
+	 * Constructs a new instance of this class which builds an index into a given {@link wordsearch.file.PageStore}.
+	 * The {@link Index#SIZEOF_PAGE} constant is the size of the pages of the store, which should reserve enough pages for a {@link wordsearch.file.FileHeader}.
+	 * @param SIZEOF_FILENAME The value for the {@link Index#SIZEOF_FILENAME} constant of this class.
+	 * @param store The {@link wordsearch.file.PageStore} where the pages of the index will be stored. It is closed by {@link #close()}.
+	 */
+	public Index(int SIZEOF_FILENAME, PageStore store){
 		this.SIZEOF_FILENAME = SIZEOF_FILENAME;
 		this.SIZEOF_INT = Integer.SIZE/8;
-		this.SIZEOF_PAGE = SIZEOF_PAGE;
-		this.RECORDS_PER_INDEX_PAGE = SIZEOF_PAGE / (SIZEOF_FILENAME + SIZEOF_INT);
-		
+		this.SIZEOF_PAGE = store.getPageSize();
+		this.RECORDS_PER_INDEX_PAGE = (SIZEOF_PAGE - SIZEOF_INT) / (SIZEOF_FILENAME + SIZEOF_INT);  //the first integer of every page is nextPage
+		this.metrics = null;
+		this.binaryFileEditor = store;
+		this.maxReadAhead = DEFAULT_READ_AHEAD;
+		this.averageChainLength = 1;
+		this.skips = new SkipTable();
+		this.runStarts = new HashMap<Integer, Integer>();
+	}
+	
+	/**
+	 * Opens the binary file of an index, with the first pages reserved for a {@link wordsearch.file.FileHeader}.
+	 * @param SIZEOF_PAGE The size (in bytes) of every page of the index.
+	 * @param indexFilename The name of the binary file.
+	 * @return A {@link wordsearch.file.BinFileProcessor} for the file.
+	 */
+	private static PageStore openFile(int SIZEOF_PAGE, String indexFilename) {
 		try{
-			binaryFileEditor = new BinFileProcessor(SIZEOF_PAGE, indexFilename);
+			return new BinFileProcessor(SIZEOF_PAGE, indexFilename, FileHeader.getNumOfHeaderPages(SIZEOF_PAGE));
 		} catch(FileNotFoundException e){
 			System.err.println("Error. Unable to create index file.");
 			System.exit(-1);
-		}	
+			return null;
+		}
 	}
 	
 	/**
-	 * Adds a new {@link wordsearch.structures.index.IndexRecord} object at the end of a specific page of the index.
-	 * If that page is full, a new page is constructed and the previous one is linked with it. 
+	 * Adds a new {@link wordsearch.structures.index.IndexRecord} object at the end of the chain which starts from a specific page of the index.
+	 * If the last page of the chain is full, a new page is constructed and the previous one is linked with it. The record is never placed
+	 * in the free space of an earlier page (e.g. left by {@link #removeRecords(String[])}), so every chain keeps the order in which its records were added.
 	 * @param r The new {@link wordsearch.structures.index.IndexRecord} object to be added.
 	 * @param page An integer greater or equal to 0 to add the {@link wordsearch.structures.index.IndexRecord} into the respective existing page,
 	 * or any integer less than 0 to create a new page for the {@link wordsearch.structures.index.IndexRecord}.
@@ -86,24 +129,27 @@ public class Index {
 	public int addRecord(int page, IndexRecord r) throws IOException {
 		IndexPage tmpPage;
 		boolean lackOfSpace = true;  //is true when a new page is added due to the lack of space in the existing one
-		int currPage=page, nextPage=page;
+		int currPage=page, nextPage=page, prevPage=-1;
+		byte[] bytes, prevBytes=null;
 				
 		if(page>=binaryFileEditor.fileSize())
 			return NO_SUCH_PAGE_EXISTS;   //fail - the given page does not exist
 		
 		if(page>=0) {  //the new Record will be added to an existing page
 			while(lackOfSpace){
-				tmpPage = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, binaryFileEditor.readPage(currPage));
+				bytes = binaryFileEditor.readPage(currPage);
+				tmpPage = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, bytes);
 				
 				if(tmpPage.find(r)>=0)  //if exactly the same record already exists, probably from previous creation of the file, it's useless to save it for a second time
 					return RECORD_ALREADY_EXISTS_IN_FILE;
 				
-				lackOfSpace = (tmpPage.addRecord(r)<0); //becomes true when tmpPage is full
+				lackOfSpace = (tmpPage.getNextPage()>=0 || tmpPage.addRecord(r)<0); //becomes true when tmpPage is not the last page, or it is full
 				if(lackOfSpace){ //if the current page is full
 					if(tmpPage.getNextPage()>=0)  //if a next (linked) page already exists
 						nextPage = tmpPage.getNextPage();
 					else {              //create a new page and link it with the old one
 						nextPage = (int)binaryFileEditor.fileSize();
+						linkRun(prevPage, prevBytes, currPage, bytes, nextPage);
 						tmpPage.setNextPage(nextPage);
 						binaryFileEditor.writePage(currPage, tmpPage); //write back the existing after linking it to the new
 						
@@ -117,6 +163,8 @@ public class Index {
 				else {//if the current page is not full
 					binaryFileEditor.writePage(currPage, tmpPage);
 				}
+				prevPage = currPage;
+				prevBytes = bytes;
 				currPage = nextPage; //the loop is repeated until we reach to the last page of the chain, which may not be full.
 			}
 		}
@@ -131,6 +179,34 @@ public class Index {
 		return (int)binaryFileEditor.fileSize()-1;   //if page<0, new page was created	
 	}
 	
+	/**
+	 * Writes a new chain of pages at the end of the index, which contains the given {@link wordsearch.structures.index.IndexRecord} objects in the same order.
+	 * The pages of the chain are consecutive in the binary file, and every page except the last is full.
+	 * @param records The {@link wordsearch.structures.index.IndexRecord} objects to be stored. If there are none, then the chain consists of a single empty page.
+	 * @return The number of the first page of the new chain.
+	 * @throws IOException In case of a problem while writing data to the index at the disk.
+	 */
+	public int appendChain(ArrayList<IndexRecord> records) throws IOException {
+		int head = (int)binaryFileEditor.fileSize();
+		int numOfPages = Math.max(1, (records.size() + RECORDS_PER_INDEX_PAGE - 1) / RECORDS_PER_INDEX_PAGE);
+		IndexPage tmpPage;
+		byte[] bytes, prevBytes=null;
+		
+		for(int p=0;p<numOfPages;p++) {
+			tmpPage = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE);
+			for(int i=p*RECORDS_PER_INDEX_PAGE;i<Math.min(records.size(), (p+1)*RECORDS_PER_INDEX_PAGE);i++)
+				tmpPage.addRecord(records.get(i));
+			if(p<numOfPages-1) {
+				tmpPage.setNextPage(head+p+1);
+				bytes = tmpPage.toByteArray();
+				linkRun((p==0) ? -1 : head+p-1, prevBytes, head+p, bytes, head+p+1);
+				prevBytes = bytes;
+			}
+			binaryFileEditor.writePage(head+p, tmpPage);
+		}
+		return head;
+	}
+	
 	/**
 	 * Releases the binary file associated with this instance.
 	 * @throws IOException In case of an error while closing the stream to the file.
@@ -139,6 +215,22 @@ public class Index {
 		binaryFileEditor.close();
 	}
 	
+	/**
+	 * Writes the pages of the index which are buffered by its {@link wordsearch.file.PageStore}, so that they become visible to other readers of the file.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void flush() throws IOException {
+		binaryFileEditor.flush();
+	}
+	
+	/**
+	 * Writes the buffered pages of the index and forces them to the storage device, so that they survive a crash of the system.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void sync() throws IOException {
+		binaryFileEditor.sync();
+	}
+	
 	/**
 	 * Searches a given chain of linked pages for entries corresponding to specific filenames. Then, it returns all those entries.
 	 * @param pageNumber The position of the {@link wordsearch.structures.index.IndexPage} into which a search will take place. The linked (to it) pages will be searched too.
@@ -147,43 +239,233 @@ public class Index {
 	 * @throws IOException In case of a problem while reading data from the index at the disk.
 	 */
 	public ArrayList<String[]> findData(int pageNumber, String[] fileNames) throws IOException{
+		return findData(pageNumber, fileNames, null);
+	}
+	
+	/**
+	 * Searches a given chain of linked pages for the entries of some of the given filenames, applying the filter while the chain is traversed.
+	 * Since the occurrences of every file are added to a chain all together, they are contiguous, and a page whose first and last entries belong
+	 * to the same file contains only entries of that file. So, if that file is excluded, the page is not decoded. If a run of such pages starts from it
+	 * (see {@link SkipTable}), the rest of the run is not even read, and the traversal continues from the page which follows the run.
+	 * Otherwise, only the link of the page is read.
+	 * @param pageNumber The position of the first {@link wordsearch.structures.index.IndexPage} of the chain.
+	 * @param fileNames The filenames for which we are interested to find entries inside the index.
+	 * @param included A boolean array with an entry for every filename, which is true if its entries are needed, or {@code null} if all of them are needed.
+	 * @return An {@link java.util.ArrayList} with {@link java.lang.String String[]} arrays, each one containing a filename and a location, in the order of the chain.
+	 * @throws IOException In case of a problem while reading data from the index at the disk.
+	 */
+	public ArrayList<String[]> findData(int pageNumber, String[] fileNames, boolean[] included) throws IOException{
 		IndexPage tmpPage;
-		int next = pageNumber;
+		int next = pageNumber, chainLength = 0, f, last, target;
 		String fName = "";
-		String str1, str2;
 		ArrayList<String[]> results = new ArrayList<String[]>();
+		long startTime = System.nanoTime();
+		byte[] bytes;
 		
 		if(pageNumber<0 || pageNumber>=binaryFileEditor.fileSize())  //invalid number of page
 			return results; //we return an empty list
 		
+		ChainReader reader = new ChainReader();
 		while(next>=0){
-			tmpPage = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, binaryFileEditor.readPage(next));
+			bytes = reader.read(next);
+			chainLength++;
+			if(included!=null) {
+				last = lastRecord(bytes);
+				if(last>=0 && sameFilename(bytes, 0, bytes, last)) {  //every entry of the page belongs to the same file
+					f = findFilename(fileNames, getFilename(bytes, 0));
+					if(f<0 || !included[f]) {
+						target = skips.getTarget(next);  //the page which follows the run of this file, if it is known
+						next = (target>=0) ? target : ByteBuffer.wrap(bytes).getInt(0);
+						continue;
+					}
+				}
+			}
+			
+			tmpPage = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, bytes);
 			for(int i=0;i<RECORDS_PER_INDEX_PAGE;i++){
 				if(tmpPage.getRecord(i)==null) //the end of page was reached
 					break;
 				
 				//Every IndeRecord may not contain the whole filename (due to restrictions regarding its size)
-				for(int f=0;f<fileNames.length;f++) { //Find the whole filename corresponding to the i-th IndexRecord, from filenames array
-					str1 = fileNames[f];
-					str2 = ((IndexRecord)tmpPage.getRecord(i)).getFilename();
-					if(str1.regionMatches(0, str2, 0, java.lang.Math.min(str1.length(), str2.length()))) {
-						fName = fileNames[f];
-						break;
-					}
-				}
+				f = findFilename(fileNames, ((IndexRecord)tmpPage.getRecord(i)).getFilename());
+				if(f>=0)
+					fName = fileNames[f];
+				if(included!=null && (f<0 || !included[f]))
+					continue;
 				results.add(new String[] {fName, ((IndexRecord)tmpPage.getRecord(i)).getOffset()+""});
 			}
 			next = tmpPage.getNextPage();
 		}
+		
+		reader.finish(chainLength);
+		if(metrics!=null) {
+			metrics.getFindDataLatency().record(System.nanoTime()-startTime);
+			metrics.getChainLength().record(chainLength);
+			metrics.getChainReads().record(reader.numOfReads);
+		}
 		return results;
 	}
 	
+	/**
+	 * Finds the whole filename corresponding to the (possibly truncated) filename of an {@link wordsearch.structures.index.IndexRecord}.
+	 * @return The position of the filename in the array, or -1 if it does not exist.
+	 */
+	private static int findFilename(String[] fileNames, String stored) {
+		for(int f=0;f<fileNames.length;f++)
+			if(fileNames[f].regionMatches(0, stored, 0, java.lang.Math.min(fileNames[f].length(), stored.length())))
+				return f;
+		return -1;
+	}
+	
+	/**
+	 * Finds the last record of the binary contents of a page, whose records are followed by the empty positions.
+	 * @return The position of the last record, or -1 if the page is empty.
+	 */
+	private int lastRecord(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int last = -1;
+		while(last+1<RECORDS_PER_INDEX_PAGE && buffer.getInt(SIZEOF_INT*(last+2))>=0)  //the offsets follow the link to the next page
+			last++;
+		return last;
+	}
+	
+	/**
+	 * Checks whether two records of the binary contents of one or two pages have the same filename, without decoding them.
+	 */
+	private boolean sameFilename(byte[] bytes, int i, byte[] other, int j) {
+		int start = SIZEOF_INT + RECORDS_PER_INDEX_PAGE*SIZEOF_INT;
+		for(int k=0;k<SIZEOF_FILENAME;k++)
+			if(bytes[start+SIZEOF_FILENAME*i+k]!=other[start+SIZEOF_FILENAME*j+k])
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Decodes the filename of a record of the binary contents of a page, as {@link wordsearch.structures.index.IndexPage} does.
+	 */
+	private String getFilename(byte[] bytes, int i) {
+		char[] chars = new char[SIZEOF_FILENAME];
+		int start = SIZEOF_INT + RECORDS_PER_INDEX_PAGE*SIZEOF_INT + SIZEOF_FILENAME*i;
+		for(int k=0;k<SIZEOF_FILENAME;k++)
+			chars[k] = (char)bytes[start+k];
+		return new String(chars);
+	}
+	
+	/**
+	 * Provides all the {@link wordsearch.structures.index.IndexRecord} objects stored in a chain of linked pages, in the order of the chain.
+	 * @param pageNumber The position of the first {@link wordsearch.structures.index.IndexPage} of the chain.
+	 * @return An {@link java.util.ArrayList} with the {@link wordsearch.structures.index.IndexRecord} objects, which is empty if the page number is invalid.
+	 * @throws IOException In case of a problem while reading data from the index at the disk.
+	 */
+	public ArrayList<IndexRecord> readChain(int pageNumber) throws IOException {
+		ArrayList<IndexRecord> records = new ArrayList<IndexRecord>();
+		IndexPage tmpPage;
+		int next = pageNumber;
+		
+		if(pageNumber<0 || pageNumber>=binaryFileEditor.fileSize())  //invalid number of page
+			return records;
+		
+		ChainReader reader = new ChainReader();
+		int chainLength = 0;
+		while(next>=0) {
+			tmpPage = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, reader.read(next));
+			chainLength++;
+			for(int i=0;i<RECORDS_PER_INDEX_PAGE && tmpPage.getRecord(i)!=null;i++)
+				records.add((IndexRecord)tmpPage.getRecord(i));
+			next = tmpPage.getNextPage();
+		}
+		reader.finish(chainLength);
+		return records;
+	}
+	
+	/**
+	 * Counts the distinct files of the occurrences of a chain, e.g. as read by {@link #readChain(int)}.
+	 * @param records An {@link java.util.ArrayList} with {@link wordsearch.structures.index.IndexRecord} objects.
+	 * @return An integer with the number of distinct filenames among the records.
+	 */
+	public static int countFiles(ArrayList<IndexRecord> records) {
+		HashSet<String> files = new HashSet<String>();
+		for(IndexRecord r : records)
+			files.add(r.getFilename());
+		return files.size();
+	}
+	
+	/**
+	 * Reads a page from the binary file of the index.
+	 * @param pageNumber The position of the {@link wordsearch.structures.index.IndexPage} in the binary file.
+	 * @return The {@link wordsearch.structures.index.IndexPage}, or {@code null} if the page number is invalid.
+	 * @throws IOException In case of a problem while reading data from the index at the disk.
+	 */
+	public IndexPage getPage(int pageNumber) throws IOException {
+		if(pageNumber<0 || pageNumber>=binaryFileEditor.fileSize())
+			return null;
+		return new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, binaryFileEditor.readPage(pageNumber));
+	}
+	
+	/**
+	 * Computes the fraction of the capacity of the pages of the index which is occupied by records. Every page of the index is read once.
+	 * @return A double number from 0 to 1, which is 0 if the index is empty.
+	 * @throws IOException In case of a problem while reading data from the index at the disk.
+	 */
+	public double getFillFactor() throws IOException {
+		long records = 0;
+		IndexPage tmpPage;
+		
+		for(long p=0;p<binaryFileEditor.fileSize();p++) {
+			tmpPage = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, binaryFileEditor.readPage(p));
+			for(int i=0;i<RECORDS_PER_INDEX_PAGE && tmpPage.getRecord(i)!=null;i++)
+				records++;
+		}
+		return (binaryFileEditor.fileSize()==0) ? 0 : (double)records/(binaryFileEditor.fileSize()*RECORDS_PER_INDEX_PAGE);
+	}
+	
+	/**
+	 * Measures how scattered the chains of the index are. Every link from a page to the next page of its chain is a jump,
+	 * unless the next page is the following one in the binary file; each jump costs a random (instead of a sequential) read.
+	 * Every page of the index is read once, in the order of the binary file.
+	 * @return A double number from 0 (every chain is contiguous) to 1 (no two consecutive pages of a chain are adjacent), which is 0 if there are no links.
+	 * @throws IOException In case of a problem while reading data from the index at the disk.
+	 */
+	public double getFragmentation() throws IOException {
+		long links = 0, jumps = 0;
+		int next;
+		
+		for(long p=0;p<binaryFileEditor.fileSize();p++) {
+			next = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, binaryFileEditor.readPage(p)).getNextPage();
+			if(next>=0) {
+				links++;
+				if(next!=p+1)
+					jumps++;
+			}
+		}
+		return (links==0) ? 0 : (double)jumps/links;
+	}
+	
+	/**
+	 * Provides the size of the binary file that contains the index, in number of {@link wordsearch.structures.index.IndexPage} objects (and not in bytes).
+	 * @return An integer number with the size of the binary file.
+	 * @throws IOException In case of an error while reading the file.
+	 */
+	public int getSize() throws IOException {
+		return (int)binaryFileEditor.fileSize();
+	}
+	
 	/**
 	 * Deletes the contents (if any) of the binary file where the index is stored.
 	 * @throws IOException In case of an error while accessing the file.
 	 */
 	public void clearDataOfIndexFile() throws IOException {
 		this.binaryFileEditor.clearFile();
+		this.skips.clear();
+		this.runStarts.clear();
+	}
+	
+	/**
+	 * Provides the counters of the binary file that contains the index, since the last time they were reset.
+	 * @return A long array with the number of page reads, page writes, bytes read and bytes written (in this order).
+	 */
+	public long[] getIOCounters() {
+		return new long[] {binaryFileEditor.getNumOfReads(), binaryFileEditor.getNumOfWrites(), binaryFileEditor.getBytesRead(), binaryFileEditor.getBytesWritten()};
 	}
 	
 	/**
@@ -194,10 +476,176 @@ public class Index {
 		return this.binaryFileEditor.getNumOfAccesses();
 	}
 	
+	/**
+	 * Reads the {@link wordsearch.file.FileHeader} at the start of the binary file of the index.
+	 * @return The {@link wordsearch.file.FileHeader}, or {@code null} if the file does not start with a valid header.
+	 * @throws IOException In case of an error while reading the file.
+	 */
+	public FileHeader readHeader() throws IOException {
+		return FileHeader.fromByteArray(binaryFileEditor.readHeader());
+	}
+	
+	/**
+	 * Deletes from the index all the {@link wordsearch.structures.index.IndexRecord} objects which concern specific files.
+	 * Every page of the index is read once, in the order of the binary file, and the pages which contained such records
+	 * are written back with their remaining records moved to the start of the page. The links between the pages do not change,
+	 * so a chain may contain some empty pages afterwards, whose space is not reused by {@link #addRecord(int, IndexRecord)}.
+	 * @param fileNames The names of the files whose records will be deleted.
+	 * @return An integer with the number of deleted records.
+	 * @throws IOException In case of a problem while reading/writing data from/to the index at the disk.
+	 */
+	public int removeRecords(String[] fileNames) throws IOException {
+		IndexPage tmpPage;
+		IndexRecord r;
+		int removed = 0, kept;
+		boolean modified;
+		String[] formattedNames = new String[fileNames.length];
+		
+		for(int f=0;f<fileNames.length;f++)  //the filenames are stored in the records with exactly SIZEOF_FILENAME characters
+			formattedNames[f] = new IndexRecord(fileNames[f], 0, SIZEOF_FILENAME).getFilename();
+		
+		for(long p=0;p<binaryFileEditor.fileSize();p++) {
+			tmpPage = new IndexPage(SIZEOF_FILENAME, SIZEOF_PAGE, binaryFileEditor.readPage(p));
+			modified = false;
+			kept = 0;
+			for(int i=0;i<RECORDS_PER_INDEX_PAGE;i++) {
+				r = (IndexRecord)tmpPage.getRecord(i);
+				if(r==null)  //the end of page was reached
+					break;
+				
+				boolean toBeRemoved = false;
+				for(int f=0;f<formattedNames.length && !toBeRemoved;f++)
+					toBeRemoved = r.getFilename().equals(formattedNames[f]);
+				if(toBeRemoved) {
+					modified = true;
+					removed++;
+				}
+				else
+					tmpPage.setRecord(kept++, r);  //move the record to the first free position
+			}
+			if(modified) {
+				for(int i=kept;i<RECORDS_PER_INDEX_PAGE;i++)
+					tmpPage.setRecord(i, null);
+				binaryFileEditor.writePage(p, tmpPage);
+			}
+		}
+		return removed;
+	}
+	
+	/**
+	 * Writes a {@link wordsearch.file.FileHeader} at the start of the binary file of the index, replacing the previous one.
+	 * @param header The {@link wordsearch.file.FileHeader} to be written.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void writeHeader(FileHeader header) throws IOException {
+		binaryFileEditor.writeHeader(header.toByteArray());
+	}
+	
 	/**
 	 * Resets to zero the variable that counts the disk accesses.
 	 */
 	public void resetNumOfDiskAccesses() {
 		this.binaryFileEditor.resetNumOfAccesses();
 	}
+	
+	/**
+	 * Selects the maximum number of pages which are read ahead while a chain is read by {@link #findData(int, String[], boolean[])} or {@link #readChain(int)}.
+	 * As long as every page of a chain links to the page right after it (as after {@link #appendChain(ArrayList)}), the following pages are read
+	 * with a single access to the {@link wordsearch.file.PageStore} (see {@link wordsearch.file.PageStore#readPages(long, int)}) instead of one access per page.
+	 * The first window is as long as the rest of an average chain (among the chains of more than one page), and every following one is twice as long as the previous, up to the maximum.
+	 * When a link leads elsewhere, only that page is read, so the scattered chains are read as before.
+	 * @param maxPages The maximum number of pages of a window, or 1 in order to read every page separately.
+	 * @throws IllegalArgumentException If the number of pages is less than 1.
+	 */
+	public void setMaxReadAhead(int maxPages) {
+		if(maxPages<1)
+			throw new IllegalArgumentException("At least one page has to be read at a time.");
+		this.maxReadAhead = maxPages;
+	}
+	
+	/**
+	 * Provides the maximum number of pages which are read ahead while a chain is read (see {@link #setMaxReadAhead(int)}).
+	 * @return An integer with the number of pages.
+	 */
+	public int getMaxReadAhead() {
+		return maxReadAhead;
+	}
+	
+	/**
+	 * Provides the skip pointers of the chains of the index, e.g. in order to save them with the index.
+	 * They are recorded whenever a page of a chain is followed by another page (see {@link #addRecord(int, IndexRecord)} and {@link #appendChain(ArrayList)}).
+	 * @return The {@link SkipTable} of the index.
+	 */
+	public SkipTable getSkipTable() {
+		return skips;
+	}
+	
+	/**
+	 * Replaces the skip pointers of the chains of the index, e.g. with the ones which were saved with the index.
+	 * @param skips A {@link SkipTable} which was recorded for the same contents of the index (or for fewer records added to them).
+	 */
+	public void setSkipTable(SkipTable skips) {
+		this.skips = skips;
+	}
+	
+	/**
+	 * Records that a page of a chain has been linked to a new page. If it contains only entries of one file, and so does the page before it
+	 * (which has been linked to it earlier), the run of that page now extends up to the new page, so the pointer from its first page is updated.
+	 * @param prevPage The page before the linked page in the chain, or -1 if it is the first one.
+	 * @param prevBytes The binary contents of the page before the linked page, or {@code null} if it is the first one.
+	 */
+	private void linkRun(int prevPage, byte[] prevBytes, int pageNum, byte[] bytes, int nextPage) {
+		Integer start = runStarts.remove(prevPage);  //the run of the previous page cannot be extended by any other page
+		int last = lastRecord(bytes);
+		
+		if(last<0 || !sameFilename(bytes, 0, bytes, last))  //the page does not belong to any run
+			return;
+		if(start==null || !sameFilename(bytes, 0, prevBytes, 0))
+			start = pageNum;
+		runStarts.put(pageNum, start);
+		if(start!=pageNum)
+			skips.setTarget(start, nextPage);
+	}
+	
+	/**
+	 * Reads the pages of a chain in the order of its links, reading ahead the next pages while the chain is stored in consecutive pages.
+	 */
+	private class ChainReader {
+		private byte[][] window;  //the pages which have been read ahead
+		private long first;  //the number of the first page of the window
+		private int previous = -1, windowSize = 0, numOfReads = 0;
+		
+		private byte[] read(int pageNum) throws IOException {
+			if(window!=null && pageNum>=first && pageNum<first+window.length) {
+				previous = pageNum;
+				return window[(int)(pageNum-first)];
+			}
+			
+			if(maxReadAhead>1 && previous>=0 && pageNum==previous+1)  //the chain is contiguous so far
+				windowSize = Math.min((windowSize==0) ? Math.max(1, (int)Math.round(averageChainLength)-1) : 2*windowSize, maxReadAhead);
+			else
+				windowSize = 0;
+			window = binaryFileEditor.readPages(pageNum, Math.max(windowSize, 1));
+			first = pageNum;
+			previous = pageNum;
+			numOfReads++;
+			return (window==null) ? null : window[0];
+		}
+		
+		/**
+		 * Adds the length of a chain which has been read to the moving average of the lengths.
+		 */
+		private void finish(int chainLength) {
+			if(chainLength>1)  //the window is needed only after the first page
+				averageChainLength = 0.9*averageChainLength + 0.1*chainLength;
+		}
+	}
+	
+	/**
+	 * Sets the {@link wordsearch.metrics.Metrics} object where the latency and the number of pages read by every search will be recorded.
+	 * @param metrics A {@link wordsearch.metrics.Metrics} object, or {@code null} to stop recording.
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
 }
@@ -31,7 +31,7 @@ public class IndexPage extends Page{
 	 */
 	public IndexPage(int SIZEOF_FILENAME, int SIZEOF_PAGE) {
 		super(SIZEOF_FILENAME, SIZEOF_PAGE);
-		this.RECORDS_PER_PAGE = SIZEOF_PAGE / (SIZEOF_FILENAME + SIZEOF_INT);
+		this.RECORDS_PER_PAGE = (SIZEOF_PAGE - SIZEOF_INT) / (SIZEOF_FILENAME + SIZEOF_INT);  //the first integer of every page is nextPage
 		
 		setRecordList(new IndexRecord[RECORDS_PER_PAGE]);
 		for(int i=0;i<RECORDS_PER_PAGE;i++)
@@ -49,7 +49,7 @@ public class IndexPage extends Page{
 	 */
 	public IndexPage(int SIZEOF_FILENAME, int SIZEOF_PAGE, IndexRecord[] recordList, int nextPage) {
 		super(SIZEOF_FILENAME, SIZEOF_PAGE);
-		this.RECORDS_PER_PAGE = SIZEOF_PAGE / (SIZEOF_FILENAME + SIZEOF_INT);
+		this.RECORDS_PER_PAGE = (SIZEOF_PAGE - SIZEOF_INT) / (SIZEOF_FILENAME + SIZEOF_INT);  //the first integer of every page is nextPage
 		setRecordList(recordList);
 		this.nextPage = nextPage;
 	}
@@ -63,7 +63,7 @@ public class IndexPage extends Page{
 	 */
 	public IndexPage(int SIZEOF_FILENAME, int SIZEOF_PAGE, byte[] byteArray) throws IOException {
 		super(SIZEOF_FILENAME, SIZEOF_PAGE);
-		this.RECORDS_PER_PAGE = SIZEOF_PAGE / (SIZEOF_FILENAME + SIZEOF_INT);
+		this.RECORDS_PER_PAGE = (SIZEOF_PAGE - SIZEOF_INT) / (SIZEOF_FILENAME + SIZEOF_INT);  //the first integer of every page is nextPage
 		if(byteArray==null) {
 			setRecordList(new IndexRecord[RECORDS_PER_PAGE]);
 			for(int i=0;i<RECORDS_PER_PAGE;i++)
@@ -83,15 +83,16 @@ public class IndexPage extends Page{
 		for(int i=0;i<RECORDS_PER_PAGE;i++)  //read offset list
 			offsetArray[i] = dis.readInt();
 		
+		char[] chars = new char[SIZEOF_FILENAME];
 		for(int i=0;i<RECORDS_PER_PAGE;i++){  //read each filename char by char
-			s[i] = "";
-			for(int j=0;j<SIZEOF_FILENAME;j++){
-				Byte bt = byteArray[SIZEOF_INT+RECORDS_PER_PAGE*SIZEOF_INT+SIZEOF_FILENAME*i+j];
-				s[i] += (char)(Integer.parseInt(bt.toString()));
-			}
+			if(offsetArray[i]<0)  //there is no record here, so its filename is not needed
+				continue;
+			for(int j=0;j<SIZEOF_FILENAME;j++)
+				chars[j] = (char)byteArray[SIZEOF_INT+RECORDS_PER_PAGE*SIZEOF_INT+SIZEOF_FILENAME*i+j];
+			s[i] = new String(chars);
 		}
 			
-		super.setRecordList(new IndexRecord[10]); //Construct the array of Record objects
+		super.setRecordList(new IndexRecord[RECORDS_PER_PAGE]); //Construct the array of Record objects
 		for(int i=0;i<RECORDS_PER_PAGE;i++){ //for all the records of the page
 			if(offsetArray[i]<0)      
 				setRecord(i, null); //if there is not a real record
@@ -163,22 +164,21 @@ public class IndexPage extends Page{
 	 * @return A byte array with all information existing in this object.
 	 */
 	public byte[] toByteArray(){
-		String nullRecString = "", completePageStr="", filenameRecString="";
+		StringBuilder filenameRecString = new StringBuilder(RECORDS_PER_PAGE*SIZEOF_STRING);
 		byte[] array = null;
 		
-		for(int i=0;i<SIZEOF_STRING;i++)  // used in the position of null records
-			nullRecString += ' ';
-		for(int i=0;i<(SIZEOF_PAGE-RECORDS_PER_PAGE*SIZEOF_RECORD-SIZEOF_INT);i++)  //used to complete the page size
-			completePageStr += ' ';
 		for(int i=0;i<RECORDS_PER_PAGE;i++) { //Contains the filenames from all records of this instance
 			if(getRecord(i)!=null)
-				filenameRecString += ((IndexRecord)getRecord(i)).getFilename();
+				filenameRecString.append(((IndexRecord)getRecord(i)).getFilename());
 			else
-				filenameRecString += nullRecString;
+				for(int j=0;j<SIZEOF_STRING;j++)  // used in the position of null records
+					filenameRecString.append(' ');
 		}
+		for(int i=0;i<(SIZEOF_PAGE-RECORDS_PER_PAGE*SIZEOF_RECORD-SIZEOF_INT);i++)  //used to complete the page size
+			filenameRecString.append(' ');
 		
 		try {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(SIZEOF_PAGE);
 			DataOutputStream dos = new DataOutputStream(bos);
 			
 			dos.writeInt(this.nextPage);  //first, write the nextPage variable			
@@ -188,8 +188,7 @@ public class IndexPage extends Page{
 				else
 					dos.writeInt(-1);
 			}
-			dos.writeBytes(filenameRecString);   //write the filenames of the records
-			dos.writeBytes(completePageStr);  //finally, complete the size of the page
+			dos.writeBytes(filenameRecString.toString());   //write the filenames of the records, and complete the size of the page
 			
 			array = bos.toByteArray();  //convert the stream to byte array
 			
@@ -0,0 +1,107 @@
+package wordsearch.structures.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the skip pointers of the chains of an {@link Index}. Every pointer leads from the first page of a run of linked pages which contain
+ * only the records of one file, to the page which follows the run. So, when the records of that file are not needed, the rest of the run is skipped
+ * without being read (see {@link Index#findData(int, String[], boolean[])}).
+ * <p>
+ * A run consists only of pages which are followed by another page, since the records are added only to the last page of a chain.
+ * The other pages are modified only when some records are deleted, so a pointer remains valid until the index is cleared or rewritten,
+ * and an older copy of the table is still valid for an index to which more records have been added since.
+ * <p>
+ * The table is kept in memory, and it can be saved into (and restored from) a binary file on the disk. The file is read and written
+ * at once through a {@link java.nio.ByteBuffer}, instead of a {@link java.io.DataInputStream} of the file: the pages of the index are decoded
+ * with a {@link java.io.DataInputStream} of every page, and reading thousands of integers from another kind of stream before a build
+ * makes the compiled code of the decoding of the pages (and so the whole build) about twice as slow.
+ * @author Georgios Apostolakis
+ */
+public class SkipTable {
+	private HashMap<Integer, Integer> targets;
+	
+	/**
+	 * Constructs a new, empty table.
+	 */
+	public SkipTable() {
+		this.targets = new HashMap<Integer, Integer>();
+	}
+	
+	/**
+	 * Provides the page which follows the run that starts from a page.
+	 * @param page The number of the first page of the run.
+	 * @return The number of the page which follows the run, or -1 if no run of more than one page starts from the page.
+	 */
+	public int getTarget(int page) {
+		Integer target = targets.get(page);
+		return (target==null) ? -1 : target;
+	}
+	
+	/**
+	 * Records the page which follows the run that starts from a page, replacing the previous one (e.g. after the run has become longer).
+	 * Every page of the run after the first one must contain no records of any other file.
+	 * @param page The number of the first page of the run.
+	 * @param target The number of the page which follows the run.
+	 */
+	public void setTarget(int page, int target) {
+		targets.put(page, target);
+	}
+	
+	/**
+	 * Deletes all the pointers, e.g. after the index has been cleared.
+	 */
+	public void clear() {
+		targets.clear();
+	}
+	
+	/**
+	 * Provides the number of pointers of the table.
+	 * @return An integer with the number of runs of more than one page.
+	 */
+	public int size() {
+		return targets.size();
+	}
+	
+	/**
+	 * Reads a table which was previously saved with {@link #writeToFile(String)}.
+	 * @param filename The name of the binary file where the table is stored.
+	 * @return A new {@link SkipTable} object, or {@code null} if the file does not exist.
+	 * @throws IOException In case of an error while reading the file, or a malformed file.
+	 */
+	public static SkipTable readFromFile(String filename) throws IOException {
+		if(!new File(filename).exists())
+			return null;
+		
+		SkipTable table = new SkipTable();
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(new File(filename).toPath()));
+		int size = (buffer.remaining()>=(Integer.SIZE/8)) ? buffer.getInt() : -1;
+		if(size<0 || buffer.remaining()!=2L*size*(Integer.SIZE/8))
+			throw new IOException("The binary file " + filename + " does not contain a table of skip pointers.");
+		for(int i=0;i<size;i++) {
+			int page = buffer.getInt();
+			table.targets.put(page, buffer.getInt());
+		}
+		return table;
+	}
+	
+	/**
+	 * Saves the table into a binary file, replacing its previous contents.
+	 * @param filename The name of the binary file where the table will be stored.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void writeToFile(String filename) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((1 + 2*targets.size())*(Integer.SIZE/8));
+		
+		buffer.putInt(targets.size());
+		for(Map.Entry<Integer, Integer> e : targets.entrySet()) {
+			buffer.putInt(e.getKey());
+			buffer.putInt(e.getValue());
+		}
+		Files.write(new File(filename).toPath(), buffer.array());
+	}
+}
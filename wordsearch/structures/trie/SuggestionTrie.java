@@ -0,0 +1,182 @@
+package wordsearch.structures.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * This class implements a trie over the words of the dictionary, which provides the most frequent words with a given prefix.
+ * Every node of the trie keeps the number of occurrences of its word (if it is the end of a word) and the highest number of occurrences
+ * among all the words below it. Thus, the words with a prefix are found in decreasing order of occurrences by a best-first search
+ * from the node of the prefix, which visits only the nodes on the paths to the words that it provides, and their siblings.
+ * <p>
+ * The trie is kept in memory as parallel arrays, with the children of every node as a linked list of siblings in alphabetical order.
+ * It is built in one pass from the words in alphabetical order (e.g. from a {@link wordsearch.structures.btree.BTreeCursor}), and it cannot be modified afterwards.
+ * @author Georgios Apostolakis
+ */
+public class SuggestionTrie {
+	private char[] labels;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] counts;  //the occurrences of the word which ends at every node, or 0 if no word ends there
+	private int[] maxCounts;  //the highest number of occurrences in the subtree of every node
+	private int size;
+	private int[] path;  //the nodes of the last word which was added, by depth
+	private String lastWord;
+	private int numOfWords;
+	
+	/**
+	 * Constructs a new trie, which contains only the empty prefix.
+	 */
+	public SuggestionTrie() {
+		this.labels = new char[16];
+		this.firstChild = new int[16];
+		this.nextSibling = new int[16];
+		this.counts = new int[16];
+		this.maxCounts = new int[16];
+		this.size = 1;  //the root
+		this.firstChild[0] = -1;
+		this.nextSibling[0] = -1;
+		this.path = new int[] {0};
+		this.lastWord = "";
+		this.numOfWords = 0;
+	}
+	
+	/**
+	 * Adds a new word to the trie. The words must be added in alphabetical order, and each one only once.
+	 * @param word A {@link java.lang.String} with the word, which must not be empty.
+	 * @param count The number of occurrences of the word, which must be positive.
+	 * @throws IllegalArgumentException If the word is empty, or it does not follow the last word which was added.
+	 */
+	public void add(String word, int count) {
+		int common = 0, node;
+		
+		if(word.isEmpty() || word.compareTo(lastWord)<=0)
+			throw new IllegalArgumentException("The words must be added in alphabetical order, and each one only once.");
+		while(common<lastWord.length() && common<word.length() && word.charAt(common)==lastWord.charAt(common))
+			common++;
+		
+		if(path.length<word.length()+1)
+			path = Arrays.copyOf(path, Math.max(word.length()+1, 2*path.length));
+		for(int d=common;d<word.length();d++) {  //a new node for every character after the common prefix, as the last child of its father
+			node = newNode(word.charAt(d));
+			if(d==common && d<lastWord.length())  //the node of the last word after the common prefix is the previous sibling
+				nextSibling[path[d+1]] = node;
+			else
+				firstChild[path[d]] = node;
+			path[d+1] = node;
+		}
+		counts[path[word.length()]] = count;
+		for(int d=0;d<=word.length();d++)
+			maxCounts[path[d]] = Math.max(maxCounts[path[d]], count);
+		lastWord = word;
+		numOfWords++;
+	}
+	
+	/**
+	 * Provides the number of words of the trie.
+	 * @return An integer with the number of words.
+	 */
+	public int getNumOfWords() {
+		return numOfWords;
+	}
+	
+	/**
+	 * Provides the number of nodes of the trie, which is one more than the number of distinct prefixes of its words.
+	 * @return An integer with the number of nodes.
+	 */
+	public int getNumOfNodes() {
+		return size;
+	}
+	
+	/**
+	 * Finds the most frequent words with a given prefix.
+	 * @param prefix A {@link java.lang.String} with the prefix. The empty prefix matches all the words.
+	 * @param k The maximum number of words to be provided.
+	 * @return An {@link java.util.ArrayList} with up to k arrays, each one containing a word and its number of occurrences, in decreasing order
+	 * of occurrences (and in alphabetical order among words with the same occurrences).
+	 */
+	public ArrayList<String[]> suggest(String prefix, int k) {
+		ArrayList<String[]> results = new ArrayList<String[]>();
+		PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+		int node = 0;
+		
+		for(int i=0;i<prefix.length() && node>=0;i++)
+			node = findChild(node, prefix.charAt(i));
+		if(node<0 || k<=0)
+			return results;
+		
+		queue.add(new Entry(prefix, node, false));
+		while(!queue.isEmpty() && results.size()<k) {
+			Entry e = queue.poll();
+			if(e.isWord) {
+				results.add(new String[] {e.prefix, counts[e.node]+""});
+				continue;
+			}
+			if(counts[e.node]>0)  //the prefix itself is a word, which is smaller than all the words below it
+				queue.add(new Entry(e.prefix, e.node, true));
+			for(int c=firstChild[e.node];c>=0;c=nextSibling[c])
+				queue.add(new Entry(e.prefix + labels[c], c, false));
+		}
+		return results;
+	}
+	
+	/**
+	 * Provides the child of a node with a given label, or -1 if there is none.
+	 */
+	private int findChild(int node, char label) {
+		for(int c=firstChild[node];c>=0 && labels[c]<=label;c=nextSibling[c])
+			if(labels[c]==label)
+				return c;
+		return -1;
+	}
+	
+	/**
+	 * Appends a new node without any children or siblings, enlarging the arrays if they are full.
+	 */
+	private int newNode(char label) {
+		if(size==labels.length) {
+			labels = Arrays.copyOf(labels, 2*size);
+			firstChild = Arrays.copyOf(firstChild, 2*size);
+			nextSibling = Arrays.copyOf(nextSibling, 2*size);
+			counts = Arrays.copyOf(counts, 2*size);
+			maxCounts = Arrays.copyOf(maxCounts, 2*size);
+		}
+		labels[size] = label;
+		firstChild[size] = -1;
+		nextSibling[size] = -1;
+		counts[size] = 0;
+		maxCounts[size] = 0;
+		return size++;
+	}
+	
+	/**
+	 * An entry of the best-first search: either a word, or the subtree of all the words with a prefix.
+	 * The entries are ordered by the highest number of occurrences which they may provide, and then alphabetically, since the words
+	 * of a subtree are not less than its prefix, and the prefixes in the queue are never prefixes of each other.
+	 */
+	private class Entry implements Comparable<Entry> {
+		private final String prefix;
+		private final int node;
+		private final boolean isWord;
+		
+		private Entry(String prefix, int node, boolean isWord) {
+			this.prefix = prefix;
+			this.node = node;
+			this.isWord = isWord;
+		}
+		
+		private int priority() {
+			return isWord ? counts[node] : maxCounts[node];
+		}
+		
+		@Override
+		public int compareTo(Entry other) {
+			if(priority()!=other.priority())
+				return Integer.compare(other.priority(), priority());
+			if(!prefix.equals(other.prefix))
+				return prefix.compareTo(other.prefix);
+			return isWord ? -1 : (other.isWord ? 1 : 0);  //a word comes before the words which extend it
+		}
+	}
+}
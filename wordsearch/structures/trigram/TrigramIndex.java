@@ -0,0 +1,217 @@
+package wordsearch.structures.trigram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class implements an index of the trigrams (the substrings of 3 characters) of the words of the dictionary, which finds the words
+ * that contain a given substring without reading the whole dictionary. Every word has an id, in the order in which it was added, and every trigram
+ * is mapped to the ids of the words which contain it, in increasing order. The words which contain a substring of at least 3 characters contain all
+ * of its trigrams, so they are found by intersecting the lists of its trigrams, starting from the shortest one, and then checking every remaining word.
+ * <p>
+ * The index is kept in memory, and it can be saved into (and restored from) a binary file on the disk. New words can be added at any time.
+ * @author Georgios Apostolakis
+ */
+public class TrigramIndex {
+	private ArrayList<String> words;
+	private HashMap<String, int[]> postings;  //the ids of the words of every trigram, followed by unused space
+	private HashMap<String, Integer> lengths;  //the number of ids in every list of postings
+	private long numOfPostings;
+	
+	/**
+	 * The length of the substrings which are indexed.
+	 */
+	public static final int N = 3;
+	
+	/**
+	 * Constructs a new, empty index.
+	 */
+	public TrigramIndex() {
+		this.words = new ArrayList<String>();
+		this.postings = new HashMap<String, int[]>();
+		this.lengths = new HashMap<String, Integer>();
+		this.numOfPostings = 0;
+	}
+	
+	/**
+	 * Adds a new word to the index, with the next id. Every word must be added only once.
+	 * @param word A {@link java.lang.String} with the word.
+	 */
+	public void add(String word) {
+		int id = words.size();
+		
+		words.add(word);
+		for(int i=0;i+N<=word.length();i++) {
+			String trigram = word.substring(i, i+N);
+			int[] list = postings.get(trigram);
+			int length = lengths.getOrDefault(trigram, 0);
+			if(length>0 && list[length-1]==id)  //the trigram occurs more than once in the word
+				continue;
+			if(list==null || length==list.length) {
+				list = (list==null) ? new int[1] : Arrays.copyOf(list, 2*length);
+				postings.put(trigram, list);
+			}
+			list[length] = id;
+			lengths.put(trigram, length+1);
+			numOfPostings++;
+		}
+	}
+	
+	/**
+	 * Provides the number of words of the index.
+	 * @return An integer with the number of words.
+	 */
+	public int getNumOfWords() {
+		return words.size();
+	}
+	
+	/**
+	 * Provides the number of distinct trigrams of the words of the index.
+	 * @return An integer with the number of trigrams.
+	 */
+	public int getNumOfTrigrams() {
+		return postings.size();
+	}
+	
+	/**
+	 * Provides the size of the index, as it is saved by {@link #writeToFile(String)}.
+	 * @return A long number with the size in bytes.
+	 */
+	public long getSizeInBytes() {
+		long size = 2*(Integer.SIZE/8);  //the number of words and the number of trigrams
+		
+		for(String word : words)
+			size += 2 + word.length();  //as modified UTF-8, with one byte per ASCII character
+		return size + postings.size()*(2*N + Integer.SIZE/8) + numOfPostings*(Integer.SIZE/8);
+	}
+	
+	/**
+	 * Finds all the words of the index which contain a given substring.
+	 * If the substring is shorter than a trigram, every word of the index is checked.
+	 * @param substring A {@link java.lang.String} with the substring.
+	 * @return An {@link java.util.ArrayList} with the words which contain the substring, in the order of their ids.
+	 */
+	public ArrayList<String> findWordsContaining(String substring) {
+		ArrayList<String> results = new ArrayList<String>();
+		int[] candidates = null;
+		int numOfCandidates = 0;
+		
+		if(substring.length()<N) {
+			for(String word : words)
+				if(word.contains(substring))
+					results.add(word);
+			return results;
+		}
+		
+		String[] trigrams = new String[substring.length()-N+1];
+		for(int i=0;i<trigrams.length;i++) {
+			trigrams[i] = substring.substring(i, i+N);
+			if(!postings.containsKey(trigrams[i]))  //no word contains this trigram
+				return results;
+		}
+		Arrays.sort(trigrams, (x, y) -> Integer.compare(lengths.get(x), lengths.get(y)));  //the shortest lists first
+		
+		for(String trigram : trigrams) {
+			if(candidates==null) {
+				numOfCandidates = lengths.get(trigram);
+				candidates = Arrays.copyOf(postings.get(trigram), numOfCandidates);
+			}
+			else
+				numOfCandidates = intersect(candidates, numOfCandidates, postings.get(trigram), lengths.get(trigram));
+			if(numOfCandidates==0)
+				return results;
+		}
+		for(int i=0;i<numOfCandidates;i++)  //the trigrams may occur in another order, or apart
+			if(words.get(candidates[i]).contains(substring))
+				results.add(words.get(candidates[i]));
+		return results;
+	}
+	
+	/**
+	 * Keeps only the ids of the first sorted list which also exist in the second one, at the start of the first list.
+	 * @return The number of ids which were kept.
+	 */
+	private static int intersect(int[] list, int length, int[] other, int otherLength) {
+		int kept = 0;
+		
+		for(int i=0, j=0;i<length && j<otherLength;) {
+			if(list[i]<other[j])
+				i++;
+			else if(list[i]>other[j])
+				j++;
+			else {
+				list[kept++] = list[i++];
+				j++;
+			}
+		}
+		return kept;
+	}
+	
+	/**
+	 * Reads an index which was previously saved with {@link #writeToFile(String)}.
+	 * @param filename The name of the binary file where the index is stored.
+	 * @return A new {@link TrigramIndex} object, or {@code null} if the file does not exist.
+	 * @throws IOException In case of an error while reading the file, or a malformed file.
+	 */
+	public static TrigramIndex readFromFile(String filename) throws IOException {
+		if(!new File(filename).exists())
+			return null;
+		
+		TrigramIndex index = new TrigramIndex();
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+		try {
+			int numOfWords = dis.readInt();
+			for(int i=0;i<numOfWords;i++)
+				index.words.add(dis.readUTF());
+			int numOfTrigrams = dis.readInt();
+			for(int t=0;t<numOfTrigrams;t++) {
+				char[] trigram = new char[N];
+				for(int i=0;i<N;i++)
+					trigram[i] = dis.readChar();
+				int[] list = new int[dis.readInt()];
+				for(int i=0;i<list.length;i++)
+					list[i] = dis.readInt();
+				index.postings.put(new String(trigram), list);
+				index.lengths.put(new String(trigram), list.length);
+				index.numOfPostings += list.length;
+			}
+			return index;
+		} finally {
+			dis.close();
+		}
+	}
+	
+	/**
+	 * Saves the index into a binary file, replacing its previous contents.
+	 * @param filename The name of the binary file where the index will be stored.
+	 * @throws IOException In case of an error while writing the file.
+	 */
+	public void writeToFile(String filename) throws IOException {
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+		try {
+			dos.writeInt(words.size());
+			for(String word : words)
+				dos.writeUTF(word);
+			dos.writeInt(postings.size());
+			for(Map.Entry<String, int[]> e : postings.entrySet()) {
+				dos.writeChars(e.getKey());
+				int length = lengths.get(e.getKey());
+				dos.writeInt(length);
+				for(int i=0;i<length;i++)
+					dos.writeInt(e.getValue()[i]);
+			}
+		} finally {
+			dos.close();
+		}
+	}
+}